@@ -57,6 +57,9 @@ public class Activator implements BundleActivator {
         reg(new ST_Graph());
         reg(new ST_PlanarGraph());
         reg(new ST_ShortestPath());
+        reg(new ST_KShortestPaths());
+        reg(new ST_BuildContractionHierarchy());
+        reg(new ST_BuildLandmarks());
         reg(new ST_ToLineNoder());
         reg(new ST_FindReachableEdges());
         reg(new ST_MFindReachableEdges());
@@ -67,6 +70,7 @@ public class Activator implements BundleActivator {
         reg(new ST_GraphAnalysis());
         reg(new ST_StrahlerStreamOrder());
         reg(new ST_ShortestPathLength());
+        reg(new ST_DistanceMatrix());
         reg(new ST_ShortestPathTree());
         reg(new ST_Accessibility());
     }
@@ -0,0 +1,1235 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.shortestpath.NodeCoordinates;
+import org.gdms.gdmstopology.shortestpath.VertexQueue;
+import org.gdms.gdmstopology.shortestpath.VertexQueues;
+import org.gdms.gdmstopology.utils.IntIntHashMap;
+import org.orbisgis.progress.ProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the betweenness and closeness centrality of every vertex of a
+ * {@link CSRGraph}, and the betweenness centrality of every edge, using
+ * Brandes' algorithm from all sources or from a random sample of pivots.
+ *
+ * <p> The sources are shared out among worker threads. Each worker runs its
+ * own single-source searches with private distance, path count and dependency
+ * arrays, and accumulates betweenness in private arrays, which are summed once
+ * all sources are done. The searches use the {@link VertexQueue} chosen by
+ * {@link VertexQueues#create}, so unweighted graphs are explored with a bucket
+ * queue.
+ *
+ * <p> The results are those of java-network-analyzer:
+ * <ul>
+ * <li> betweenness centrality is normalized to [0, 1] by its minimum and
+ * maximum, separately for vertices and for edges;
+ * <li> the closeness centrality of a vertex is the number of other vertices
+ * divided by the sum of their distances from it, or 0 if some vertex cannot
+ * be reached from it;
+ * <li> parallel arcs each count as a shortest path; edge betweenness is
+ * shared among them, but for vertex betweenness the dependency of a vertex is
+ * propagated once to each of its predecessors, however many arcs join them.
+ * </ul>
+ * In undirected graphs, both arcs of an edge count towards its betweenness;
+ * in directed graphs, the reverse arc of an undirected edge is reported under
+ * the opposite id.
+ *
+ * <p> When a sample size {@code k} smaller than the number of vertices
+ * {@code n} is given, the searches only start from {@code k} pivots drawn
+ * without replacement, and the accumulated betweenness is scaled by
+ * {@code n / k} (Brandes and Pich, 2007). The standard error of each estimate
+ * is derived from the variance of the dependencies over the pivots, with a
+ * finite population correction, and expressed in the units of the normalized
+ * betweenness. The closeness of the pivots is exact; that of the other
+ * vertices is estimated from their distances to the pivots, found by a search
+ * on the reversed arcs from each pivot (Eppstein and Wang, 2004).
+ *
+ * <p> When a radius is given, each search stops at that distance from its
+ * source, so betweenness only counts the shortest paths no longer than the
+ * radius, and the closeness of a vertex becomes local: its reach (the number
+ * of other vertices within the radius) divided by the sum of their
+ * distances. The reach and the harmonic closeness (the sum of the inverse
+ * distances to the vertices within the radius) are also computed. Bounded
+ * searches cannot be combined with sampling.
+ *
+ * <p> Further {@link CentralityMetrics} of each source are accumulated while
+ * its vertices are settled, so they cost no additional search. The
+ * straightness of a source is the sum of the ratios of the Euclidean distance
+ * to the shortest path distance over the vertices reached, divided by the
+ * number of other vertices, or by the reach when the searches are bounded;
+ * vertices without coordinates do not contribute to it. The eccentricity of a
+ * source is the distance to the last vertex it reaches, or infinite if the
+ * searches are not bounded and it cannot reach every vertex. These metrics
+ * cannot be combined with sampling either, since only the pivots are
+ * searched from.
+ *
+ * @author Adam Gouge
+ */
+public final class BrandesCentrality {
+
+    /**
+     * How often the progress monitor is polled while the workers run, in
+     * milliseconds.
+     */
+    private static final long PROGRESS_INTERVAL = 200;
+    /**
+     * Default interval between two checkpoints (10 minutes).
+     */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 10 * 60 * 1000;
+    /**
+     * Number of sources per worker in a block when checkpointing.
+     */
+    private static final int BLOCK_SOURCES_PER_WORKER = 64;
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(BrandesCentrality.class);
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * The number of worker threads.
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    /**
+     * The number of pivots, or 0 to use all sources without estimating
+     * errors.
+     */
+    private int sampleSize = 0;
+    /**
+     * The seed used to draw the pivots.
+     */
+    private long seed = PivotSampling.DEFAULT_SEED;
+    /**
+     * The search radius.
+     */
+    private double radius = Double.POSITIVE_INFINITY;
+    /**
+     * The requested metrics.
+     */
+    private CentralityMetrics metrics = CentralityMetrics.NONE;
+    /**
+     * The metrics of the last computation, which always include reach and
+     * harmonic closeness when the searches are bounded.
+     */
+    private CentralityMetrics activeMetrics = CentralityMetrics.NONE;
+    /**
+     * The coordinates of the vertices, or {@code null}.
+     */
+    private NodeCoordinates coordinates = null;
+    /**
+     * The checkpoint file, or {@code null}.
+     */
+    private File checkpointFile = null;
+    /**
+     * Minimum interval between two checkpoints in milliseconds.
+     */
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    /**
+     * The sources of the searches, or {@code null} for all vertices.
+     */
+    private int[] sources;
+    /**
+     * Whether the closeness of each vertex is estimated from the pivots.
+     */
+    private boolean estimateCloseness;
+    /**
+     * The next source to be processed.
+     */
+    private final AtomicInteger nextSource = new AtomicInteger();
+    /**
+     * The end of the current block of sources.
+     */
+    private volatile int blockEnd;
+    /**
+     * The number of sources processed.
+     */
+    private final AtomicInteger doneCount = new AtomicInteger();
+    /**
+     * Set when the computation is cancelled.
+     */
+    private volatile boolean cancelled = false;
+    /**
+     * Closeness centrality of each vertex, written by the worker which
+     * processed it as a source.
+     */
+    private double[] closeness;
+    /**
+     * Number of other vertices reached from each vertex, or {@code null}.
+     */
+    private int[] reach;
+    /**
+     * Harmonic closeness centrality of each vertex, or {@code null}.
+     */
+    private double[] harmonicCloseness;
+    /**
+     * Straightness centrality of each vertex, or {@code null}.
+     */
+    private double[] straightness;
+    /**
+     * Gravity index of each vertex, or {@code null}.
+     */
+    private double[] gravity;
+    /**
+     * Eccentricity of each vertex, or {@code null}.
+     */
+    private double[] eccentricity;
+    /**
+     * Normalized betweenness centrality of each vertex.
+     */
+    private double[] betweenness;
+    /**
+     * Estimated error of the normalized betweenness of each vertex.
+     */
+    private double[] betweennessError;
+    /**
+     * Edge id of each edge.
+     */
+    private int[] edgeIds;
+    /**
+     * Normalized betweenness centrality of each edge.
+     */
+    private double[] edgeBetweenness;
+    /**
+     * Estimated error of the normalized betweenness of each edge.
+     */
+    private double[] edgeBetweennessError;
+
+    /**
+     * Constructs a new {@link BrandesCentrality} on the given graph.
+     *
+     * @param graph The graph.
+     */
+    public BrandesCentrality(CSRGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Sets the number of worker threads, by default the number of available
+     * processors.
+     *
+     * @param threadCount The number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be positive.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return The number of threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Approximates betweenness from the given number of pivots, drawn with
+     * the given seed, and estimates its error. If there are no more vertices
+     * than pivots, all vertices are used and the errors are 0.
+     *
+     * @param sampleSize The number of pivots, at least 2.
+     * @param seed       The random seed.
+     */
+    public void setSampling(int sampleSize, long seed) {
+        if (sampleSize < 2) {
+            throw new IllegalArgumentException(
+                    "At least two samples are needed to estimate the error.");
+        }
+        this.sampleSize = sampleSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Bounds each search to the given distance from its source.
+     *
+     * @param radius The radius, positive, or infinity for global indices.
+     */
+    public void setRadius(double radius) {
+        if (!(radius > 0)) {
+            throw new IllegalArgumentException(
+                    "The radius must be positive.");
+        }
+        this.radius = radius;
+    }
+
+    /**
+     * Returns {@code true} if the searches are bounded by a radius.
+     *
+     * @return Whether the indices are local.
+     */
+    public boolean isLocal() {
+        return radius < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Computes the given metrics along with betweenness and closeness.
+     *
+     * @param metrics The metrics.
+     */
+    public void setMetrics(CentralityMetrics metrics) {
+        this.metrics = metrics == null ? CentralityMetrics.NONE : metrics;
+    }
+
+    /**
+     * Sets the coordinates of the vertices, needed for straightness.
+     *
+     * @param coordinates The coordinates, or {@code null}.
+     */
+    public void setCoordinates(NodeCoordinates coordinates) {
+        if (coordinates != null
+            && coordinates.size() != graph.getVertexCount()) {
+            throw new IllegalArgumentException(
+                    "There must be coordinates for every vertex.");
+        }
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Saves the partial sums to the given file during the computation, and
+     * resumes from it if it holds a checkpoint of the same computation.
+     *
+     * @param file     The checkpoint file, or {@code null} for none.
+     * @param interval The minimum interval between two checkpoints in
+     *                 milliseconds.
+     */
+    public void setCheckpoint(File file, long interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException(
+                    "The checkpoint interval must not be negative.");
+        }
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * Returns the number of sources of the last computation.
+     *
+     * @return The number of sources.
+     */
+    public int getSourceCount() {
+        return sources == null ? graph.getVertexCount() : sources.length;
+    }
+
+    /**
+     * Computes the centrality indices, reporting one step per source to the
+     * progress monitor. The monitor is only used by the calling thread.
+     *
+     * <p> If a checkpoint file is set, the sources are processed in blocks;
+     * the sums are saved to the file at the end of a block once the
+     * checkpoint interval has elapsed, and when the computation is cancelled.
+     * A computation finding a checkpoint of the same graph and sampling
+     * resumes after its last saved block, and deletes the file once done.
+     *
+     * @param pm The progress monitor.
+     *
+     * @return {@code false} if the computation was cancelled, in which case
+     *         no results are available.
+     *
+     * @throws IllegalStateException If a worker fails or the calling thread
+     *                               is interrupted.
+     */
+    public boolean compute(ProgressMonitor pm) {
+        if (sampleSize > 0 && isLocal()) {
+            throw new IllegalArgumentException(
+                    "Sampling cannot be combined with a radius.");
+        }
+        if (sampleSize > 0 && !metrics.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Sampling cannot be combined with other metrics.");
+        }
+        if (metrics.contains(CentralityMetrics.STRAIGHTNESS)
+            && coordinates == null) {
+            throw new IllegalArgumentException(
+                    "Straightness needs the coordinates of the nodes.");
+        }
+        activeMetrics = isLocal()
+                ? metrics.with(CentralityMetrics.REACH
+                               | CentralityMetrics.HARMONIC_CLOSENESS)
+                : metrics;
+        final int n = graph.getVertexCount();
+        sources = sampleSize > 0 && sampleSize < n
+                ? drawPivots(n, sampleSize, seed)
+                : null;
+        estimateCloseness = sources != null;
+        final int sourceCount = getSourceCount();
+        final CentralityCheckpoint base = loadCheckpoint(sourceCount);
+        final int start = base == null ? 0 : base.processed;
+        doneCount.set(start);
+        cancelled = false;
+        closeness = base == null ? new double[n] : base.closeness.clone();
+        reach = !activeMetrics.contains(CentralityMetrics.REACH) ? null
+                : base == null ? new int[n] : base.reach.clone();
+        harmonicCloseness = resumed(CentralityMetrics.HARMONIC_CLOSENESS,
+                                    base == null ? null
+                                    : base.harmonicCloseness);
+        straightness = resumed(CentralityMetrics.STRAIGHTNESS,
+                               base == null ? null : base.straightness);
+        gravity = resumed(CentralityMetrics.GRAVITY,
+                          base == null ? null : base.gravity);
+        eccentricity = resumed(CentralityMetrics.ECCENTRICITY,
+                               base == null ? null : base.eccentricity);
+        betweenness = null;
+        betweennessError = null;
+        edgeIds = null;
+        edgeBetweenness = null;
+        edgeBetweennessError = null;
+        final int workerCount = Math.max(1, Math.min(threadCount,
+                                                     sourceCount - start));
+        final int blockSize = checkpointFile == null
+                ? sourceCount
+                : BLOCK_SOURCES_PER_WORKER * workerCount;
+        final List<Worker> workers = new ArrayList<Worker>(workerCount);
+        int processed = start;
+        pm.startTask("Computing centrality indices", sourceCount);
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(workerCount);
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(new Worker());
+            }
+            long lastCheckpoint = System.currentTimeMillis();
+            while (processed < sourceCount && !cancelled) {
+                blockEnd = (int) Math.min(sourceCount,
+                                          (long) processed + blockSize);
+                nextSource.set(processed);
+                final List<Future<Worker>> tasks =
+                        new ArrayList<Future<Worker>>(workerCount);
+                for (Worker worker : workers) {
+                    tasks.add(executor.submit(worker));
+                }
+                for (Future<Worker> task : tasks) {
+                    await(task, pm);
+                }
+                // Every source taken before the end of the block was
+                // processed, so the processed sources remain a prefix.
+                processed = Math.min(nextSource.get(), blockEnd);
+                if (pm.isCancelled()) {
+                    cancelled = true;
+                }
+                pm.progressTo(processed);
+                final long now = System.currentTimeMillis();
+                if (checkpointFile != null && processed < sourceCount
+                    && (cancelled
+                        || now - lastCheckpoint >= checkpointInterval)) {
+                    saveCheckpoint(sum(base, workers, processed));
+                    lastCheckpoint = now;
+                }
+            }
+        } catch (InterruptedException ex) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Problem doing graph analysis.",
+                                            ex);
+        } catch (ExecutionException ex) {
+            cancelled = true;
+            throw new IllegalStateException("Problem doing graph analysis.",
+                                            ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            pm.endTask();
+        }
+        if (cancelled) {
+            closeness = null;
+            reach = null;
+            harmonicCloseness = null;
+            straightness = null;
+            gravity = null;
+            eccentricity = null;
+            return false;
+        }
+        finish(sum(base, workers, processed));
+        if (checkpointFile != null && checkpointFile.isFile()
+            && !checkpointFile.delete()) {
+            LOGGER.warn("Could not delete checkpoint {}.", checkpointFile);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the array of a metric, starting from its saved values.
+     *
+     * @param metric The metric.
+     * @param saved  Its values in the checkpoint, or {@code null}.
+     *
+     * @return The array, or {@code null} if the metric is not computed.
+     */
+    private double[] resumed(int metric, double[] saved) {
+        if (!activeMetrics.contains(metric)) {
+            return null;
+        }
+        return saved == null
+                ? new double[graph.getVertexCount()]
+                : saved.clone();
+    }
+
+    /**
+     * Reads the checkpoint of this computation, if any.
+     *
+     * @param sourceCount The number of sources.
+     *
+     * @return The saved sums, or {@code null} to start from the first source.
+     */
+    private CentralityCheckpoint loadCheckpoint(int sourceCount) {
+        if (checkpointFile == null || !checkpointFile.isFile()) {
+            return null;
+        }
+        try {
+            final CentralityCheckpoint base = CentralityCheckpoint.read(
+                    checkpointFile, graph, sampleSize, seed, radius,
+                    activeMetrics, sourceCount, estimateCloseness);
+            LOGGER.info("Resuming from {} after {} of {} sources.",
+                        new Object[]{checkpointFile, base.processed,
+                                     sourceCount});
+            return base;
+        } catch (IOException ex) {
+            LOGGER.warn("Ignoring checkpoint: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the given sums to the checkpoint file. A failure is logged but
+     * does not stop the computation.
+     *
+     * @param sums The sums.
+     */
+    private void saveCheckpoint(CentralityCheckpoint sums) {
+        try {
+            sums.write(checkpointFile, graph, sampleSize, seed, radius,
+                       activeMetrics);
+            LOGGER.info("Saved {} of {} sources to {}.",
+                        new Object[]{sums.processed, sums.sourceCount,
+                                     checkpointFile});
+        } catch (IOException ex) {
+            LOGGER.warn("Could not save checkpoint: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Draws distinct pivots uniformly at random.
+     *
+     * @param n    The number of vertices.
+     * @param k    The number of pivots.
+     * @param seed The random seed.
+     *
+     * @return The pivots, in increasing order.
+     */
+    private static int[] drawPivots(int n, int k, long seed) {
+        final Random random = new Random(seed);
+        final int[] vertices = new int[n];
+        for (int v = 0; v < n; v++) {
+            vertices[v] = v;
+        }
+        for (int i = 0; i < k; i++) {
+            final int j = i + random.nextInt(n - i);
+            final int tmp = vertices[i];
+            vertices[i] = vertices[j];
+            vertices[j] = tmp;
+        }
+        final int[] pivots = Arrays.copyOf(vertices, k);
+        Arrays.sort(pivots);
+        return pivots;
+    }
+
+    /**
+     * Waits for a worker, polling the progress monitor in the meantime.
+     *
+     * @param task The worker task.
+     * @param pm   The progress monitor.
+     *
+     * @return The worker.
+     *
+     * @throws InterruptedException If the calling thread is interrupted.
+     * @throws ExecutionException   If the worker failed.
+     */
+    private Worker await(Future<Worker> task, ProgressMonitor pm)
+            throws InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                return task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (pm.isCancelled()) {
+                    cancelled = true;
+                }
+                pm.progressTo(doneCount.get());
+            }
+        }
+    }
+
+    /**
+     * Sums the accumulators of the workers and those of the checkpoint the
+     * computation resumed from. Must only be called between blocks.
+     *
+     * @param base      The checkpoint, or {@code null}.
+     * @param workers   The workers.
+     * @param processed The number of sources processed.
+     *
+     * @return The sums.
+     */
+    private CentralityCheckpoint sum(CentralityCheckpoint base,
+                                     List<Worker> workers, int processed) {
+        final boolean sampling = sampleSize > 0;
+        final CentralityCheckpoint sums = new CentralityCheckpoint(
+                graph, getSourceCount(), sampling, estimateCloseness,
+                activeMetrics.getMask());
+        sums.processed = processed;
+        System.arraycopy(closeness, 0, sums.closeness, 0, closeness.length);
+        copy(reach, sums.reach);
+        copy(harmonicCloseness, sums.harmonicCloseness);
+        copy(straightness, sums.straightness);
+        copy(gravity, sums.gravity);
+        copy(eccentricity, sums.eccentricity);
+        if (base != null) {
+            add(sums, base.betweenness, base.arcBetweenness, base.squares,
+                base.arcSquares, base.distanceSums, base.reachedCounts);
+        }
+        for (Worker worker : workers) {
+            add(sums, worker.betweenness, worker.arcBetweenness,
+                worker.squares, worker.arcSquares, worker.distanceSums,
+                worker.reachedCounts);
+        }
+        return sums;
+    }
+
+    /**
+     * Adds the given accumulators to the given sums.
+     */
+    private void add(CentralityCheckpoint sums, double[] vertexValues,
+                     double[] arcValues, double[] squares,
+                     double[] arcSquares, double[] distanceSums,
+                     int[] reachedCounts) {
+        add(sums.betweenness, vertexValues);
+        add(sums.arcBetweenness, arcValues);
+        if (sums.squares != null) {
+            add(sums.squares, squares);
+            add(sums.arcSquares, arcSquares);
+        }
+        if (sums.distanceSums != null) {
+            add(sums.distanceSums, distanceSums);
+            for (int v = 0; v < reachedCounts.length; v++) {
+                sums.reachedCounts[v] += reachedCounts[v];
+            }
+        }
+    }
+
+    /**
+     * Aggregates the sums by edge and normalizes the results.
+     *
+     * @param sums The sums over all sources.
+     */
+    private void finish(CentralityCheckpoint sums) {
+        final int m = graph.getArcCount();
+        final boolean sampling = sums.squares != null;
+        betweenness = sums.betweenness;
+        final double[] arcBetweenness = sums.arcBetweenness;
+        final double[] arcSquares = sums.arcSquares;
+        if (estimateCloseness) {
+            estimateCloseness(sums.distanceSums, sums.reachedCounts);
+        }
+        // Both arcs of an edge of an undirected graph have the same id.
+        final IntIntHashMap slots = new IntIntHashMap(m, -1);
+        final int[] ids = new int[m];
+        final double[] edgeSums = new double[m];
+        final double[] edgeSquares = sampling ? new double[m] : null;
+        int edgeCount = 0;
+        for (int arc = 0; arc < m; arc++) {
+            final int id = graph.getArcEdgeId(arc);
+            int slot = slots.get(id);
+            if (slot < 0) {
+                slot = edgeCount++;
+                slots.put(id, slot);
+                ids[slot] = id;
+            }
+            edgeSums[slot] += arcBetweenness[arc];
+            if (sampling) {
+                edgeSquares[slot] += arcSquares[arc];
+            }
+        }
+        edgeIds = Arrays.copyOf(ids, edgeCount);
+        edgeBetweenness = Arrays.copyOf(edgeSums, edgeCount);
+        if (sampling) {
+            betweennessError = standardErrors(betweenness, sums.squares);
+            edgeBetweennessError = standardErrors(
+                    edgeBetweenness, Arrays.copyOf(edgeSquares, edgeCount));
+        }
+        scale(betweenness);
+        scale(edgeBetweenness);
+        normalize(betweenness, betweennessError);
+        normalize(edgeBetweenness, edgeBetweennessError);
+    }
+
+    /**
+     * Adds the given values to the given totals.
+     *
+     * @param totals The totals.
+     * @param values The values.
+     */
+    private static void copy(int[] values, int[] copy) {
+        if (values != null) {
+            System.arraycopy(values, 0, copy, 0, values.length);
+        }
+    }
+
+    private static void copy(double[] values, double[] copy) {
+        if (values != null) {
+            System.arraycopy(values, 0, copy, 0, values.length);
+        }
+    }
+
+    private static void add(double[] totals, double[] values) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += values[i];
+        }
+    }
+
+    /**
+     * Estimates the closeness of the vertices which are not pivots from the
+     * sum of their distances to the pivots.
+     *
+     * @param distanceSums  The sum of the distances of each vertex to the
+     *                      pivots.
+     * @param reachedCounts The number of pivots reached from each vertex.
+     */
+    private void estimateCloseness(double[] distanceSums,
+                                   int[] reachedCounts) {
+        final boolean[] pivots = new boolean[graph.getVertexCount()];
+        for (int pivot : sources) {
+            pivots[pivot] = true;
+        }
+        for (int v = 0; v < pivots.length; v++) {
+            if (!pivots[v]) {
+                closeness[v] = reachedCounts[v] == sources.length
+                        && distanceSums[v] > 0
+                        ? sources.length / distanceSums[v]
+                        : 0.0;
+            }
+        }
+    }
+
+    /**
+     * Returns the standard error of the scaled sum of the dependencies over
+     * the pivots, given their sums and sums of squares.
+     *
+     * @param sums    The sums of the dependencies.
+     * @param squares The sums of their squares.
+     *
+     * @return The standard errors, 0 if all vertices were sources.
+     */
+    private double[] standardErrors(double[] sums, double[] squares) {
+        final double n = graph.getVertexCount();
+        final double k = getSourceCount();
+        final double[] errors = new double[sums.length];
+        if (k < n) {
+            final double correction = (n - k) / (n - 1);
+            for (int i = 0; i < sums.length; i++) {
+                final double variance = Math.max(0.0,
+                        (squares[i] - sums[i] * sums[i] / k) / (k - 1));
+                errors[i] = n / k * Math.sqrt(k * variance * correction);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Scales sums over the pivots to estimates of the sums over all
+     * vertices.
+     *
+     * @param values The values.
+     */
+    private void scale(double[] values) {
+        if (sources != null) {
+            final double factor =
+                    (double) graph.getVertexCount() / sources.length;
+            for (int i = 0; i < values.length; i++) {
+                values[i] *= factor;
+            }
+        }
+    }
+
+    /**
+     * Normalizes the given values to [0, 1] by their minimum and maximum, and
+     * their errors by the same range. If all values are equal, they are all
+     * set to 0.
+     *
+     * @param values The values.
+     * @param errors The errors, or {@code null}.
+     */
+    private static void normalize(double[] values, double[] errors) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final double range = max - min;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = range > 0 ? (values[i] - min) / range : 0.0;
+            if (errors != null) {
+                errors[i] = range > 0 ? errors[i] / range : 0.0;
+            }
+        }
+    }
+
+    /**
+     * Returns the normalized betweenness centrality of each vertex, by dense
+     * index.
+     *
+     * @return The betweenness centrality, or {@code null} if it was not
+     *         computed.
+     */
+    public double[] getBetweenness() {
+        return betweenness;
+    }
+
+    /**
+     * Returns the estimated error of the normalized betweenness centrality of
+     * each vertex, by dense index.
+     *
+     * @return The errors, or {@code null} if no sampling was requested.
+     */
+    public double[] getBetweennessError() {
+        return betweennessError;
+    }
+
+    /**
+     * Returns the closeness centrality of each vertex, by dense index.
+     *
+     * @return The closeness centrality, or {@code null} if it was not
+     *         computed.
+     */
+    public double[] getCloseness() {
+        return closeness;
+    }
+
+    /**
+     * Returns the metrics of the last computation.
+     *
+     * @return The metrics, including reach and harmonic closeness if the
+     *         searches were bounded.
+     */
+    public CentralityMetrics getMetrics() {
+        return activeMetrics;
+    }
+
+    /**
+     * Returns the number of other vertices reached from each vertex, within
+     * the radius if any, by dense index.
+     *
+     * @return The reach, or {@code null} if it was not computed.
+     */
+    public int[] getReach() {
+        return reach;
+    }
+
+    /**
+     * Returns the harmonic closeness centrality of each vertex, by dense
+     * index.
+     *
+     * @return The harmonic closeness, or {@code null} if it was not computed.
+     */
+    public double[] getHarmonicCloseness() {
+        return harmonicCloseness;
+    }
+
+    /**
+     * Returns the straightness centrality of each vertex, by dense index.
+     *
+     * @return The straightness, or {@code null} if it was not computed.
+     */
+    public double[] getStraightness() {
+        return straightness;
+    }
+
+    /**
+     * Returns the gravity index of each vertex, by dense index.
+     *
+     * @return The gravity index, or {@code null} if it was not computed.
+     */
+    public double[] getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Returns the eccentricity of each vertex, by dense index.
+     *
+     * @return The eccentricity, or {@code null} if it was not computed.
+     */
+    public double[] getEccentricity() {
+        return eccentricity;
+    }
+
+    /**
+     * Returns the ids of the edges of the graph, in the order of
+     * {@link #getEdgeBetweenness()}.
+     *
+     * @return The edge ids, or {@code null} if they were not computed.
+     */
+    public int[] getEdgeIds() {
+        return edgeIds;
+    }
+
+    /**
+     * Returns the normalized betweenness centrality of each edge, in the order
+     * of {@link #getEdgeIds()}.
+     *
+     * @return The edge betweenness centrality, or {@code null} if it was not
+     *         computed.
+     */
+    public double[] getEdgeBetweenness() {
+        return edgeBetweenness;
+    }
+
+    /**
+     * Returns the estimated error of the normalized betweenness centrality of
+     * each edge, in the order of {@link #getEdgeIds()}.
+     *
+     * @return The errors, or {@code null} if no sampling was requested.
+     */
+    public double[] getEdgeBetweennessError() {
+        return edgeBetweennessError;
+    }
+
+    /**
+     * Runs the single-source searches of the sources it takes until none are
+     * left in the current block or the computation is cancelled.
+     */
+    private final class Worker implements Callable<Worker> {
+
+        /**
+         * Distance of each vertex from the source.
+         */
+        private final double[] distances;
+        /**
+         * Number of shortest paths from the source to each vertex.
+         */
+        private final double[] sigma;
+        /**
+         * Dependency of the source on each vertex, propagated once per
+         * predecessor.
+         */
+        private final double[] delta;
+        /**
+         * Dependency of the source on each vertex, propagated along every
+         * arc.
+         */
+        private final double[] edgeDelta;
+        /**
+         * Search in which each vertex was last reached: the source for
+         * forward searches, {@code -2 - source} for reverse ones.
+         */
+        private final int[] queries;
+        /**
+         * Position of each vertex in the settling order, or -1 if it is
+         * reached but not settled.
+         */
+        private final int[] positions;
+        /**
+         * The vertex whose dependency was last propagated to each vertex, or
+         * -1.
+         */
+        private final int[] credited;
+        /**
+         * The vertices in the order they were settled.
+         */
+        private final int[] stack;
+        /**
+         * The queue.
+         */
+        private final VertexQueue queue;
+        /**
+         * Unnormalized betweenness of each vertex.
+         */
+        private final double[] betweenness;
+        /**
+         * Unnormalized betweenness of each arc.
+         */
+        private final double[] arcBetweenness;
+        /**
+         * Sum of the squared dependencies on each vertex, when sampling.
+         */
+        private final double[] squares;
+        /**
+         * Sum of the squared dependencies on each arc, when sampling.
+         */
+        private final double[] arcSquares;
+        /**
+         * Sum of the distances of each vertex to the pivots, when estimating
+         * closeness.
+         */
+        private final double[] distanceSums;
+        /**
+         * Number of pivots reached from each vertex, when estimating
+         * closeness.
+         */
+        private final int[] reachedCounts;
+
+        /**
+         * Constructs a new worker.
+         */
+        Worker() {
+            final int n = graph.getVertexCount();
+            final int m = graph.getArcCount();
+            distances = new double[n];
+            sigma = new double[n];
+            delta = new double[n];
+            edgeDelta = new double[n];
+            queries = new int[n];
+            Arrays.fill(queries, -1);
+            positions = new int[n];
+            credited = new int[n];
+            stack = new int[n];
+            queue = VertexQueues.create(graph);
+            betweenness = new double[n];
+            arcBetweenness = new double[m];
+            squares = sampleSize > 0 ? new double[n] : null;
+            arcSquares = sampleSize > 0 ? new double[m] : null;
+            distanceSums = estimateCloseness ? new double[n] : null;
+            reachedCounts = estimateCloseness ? new int[n] : null;
+        }
+
+        @Override
+        public Worker call() {
+            final int end = blockEnd;
+            int i;
+            while (!cancelled
+                    && (i = nextSource.getAndIncrement()) < end) {
+                final int source = sources == null ? i : sources[i];
+                accumulate(source, search(source));
+                if (estimateCloseness) {
+                    reverseSearch(source);
+                }
+                doneCount.incrementAndGet();
+            }
+            return this;
+        }
+
+        /**
+         * Computes the distances and shortest path counts from the source to
+         * the vertices within the radius, its closeness centrality and its
+         * other metrics.
+         *
+         * @param source The source.
+         *
+         * @return The number of vertices settled.
+         */
+        private int search(int source) {
+            queue.clear();
+            queries[source] = source;
+            positions[source] = -1;
+            distances[source] = 0.0;
+            sigma[source] = 1.0;
+            queue.insertOrDecrease(source, 0.0);
+            final boolean straight = straightness != null
+                                     && coordinates.isKnown(source);
+            final double beta = activeMetrics.getBeta();
+            int count = 0;
+            double sum = 0.0;
+            double harmonic = 0.0;
+            double straightnessSum = 0.0;
+            double gravitySum = 0.0;
+            while (!queue.isEmpty()) {
+                final int u = queue.poll();
+                positions[u] = count;
+                stack[count++] = u;
+                delta[u] = 0.0;
+                edgeDelta[u] = 0.0;
+                credited[u] = -1;
+                final double du = distances[u];
+                sum += du;
+                if (du > 0) {
+                    harmonic += 1 / du;
+                    if (straight && coordinates.isKnown(u)) {
+                        straightnessSum += coordinates.distance(source, u) / du;
+                    }
+                }
+                if (gravity != null && u != source) {
+                    gravitySum += Math.exp(-beta * du);
+                }
+                for (int arc = graph.outArcsBegin(u); arc < graph.outArcsEnd(u);
+                        arc++) {
+                    final int w = graph.getArcTarget(arc);
+                    if (w == u) {
+                        continue;
+                    }
+                    final double d = du + graph.getArcWeight(arc);
+                    if (d > radius) {
+                        continue;
+                    }
+                    if (queries[w] != source) {
+                        queries[w] = source;
+                        positions[w] = -1;
+                        distances[w] = d;
+                        sigma[w] = sigma[u];
+                        queue.insertOrDecrease(w, d);
+                    } else if (positions[w] < 0) {
+                        if (d < distances[w]) {
+                            distances[w] = d;
+                            sigma[w] = sigma[u];
+                            queue.insertOrDecrease(w, d);
+                        } else if (d == distances[w]) {
+                            sigma[w] += sigma[u];
+                        }
+                    }
+                }
+            }
+            final int n = graph.getVertexCount();
+            final int reached = count - 1;
+            if (isLocal()) {
+                closeness[source] = sum > 0 ? reached / sum : 0.0;
+            } else {
+                closeness[source] = count == n && sum > 0
+                        ? (n - 1) / sum
+                        : 0.0;
+            }
+            if (reach != null) {
+                reach[source] = reached;
+            }
+            if (harmonicCloseness != null) {
+                harmonicCloseness[source] = harmonic;
+            }
+            if (straightness != null) {
+                final int others = isLocal() ? reached : n - 1;
+                straightness[source] = others > 0
+                        ? straightnessSum / others
+                        : 0.0;
+            }
+            if (gravity != null) {
+                gravity[source] = gravitySum;
+            }
+            if (eccentricity != null) {
+                // Without a radius, a source that cannot reach every vertex
+                // is infinitely far from some of them.
+                eccentricity[source] = isLocal() || count == n
+                        ? distances[stack[count - 1]]
+                        : Double.POSITIVE_INFINITY;
+            }
+            return count;
+        }
+
+        /**
+         * Propagates the dependencies of the source back along the shortest
+         * paths, in reverse settling order.
+         *
+         * @param source The source.
+         * @param count  The number of vertices settled.
+         */
+        private void accumulate(int source, int count) {
+            for (int i = count - 1; i > 0; i--) {
+                final int w = stack[i];
+                final double factor = 1 + delta[w];
+                final double edgeFactor = 1 + edgeDelta[w];
+                for (int p = graph.inArcsBegin(w); p < graph.inArcsEnd(w);
+                        p++) {
+                    final int arc = graph.getInArc(p);
+                    final int v = graph.getArcSource(arc);
+                    if (v == w || queries[v] != source
+                            || positions[v] < 0 || positions[v] >= i
+                            || distances[v] + graph.getArcWeight(arc)
+                            != distances[w]) {
+                        continue;
+                    }
+                    final double ratio = sigma[v] / sigma[w];
+                    final double c = ratio * edgeFactor;
+                    arcBetweenness[arc] += c;
+                    if (arcSquares != null) {
+                        arcSquares[arc] += c * c;
+                    }
+                    edgeDelta[v] += c;
+                    if (credited[v] != w) {
+                        credited[v] = w;
+                        delta[v] += ratio * factor;
+                    }
+                }
+                betweenness[w] += delta[w];
+                if (squares != null) {
+                    squares[w] += delta[w] * delta[w];
+                }
+            }
+        }
+
+        /**
+         * Adds the distance of every vertex to the pivot, found by a search on
+         * the reversed arcs.
+         *
+         * @param pivot The pivot.
+         */
+        private void reverseSearch(int pivot) {
+            final int query = -2 - pivot;
+            queue.clear();
+            queries[pivot] = query;
+            distances[pivot] = 0.0;
+            queue.insertOrDecrease(pivot, 0.0);
+            while (!queue.isEmpty()) {
+                final int u = queue.poll();
+                final double du = distances[u];
+                if (u != pivot) {
+                    distanceSums[u] += du;
+                    reachedCounts[u]++;
+                }
+                for (int p = graph.inArcsBegin(u); p < graph.inArcsEnd(u);
+                        p++) {
+                    final int arc = graph.getInArc(p);
+                    final int w = graph.getArcSource(arc);
+                    final double d = du + graph.getArcWeight(arc);
+                    if (queries[w] != query || d < distances[w]) {
+                        queries[w] = query;
+                        distances[w] = d;
+                        queue.insertOrDecrease(w, d);
+                    }
+                }
+            }
+        }
+    }
+}
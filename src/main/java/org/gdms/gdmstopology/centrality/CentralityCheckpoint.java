@@ -0,0 +1,487 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchy;
+
+/**
+ * The partial sums of a {@link BrandesCentrality} computation after its first
+ * sources, and the binary file they are saved to so that a long computation
+ * can resume after a crash or a cancellation.
+ *
+ * <p> The file starts with a 64-byte header (magic number, format version,
+ * vertex count <i>n</i>, arc count <i>m</i>, fingerprint of the graph,
+ * sample size, random seed, radius, decay of the gravity index, source count,
+ * number of processed sources and flags), followed by the sections
+ * <ol> <li> vertex betweenness ({@code double[n]}) <li> arc betweenness
+ * ({@code double[m]}) <li> closeness ({@code double[n]}) <li> when sampling,
+ * the sums of squared dependencies on the vertices ({@code double[n]}) and
+ * on the arcs ({@code double[m]}) <li> when estimating closeness, the sums of
+ * the distances to the pivots ({@code double[n]}) and the number of pivots
+ * reached ({@code int[n]}) <li> the {@link CentralityMetrics} of the
+ * processed sources which are computed, in column order: reach
+ * ({@code int[n]}), harmonic closeness, straightness, gravity index and
+ * eccentricity ({@code double[n]} each) </ol> all in little-endian byte
+ * order. The file is
+ * written next to its destination and then renamed, so an interrupted write
+ * leaves the previous checkpoint intact.
+ *
+ * @author Adam Gouge
+ */
+final class CentralityCheckpoint {
+
+    /**
+     * Magic number at the start of every checkpoint file ("GTCC").
+     */
+    static final int MAGIC = 0x47544343;
+    /**
+     * Current version of the file format.
+     */
+    static final int VERSION = 3;
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 64;
+    /**
+     * Flag set when the sums of squares are present.
+     */
+    private static final int SQUARES = 1;
+    /**
+     * Flag set when the closeness estimates are present.
+     */
+    private static final int DISTANCE_SUMS = 2;
+    /**
+     * Shift of the {@link CentralityMetrics} flags within the flags.
+     */
+    private static final int METRICS_SHIFT = 2;
+    /**
+     * Size of the buffer used to read and write the sections.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Byte order of the file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /**
+     * The number of sources.
+     */
+    final int sourceCount;
+    /**
+     * The number of sources processed, which are the first ones.
+     */
+    int processed;
+    /**
+     * Unnormalized betweenness of each vertex.
+     */
+    final double[] betweenness;
+    /**
+     * Unnormalized betweenness of each arc.
+     */
+    final double[] arcBetweenness;
+    /**
+     * Closeness of each processed source.
+     */
+    final double[] closeness;
+    /**
+     * Sum of the squared dependencies on each vertex, or {@code null}.
+     */
+    final double[] squares;
+    /**
+     * Sum of the squared dependencies on each arc, or {@code null}.
+     */
+    final double[] arcSquares;
+    /**
+     * Sum of the distances of each vertex to the pivots, or {@code null}.
+     */
+    final double[] distanceSums;
+    /**
+     * Number of pivots reached from each vertex, or {@code null}.
+     */
+    final int[] reachedCounts;
+    /**
+     * The {@link CentralityMetrics} flags of the metrics present.
+     */
+    final int metrics;
+    /**
+     * Reach of each processed source, or {@code null}.
+     */
+    final int[] reach;
+    /**
+     * Harmonic closeness of each processed source, or {@code null}.
+     */
+    final double[] harmonicCloseness;
+    /**
+     * Straightness of each processed source, or {@code null}.
+     */
+    final double[] straightness;
+    /**
+     * Gravity index of each processed source, or {@code null}.
+     */
+    final double[] gravity;
+    /**
+     * Eccentricity of each processed source, or {@code null}.
+     */
+    final double[] eccentricity;
+
+    /**
+     * Constructs empty sums.
+     *
+     * @param graph             The graph.
+     * @param sourceCount       The number of sources.
+     * @param sampling          Whether sums of squares are kept.
+     * @param estimateCloseness Whether the distances to the pivots are kept.
+     * @param metrics           The {@link CentralityMetrics} flags of the
+     *                          metrics kept.
+     */
+    CentralityCheckpoint(CSRGraph graph, int sourceCount, boolean sampling,
+                         boolean estimateCloseness, int metrics) {
+        final int n = graph.getVertexCount();
+        final int m = graph.getArcCount();
+        this.sourceCount = sourceCount;
+        betweenness = new double[n];
+        arcBetweenness = new double[m];
+        closeness = new double[n];
+        squares = sampling ? new double[n] : null;
+        arcSquares = sampling ? new double[m] : null;
+        distanceSums = estimateCloseness ? new double[n] : null;
+        reachedCounts = estimateCloseness ? new int[n] : null;
+        this.metrics = metrics;
+        reach = (metrics & CentralityMetrics.REACH) != 0 ? new int[n] : null;
+        harmonicCloseness = metricArray(CentralityMetrics.HARMONIC_CLOSENESS);
+        straightness = metricArray(CentralityMetrics.STRAIGHTNESS);
+        gravity = metricArray(CentralityMetrics.GRAVITY);
+        eccentricity = metricArray(CentralityMetrics.ECCENTRICITY);
+    }
+
+    private double[] metricArray(int metric) {
+        return (metrics & metric) != 0
+                ? new double[betweenness.length]
+                : null;
+    }
+
+    /**
+     * Writes the sums to the given file, replacing it.
+     *
+     * @param file       The file.
+     * @param graph      The graph.
+     * @param sampleSize The requested sample size, or 0.
+     * @param seed       The random seed.
+     * @param radius     The search radius.
+     * @param metrics    The metrics, giving the decay of the gravity index.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    void write(File file, CSRGraph graph, int sampleSize, long seed,
+               double radius, CentralityMetrics metrics) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        final RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            raf.setLength(0);
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer header =
+                    ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(graph.getVertexCount())
+                    .putInt(graph.getArcCount())
+                    .putInt(ContractionHierarchy.fingerprint(graph))
+                    .putInt(sampleSize).putLong(seed).putDouble(radius)
+                    .putDouble(metrics.getBeta())
+                    .putInt(sourceCount).putInt(processed)
+                    .putInt(flags(squares != null, distanceSums != null,
+                                  this.metrics))
+                    .putInt(0);
+            header.flip();
+            writeFully(channel, header);
+            final ByteBuffer buffer =
+                    ByteBuffer.allocate(BUFFER_SIZE).order(ORDER);
+            write(channel, buffer, betweenness);
+            write(channel, buffer, arcBetweenness);
+            write(channel, buffer, closeness);
+            if (squares != null) {
+                write(channel, buffer, squares);
+                write(channel, buffer, arcSquares);
+            }
+            if (distanceSums != null) {
+                write(channel, buffer, distanceSums);
+                for (int i = 0; i < reachedCounts.length; i++) {
+                    if (buffer.remaining() < 4) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putInt(reachedCounts[i]);
+                }
+                flush(channel, buffer);
+            }
+            if (reach != null) {
+                for (int i = 0; i < reach.length; i++) {
+                    if (buffer.remaining() < 4) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putInt(reach[i]);
+                }
+                flush(channel, buffer);
+            }
+            for (double[] values : metricArrays()) {
+                write(channel, buffer, values);
+            }
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            throw new IOException("Cannot replace checkpoint " + file + ".");
+        }
+    }
+
+    /**
+     * Reads the sums stored in the given file, making sure they belong to
+     * the same computation.
+     *
+     * @param file              The file.
+     * @param graph             The graph.
+     * @param sampleSize        The requested sample size, or 0.
+     * @param seed              The random seed.
+     * @param radius            The search radius.
+     * @param metrics           The metrics kept.
+     * @param sourceCount       The number of sources.
+     * @param estimateCloseness Whether the distances to the pivots are kept.
+     *
+     * @return The sums.
+     *
+     * @throws IOException If the file cannot be read, is not a checkpoint
+     *                     file or belongs to another computation.
+     */
+    static CentralityCheckpoint read(File file, CSRGraph graph,
+                                     int sampleSize, long seed,
+                                     double radius,
+                                     CentralityMetrics metrics,
+                                     int sourceCount,
+                                     boolean estimateCloseness)
+            throws IOException {
+        final boolean sampling = sampleSize > 0;
+        final CentralityCheckpoint sums = new CentralityCheckpoint(
+                graph, sourceCount, sampling, estimateCloseness,
+                metrics.getMask());
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a checkpoint file.");
+            }
+            final ByteBuffer header =
+                    ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a checkpoint file.");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint file version "
+                                      + version + " in " + file + ".");
+            }
+            if (header.getInt() != graph.getVertexCount()
+                || header.getInt() != graph.getArcCount()
+                || header.getInt() != ContractionHierarchy.fingerprint(graph)) {
+                throw new IOException(file + " was computed on another graph.");
+            }
+            if (header.getInt() != sampleSize || header.getLong() != seed) {
+                throw new IOException(file + " was computed with another "
+                                      + "sampling.");
+            }
+            if (Double.compare(header.getDouble(), radius) != 0) {
+                throw new IOException(file + " was computed with another "
+                                      + "radius.");
+            }
+            if (Double.compare(header.getDouble(), metrics.getBeta()) != 0) {
+                throw new IOException(file + " was computed with another "
+                                      + "gravity decay.");
+            }
+            if (header.getInt() != sourceCount) {
+                throw new IOException(file + " was computed with another "
+                                      + "sampling.");
+            }
+            sums.processed = header.getInt();
+            if (header.getInt() != flags(sampling, estimateCloseness,
+                                         sums.metrics)
+                || sums.processed < 0 || sums.processed > sourceCount
+                || channel.size() != sums.fileSize()) {
+                throw new IOException("Corrupt checkpoint file " + file + ".");
+            }
+            final ByteBuffer buffer =
+                    ByteBuffer.allocate(BUFFER_SIZE).order(ORDER);
+            buffer.flip();
+            read(channel, buffer, sums.betweenness);
+            read(channel, buffer, sums.arcBetweenness);
+            read(channel, buffer, sums.closeness);
+            if (sampling) {
+                read(channel, buffer, sums.squares);
+                read(channel, buffer, sums.arcSquares);
+            }
+            if (estimateCloseness) {
+                read(channel, buffer, sums.distanceSums);
+                for (int i = 0; i < sums.reachedCounts.length; i++) {
+                    if (buffer.remaining() < 4) {
+                        refill(channel, buffer);
+                    }
+                    sums.reachedCounts[i] = buffer.getInt();
+                }
+            }
+            if (sums.reach != null) {
+                for (int i = 0; i < sums.reach.length; i++) {
+                    if (buffer.remaining() < 4) {
+                        refill(channel, buffer);
+                    }
+                    sums.reach[i] = buffer.getInt();
+                }
+            }
+            for (double[] values : sums.metricArrays()) {
+                read(channel, buffer, values);
+            }
+        } finally {
+            raf.close();
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the size in bytes of the file holding these sums.
+     *
+     * @return The file size.
+     */
+    private long fileSize() {
+        final long n = betweenness.length;
+        final long m = arcBetweenness.length;
+        long size = HEADER_SIZE + 8 * (2 * n + m);
+        if (squares != null) {
+            size += 8 * (n + m);
+        }
+        if (distanceSums != null) {
+            size += 12 * n;
+        }
+        if (reach != null) {
+            size += 4 * n;
+        }
+        return size + 8 * n * metricArrays().size();
+    }
+
+    /**
+     * Returns the arrays of the metrics present other than reach, in file
+     * order.
+     *
+     * @return The arrays.
+     */
+    private List<double[]> metricArrays() {
+        final List<double[]> arrays = new ArrayList<double[]>(4);
+        for (double[] values : new double[][]{
+                    harmonicCloseness, straightness, gravity, eccentricity}) {
+            if (values != null) {
+                arrays.add(values);
+            }
+        }
+        return arrays;
+    }
+
+    private static int flags(boolean sampling, boolean estimateCloseness,
+                             int metrics) {
+        return (sampling ? SQUARES : 0)
+                | (estimateCloseness ? DISTANCE_SUMS : 0)
+                | (metrics << METRICS_SHIFT);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer,
+                              double[] values) throws IOException {
+        for (double value : values) {
+            if (buffer.remaining() < 8) {
+                flush(channel, buffer);
+            }
+            buffer.putDouble(value);
+        }
+        flush(channel, buffer);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer,
+                             double[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (buffer.remaining() < 8) {
+                refill(channel, buffer);
+            }
+            values[i] = buffer.getDouble();
+        }
+    }
+
+    /**
+     * Moves the unread bytes of the buffer to its start and fills the rest
+     * from the channel.
+     */
+    private static void refill(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        buffer.compact();
+        readFully(channel, buffer);
+        buffer.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() > 0) {
+                    return;
+                }
+                throw new IOException("Unexpected end of checkpoint file.");
+            }
+        }
+    }
+}
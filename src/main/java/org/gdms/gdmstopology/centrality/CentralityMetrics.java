@@ -0,0 +1,288 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import java.util.Locale;
+import org.gdms.gdmstopology.model.GraphSchema;
+
+/**
+ * A set of centrality indices computed by {@link BrandesCentrality} in the
+ * same shortest path searches as betweenness and closeness, so that each of
+ * them only costs a few operations per vertex settled:
+ * <ul> <li> {@link GraphSchema#REACH}: the number of other vertices reached;
+ * <li> {@link GraphSchema#HARMONIC_CLOSENESS}: the sum of the inverse
+ * distances to them; <li> {@link GraphSchema#STRAIGHTNESS}: the mean ratio of
+ * the Euclidean distance to the shortest path distance to the other vertices,
+ * which needs the coordinates of the nodes; <li> {@link GraphSchema#GRAVITY}:
+ * the sum of {@code exp(-beta * d)} over the distances {@code d} to the other
+ * vertices; <li> {@link GraphSchema#ECCENTRICITY}: the largest distance to a
+ * vertex reached, infinite for unbounded searches that miss some vertices.
+ * </ul>
+ *
+ * <p> The option string starts with {@code metrics=} followed by the names of
+ * the indices and optionally the decay of the gravity index, separated by
+ * commas, semicolons or spaces, for example
+ * {@code 'metrics=reach, straightness, gravity, beta=0.01'}.
+ *
+ * @author Adam Gouge
+ */
+public final class CentralityMetrics {
+
+    /**
+     * Prefix of the option string.
+     */
+    public static final String PREFIX = "metrics=";
+    /**
+     * Key of the decay of the gravity index.
+     */
+    public static final String BETA = "beta";
+    /**
+     * Default decay of the gravity index, per unit of distance.
+     */
+    public static final double DEFAULT_BETA = 1.0;
+    /**
+     * Reach.
+     */
+    public static final int REACH = 1;
+    /**
+     * Harmonic closeness.
+     */
+    public static final int HARMONIC_CLOSENESS = 2;
+    /**
+     * Straightness.
+     */
+    public static final int STRAIGHTNESS = 4;
+    /**
+     * Gravity index.
+     */
+    public static final int GRAVITY = 8;
+    /**
+     * Eccentricity.
+     */
+    public static final int ECCENTRICITY = 16;
+    /**
+     * No index.
+     */
+    public static final CentralityMetrics NONE =
+            new CentralityMetrics(0, DEFAULT_BETA);
+    /**
+     * The indices, in the order of their columns.
+     */
+    private static final int[] METRICS = new int[]{
+        REACH, HARMONIC_CLOSENESS, STRAIGHTNESS, GRAVITY, ECCENTRICITY};
+    /**
+     * The column names of the indices.
+     */
+    private static final String[] NAMES = new String[]{
+        GraphSchema.REACH, GraphSchema.HARMONIC_CLOSENESS,
+        GraphSchema.STRAIGHTNESS, GraphSchema.GRAVITY,
+        GraphSchema.ECCENTRICITY};
+    /**
+     * Separators of the names.
+     */
+    private static final String SEPARATORS = "[,;\\s]+";
+    /**
+     * The indices, as a combination of flags.
+     */
+    private final int mask;
+    /**
+     * The decay of the gravity index.
+     */
+    private final double beta;
+
+    /**
+     * Constructs a set of indices.
+     *
+     * @param mask The indices, as a combination of flags.
+     * @param beta The decay of the gravity index, positive.
+     */
+    public CentralityMetrics(int mask, double beta) {
+        if ((mask & ~(REACH | HARMONIC_CLOSENESS | STRAIGHTNESS | GRAVITY
+                      | ECCENTRICITY)) != 0) {
+            throw new IllegalArgumentException("Unknown metrics " + mask + ".");
+        }
+        if (!(beta > 0) || Double.isInfinite(beta)) {
+            throw new IllegalArgumentException(
+                    "The decay of the gravity index must be positive.");
+        }
+        this.mask = mask;
+        this.beta = beta;
+    }
+
+    /**
+     * Returns {@code true} if the given string is a metrics option string.
+     *
+     * @param s String
+     *
+     * @return Whether or not the string gives a set of indices.
+     */
+    public static boolean isMetricsString(String s) {
+        return s.trim().toLowerCase(Locale.ROOT).startsWith(PREFIX);
+    }
+
+    /**
+     * Parses a metrics option string.
+     *
+     * @param s String
+     *
+     * @return The set of indices.
+     *
+     * @throws IllegalArgumentException If the string is not a valid set of
+     *                                  indices.
+     */
+    public static CentralityMetrics parse(String s) {
+        if (!isMetricsString(s)) {
+            throw new IllegalArgumentException(
+                    "Bad metrics format: '" + s + "'.");
+        }
+        int mask = 0;
+        double b = DEFAULT_BETA;
+        final String list = s.trim().substring(PREFIX.length()).trim();
+        for (String token : list.split(SEPARATORS)) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            final String lower = token.toLowerCase(Locale.ROOT);
+            if (lower.startsWith(BETA + "=")) {
+                try {
+                    b = Double.parseDouble(
+                            token.substring(BETA.length() + 1));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException(
+                            "Bad metrics format: '" + s + "'.", ex);
+                }
+            } else {
+                final int metric = metricOf(lower);
+                if (metric == 0) {
+                    throw new IllegalArgumentException(
+                            "Unknown metric '" + token + "'.");
+                }
+                mask |= metric;
+            }
+        }
+        if (mask == 0) {
+            throw new IllegalArgumentException(
+                    "Please give at least one metric.");
+        }
+        return new CentralityMetrics(mask, b);
+    }
+
+    private static int metricOf(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return METRICS[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns this set with the given indices added.
+     *
+     * @param metrics The indices to add, as a combination of flags.
+     *
+     * @return The union.
+     */
+    public CentralityMetrics with(int metrics) {
+        return (mask | metrics) == mask
+                ? this
+                : new CentralityMetrics(mask | metrics, beta);
+    }
+
+    /**
+     * Returns {@code true} if the given index belongs to this set.
+     *
+     * @param metric The index.
+     *
+     * @return Whether the index is computed.
+     */
+    public boolean contains(int metric) {
+        return (mask & metric) != 0;
+    }
+
+    /**
+     * Returns {@code true} if this set is empty.
+     *
+     * @return Whether no index is computed.
+     */
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    /**
+     * Returns the indices as a combination of flags.
+     *
+     * @return The flags.
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Returns the decay of the gravity index.
+     *
+     * @return The decay, per unit of distance.
+     */
+    public double getBeta() {
+        return beta;
+    }
+
+    /**
+     * Returns the column names of the indices of this set, in column order.
+     *
+     * @return The column names.
+     */
+    public String[] getNames() {
+        final String[] names = new String[Integer.bitCount(mask)];
+        int j = 0;
+        for (int i = 0; i < METRICS.length; i++) {
+            if (contains(METRICS[i])) {
+                names[j++] = NAMES[i];
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(PREFIX);
+        final String[] names = getNames();
+        for (int i = 0; i < names.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(names[i]);
+        }
+        if (contains(GRAVITY)) {
+            sb.append(", ").append(BETA).append('=').append(beta);
+        }
+        return sb.toString();
+    }
+}
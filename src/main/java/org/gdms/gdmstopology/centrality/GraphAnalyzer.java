@@ -32,8 +32,9 @@
  */
 package org.gdms.gdmstopology.centrality;
 
-import org.javanetworkanalyzer.data.VCent;
-import java.util.Map;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import org.gdms.data.DataSourceFactory;
 import org.gdms.data.schema.DefaultMetadata;
 import org.gdms.data.schema.Metadata;
@@ -45,10 +46,11 @@ import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
 import org.gdms.driver.DriverException;
 import org.gdms.gdmstopology.functionhelpers.FunctionHelper;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.graphcreator.GraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
 import org.gdms.gdmstopology.model.GraphSchema;
-import org.javanetworkanalyzer.data.PathLengthData;
-import org.javanetworkanalyzer.model.EdgeCent;
-import org.jgrapht.Graph;
+import org.gdms.gdmstopology.shortestpath.NodeCoordinates;
 import org.orbisgis.progress.ProgressMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,10 +59,22 @@ import org.slf4j.LoggerFactory;
  * Calculates network parameters such as centrality indices on the nodes of a
  * given graph and writes them to a table.
  *
+ * <p> The indices are computed by a {@link BrandesCentrality} on the
+ * {@link CSRGraph} of the {@link GraphCache}, with one worker thread per
+ * available processor. If a {@link PivotSampling} is given, betweenness is
+ * approximated from a sample of pivots and both tables get an additional
+ * column holding the estimated error of the normalized betweenness. If a
+ * checkpoint file is given, partial results are saved to it periodically and
+ * a later analysis of the same graph resumes from them. If a radius is given,
+ * the searches are bounded by it and the node table gets the local indices
+ * instead: betweenness and closeness within the radius, reach and harmonic
+ * closeness. Other {@link CentralityMetrics} may be requested, each adding a
+ * column to the node table; straightness needs the nodes table of the graph
+ * for the coordinates of the nodes.
+ *
  * @author Adam Gouge
  */
-public abstract class GraphAnalyzer<V extends VCent, E extends EdgeCent, S extends PathLengthData>
-        extends FunctionHelper {
+public abstract class GraphAnalyzer extends FunctionHelper {
 
     /**
      * The data set.
@@ -70,11 +84,6 @@ public abstract class GraphAnalyzer<V extends VCent, E extends EdgeCent, S exten
      * Orientation.
      */
     protected final int orientation;
-    /**
-     * Error message when the analyzer cannot be prepared.
-     */
-    protected static final String ANALYZER_PREP_ERROR =
-            "Could not prepare analyzer.";
     /**
      * Result metadata.
      */
@@ -87,9 +96,50 @@ public abstract class GraphAnalyzer<V extends VCent, E extends EdgeCent, S exten
         GraphSchema.ID,
         GraphSchema.BETWEENNESS_CENTRALITY,
         GraphSchema.CLOSENESS_CENTRALITY});
+    /**
+     * Result metadata of an approximate analysis.
+     */
+    public static final Metadata MD_WITH_ERROR = new DefaultMetadata(
+            new Type[]{
+        TypeFactory.createType(Type.INT),
+        TypeFactory.createType(Type.DOUBLE),
+        TypeFactory.createType(Type.DOUBLE),
+        TypeFactory.createType(Type.DOUBLE)},
+            new String[]{
+        GraphSchema.ID,
+        GraphSchema.BETWEENNESS_CENTRALITY,
+        GraphSchema.CLOSENESS_CENTRALITY,
+        GraphSchema.BETWEENNESS_ERROR});
     private static final Logger LOGGER =
             LoggerFactory.getLogger(GraphAnalyzer.class);
-    private Graph<V, E> graph;
+    /**
+     * The number of worker threads.
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    /**
+     * The pivot sampling, or {@code null} for an exact analysis.
+     */
+    private PivotSampling sampling = null;
+    /**
+     * The search radius.
+     */
+    private double radius = Double.POSITIVE_INFINITY;
+    /**
+     * The requested metrics.
+     */
+    private CentralityMetrics metrics = CentralityMetrics.NONE;
+    /**
+     * The nodes table, or {@code null}.
+     */
+    private DataSet nodes = null;
+    /**
+     * The checkpoint file, or {@code null}.
+     */
+    private File checkpointFile = null;
+    /**
+     * The centrality indices, once computed.
+     */
+    private BrandesCentrality centrality;
 
     /**
      * Constructs a new {@link GraphAnalyzer}.
@@ -112,36 +162,164 @@ public abstract class GraphAnalyzer<V extends VCent, E extends EdgeCent, S exten
     }
 
     /**
-     * Prepares the graph analyzer.
+     * Creates the graph creator of the graph to analyze.
+     *
+     * @return The graph creator.
+     */
+    protected abstract GraphCreator<?, ?> createGraphCreator();
+
+    /**
+     * Sets the number of worker threads, by default the number of available
+     * processors.
      *
-     * @return The graph analyzer.
+     * @param threadCount The number of threads.
      */
-    protected abstract org.javanetworkanalyzer.analyzers.GraphAnalyzer<V, E, S> prepareAnalyzer();
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be positive.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Approximates betweenness from a sample of pivots.
+     *
+     * @param sampling The sampling, or {@code null} for an exact analysis.
+     */
+    public void setSampling(PivotSampling sampling) {
+        this.sampling = sampling;
+    }
+
+    /**
+     * Bounds the searches to the given distance from their source, giving
+     * local indices.
+     *
+     * @param radius The radius, or infinity for global indices.
+     */
+    public void setRadius(double radius) {
+        if (!(radius > 0)) {
+            throw new IllegalArgumentException(
+                    "The radius must be positive.");
+        }
+        this.radius = radius;
+    }
+
+    /**
+     * Computes the given metrics along with betweenness and closeness.
+     *
+     * @param metrics The metrics, or {@code null} for none.
+     */
+    public void setMetrics(CentralityMetrics metrics) {
+        this.metrics = metrics == null ? CentralityMetrics.NONE : metrics;
+    }
+
+    /**
+     * Sets the nodes table giving the coordinates of the nodes, needed for
+     * straightness.
+     *
+     * @param nodes The nodes table, or {@code null}.
+     */
+    public void setNodes(DataSet nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Returns the metrics written to the node table.
+     *
+     * @return The metrics.
+     */
+    private CentralityMetrics getOutputMetrics() {
+        return radius < Double.POSITIVE_INFINITY
+                ? metrics.with(CentralityMetrics.REACH
+                               | CentralityMetrics.HARMONIC_CLOSENESS)
+                : metrics;
+    }
+
+    /**
+     * Saves the partial results to the given file every
+     * {@link BrandesCentrality#DEFAULT_CHECKPOINT_INTERVAL} milliseconds, and
+     * resumes from it if it holds a checkpoint of the same analysis.
+     *
+     * @param checkpointFile The checkpoint file, or {@code null} for none.
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
 
     @Override
     protected Metadata createMetadata() {
-        return MD;
+        if (sampling != null) {
+            return MD_WITH_ERROR;
+        }
+        final String[] names = getOutputMetrics().getNames();
+        if (names.length == 0) {
+            return MD;
+        }
+        final Type[] types = new Type[3 + names.length];
+        final String[] fieldNames = new String[3 + names.length];
+        types[0] = TypeFactory.createType(Type.INT);
+        types[1] = TypeFactory.createType(Type.DOUBLE);
+        types[2] = TypeFactory.createType(Type.DOUBLE);
+        fieldNames[0] = GraphSchema.ID;
+        fieldNames[1] = GraphSchema.BETWEENNESS_CENTRALITY;
+        fieldNames[2] = GraphSchema.CLOSENESS_CENTRALITY;
+        for (int i = 0; i < names.length; i++) {
+            types[3 + i] = TypeFactory.createType(
+                    names[i].equals(GraphSchema.REACH)
+                    ? Type.INT
+                    : Type.DOUBLE);
+            fieldNames[3 + i] = names[i];
+        }
+        return new DefaultMetadata(types, fieldNames);
     }
 
     /**
-     * Returns a {@link DiskBufferDriver} for edge betweenness centrality.
+     * Returns a {@link DiskBufferDriver} for edge betweenness centrality. Must
+     * be called after {@link #prepareDataSet()}; the table is empty if the
+     * computation was cancelled.
      *
      * @return A {@link DiskBufferDriver} for edge betweenness centrality
      */
     public DiskBufferDriver getEdgesDriver()  {
         DiskBufferDriver edgesDriver = null;
         try {
-            edgesDriver = new DiskBufferDriver(dsf, new DefaultMetadata(
+            final Metadata md = sampling == null
+                    ? new DefaultMetadata(
                     new Type[]{
                             TypeFactory.createType(Type.INT),
                             TypeFactory.createType(Type.DOUBLE)},
                     new String[]{
                             GraphSchema.ID,
-                            GraphSchema.BETWEENNESS_CENTRALITY}));
-            for (E e : graph.edgeSet()) {
-                edgesDriver.addValues(
-                        ValueFactory.createValue(e.getID()),
-                        ValueFactory.createValue(e.getBetweenness()));
+                            GraphSchema.BETWEENNESS_CENTRALITY})
+                    : new DefaultMetadata(
+                    new Type[]{
+                            TypeFactory.createType(Type.INT),
+                            TypeFactory.createType(Type.DOUBLE),
+                            TypeFactory.createType(Type.DOUBLE)},
+                    new String[]{
+                            GraphSchema.ID,
+                            GraphSchema.BETWEENNESS_CENTRALITY,
+                            GraphSchema.BETWEENNESS_ERROR});
+            edgesDriver = new DiskBufferDriver(dsf, md);
+            if (centrality != null) {
+                final int[] edgeIds = centrality.getEdgeIds();
+                final double[] edgeBetweenness =
+                        centrality.getEdgeBetweenness();
+                final double[] errors =
+                        centrality.getEdgeBetweennessError();
+                for (int i = 0; i < edgeIds.length; i++) {
+                    if (errors == null) {
+                        edgesDriver.addValues(
+                                ValueFactory.createValue(edgeIds[i]),
+                                ValueFactory.createValue(edgeBetweenness[i]));
+                    } else {
+                        edgesDriver.addValues(
+                                ValueFactory.createValue(edgeIds[i]),
+                                ValueFactory.createValue(edgeBetweenness[i]),
+                                ValueFactory.createValue(errors[i]));
+                    }
+                }
             }
         } catch (DriverException e) {
             LOGGER.error("Could not initialize edges driver", e);
@@ -160,35 +338,112 @@ public abstract class GraphAnalyzer<V extends VCent, E extends EdgeCent, S exten
     protected void computeAndStoreResults(
             DiskBufferDriver driver) {
 
-        // TODO: We no longer return the results this way.
-        Map<Integer, V> results = null;
-
-        org.javanetworkanalyzer.analyzers.GraphAnalyzer<V, E, S> analyzer =
-                prepareAnalyzer();
-        try {
-            analyzer.computeAll();
-        } catch (Exception ex) {
-            throw new IllegalStateException("Problem doing graph analysis.", ex);
+        final CSRGraph graph =
+                GraphCache.getInstance().getCSRGraph(createGraphCreator());
+        final BrandesCentrality brandes = new BrandesCentrality(graph);
+        brandes.setThreadCount(threadCount);
+        brandes.setRadius(radius);
+        brandes.setMetrics(metrics);
+        if (metrics.contains(CentralityMetrics.STRAIGHTNESS)) {
+            if (nodes == null) {
+                throw new IllegalArgumentException(
+                        "Straightness needs the nodes table.");
+            }
+            try {
+                brandes.setCoordinates(NodeCoordinates.load(nodes, graph));
+            } catch (DriverException ex) {
+                LOGGER.error("Could not read the coordinates of the nodes.",
+                             ex);
+                return;
+            }
         }
+        brandes.setCheckpoint(checkpointFile,
+                              BrandesCentrality.DEFAULT_CHECKPOINT_INTERVAL);
+        if (sampling != null) {
+            final int sampleSize =
+                    sampling.getSampleCount(graph.getVertexCount());
+            LOGGER.info("Approximating betweenness from {} pivots ({}).",
+                        Math.min(sampleSize, graph.getVertexCount()),
+                        sampling);
+            brandes.setSampling(sampleSize, sampling.getSeed());
+        }
+        centrality = null;
+        if (!brandes.compute(pm)) {
+            LOGGER.info("Graph analysis cancelled.");
+            return;
+        }
+        centrality = brandes;
 
-        graph = analyzer.getGraph();
-
-        for (V node : graph.vertexSet()) {
-            Value[] valuesToAdd =
-                    new Value[]{
+        final double[] betweenness = centrality.getBetweenness();
+        final double[] closeness = centrality.getCloseness();
+        final double[] errors = centrality.getBetweennessError();
+        final CentralityMetrics computed = centrality.getMetrics();
+        final int[] reach = centrality.getReach();
+        // The other metrics, in column order.
+        final List<double[]> metricValues = new ArrayList<double[]>();
+        for (double[] values : new double[][]{
+                    centrality.getHarmonicCloseness(),
+                    centrality.getStraightness(), centrality.getGravity(),
+                    centrality.getEccentricity()}) {
+            if (values != null) {
+                metricValues.add(values);
+            }
+        }
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            Value[] valuesToAdd = !computed.isEmpty()
+                    ? metricRow(graph.getVertexId(v), betweenness[v],
+                                closeness[v], reach, metricValues, v)
+                    : errors == null
+                    ? new Value[]{
                 // ID
-                ValueFactory.createValue(node.getID()),
+                ValueFactory.createValue(graph.getVertexId(v)),
                 // Betweenness
-                ValueFactory.createValue(node.getBetweenness()),
+                ValueFactory.createValue(betweenness[v]),
                 // Closeness
-                ValueFactory.createValue(node.getCloseness())
-            };
+                ValueFactory.createValue(closeness[v])}
+                    : new Value[]{
+                ValueFactory.createValue(graph.getVertexId(v)),
+                ValueFactory.createValue(betweenness[v]),
+                ValueFactory.createValue(closeness[v]),
+                // Estimated error of the betweenness
+                ValueFactory.createValue(errors[v])};
             try {
                 driver.addValues(valuesToAdd);
             } catch (DriverException ex) {
                 LOGGER.error("Problem storing centrality indices "
-                        + "for node " + node.getID(), ex);
+                        + "for node " + graph.getVertexId(v), ex);
             }
         }
     }
+
+    /**
+     * Returns the row of a node holding metrics.
+     *
+     * @param id           The node id.
+     * @param betweenness  Its betweenness.
+     * @param closeness    Its closeness.
+     * @param reach        The reach of each node, or {@code null} if not
+     *                     computed.
+     * @param metricValues The values of the other metrics, in column order.
+     * @param v            The dense index of the node.
+     *
+     * @return The row.
+     */
+    private static Value[] metricRow(int id, double betweenness,
+                                     double closeness, int[] reach,
+                                     List<double[]> metricValues, int v) {
+        final Value[] row = new Value[3 + (reach == null ? 0 : 1)
+                                      + metricValues.size()];
+        int i = 0;
+        row[i++] = ValueFactory.createValue(id);
+        row[i++] = ValueFactory.createValue(betweenness);
+        row[i++] = ValueFactory.createValue(closeness);
+        if (reach != null) {
+            row[i++] = ValueFactory.createValue(reach[v]);
+        }
+        for (double[] values : metricValues) {
+            row[i++] = ValueFactory.createValue(values[v]);
+        }
+        return row;
+    }
 }
@@ -0,0 +1,239 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import java.util.Locale;
+
+/**
+ * The number of pivots from which an approximate betweenness centrality is
+ * computed, given either directly or as an (epsilon, delta) accuracy target,
+ * and the seed used to draw them.
+ *
+ * <p> The option string is a list of {@code key=value} pairs separated by
+ * commas, semicolons or spaces, for example {@code 'samples=1000'} or
+ * {@code 'epsilon=0.01, delta=0.1, seed=7'}. For an accuracy target, the
+ * number of pivots is chosen by Hoeffding's inequality and a union bound over
+ * the vertices, so that with probability at least {@code 1 - delta} the
+ * betweenness of every vertex, divided by {@code n(n - 2)}, is within
+ * {@code epsilon} of its exact value.
+ *
+ * @author Adam Gouge
+ */
+public final class PivotSampling {
+
+    /**
+     * Key of the number of pivots.
+     */
+    public static final String SAMPLES = "samples";
+    /**
+     * Key of the accuracy.
+     */
+    public static final String EPSILON = "epsilon";
+    /**
+     * Key of the failure probability.
+     */
+    public static final String DELTA = "delta";
+    /**
+     * Key of the random seed.
+     */
+    public static final String SEED = "seed";
+    /**
+     * Default failure probability.
+     */
+    public static final double DEFAULT_DELTA = 0.1;
+    /**
+     * Default random seed, so that results are reproducible.
+     */
+    public static final long DEFAULT_SEED = 0;
+    /**
+     * Separators of the key-value pairs.
+     */
+    private static final String PAIR_SEPARATORS = "[,;\\s]+";
+    /**
+     * The number of pivots, or 0 if given by the accuracy target.
+     */
+    private final int sampleCount;
+    /**
+     * The accuracy.
+     */
+    private final double epsilon;
+    /**
+     * The failure probability.
+     */
+    private final double delta;
+    /**
+     * The random seed.
+     */
+    private final long seed;
+
+    /**
+     * Constructs a sampling of a fixed number of pivots.
+     *
+     * @param sampleCount The number of pivots, at least 2.
+     * @param seed        The random seed.
+     */
+    public PivotSampling(int sampleCount, long seed) {
+        if (sampleCount < 2) {
+            throw new IllegalArgumentException(
+                    "At least two samples are needed to estimate the error.");
+        }
+        this.sampleCount = sampleCount;
+        this.epsilon = Double.NaN;
+        this.delta = Double.NaN;
+        this.seed = seed;
+    }
+
+    /**
+     * Constructs a sampling meeting the given accuracy target.
+     *
+     * @param epsilon The accuracy, in (0, 1).
+     * @param delta   The failure probability, in (0, 1).
+     * @param seed    The random seed.
+     */
+    public PivotSampling(double epsilon, double delta, long seed) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException(
+                    "Epsilon and delta must lie strictly between 0 and 1.");
+        }
+        this.sampleCount = 0;
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns {@code true} if the given string is a sampling option string.
+     *
+     * @param s String
+     *
+     * @return Whether or not the string gives a sampling.
+     */
+    public static boolean isSamplingString(String s) {
+        final String trimmed = s.trim();
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        for (String pair : trimmed.split(PAIR_SEPARATORS)) {
+            final int eq = pair.indexOf('=');
+            if (eq < 0) {
+                return false;
+            }
+            final String key = pair.substring(0, eq).toLowerCase(Locale.ROOT);
+            if (!key.equals(SAMPLES) && !key.equals(EPSILON)
+                    && !key.equals(DELTA) && !key.equals(SEED)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a sampling option string.
+     *
+     * @param s String
+     *
+     * @return The sampling.
+     *
+     * @throws IllegalArgumentException If the string is not a valid sampling.
+     */
+    public static PivotSampling parse(String s) {
+        if (!isSamplingString(s)) {
+            throw new IllegalArgumentException(
+                    "Bad sampling format: '" + s + "'.");
+        }
+        Integer samples = null;
+        Double eps = null;
+        double del = DEFAULT_DELTA;
+        long sd = DEFAULT_SEED;
+        try {
+            for (String pair : s.trim().split(PAIR_SEPARATORS)) {
+                final int eq = pair.indexOf('=');
+                final String key =
+                        pair.substring(0, eq).toLowerCase(Locale.ROOT);
+                final String value = pair.substring(eq + 1);
+                if (key.equals(SAMPLES)) {
+                    samples = Integer.valueOf(value);
+                } else if (key.equals(EPSILON)) {
+                    eps = Double.valueOf(value);
+                } else if (key.equals(DELTA)) {
+                    del = Double.parseDouble(value);
+                } else {
+                    sd = Long.parseLong(value);
+                }
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "Bad sampling format: '" + s + "'.", ex);
+        }
+        if ((samples == null) == (eps == null)) {
+            throw new IllegalArgumentException(
+                    "Please give either " + SAMPLES + " or " + EPSILON + ".");
+        }
+        return samples != null
+                ? new PivotSampling(samples, sd)
+                : new PivotSampling(eps, del, sd);
+    }
+
+    /**
+     * Returns the number of pivots to draw from a graph of the given size.
+     *
+     * @param vertexCount The number of vertices.
+     *
+     * @return The number of pivots, which may exceed the number of vertices.
+     */
+    public int getSampleCount(int vertexCount) {
+        if (sampleCount > 0) {
+            return sampleCount;
+        }
+        final double k = Math.ceil(Math.log(2.0 * vertexCount / delta)
+                                   / (2 * epsilon * epsilon));
+        return (int) Math.max(2, Math.min(Integer.MAX_VALUE, k));
+    }
+
+    /**
+     * Returns the random seed.
+     *
+     * @return The random seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return (sampleCount > 0
+                ? SAMPLES + "=" + sampleCount
+                : EPSILON + "=" + epsilon + ", " + DELTA + "=" + delta)
+                + ", " + SEED + "=" + seed;
+    }
+}
@@ -32,8 +32,7 @@
  */
 package org.gdms.gdmstopology.centrality;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 import org.gdms.data.DataSourceFactory;
 import org.gdms.data.schema.DefaultMetadata;
 import org.gdms.data.schema.Metadata;
@@ -52,9 +51,12 @@ import static org.gdms.gdmstopology.function.ST_ShortestPathLength.POSSIBLE_ORIE
 import static org.gdms.gdmstopology.function.ST_ShortestPathLength.REVERSED;
 import static org.gdms.gdmstopology.function.ST_ShortestPathLength.UNDIRECTED;
 import org.gdms.gdmstopology.graphcreator.GraphCreator;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
 import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
 import org.gdms.gdmstopology.model.GraphSchema;
 import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.NearestTargetDijkstra;
 import org.gdms.gdmstopology.utils.ArrayConcatenator;
 import org.gdms.sql.function.FunctionException;
 import org.gdms.sql.function.FunctionSignature;
@@ -63,11 +65,9 @@ import org.gdms.sql.function.table.AbstractTableFunction;
 import org.gdms.sql.function.table.TableArgument;
 import org.gdms.sql.function.table.TableDefinition;
 import org.gdms.sql.function.table.TableFunctionSignature;
-import org.javanetworkanalyzer.alg.DijkstraForAccessibility;
-import org.javanetworkanalyzer.analyzers.AccessibilityAnalyzer;
-import org.javanetworkanalyzer.data.VAccess;
+import org.javanetworkanalyzer.data.VUCent;
+import org.javanetworkanalyzer.data.VWCent;
 import org.javanetworkanalyzer.model.Edge;
-import org.javanetworkanalyzer.model.KeyedGraph;
 import org.orbisgis.progress.ProgressMonitor;
 import org.slf4j.LoggerFactory;
 
@@ -75,6 +75,10 @@ import org.slf4j.LoggerFactory;
  * Calculates, for each vertex, the (distance to the) closest destination among
  * several possible destinations.
  *
+ * <p> All the vertices are handled by a single {@link NearestTargetDijkstra}
+ * search from the destinations on the cached {@link CSRGraph} of the edges
+ * table, which shares its topology with the other weights columns.
+ *
  * @author Adam Gouge
  */
 public class ST_Accessibility extends AbstractTableFunction {
@@ -184,17 +188,13 @@ public class ST_Accessibility extends AbstractTableFunction {
         // Recover all other parameters.
         parseArguments(edges, tables, values);
 
-        // Prepare the graph.
-        KeyedGraph<VAccess, Edge> graph = prepareGraph(edges);
-
         // Compute and return results.
-        DiskBufferDriver results = null;
         try {
-            results = compute(dsf, graph);
+            return compute(dsf, prepareGraph(edges));
         } catch (DriverException ex) {
             LOGGER.error(ex.toString());
+            return null;
         }
-        return results;
     }
 
     /**
@@ -220,15 +220,13 @@ public class ST_Accessibility extends AbstractTableFunction {
     }
 
     /**
-     * Prepare the JGraphT graph from the given edges table.
+     * Prepare the CSR graph from the given edges table.
      *
      * @param edges Edges table
      *
-     * @return JGraphT graph
+     * @return CSR graph
      */
-    private KeyedGraph<VAccess, Edge> prepareGraph(final DataSet edges) {
-        KeyedGraph<VAccess, Edge> graph;
-
+    private CSRGraph prepareGraph(final DataSet edges) {
         // Get the graph orientation.
         int graphType = -1;
         if (globalOrientation != null) {
@@ -246,92 +244,91 @@ public class ST_Accessibility extends AbstractTableFunction {
 
         // Create the graph.
         if (weightsColumn != null) {
-            graph = new WeightedGraphCreator<VAccess, Edge>(
-                    edges,
-                    graphType,
-                    edgeOrientationColumnName,
-                    VAccess.class,
-                    Edge.class,
-                    weightsColumn).prepareGraph();
+            return GraphCache.getInstance().getCSRGraph(
+                    new WeightedGraphCreator<VWCent, Edge>(
+                            edges,
+                            graphType,
+                            edgeOrientationColumnName,
+                            VWCent.class,
+                            Edge.class,
+                            weightsColumn));
         } else {
-            graph = new GraphCreator<VAccess, Edge>(
-                    edges,
-                    graphType,
-                    edgeOrientationColumnName,
-                    VAccess.class,
-                    Edge.class).prepareGraph();
+            return GraphCache.getInstance().getCSRGraph(
+                    new GraphCreator<VUCent, Edge>(
+                            edges,
+                            graphType,
+                            edgeOrientationColumnName,
+                            VUCent.class,
+                            Edge.class));
         }
-        return graph;
     }
 
     /**
      * Compute the distances and write them to a table.
      *
      * @param dsf   Data source factory
-     * @param graph JGraphT graph
+     * @param graph CSR graph
      *
      * @return The requested distances
      *
      * @throws DriverException
      */
-    private DiskBufferDriver compute(DataSourceFactory dsf,
-                                     KeyedGraph<VAccess, Edge> graph)
+    private DiskBufferDriver compute(DataSourceFactory dsf, CSRGraph graph)
             throws DriverException {
 
         // Initialize the output.
         DiskBufferDriver output = new DiskBufferDriver(dsf, getMetadata(null));
 
-        if (graph == null) {
-            LOGGER.error("Null graph.");
+        // Prepare the destinations.
+        final int[] targets;
+        // Destination table
+        if (destinationTable != null) {
+            // Make sure the destination table has a column named
+            // DESTINATION.
+            Metadata metadata = destinationTable.getMetadata();
+            int destIndex = metadata.getFieldIndex(DESTINATION);
+            if (destIndex == -1) {
+                throw new IllegalArgumentException(
+                        "The destination table must contain "
+                        + "a column named \'" + DESTINATION + "\'.");
+            }
+            targets = new int[(int) destinationTable.getRowCount()];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = destinationTable.getRow(i)[destIndex].getAsInt();
+            }
+        } // Destination string
+        else if (destinations != null) {
+            targets = destinations.clone();
         } else {
-            // Get a DijkstraForAccessibility algo for the accessibility
-            // calculation.
-            DijkstraForAccessibility<Edge> dijsktra =
-                    new DijkstraForAccessibility<Edge>(graph);
-            // Prepare the destination set.
-            Set<VAccess> destSet = new HashSet<VAccess>();
-
-            // Destination table
-            if (destinationTable != null) {
-                // Make sure the destination table has a column named
-                // DESTINATION.
-                Metadata metadata = destinationTable.getMetadata();
-                int destIndex = metadata.getFieldIndex(DESTINATION);
-                if (destIndex == -1) {
-                    throw new IllegalArgumentException(
-                            "The destination table must contain "
-                            + "a column named \'" + DESTINATION + "\'.");
-                } else {
-                    // Add the destinations.
-                    for (int i = 0; i < destinationTable.getRowCount(); i++) {
-                        int target = destinationTable.getRow(i)[destIndex]
-                                .getAsInt();
-                        destSet.add(graph.getVertex(target));
-                    }
-                }
-            } // Destination string
-            else if (destinations != null) {
-                for (int i = 0; i < destinations.length; i++) {
-                    destSet.add(graph.getVertex(destinations[i]));
-                }
+            throw new IllegalArgumentException("No destinations specified.");
+        }
+        int targetCount = 0;
+        for (int target : targets) {
+            final int index = graph.indexOf(target);
+            if (index == -1) {
+                LOGGER.warn("Destination {} is not in the graph.", target);
             } else {
-                throw new IllegalArgumentException("No destinations specified.");
+                targets[targetCount++] = index;
             }
+        }
 
-            // Do the actual analysis.
-            new AccessibilityAnalyzer<Edge>(graph, destSet).compute();
-            // Store the result.
-            for (VAccess node : graph.vertexSet()) {
-                output.addValues(
-                        ValueFactory.createValue(node.getID()),
-                        ValueFactory.createValue(node.getClosestDestinationId()),
-                        ValueFactory.createValue(
-                        node.getDistanceToClosestDestination()));
-            }
-            // Clean-up
-            output.writingFinished();
-            output.open();
+        // Do the actual analysis.
+        final NearestTargetDijkstra search = new NearestTargetDijkstra(graph);
+        search.compute(Arrays.copyOf(targets, targetCount));
+        // Store the result.
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            final int closest = search.getNearestTarget(v);
+            output.addValues(
+                    ValueFactory.createValue(graph.getVertexId(v)),
+                    ValueFactory.createValue(
+                    closest == NearestTargetDijkstra.NO_TARGET
+                    ? -1
+                    : graph.getVertexId(closest)),
+                    ValueFactory.createValue(search.getDistance(v)));
         }
+        // Clean-up
+        output.writingFinished();
+        output.open();
         return output;
     }
 
@@ -32,8 +32,10 @@
  */
 package org.gdms.gdmstopology.centrality;
 
+import java.io.File;
 import org.gdms.data.DataSourceFactory;
 import org.gdms.data.schema.Metadata;
+import org.gdms.data.types.Type;
 import org.gdms.data.values.Value;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
@@ -65,7 +67,10 @@ import org.slf4j.LoggerFactory;
  * <p><i>Note</i>: This function use Dijkstra's algorithm to calculate, for each
  * node, all possible shortest paths to all the other nodes (we assume the graph
  * is connected). These calculations are intense and can take a long time to
- * complete.
+ * complete, so the sources are shared out among one worker thread per
+ * available processor. An optional radius bounds every search, giving local
+ * indices that are much cheaper to compute on large graphs. Further
+ * {@link CentralityMetrics} may be computed in the same searches.
  *
  * @author Adam Gouge
  */
@@ -81,8 +86,14 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
     private static final String SQL_ORDER =
             "EXECUTE " + NAME + "("
             + "output.edges"
+            + "[, output.nodes]"
+            + "[, radius]"
             + "[, 'weights_column']"
-            + "[, " + POSSIBLE_ORIENTATIONS + "]);";
+            + "[, " + POSSIBLE_ORIENTATIONS + "]"
+            + "[, 'samples=k | epsilon=e[, delta=d]][, seed=s]' | '"
+            + CentralityMetrics.PREFIX + "m1, m2, ...[, "
+            + CentralityMetrics.BETA + "=b]']"
+            + "[, '" + GraphFunctionParser.CHECKPOINT_PREFIX + "path']);";
     /**
      * Short description of this function.
      */
@@ -95,7 +106,8 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
             "<p><i>Note</i>: This function use Dijkstra's algorithm to "
             + "calculate, for each node, all possible shortest paths to all "
             + "the other nodes (we assume the graph is connected). These "
-            + "calculations are intense and can take a long time to complete."
+            + "calculations are intense and can take a long time to complete, "
+            + "so they are run in parallel on all available processors."
             + "<p> Example usage: "
             + "<center> "
             + "<code>" + SQL_ORDER + "</code> </center> "
@@ -111,6 +123,18 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
             + "<li> " + GraphCreator.UNDIRECTED_EDGE + " undirected. </ul></ul>"
             + "<p> Optional parameters: "
             + "<ul> "
+            + "<li> <code>output.nodes</code> - the nodes table produced by "
+            + "<code>ST_Graph</code>, giving the coordinates of the nodes "
+            + "for straightness. "
+            + "<li> <code>radius</code> - a double bounding every search to "
+            + "the nodes within that distance of its source. The node table "
+            + "then holds local indices: betweenness counting only the "
+            + "shortest paths no longer than the radius, closeness as the "
+            + "number of nodes within the radius divided by the sum of their "
+            + "distances, the <code>" + GraphSchema.REACH + "</code> (number "
+            + "of other nodes within the radius) and the <code>"
+            + GraphSchema.HARMONIC_CLOSENESS + "</code> (sum of the inverse "
+            + "distances to them). It cannot be combined with sampling. "
             + "<li> <code>'weights_column'</code> - a string specifying "
             + "the name of the column of the input table that gives the weight "
             + "of each edge. If omitted, the graph is considered to be unweighted. "
@@ -122,7 +146,48 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
             + "<li> '" + UNDIRECTED + "'."
             + "</ul> The default orientation is " + DIRECTED + " with edge "
             + "orientations given by the geometries, though edge orientations "
-            + "should most definitely be provided by the user. </ul>";
+            + "should most definitely be provided by the user. "
+            + "<li> <code>sampling</code> - a string approximating "
+            + "betweenness from a random sample of pivots instead of all "
+            + "nodes: either <code>'" + PivotSampling.SAMPLES + "=k'</code> "
+            + "pivots, or enough pivots for the betweenness of every node, "
+            + "divided by n(n - 2), to be within <code>"
+            + PivotSampling.EPSILON + "</code> of its exact value with "
+            + "probability 1 - <code>" + PivotSampling.DELTA + "</code> "
+            + "(default " + PivotSampling.DEFAULT_DELTA + "). The pivots are "
+            + "drawn with a fixed <code>" + PivotSampling.SEED + "</code> "
+            + "(default " + PivotSampling.DEFAULT_SEED + "). Both output "
+            + "tables then get a <code>" + GraphSchema.BETWEENNESS_ERROR
+            + "</code> column giving the estimated standard error of the "
+            + "normalized betweenness, and the closeness of the nodes which "
+            + "are not pivots is estimated from their distances to the "
+            + "pivots. "
+            + "<li> <code>'" + CentralityMetrics.PREFIX + "m1, m2, ...'</code> "
+            + "- additional indices computed in the same searches, each "
+            + "adding a column to the node table: "
+            + "<ul> "
+            + "<li> <code>" + GraphSchema.REACH + "</code> - the number of "
+            + "other nodes reached "
+            + "<li> <code>" + GraphSchema.HARMONIC_CLOSENESS + "</code> - "
+            + "the sum of the inverse distances to them "
+            + "<li> <code>" + GraphSchema.STRAIGHTNESS + "</code> - the mean "
+            + "ratio of their Euclidean distance to their shortest path "
+            + "distance, which needs the nodes table "
+            + "<li> <code>" + GraphSchema.GRAVITY + "</code> - the sum of "
+            + "exp(-" + CentralityMetrics.BETA + " * distance) over them, "
+            + "with <code>" + CentralityMetrics.BETA + "</code> given in the "
+            + "same string (default " + CentralityMetrics.DEFAULT_BETA + ") "
+            + "<li> <code>" + GraphSchema.ECCENTRICITY + "</code> - the "
+            + "largest distance to them, or infinity if some nodes cannot "
+            + "be reached and no radius is given. </ul> "
+            + "They are local when a radius is given, and cannot be combined "
+            + "with sampling. "
+            + "<li> <code>'" + GraphFunctionParser.CHECKPOINT_PREFIX
+            + "path'</code> - a file to which partial results are saved "
+            + "every " + BrandesCentrality.DEFAULT_CHECKPOINT_INTERVAL / 60000
+            + " minutes and on cancellation. Running the same analysis "
+            + "again on the same graph resumes from it; the file is deleted "
+            + "once the analysis completes. </ul>";
     /**
      * Description of this function.
      */
@@ -140,6 +205,26 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
      * Edge orientation string.
      */
     private String edgeOrientationColumnName = null;
+    /**
+     * Pivot sampling, or {@code null} for an exact analysis.
+     */
+    private PivotSampling sampling = null;
+    /**
+     * Checkpoint file, or {@code null}.
+     */
+    private File checkpointFile = null;
+    /**
+     * Search radius.
+     */
+    private double radius = Double.POSITIVE_INFINITY;
+    /**
+     * Additional metrics, or {@code null}.
+     */
+    private CentralityMetrics metrics = null;
+    /**
+     * Nodes table, or {@code null}.
+     */
+    private DataSet nodes = null;
     /**
      * Logger.
      */
@@ -210,6 +295,11 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
                 new WeightedGraphAnalyzer(
                 dsf, edges, pm, graphType, edgeOrientationColumnName,
                 weightsColumn);
+        analyzer.setSampling(sampling);
+        analyzer.setCheckpointFile(checkpointFile);
+        analyzer.setRadius(radius);
+        analyzer.setMetrics(metrics);
+        analyzer.setNodes(nodes);
 
         final SourceManager sourceManager = dsf.getSourceManager();
         // Nodes table
@@ -263,7 +353,120 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
     public FunctionSignature[] getFunctionSignatures() {
         return ArrayConcatenator.
                 concatenate(unweightedFunctionSignatures(),
-                            weightedFunctionSignatures());
+                            weightedFunctionSignatures(),
+                            localFunctionSignatures(),
+                            nodesFunctionSignatures());
+    }
+
+    /**
+     * Returns all possible function signatures for graph analyzers given the
+     * nodes table.
+     *
+     * @return Function signatures with the nodes table.
+     */
+    private FunctionSignature[] nodesFunctionSignatures() {
+        return new FunctionSignature[]{
+            // (input_table, nodes_table, 'metrics')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, 'weights_column', 'metrics')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, 'weights_column', 'orientation',
+            //     'metrics')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, 'weights_column', 'orientation',
+            //     'metrics', 'checkpoint=path')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, radius, 'metrics')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, radius, 'weights_column', 'metrics')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, radius, 'weights_column',
+            //     'orientation', 'metrics')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, nodes_table, radius, 'weights_column',
+            //     'orientation', 'metrics', 'checkpoint=path')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING)};
+    }
+
+    /**
+     * Returns all possible function signatures for local graph analyzers.
+     *
+     * @return Local function signatures.
+     */
+    private FunctionSignature[] localFunctionSignatures() {
+        return new FunctionSignature[]{
+            // (input_table, radius)
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE),
+            // (input_table, radius, 'weights_column')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING),
+            // (input_table, radius, 'weights_column', 'orientation')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, radius, 'weights_column', 'orientation',
+            //     'checkpoint=path')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, radius, 'weights_column', 'orientation',
+            //     'metrics', 'checkpoint=path')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            ScalarArgument.DOUBLE,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING)};
     }
 
     /**
@@ -322,6 +525,21 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
             TableArgument.GEOMETRY,
             weight,
             ScalarArgument.INT,
+            ScalarArgument.STRING),
+            // (input_table, 'weights_column',
+            //     'orientation', 'sampling')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            weight,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING),
+            // (input_table, 'weights_column',
+            //     'orientation', 'sampling', 'checkpoint=path')
+            new ExecutorFunctionSignature(
+            TableArgument.GEOMETRY,
+            weight,
+            ScalarArgument.STRING,
+            ScalarArgument.STRING,
             ScalarArgument.STRING)};
     }
 
@@ -333,9 +551,24 @@ public class ST_GraphAnalysis extends AbstractExecutorFunction {
      */
     private void parseArguments(DataSet edges, DataSet[] tables, Value[] values) {
         GraphFunctionParser parser = new GraphFunctionParser();
-        parser.parseOptionalArguments(edges, values, 0);
+        int valuesIndex = 0;
+        if (values.length > 0
+            && (values[0].getType() == Type.FLOAT
+                || values[0].getType() == Type.DOUBLE)) {
+            radius = parser.parseRadius(values[valuesIndex++]);
+        }
+        parser.parseOptionalArguments(edges, values, valuesIndex);
         globalOrientation = parser.getGlobalOrientation();
         edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
         weightsColumn = parser.getWeightsColumn();
+        sampling = parser.getSampling();
+        checkpointFile = parser.getCheckpointFile();
+        metrics = parser.getMetrics();
+        nodes = tables.length > 1 ? tables[1] : null;
+        if (metrics != null && nodes == null
+            && metrics.contains(CentralityMetrics.STRAIGHTNESS)) {
+            throw new IllegalArgumentException(
+                    "Straightness needs the nodes table.");
+        }
     }
 }
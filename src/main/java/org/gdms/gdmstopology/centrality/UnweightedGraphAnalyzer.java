@@ -37,13 +37,9 @@ import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
 import org.gdms.gdmstopology.graphcreator.GraphCreator;
 import org.gdms.gdmstopology.model.GraphException;
-import org.javanetworkanalyzer.data.UnweightedPathLengthData;
 import org.javanetworkanalyzer.data.VUCent;
-import org.javanetworkanalyzer.model.EdgeCent;
-import org.javanetworkanalyzer.progress.DefaultProgressMonitor;
+import org.javanetworkanalyzer.model.Edge;
 import org.orbisgis.progress.ProgressMonitor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * A {@link GraphAnalyzer} for unweighted graphs.
@@ -51,11 +47,9 @@ import org.slf4j.LoggerFactory;
  * @author Adam Gouge
  */
 public class UnweightedGraphAnalyzer
-        extends GraphAnalyzer<VUCent, EdgeCent, UnweightedPathLengthData> {
+        extends GraphAnalyzer {
 
     protected final String edgeOrientationColumnName;
-    private static final Logger LOGGER =
-            LoggerFactory.getLogger(UnweightedGraphAnalyzer.class);
 
     /**
      * Constructs a new {@link UnweightedGraphAnalyzer}.
@@ -103,18 +97,11 @@ public class UnweightedGraphAnalyzer
      * {@inheritDoc}
      */
     @Override
-    protected org.javanetworkanalyzer.analyzers.UnweightedGraphAnalyzer<EdgeCent> prepareAnalyzer() {
-        try {
-            return new org.javanetworkanalyzer.analyzers.UnweightedGraphAnalyzer(
-                    new GraphCreator(dataSet,
-                                     orientation,
-                                     edgeOrientationColumnName,
-                                     VUCent.class,
-                                     EdgeCent.class).prepareGraph(),
-                    new DefaultProgressMonitor());
-        } catch (Exception ex) {
-            LOGGER.trace(ANALYZER_PREP_ERROR, ex);
-        }
-        return null;
+    protected GraphCreator<?, ?> createGraphCreator() {
+        return new GraphCreator<VUCent, Edge>(dataSet,
+                                              orientation,
+                                              edgeOrientationColumnName,
+                                              VUCent.class,
+                                              Edge.class);
     }
 }
@@ -35,16 +35,12 @@ package org.gdms.gdmstopology.centrality;
 import org.gdms.data.DataSourceFactory;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCreator;
 import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
 import org.gdms.gdmstopology.model.GraphException;
 import org.javanetworkanalyzer.data.VWCent;
-import org.javanetworkanalyzer.data.WeightedPathLengthData;
 import org.javanetworkanalyzer.model.Edge;
-import org.javanetworkanalyzer.model.EdgeCent;
-import org.javanetworkanalyzer.progress.DefaultProgressMonitor;
 import org.orbisgis.progress.ProgressMonitor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * A {@link GraphAnalyzer} for weighted graphs.
@@ -52,15 +48,13 @@ import org.slf4j.LoggerFactory;
  * @author Adam Gouge
  */
 public class WeightedGraphAnalyzer
-        extends GraphAnalyzer<VWCent, EdgeCent, WeightedPathLengthData> {
+        extends GraphAnalyzer {
 
     /**
      * The name of the weight column.
      */
     private final String weightColumnName;
     protected final String edgeOrientationColumnName;
-    private static final Logger LOGGER =
-            LoggerFactory.getLogger(WeightedGraphAnalyzer.class);
 
     /**
      * Constructs a new {@link WeightedGraphAnalyzer}.
@@ -113,19 +107,12 @@ public class WeightedGraphAnalyzer
      * {@inheritDoc}
      */
     @Override
-    protected org.javanetworkanalyzer.analyzers.WeightedGraphAnalyzer<EdgeCent> prepareAnalyzer() {
-        try {
-            return new org.javanetworkanalyzer.analyzers.WeightedGraphAnalyzer(
-                    new WeightedGraphCreator(dataSet,
-                                             orientation,
-                                             edgeOrientationColumnName,
-                                             VWCent.class,
-                                             EdgeCent.class,
-                                             weightColumnName).prepareGraph(),
-                    new DefaultProgressMonitor());
-        } catch (Exception ex) {
-            LOGGER.trace(ANALYZER_PREP_ERROR, ex);
-        }
-        return null;
+    protected GraphCreator<?, ?> createGraphCreator() {
+        return new WeightedGraphCreator<VWCent, Edge>(dataSet,
+                                                      orientation,
+                                                      edgeOrientationColumnName,
+                                                      VWCent.class,
+                                                      Edge.class,
+                                                      weightColumnName);
     }
 }
@@ -0,0 +1,321 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.function;
+
+import java.io.File;
+import java.io.IOException;
+import org.gdms.data.DataSourceFactory;
+import org.gdms.data.schema.DefaultMetadata;
+import org.gdms.data.schema.Metadata;
+import org.gdms.data.types.Type;
+import org.gdms.data.types.TypeFactory;
+import org.gdms.data.values.Value;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DiskBufferDriver;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchy;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchyFile;
+import org.gdms.sql.function.FunctionException;
+import org.gdms.sql.function.FunctionSignature;
+import org.gdms.sql.function.ScalarArgument;
+import org.gdms.sql.function.table.AbstractTableFunction;
+import org.gdms.sql.function.table.TableArgument;
+import org.gdms.sql.function.table.TableDefinition;
+import org.gdms.sql.function.table.TableFunctionSignature;
+import org.javanetworkanalyzer.data.VWCent;
+import org.javanetworkanalyzer.model.Edge;
+import org.orbisgis.progress.ProgressMonitor;
+import org.slf4j.LoggerFactory;
+
+import static org.gdms.data.values.ValueFactory.createValue;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DIRECTED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.POSSIBLE_ORIENTATIONS;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.REVERSED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.UNDIRECTED;
+
+/**
+ * Builds the contraction hierarchy of a graph, so that {@link ST_ShortestPath}
+ * and {@link ST_ShortestPathLength} can answer point-to-point queries on it.
+ *
+ * <p> The hierarchy is registered for the edges table, weights column and
+ * orientation given here; later {@value ST_ShortestPath#CH} queries with the
+ * same arguments use it until the edges table changes. If a file is given,
+ * the hierarchy is read from it when it was built on the same graph, and
+ * written to it otherwise, so that the preprocessing survives the session:
+ * queries of later sessions read it through their
+ * {@code 'hierarchy=file'} argument.
+ *
+ * @author Adam Gouge
+ */
+public class ST_BuildContractionHierarchy extends AbstractTableFunction {
+
+    /**
+     * The name of this function.
+     */
+    public static final String NAME = "ST_BuildContractionHierarchy";
+    /**
+     * Rank column name.
+     */
+    public static final String RANK = "rank";
+    /**
+     * The SQL order of this function.
+     */
+    private static final String SQL_ORDER =
+            "SELECT * FROM " + NAME + "("
+            + "edges, 'weights_column'"
+            + "[, " + POSSIBLE_ORIENTATIONS + "[, 'file']]);";
+    /**
+     * Short description of this function.
+     */
+    private static final String SHORT_DESCRIPTION =
+            "Builds the contraction hierarchy used by ST_ShortestPath and "
+            + "ST_ShortestPathLength for fast point-to-point queries. ";
+    /**
+     * Long description of this function.
+     */
+    private static final String LONG_DESCRIPTION =
+            "<p> Vertices are contracted one by one, adding shortcut edges "
+            + "wherever a shortest path goes through a contracted vertex. "
+            + "Queries then only search upwards in the hierarchy. "
+            + "Lists every node with its contraction rank. "
+            + "<p> Required parameters: "
+            + "<ul> <li> <code>output.edges</code> - the input table. "
+            + "Specifically, this is the <code>output.edges</code> table "
+            + "produced by <code>ST_Graph</code>. "
+            + "<li> <code>weights_column</code> - the weights column. </ul>"
+            + "<p> Optional parameters: "
+            + "<ul> <li> <code>orientation</code> - the orientation of the "
+            + "graph, as for ST_ShortestPath. "
+            + "<li> <code>file</code> - a file to read the hierarchy from, "
+            + "or to write it to if it holds no hierarchy of this graph. "
+            + "</ul> Queries use the hierarchy when given the '"
+            + ST_ShortestPath.CH + "' algorithm and the same edges table, "
+            + "weights column and orientation. In later sessions, they read "
+            + "it from the file when given '"
+            + GraphFunctionParser.HIERARCHY_PREFIX + "file' instead.";
+    /**
+     * Description of this function.
+     */
+    private static final String DESCRIPTION =
+            SHORT_DESCRIPTION + LONG_DESCRIPTION;
+    /**
+     * Metadata of the output table.
+     */
+    private static final Metadata MD = new DefaultMetadata(
+            new Type[]{TypeFactory.createType(Type.INT),
+                       TypeFactory.createType(Type.INT)},
+            new String[]{GraphSchema.ID,
+                         RANK});
+    /**
+     * Logger.
+     */
+    private static final org.slf4j.Logger LOGGER =
+            LoggerFactory.getLogger(ST_BuildContractionHierarchy.class);
+    private String weightsColumn = null;
+    private String globalOrientation = null;
+    private String edgeOrientationColumnName = null;
+    private File file = null;
+
+    @Override
+    public DataSet evaluate(DataSourceFactory dsf, DataSet[] tables,
+                            Value[] values, ProgressMonitor pm)
+            throws FunctionException {
+        final DataSet edges = tables[0];
+        parseArguments(edges, values);
+        if (weightsColumn == null) {
+            throw new IllegalArgumentException(
+                    NAME + " requires a weights column.");
+        }
+        final WeightedGraphCreator<VWCent, Edge> creator =
+                createGraphCreator(edges);
+        try {
+            final CSRGraph graph = GraphCache.getInstance().getCSRGraph(creator);
+            final ContractionHierarchy hierarchy = loadOrBuild(graph);
+            GraphCache.getInstance().setContractionHierarchy(creator, hierarchy);
+            return compute(dsf, hierarchy);
+        } catch (DriverException ex) {
+            throw new FunctionException(ex);
+        } catch (IOException ex) {
+            throw new FunctionException(ex);
+        }
+    }
+
+    /**
+     * Parse all possible arguments for {@link ST_BuildContractionHierarchy}.
+     *
+     * @param edges  Edges input table
+     * @param values Arguments
+     */
+    private void parseArguments(DataSet edges, Value[] values) {
+        GraphFunctionParser parser = new GraphFunctionParser();
+        // The file, if any, is the last of three arguments.
+        parser.parseOptionalArguments(
+                edges, values.length > 2 ? new Value[]{values[0], values[1]}
+                                         : values, 0);
+        globalOrientation = parser.getGlobalOrientation();
+        edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
+        weightsColumn = parser.getWeightsColumn();
+        file = values.length > 2 ? new File(values[2].getAsString()) : null;
+    }
+
+    /**
+     * Returns a graph creator for the given edges table.
+     *
+     * @param edges Edges table
+     * @return Graph creator
+     */
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
+        // Get the graph orientation.
+        int graphType = -1;
+        if (globalOrientation != null) {
+            graphType = globalOrientation.equalsIgnoreCase(DIRECTED)
+                    ? GraphSchema.DIRECT
+                    : globalOrientation.equalsIgnoreCase(REVERSED)
+                    ? GraphSchema.DIRECT_REVERSED
+                    : globalOrientation.equalsIgnoreCase(UNDIRECTED)
+                    ? GraphSchema.UNDIRECT
+                    : -1;
+        } else if (graphType == -1) {
+            LOGGER.warn("Assuming a directed graph.");
+            graphType = GraphSchema.DIRECT;
+        }
+        return new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                graphType,
+                edgeOrientationColumnName,
+                VWCent.class,
+                Edge.class,
+                weightsColumn);
+    }
+
+    /**
+     * Reads the hierarchy of the given graph from the file if it holds one,
+     * and builds it (writing it to the file, if any) otherwise.
+     *
+     * @param graph The graph.
+     *
+     * @return The hierarchy.
+     *
+     * @throws IOException If the hierarchy cannot be written.
+     */
+    private ContractionHierarchy loadOrBuild(CSRGraph graph)
+            throws IOException {
+        if (file != null && file.isFile()) {
+            try {
+                return ContractionHierarchyFile.read(file, graph);
+            } catch (IOException ex) {
+                LOGGER.warn("Rebuilding the contraction hierarchy: {}",
+                            ex.getMessage());
+            }
+        }
+        final long start = System.currentTimeMillis();
+        final ContractionHierarchy hierarchy =
+                ContractionHierarchy.build(graph);
+        LOGGER.info("Contracted {} nodes with {} shortcuts in {} ms.",
+                    new Object[]{graph.getVertexCount(),
+                                 hierarchy.getShortcutCount(),
+                                 System.currentTimeMillis() - start});
+        if (file != null) {
+            ContractionHierarchyFile.write(hierarchy, file);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Lists the rank of every vertex of the hierarchy.
+     *
+     * @param dsf       Data source factory
+     * @param hierarchy The hierarchy
+     *
+     * @return The ranks
+     *
+     * @throws DriverException
+     */
+    private DiskBufferDriver compute(DataSourceFactory dsf,
+                                     ContractionHierarchy hierarchy)
+            throws DriverException {
+        final CSRGraph graph = hierarchy.getGraph();
+        DiskBufferDriver output = new DiskBufferDriver(dsf, MD);
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            output.addValues(createValue(graph.getVertexId(v)),
+                             createValue(hierarchy.getRank(v)));
+        }
+        output.writingFinished();
+        output.open();
+        return output;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getSqlOrder() {
+        return SQL_ORDER;
+    }
+
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public Metadata getMetadata(Metadata[] tables) throws DriverException {
+        return MD;
+    }
+
+    @Override
+    public FunctionSignature[] getFunctionSignatures() {
+        return new FunctionSignature[]{
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING)
+        };
+    }
+}
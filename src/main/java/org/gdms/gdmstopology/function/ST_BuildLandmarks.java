@@ -0,0 +1,348 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.function;
+
+import java.io.File;
+import java.io.IOException;
+import org.gdms.data.DataSourceFactory;
+import org.gdms.data.schema.DefaultMetadata;
+import org.gdms.data.schema.Metadata;
+import org.gdms.data.types.Type;
+import org.gdms.data.types.TypeFactory;
+import org.gdms.data.values.Value;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DiskBufferDriver;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.Landmarks;
+import org.gdms.gdmstopology.shortestpath.LandmarksFile;
+import org.gdms.sql.function.FunctionException;
+import org.gdms.sql.function.FunctionSignature;
+import org.gdms.sql.function.ScalarArgument;
+import org.gdms.sql.function.table.AbstractTableFunction;
+import org.gdms.sql.function.table.TableArgument;
+import org.gdms.sql.function.table.TableDefinition;
+import org.gdms.sql.function.table.TableFunctionSignature;
+import org.javanetworkanalyzer.data.VWCent;
+import org.javanetworkanalyzer.model.Edge;
+import org.orbisgis.progress.ProgressMonitor;
+import org.slf4j.LoggerFactory;
+
+import static org.gdms.data.values.ValueFactory.createValue;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DIRECTED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.POSSIBLE_ORIENTATIONS;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.REVERSED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.UNDIRECTED;
+
+/**
+ * Computes the landmark distance tables of a graph, so that
+ * {@link ST_ShortestPath} and {@link ST_ShortestPathLength} can answer
+ * point-to-point queries by ALT search.
+ *
+ * <p> The tables are registered for the edges table, weights column and
+ * orientation given here; later {@value ST_ShortestPath#ALT} queries with
+ * the same arguments use them until the edges table changes. They take a few one-to-all searches to compute, so they are cheap
+ * to recompute when the weights change. If a file is given, the tables are
+ * read from it when they were computed on the same graph, and written to it
+ * otherwise.
+ *
+ * @author Adam Gouge
+ */
+public class ST_BuildLandmarks extends AbstractTableFunction {
+
+    /**
+     * The name of this function.
+     */
+    public static final String NAME = "ST_BuildLandmarks";
+    /**
+     * Landmark column name.
+     */
+    public static final String LANDMARK = "landmark";
+    /**
+     * The SQL order of this function.
+     */
+    private static final String SQL_ORDER =
+            "SELECT * FROM " + NAME + "("
+            + "edges, 'weights_column'"
+            + "[, " + POSSIBLE_ORIENTATIONS + "], "
+            + "landmark_count[, 'file']);";
+    /**
+     * Short description of this function.
+     */
+    private static final String SHORT_DESCRIPTION =
+            "Computes the landmarks used by ST_ShortestPath and "
+            + "ST_ShortestPathLength for goal-directed point-to-point "
+            + "queries. ";
+    /**
+     * Long description of this function.
+     */
+    private static final String LONG_DESCRIPTION =
+            "<p> Landmarks are chosen by avoid selection, in the regions "
+            + "the landmarks already chosen bound worst, and the distances "
+            + "from and "
+            + "to every landmark are stored for every node. Queries use them "
+            + "as lower bounds of the remaining distance, which works for "
+            + "any weights, unlike straight-line distances. "
+            + "Lists the landmarks. "
+            + "<p> Required parameters: "
+            + "<ul> <li> <code>output.edges</code> - the input table. "
+            + "Specifically, this is the <code>output.edges</code> table "
+            + "produced by <code>ST_Graph</code>. "
+            + "<li> <code>weights_column</code> - the weights column. "
+            + "<li> <code>landmark_count</code> - the number of landmarks; "
+            + "8 to 16 is usually enough. </ul>"
+            + "<p> Optional parameters: "
+            + "<ul> <li> <code>orientation</code> - the orientation of the "
+            + "graph, as for ST_ShortestPath. "
+            + "<li> <code>file</code> - a file to read the landmarks from, "
+            + "or to write them to if it holds no landmarks of this graph. "
+            + "</ul> Queries use the landmarks when given the '"
+            + ST_ShortestPath.ALT + "' algorithm and the same edges table, "
+            + "weights column and orientation.";
+    /**
+     * Description of this function.
+     */
+    private static final String DESCRIPTION =
+            SHORT_DESCRIPTION + LONG_DESCRIPTION;
+    /**
+     * Metadata of the output table.
+     */
+    private static final Metadata MD = new DefaultMetadata(
+            new Type[]{TypeFactory.createType(Type.INT),
+                       TypeFactory.createType(Type.INT)},
+            new String[]{LANDMARK,
+                         GraphSchema.ID});
+    /**
+     * Logger.
+     */
+    private static final org.slf4j.Logger LOGGER =
+            LoggerFactory.getLogger(ST_BuildLandmarks.class);
+    private String weightsColumn = null;
+    private String globalOrientation = null;
+    private String edgeOrientationColumnName = null;
+    private int landmarkCount = -1;
+    private File file = null;
+
+    @Override
+    public DataSet evaluate(DataSourceFactory dsf, DataSet[] tables,
+                            Value[] values, ProgressMonitor pm)
+            throws FunctionException {
+        final DataSet edges = tables[0];
+        parseArguments(edges, values);
+        if (weightsColumn == null) {
+            throw new IllegalArgumentException(
+                    NAME + " requires a weights column.");
+        }
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException(
+                    "There must be at least one landmark.");
+        }
+        final WeightedGraphCreator<VWCent, Edge> creator =
+                createGraphCreator(edges);
+        try {
+            final CSRGraph graph = GraphCache.getInstance().getCSRGraph(creator);
+            final Landmarks landmarks = loadOrBuild(graph);
+            GraphCache.getInstance().setLandmarks(creator, landmarks);
+            return compute(dsf, landmarks);
+        } catch (DriverException ex) {
+            throw new FunctionException(ex);
+        } catch (IOException ex) {
+            throw new FunctionException(ex);
+        }
+    }
+
+    /**
+     * Parse all possible arguments for {@link ST_BuildLandmarks}.
+     *
+     * @param edges  Edges input table
+     * @param values Arguments
+     */
+    private void parseArguments(DataSet edges, Value[] values) {
+        GraphFunctionParser parser = new GraphFunctionParser();
+        // The landmark count follows the weights and orientation.
+        int countIndex = 0;
+        while (values[countIndex].getType() != Type.INT) {
+            countIndex++;
+        }
+        final Value[] strings = new Value[countIndex];
+        System.arraycopy(values, 0, strings, 0, countIndex);
+        parser.parseOptionalArguments(edges, strings, 0);
+        globalOrientation = parser.getGlobalOrientation();
+        edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
+        weightsColumn = parser.getWeightsColumn();
+        landmarkCount = values[countIndex].getAsInt();
+        file = values.length > countIndex + 1
+                ? new File(values[countIndex + 1].getAsString())
+                : null;
+    }
+
+    /**
+     * Returns a graph creator for the given edges table.
+     *
+     * @param edges Edges table
+     * @return Graph creator
+     */
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
+        // Get the graph orientation.
+        int graphType = -1;
+        if (globalOrientation != null) {
+            graphType = globalOrientation.equalsIgnoreCase(DIRECTED)
+                    ? GraphSchema.DIRECT
+                    : globalOrientation.equalsIgnoreCase(REVERSED)
+                    ? GraphSchema.DIRECT_REVERSED
+                    : globalOrientation.equalsIgnoreCase(UNDIRECTED)
+                    ? GraphSchema.UNDIRECT
+                    : -1;
+        } else if (graphType == -1) {
+            LOGGER.warn("Assuming a directed graph.");
+            graphType = GraphSchema.DIRECT;
+        }
+        return new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                graphType,
+                edgeOrientationColumnName,
+                VWCent.class,
+                Edge.class,
+                weightsColumn);
+    }
+
+    /**
+     * Reads the landmarks of the given graph from the file if it holds them,
+     * and computes them (writing them to the file, if any) otherwise.
+     *
+     * @param graph The graph.
+     *
+     * @return The landmark tables.
+     *
+     * @throws IOException If the landmarks cannot be written.
+     */
+    private Landmarks loadOrBuild(CSRGraph graph) throws IOException {
+        if (file != null && file.isFile()) {
+            try {
+                final Landmarks landmarks = LandmarksFile.read(file, graph);
+                if (landmarks.getLandmarkCount()
+                    == Math.min(landmarkCount, graph.getVertexCount())) {
+                    return landmarks;
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("Recomputing the landmarks: {}", ex.getMessage());
+            }
+        }
+        final long start = System.currentTimeMillis();
+        final Landmarks landmarks = Landmarks.build(graph, landmarkCount);
+        LOGGER.info("Computed {} landmarks on {} nodes in {} ms.",
+                    new Object[]{landmarks.getLandmarkCount(),
+                                 graph.getVertexCount(),
+                                 System.currentTimeMillis() - start});
+        if (file != null) {
+            LandmarksFile.write(landmarks, file);
+        }
+        return landmarks;
+    }
+
+    /**
+     * Lists the landmarks.
+     *
+     * @param dsf       Data source factory
+     * @param landmarks The landmark tables
+     *
+     * @return The landmarks
+     *
+     * @throws DriverException
+     */
+    private DiskBufferDriver compute(DataSourceFactory dsf,
+                                     Landmarks landmarks)
+            throws DriverException {
+        final CSRGraph graph = landmarks.getGraph();
+        DiskBufferDriver output = new DiskBufferDriver(dsf, MD);
+        for (int i = 0; i < landmarks.getLandmarkCount(); i++) {
+            output.addValues(createValue(i + 1),
+                             createValue(graph.getVertexId(
+                    landmarks.getLandmark(i))));
+        }
+        output.writingFinished();
+        output.open();
+        return output;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getSqlOrder() {
+        return SQL_ORDER;
+    }
+
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public Metadata getMetadata(Metadata[] tables) throws DriverException {
+        return MD;
+    }
+
+    @Override
+    public FunctionSignature[] getFunctionSignatures() {
+        return new FunctionSignature[]{
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.INT),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.INT),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING)
+        };
+    }
+}
@@ -0,0 +1,421 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.function;
+
+import java.io.File;
+import java.io.IOException;
+import org.gdms.data.DataSourceFactory;
+import org.gdms.data.schema.DefaultMetadata;
+import org.gdms.data.schema.Metadata;
+import org.gdms.data.types.Type;
+import org.gdms.data.types.TypeFactory;
+import org.gdms.data.values.Value;
+import org.gdms.data.values.ValueFactory;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DiskBufferDriver;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.DistanceMatrix;
+import org.gdms.gdmstopology.shortestpath.DistanceMatrixFile;
+import org.gdms.gdmstopology.shortestpath.ManyToManyDijkstra;
+import org.gdms.sql.function.FunctionException;
+import org.gdms.sql.function.FunctionSignature;
+import org.gdms.sql.function.ScalarArgument;
+import org.gdms.sql.function.table.AbstractTableFunction;
+import org.gdms.sql.function.table.TableArgument;
+import org.gdms.sql.function.table.TableDefinition;
+import org.gdms.sql.function.table.TableFunctionSignature;
+import org.javanetworkanalyzer.data.VWCent;
+import org.javanetworkanalyzer.model.Edge;
+import org.orbisgis.progress.ProgressMonitor;
+import org.slf4j.LoggerFactory;
+
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DESTINATION;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DIRECTED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DISTANCE;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.POSSIBLE_ORIENTATIONS;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.REVERSED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.SOURCE;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.UNDIRECTED;
+
+/**
+ * Calculates the distance from every node of a sources table to every node of
+ * a targets table.
+ *
+ * <p> Each source is searched until all targets are settled, in parallel on
+ * the CSR graph of the edges table, and the distances are gathered in a
+ * dense {@link DistanceMatrix} (spilled to disk when too big). The matrix is
+ * then listed as {@code (source, destination, distance)} rows, as by
+ * {@link ST_ShortestPathLength}, or written to a binary
+ * {@link DistanceMatrixFile}.
+ *
+ * @author Adam Gouge
+ */
+public class ST_DistanceMatrix extends AbstractTableFunction {
+
+    /**
+     * The name of this function.
+     */
+    public static final String NAME = "ST_DistanceMatrix";
+    /**
+     * The SQL order of this function.
+     */
+    private static final String SQL_ORDER =
+            "SELECT * FROM " + NAME + "("
+            + "edges, sources_table, targets_table, 'weights_column'"
+            + "[, " + POSSIBLE_ORIENTATIONS + "[, 'file']]);";
+    /**
+     * Short description of this function.
+     */
+    private static final String SHORT_DESCRIPTION =
+            "Calculates the distance from every source to every target. ";
+    /**
+     * Long description of this function.
+     */
+    private static final String LONG_DESCRIPTION =
+            "<p> Required parameters: "
+            + "<ul> <li> <code>output.edges</code> - the input table. "
+            + "Specifically, this is the <code>output.edges</code> table "
+            + "produced by <code>ST_Graph</code>. "
+            + "<li> <code>sources_table</code> - a table with a '" + SOURCE
+            + "' column listing the source nodes. "
+            + "<li> <code>targets_table</code> - a table with a '"
+            + DESTINATION + "' column listing the target nodes. "
+            + "<li> <code>weights_column</code> - the weights column. </ul>"
+            + "<p> Optional parameters: "
+            + "<ul> <li> <code>orientation</code> - the orientation of the "
+            + "graph, as for ST_ShortestPathLength. "
+            + "<li> <code>file</code> - a file to write the matrix to, as "
+            + "little-endian distances in row-major order followed by the "
+            + "source and target ids. The function then returns no rows. "
+            + "</ul> Otherwise the distances are listed by source and "
+            + "target, in the order of the sources and targets tables. "
+            + "Unreachable targets are at an infinite distance.";
+    /**
+     * Description of this function.
+     */
+    private static final String DESCRIPTION =
+            SHORT_DESCRIPTION + LONG_DESCRIPTION;
+    /**
+     * Metadata of the output table.
+     */
+    private static final Metadata MD = new DefaultMetadata(
+            new Type[]{TypeFactory.createType(Type.INT),
+                       TypeFactory.createType(Type.INT),
+                       TypeFactory.createType(Type.DOUBLE)},
+            new String[]{SOURCE,
+                         DESTINATION,
+                         DISTANCE});
+    /**
+     * Logger.
+     */
+    private static final org.slf4j.Logger LOGGER =
+            LoggerFactory.getLogger(ST_DistanceMatrix.class);
+    private String weightsColumn = null;
+    private String globalOrientation = null;
+    private String edgeOrientationColumnName = null;
+    private File file = null;
+
+    @Override
+    public DataSet evaluate(DataSourceFactory dsf, DataSet[] tables,
+                            Value[] values, ProgressMonitor pm)
+            throws FunctionException {
+        final DataSet edges = tables[0];
+        parseArguments(edges, values);
+        if (weightsColumn == null) {
+            throw new IllegalArgumentException(
+                    NAME + " requires a weights column.");
+        }
+        try {
+            final CSRGraph graph = GraphCache.getInstance().getCSRGraph(
+                    createGraphCreator(edges));
+            final int[] sources = readNodes(graph, tables[1], SOURCE);
+            final int[] targets = readNodes(graph, tables[2], DESTINATION);
+            final DistanceMatrix matrix = compute(graph, sources, targets);
+            try {
+                final DiskBufferDriver output = new DiskBufferDriver(dsf, MD);
+                if (file != null) {
+                    DistanceMatrixFile.write(matrix, toIds(graph, sources),
+                                             toIds(graph, targets), file);
+                } else {
+                    storeValues(graph, sources, targets, matrix, output);
+                }
+                output.writingFinished();
+                output.open();
+                return output;
+            } finally {
+                matrix.close();
+            }
+        } catch (DriverException ex) {
+            throw new FunctionException(ex);
+        } catch (IOException ex) {
+            throw new FunctionException(ex);
+        }
+    }
+
+    /**
+     * Parse all possible arguments for {@link ST_DistanceMatrix}.
+     *
+     * @param edges  Edges input table
+     * @param values Arguments
+     */
+    private void parseArguments(DataSet edges, Value[] values) {
+        GraphFunctionParser parser = new GraphFunctionParser();
+        // The file, if any, is the last of three arguments.
+        parser.parseOptionalArguments(
+                edges, values.length > 2 ? new Value[]{values[0], values[1]}
+                                         : values, 0);
+        globalOrientation = parser.getGlobalOrientation();
+        edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
+        weightsColumn = parser.getWeightsColumn();
+        file = values.length > 2 ? new File(values[2].getAsString()) : null;
+    }
+
+    /**
+     * Returns a graph creator for the given edges table.
+     *
+     * @param edges Edges table
+     * @return Graph creator
+     */
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
+        // Get the graph orientation.
+        int graphType = -1;
+        if (globalOrientation != null) {
+            graphType = globalOrientation.equalsIgnoreCase(DIRECTED)
+                    ? GraphSchema.DIRECT
+                    : globalOrientation.equalsIgnoreCase(REVERSED)
+                    ? GraphSchema.DIRECT_REVERSED
+                    : globalOrientation.equalsIgnoreCase(UNDIRECTED)
+                    ? GraphSchema.UNDIRECT
+                    : -1;
+        } else if (graphType == -1) {
+            LOGGER.warn("Assuming a directed graph.");
+            graphType = GraphSchema.DIRECT;
+        }
+        return new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                graphType,
+                edgeOrientationColumnName,
+                VWCent.class,
+                Edge.class,
+                weightsColumn);
+    }
+
+    /**
+     * Reads the nodes listed in the given column of a table, skipping those
+     * which are not in the graph.
+     *
+     * @param graph  CSR graph
+     * @param table  Table
+     * @param column Column name
+     *
+     * @return The dense indices of the nodes, in the order of the table
+     *
+     * @throws DriverException
+     */
+    private int[] readNodes(CSRGraph graph, DataSet table, String column)
+            throws DriverException {
+        final int index = table.getMetadata().getFieldIndex(column);
+        if (index == -1) {
+            throw new IllegalArgumentException(
+                    "The table must contain a column named \'"
+                    + column + "\'.");
+        }
+        final int rowCount = (int) table.getRowCount();
+        final int[] nodes = new int[rowCount];
+        int count = 0;
+        for (int i = 0; i < rowCount; i++) {
+            final int id = table.getInt(i, index);
+            final int node = graph.indexOf(id);
+            if (node == -1) {
+                LOGGER.warn("Skipping node {}: not in the graph.", id);
+            } else {
+                nodes[count++] = node;
+            }
+        }
+        if (count < rowCount) {
+            final int[] found = new int[count];
+            System.arraycopy(nodes, 0, found, 0, count);
+            return found;
+        }
+        return nodes;
+    }
+
+    /**
+     * Computes the distance matrix.
+     *
+     * @param graph   CSR graph
+     * @param sources Dense indices of the sources
+     * @param targets Dense indices of the targets
+     *
+     * @return The distance matrix
+     *
+     * @throws DriverException
+     * @throws IOException
+     */
+    private DistanceMatrix compute(CSRGraph graph,
+                                   int[] sources,
+                                   final int[] targets)
+            throws DriverException, IOException {
+        final DistanceMatrix matrix = DistanceMatrix.create(
+                sources.length, targets.length,
+                DistanceMatrix.DEFAULT_MEMORY_LIMIT);
+        if (matrix.isSpilled()) {
+            LOGGER.info("Spilling the {} x {} distance matrix to disk.",
+                        sources.length, targets.length);
+        }
+        final int[][] targetsBySource = new int[sources.length][];
+        for (int i = 0; i < sources.length; i++) {
+            targetsBySource[i] = targets;
+        }
+        try {
+            new ManyToManyDijkstra(graph,
+                                   Runtime.getRuntime().availableProcessors())
+                    .compute(sources, targetsBySource,
+                             new ManyToManyDijkstra.DistanceHandler() {
+                @Override
+                public void handle(int position, double[] distances)
+                        throws DriverException {
+                    try {
+                        matrix.setRow(position, distances);
+                    } catch (IOException ex) {
+                        throw new DriverException(ex);
+                    }
+                }
+            });
+        } catch (DriverException ex) {
+            matrix.close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            matrix.close();
+            throw ex;
+        }
+        return matrix;
+    }
+
+    /**
+     * Lists the distances of the matrix.
+     *
+     * @param graph   CSR graph
+     * @param sources Dense indices of the sources
+     * @param targets Dense indices of the targets
+     * @param matrix  Distance matrix
+     * @param output  Driver
+     *
+     * @throws DriverException
+     * @throws IOException
+     */
+    private void storeValues(CSRGraph graph,
+                             int[] sources,
+                             int[] targets,
+                             DistanceMatrix matrix,
+                             DiskBufferDriver output)
+            throws DriverException, IOException {
+        final int[] targetIds = toIds(graph, targets);
+        final double[] row = new double[targets.length];
+        for (int i = 0; i < sources.length; i++) {
+            matrix.getRow(i, row);
+            final int sourceId = graph.getVertexId(sources[i]);
+            for (int j = 0; j < targets.length; j++) {
+                output.addValues(ValueFactory.createValue(sourceId),
+                                 ValueFactory.createValue(targetIds[j]),
+                                 ValueFactory.createValue(row[j]));
+            }
+        }
+    }
+
+    /**
+     * Returns the node ids of the given dense indices.
+     *
+     * @param graph CSR graph
+     * @param nodes Dense indices
+     *
+     * @return Node ids
+     */
+    private static int[] toIds(CSRGraph graph, int[] nodes) {
+        final int[] ids = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ids[i] = graph.getVertexId(nodes[i]);
+        }
+        return ids;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getSqlOrder() {
+        return SQL_ORDER;
+    }
+
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public Metadata getMetadata(Metadata[] tables) throws DriverException {
+        return MD;
+    }
+
+    @Override
+    public FunctionSignature[] getFunctionSignatures() {
+        return new FunctionSignature[]{
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       TableArgument.ANY,
+                                       TableArgument.ANY,
+                                       ScalarArgument.STRING),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       TableArgument.ANY,
+                                       TableArgument.ANY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING),
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       TableArgument.ANY,
+                                       TableArgument.ANY,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING)
+        };
+    }
+}
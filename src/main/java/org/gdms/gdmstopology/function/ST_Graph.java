@@ -33,6 +33,7 @@
 package org.gdms.gdmstopology.function;
 
 import org.gdms.gdmstopology.process.NetworkGraphBuilder;
+import java.io.File;
 import java.io.IOException;
 import org.gdms.data.NonEditableDataSourceException;
 import org.gdms.data.DataSourceFactory;
@@ -58,7 +59,8 @@ import org.gdms.sql.function.table.TableDefinition;
  * input_table
  * [, tolerance,
  * orient_by_slope,
- * 'output_table_prefix']);}
+ * 'output_table_prefix'
+ * [, 'topology_file']]);}
  * </center>
  *
  * <p> Concretely, this function produces two tables, containing the indicated
@@ -91,7 +93,13 @@ import org.gdms.sql.function.table.TableDefinition;
  * according to the input geometry. That is, the orientation will be from the
  * first point of a segment to the last point of the segment. <li>
  * {@code 'output_table_prefix'} - a string used to prefix the names of the two
- * output tables. </ul>
+ * output tables. <li> {@code 'topology_file'} - the path of a binary topology
+ * file to write as well. It stores the edges in compressed sparse row form
+ * (one arc from {@code start_node} to {@code end_node} per edge, weighted by
+ * the length of its geometry, with its {@code id} and its row in the edges
+ * table) and can be opened without parsing the edges table by
+ * {@link org.gdms.gdmstopology.model.CSRGraphFile#map}. Shortest path
+ * functions map it when given {@code 'topology=file'}. </ul>
  *
  * <p> October 12, 2012: Documentation added by Adam Gouge.
  *
@@ -127,7 +135,7 @@ public class ST_Graph extends AbstractExecutorFunction {
      */
     @Override
     public String getSqlOrder() {
-        return "EXECUTE ST_Graph(input_table[, tolerance, orient_by_slope, 'output_table_prefix']);";
+        return "EXECUTE ST_Graph(input_table[, tolerance, orient_by_slope, 'output_table_prefix'[, 'topology_file']]);";
     }
 
     /**
@@ -158,7 +166,12 @@ public class ST_Graph extends AbstractExecutorFunction {
                 + "geometry. That is, the orientation will be from the first "
                 + "point of a segment to the last point of the segment. "
                 + "<p>Finally, <code>output_table_prefix</code> prefixes the names of the two "
-                + "output tables (<code>.nodes</code> and <code>.edges</code>).";
+                + "output tables (<code>.nodes</code> and <code>.edges</code>)."
+                + "<p>If <code>topology_file</code> is given, the edges are also "
+                + "written to this path as a compact binary adjacency file "
+                + "(weighted by geometry length) which shortest path "
+                + "functions memory-map instead of reading the edges table "
+                + "when given 'topology=file'.";
     }
 
     /**
@@ -198,6 +211,11 @@ public class ST_Graph extends AbstractExecutorFunction {
                 graphNetwork.setTolerance(values[0].getAsDouble());
                 graphNetwork.setOrientBySlope(values[1].getAsBoolean());
                 graphNetwork.setOutput_name(values[2].getAsString());
+            } else if (values.length == 4) {
+                graphNetwork.setTolerance(values[0].getAsDouble());
+                graphNetwork.setOrientBySlope(values[1].getAsBoolean());
+                graphNetwork.setOutput_name(values[2].getAsString());
+                graphNetwork.setTopologyFile(new File(values[3].getAsString()));
             }
             // Build the actual graph.
             graphNetwork.buildGraph(dataSet);
@@ -223,6 +241,8 @@ public class ST_Graph extends AbstractExecutorFunction {
      * {@code (TABLE input_table, DOUBLE tolerance, BOOLEAN orient_by_slope)}
      * <li>
      * {@code (TABLE input_table, DOUBLE tolerance, BOOLEAN orient_by_slope, STRING output_table_prefix)}
+     * <li>
+     * {@code (TABLE input_table, DOUBLE tolerance, BOOLEAN orient_by_slope, STRING output_table_prefix, STRING topology_file)}
      * </OL>
      *
      * @return An array of all possible signatures of this function.
@@ -249,6 +269,13 @@ public class ST_Graph extends AbstractExecutorFunction {
             new TableArgument(TableDefinition.GEOMETRY),
             ScalarArgument.DOUBLE,
             ScalarArgument.BOOLEAN,
+            ScalarArgument.STRING),
+            // Fifth possible signature: (TABLE input_table, DOUBLE tolerance, BOOLEAN orient_by_slope, STRING output_table_prefix, STRING topology_file).
+            new ExecutorFunctionSignature(
+            new TableArgument(TableDefinition.GEOMETRY),
+            ScalarArgument.DOUBLE,
+            ScalarArgument.BOOLEAN,
+            ScalarArgument.STRING,
             ScalarArgument.STRING)
         };
     }
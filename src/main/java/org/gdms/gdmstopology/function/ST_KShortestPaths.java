@@ -0,0 +1,331 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.function;
+
+import com.vividsolutions.jts.geom.Geometry;
+import java.io.File;
+import java.util.List;
+import org.gdms.data.DataSourceFactory;
+import org.gdms.data.schema.Metadata;
+import org.gdms.data.values.Value;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DiskBufferDriver;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.GraphMetadataFactory;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.ArcPath;
+import org.gdms.gdmstopology.shortestpath.KShortestPaths;
+import org.gdms.sql.function.FunctionException;
+import org.gdms.sql.function.FunctionSignature;
+import org.gdms.sql.function.ScalarArgument;
+import org.gdms.sql.function.table.AbstractTableFunction;
+import org.gdms.sql.function.table.TableArgument;
+import org.gdms.sql.function.table.TableDefinition;
+import org.gdms.sql.function.table.TableFunctionSignature;
+import org.javanetworkanalyzer.data.VWCent;
+import org.javanetworkanalyzer.model.Edge;
+import org.orbisgis.progress.ProgressMonitor;
+import org.slf4j.LoggerFactory;
+
+import static org.gdms.data.values.ValueFactory.createValue;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DIRECTED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.POSSIBLE_ORIENTATIONS;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.REVERSED;
+import static org.gdms.gdmstopology.function.ST_ShortestPathLength.UNDIRECTED;
+
+/**
+ * Calculates the k shortest loopless paths between two vertices of a graph,
+ * as alternatives to the shortest path returned by {@link ST_ShortestPath}.
+ *
+ * <p> The paths are found by {@link KShortestPaths} (Yen's algorithm) on the
+ * cached {@link CSRGraph} of the edges table. The output has the columns of
+ * {@link ST_ShortestPath} followed by the rank of the path each edge belongs
+ * to, starting from 1 for the shortest path.
+ *
+ * @author Adam Gouge
+ */
+public class ST_KShortestPaths extends AbstractTableFunction {
+
+    /**
+     * The name of this function.
+     */
+    public static final String NAME = "ST_KShortestPaths";
+    /**
+     * The SQL order of this function.
+     */
+    private static final String SQL_ORDER =
+            "SELECT * FROM " + NAME + "("
+            + "edges, source_vertex, target_vertex, k, 'weights_column'"
+            + "[, " + POSSIBLE_ORIENTATIONS + " | '"
+            + GraphFunctionParser.TOPOLOGY_PREFIX + "file']);";
+    /**
+     * Short description of this function.
+     */
+    private static final String SHORT_DESCRIPTION =
+            "Calculates the k shortest loopless paths between two vertices "
+            + "of a graph. ";
+    /**
+     * Long description of this function.
+     */
+    private static final String LONG_DESCRIPTION =
+            "<p> Lists the edges of each path from the target back to the "
+            + "source, as ST_ShortestPath does, with the rank of the path "
+            + "(1 for the shortest) in the <code>" + GraphSchema.PATH_RANK
+            + "</code> column. Fewer than k paths are returned if there are "
+            + "no more loopless paths. "
+            + "<p> Required parameters: "
+            + "<ul> <li> <code>output.edges</code> - the input table. "
+            + "Specifically, this is the <code>output.edges</code> table "
+            + "produced by <code>ST_Graph</code>. "
+            + "<li> <code>source_vertex</code> - the source. "
+            + "<li> <code>target_vertex</code> - the target. "
+            + "<li> <code>k</code> - the number of paths. "
+            + "<li> <code>weights_column</code> - the weights column. </ul>"
+            + "<p> Optional parameters: "
+            + "<ul> <li> <code>orientation</code> - the orientation of the "
+            + "graph, as for ST_ShortestPath. "
+            + "<li> <code>'" + GraphFunctionParser.TOPOLOGY_PREFIX
+            + "file'</code> - the topology file written by "
+            + "<code>ST_Graph</code> for the edges table, mapped instead of "
+            + "reading the endpoints of the edges when the graph is "
+            + "directed by the edge geometries. </ul>";
+    /**
+     * Description of this function.
+     */
+    private static final String DESCRIPTION =
+            SHORT_DESCRIPTION + LONG_DESCRIPTION;
+    /**
+     * Metadata of the output table.
+     */
+    private static final Metadata METADATA =
+            GraphMetadataFactory.createEdgeMetadataKShortestPaths();
+    /**
+     * Logger.
+     */
+    private static final org.slf4j.Logger LOGGER =
+            LoggerFactory.getLogger(ST_KShortestPaths.class);
+    private int source = -1;
+    private int destination = -1;
+    private int k = -1;
+    private String weightsColumn = null;
+    private File topologyFile = null;
+    private String globalOrientation = null;
+    private String edgeOrientationColumnName = null;
+
+    @Override
+    public DataSet evaluate(DataSourceFactory dsf, DataSet[] tables,
+                            Value[] values, ProgressMonitor pm)
+            throws FunctionException {
+        final DataSet edges = tables[0];
+        parseArguments(edges, values);
+        if (weightsColumn == null) {
+            throw new IllegalArgumentException(
+                    NAME + " requires a weights column.");
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException(
+                    "The number of paths must be positive.");
+        }
+        final WeightedGraphCreator<VWCent, Edge> creator =
+                createGraphCreator(edges);
+        try {
+            return compute(dsf, edges,
+                           GraphCache.getInstance().getCSRGraph(creator));
+        } catch (DriverException ex) {
+            throw new FunctionException(ex);
+        }
+    }
+
+    /**
+     * Parse all possible arguments for {@link ST_KShortestPaths}.
+     *
+     * @param edges  Edges input table
+     * @param values Arguments
+     */
+    private void parseArguments(DataSet edges, Value[] values) {
+        GraphFunctionParser parser = new GraphFunctionParser();
+        source = parser.parseSource(values[0]);
+        destination = parser.parseTarget(values[1]);
+        k = values[2].getAsInt();
+        parser.parseOptionalArguments(edges, values, 3);
+        globalOrientation = parser.getGlobalOrientation();
+        edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
+        weightsColumn = parser.getWeightsColumn();
+        topologyFile = parser.getTopologyFile();
+    }
+
+    /**
+     * Returns a graph creator for the given edges table.
+     *
+     * @param edges Edges table
+     * @return Graph creator
+     */
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
+        // Get the graph orientation.
+        int graphType = -1;
+        if (globalOrientation != null) {
+            graphType = globalOrientation.equalsIgnoreCase(DIRECTED)
+                    ? GraphSchema.DIRECT
+                    : globalOrientation.equalsIgnoreCase(REVERSED)
+                    ? GraphSchema.DIRECT_REVERSED
+                    : globalOrientation.equalsIgnoreCase(UNDIRECTED)
+                    ? GraphSchema.UNDIRECT
+                    : -1;
+        } else if (graphType == -1) {
+            LOGGER.warn("Assuming a directed graph.");
+            graphType = GraphSchema.DIRECT;
+        }
+        final WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                graphType,
+                edgeOrientationColumnName,
+                VWCent.class,
+                Edge.class,
+                weightsColumn);
+        creator.setTopologyFile(topologyFile);
+        return creator;
+    }
+
+    /**
+     * Computes the paths and writes them to a table.
+     *
+     * @param dsf     Data source factory
+     * @param dataSet Edges table
+     * @param graph   CSR graph of the edges table
+     *
+     * @return The paths
+     *
+     * @throws DriverException
+     */
+    private DiskBufferDriver compute(DataSourceFactory dsf,
+                                     DataSet dataSet,
+                                     CSRGraph graph)
+            throws DriverException {
+        DiskBufferDriver output = new DiskBufferDriver(dsf, METADATA);
+        final int sourceIndex = graph.indexOf(source);
+        final int destinationIndex = graph.indexOf(destination);
+        if (sourceIndex == -1 || destinationIndex == -1) {
+            LOGGER.error("Source or destination not found in the graph. " +
+                    "Source: " + source + ", Destination: " + destination);
+        } else {
+            final List<ArcPath> paths = new KShortestPaths(graph).compute(
+                    sourceIndex, destinationIndex, k);
+            final int geomIndex = dataSet.getSpatialFieldIndex();
+            if (geomIndex == -1) {
+                throw new IndexOutOfBoundsException("Geometry field not found.");
+            }
+            // Read the geometries of all paths at once, in row order.
+            int arcCount = 0;
+            for (ArcPath path : paths) {
+                arcCount += path.size();
+            }
+            final int[] rows = new int[arcCount];
+            int position = 0;
+            for (ArcPath path : paths) {
+                for (int i = 0; i < path.size(); i++) {
+                    rows[position++] = (int) graph.getArcRow(path.getArc(i));
+                }
+            }
+            final Geometry[] geometries =
+                    ST_ShortestPath.getGeometries(dataSet, geomIndex, rows);
+            int newID = 1;
+            int first = 0;
+            for (int rank = 1; rank <= paths.size(); rank++) {
+                final ArcPath path = paths.get(rank - 1);
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    final int arc = path.getArc(i);
+                    output.addValues(
+                            ST_ShortestPath.createGeometryValue(
+                                    geometries[first + i]),
+                            createValue(graph.getArcEdgeId(arc)),
+                            createValue(newID++),
+                            createValue(graph.getVertexId(
+                                    graph.getArcSource(arc))),
+                            createValue(graph.getVertexId(
+                                    graph.getArcTarget(arc))),
+                            createValue(graph.getArcWeight(arc)),
+                            createValue(rank));
+                }
+                first += path.size();
+            }
+        }
+        output.writingFinished();
+        output.open();
+        return output;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getSqlOrder() {
+        return SQL_ORDER;
+    }
+
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public Metadata getMetadata(Metadata[] tables) throws DriverException {
+        return METADATA;
+    }
+
+    @Override
+    public FunctionSignature[] getFunctionSignatures() {
+        return new FunctionSignature[]{
+            new TableFunctionSignature(TableDefinition.GEOMETRY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING),
+            new TableFunctionSignature(TableDefinition.GEOMETRY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING)
+        };
+    }
+}
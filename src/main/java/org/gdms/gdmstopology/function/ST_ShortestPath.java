@@ -34,19 +34,28 @@ package org.gdms.gdmstopology.function;
 
 import com.vividsolutions.jts.geom.Geometry;
 import org.gdms.data.DataSourceFactory;
-import org.gdms.data.NoSuchTableException;
-import org.gdms.data.indexes.DefaultAlphaQuery;
-import org.gdms.data.indexes.IndexException;
-import org.gdms.data.indexes.IndexManager;
 import org.gdms.data.schema.Metadata;
 import org.gdms.data.values.Value;
+import org.gdms.data.values.ValueFactory;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
 import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
 import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.EdgeRowIndex;
 import org.gdms.gdmstopology.model.GraphMetadataFactory;
 import org.gdms.gdmstopology.model.GraphSchema;
 import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.AStar;
+import org.gdms.gdmstopology.shortestpath.ArcPath;
+import org.gdms.gdmstopology.shortestpath.BidirectionalDijkstra;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchy;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchySearch;
+import org.gdms.gdmstopology.shortestpath.LandmarkAStar;
+import org.gdms.gdmstopology.shortestpath.Landmarks;
+import org.gdms.gdmstopology.shortestpath.NodeCoordinates;
+import org.gdms.gdmstopology.shortestpath.PointToPointSearch;
 import org.gdms.sql.function.FunctionException;
 import org.gdms.sql.function.FunctionSignature;
 import org.gdms.sql.function.ScalarArgument;
@@ -61,8 +70,12 @@ import org.javanetworkanalyzer.model.KeyedGraph;
 import org.orbisgis.progress.ProgressMonitor;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import static org.gdms.data.values.ValueFactory.createValue;
@@ -71,16 +84,60 @@ import static org.gdms.data.values.ValueFactory.createValue;
  * Calculates the shortest path between two vertices of a graph using Dijkstra's
  * algorithm.
  *
+ * <p> By default, all shortest paths are returned by a unidirectional search.
+ * With the {@value #BIDIRECTIONAL} argument, a single shortest path is found
+ * by a {@link BidirectionalDijkstra} search on the cached {@link CSRGraph}
+ * of the edges table, which settles far fewer vertices on large networks.
+ * With the {@value #ASTAR} argument and the nodes table produced by
+ * {@code ST_Graph} given after the edges table, an {@link AStar} search
+ * guided by the node coordinates is used instead. With the {@value #CH}
+ * argument, the query is answered by a {@link ContractionHierarchySearch} on
+ * the hierarchy built by {@link ST_BuildContractionHierarchy} with the same
+ * weights and orientation, whose shortcuts are unpacked into the original
+ * edges; a hierarchy written to a file by an earlier session is read from
+ * the {@code 'hierarchy=file'} argument, which implies {@value #CH}. The
+ * searches on CSR graphs map the topology file written by {@code ST_Graph}
+ * when it is given as {@code 'topology=file'} and the graph is directed by
+ * the edge geometries. With the {@value #ALT} argument, landmarks computed by
+ * {@link ST_BuildLandmarks} guide a {@link LandmarkAStar} search, which suits
+ * travel time or cost weights better than straight-line distances. These
+ * searches are never chosen implicitly, so the result of a query does not
+ * depend on what was built before it.
+ *
  * @author Erwan Bocher
  * @author Adam Gouge
  */
 public class ST_ShortestPath extends AbstractTableFunction {
 
+    /**
+     * Unidirectional Dijkstra search (the default).
+     */
+    public static final String DIJKSTRA = "dijkstra";
+    /**
+     * Bidirectional Dijkstra search.
+     */
+    public static final String BIDIRECTIONAL = "bidirectional";
+    /**
+     * A* search guided by the coordinates of the nodes table.
+     */
+    public static final String ASTAR = "astar";
+    /**
+     * Search on the contraction hierarchy built by
+     * {@link ST_BuildContractionHierarchy}.
+     */
+    public static final String CH = "ch";
+    /**
+     * A* search guided by the landmarks computed by {@link ST_BuildLandmarks}.
+     */
+    public static final String ALT = "alt";
     private int source = -1;
     private int destination = -1;
     private String weightsColumn = null;
     private String globalOrientation = null;
     private String edgeOrientationColumnName = null;
+    private String algorithm = null;
+    private File hierarchyFile = null;
+    private File topologyFile = null;
     private static final org.slf4j.Logger LOGGER =
             LoggerFactory.getLogger(ST_ShortestPath.class);
     private static final Metadata METADATA = GraphMetadataFactory.createEdgeMetadataShortestPath();
@@ -108,19 +165,61 @@ public class ST_ShortestPath extends AbstractTableFunction {
 
         // Recover the edges.
         final DataSet edges = tables[0];
+        // Recover the nodes, if any.
+        final DataSet nodes = tables.length > 1 ? tables[1] : null;
 
         // Recover all other parameters.
         parseArguments(edges, values);
+        if (nodes != null && !ASTAR.equals(algorithm)) {
+            LOGGER.warn("The nodes table is only used by the {} algorithm.",
+                        ASTAR);
+        }
+
+        final WeightedGraphCreator<VWCent, Edge> creator =
+                createGraphCreator(edges);
+        ContractionHierarchy hierarchy = null;
+        if (CH.equals(algorithm)) {
+            try {
+                hierarchy = GraphCache.getInstance()
+                        .getContractionHierarchy(creator, hierarchyFile);
+            } catch (IOException ex) {
+                throw new FunctionException(ex);
+            }
+        }
+        Landmarks landmarks = null;
+        if (ALT.equals(algorithm)) {
+            landmarks = GraphCache.getInstance().getLandmarks(creator);
+        }
+
+        if (BIDIRECTIONAL.equals(algorithm) || ASTAR.equals(algorithm)
+            || CH.equals(algorithm) || ALT.equals(algorithm)) {
+            try {
+                final CSRGraph graph = hierarchy != null
+                        ? hierarchy.getGraph()
+                        : landmarks != null
+                        ? landmarks.getGraph()
+                        : GraphCache.getInstance().getCSRGraph(creator);
+                return computePointToPoint(dsf, edges, graph, createSearch(
+                        algorithm, graph, nodes, hierarchy, landmarks));
+            } catch (DriverException ex) {
+                LOGGER.error(ex.toString());
+                return null;
+            }
+        }
 
         // Prepare the graph.
-        KeyedGraph<VWCent, Edge> graph = prepareGraph(edges);
+        KeyedGraph<VWCent, Edge> graph =
+                GraphCache.getInstance().acquire(creator);
 
         // Compute and return results.
         DiskBufferDriver results = null;
         try {
-            results = compute(dsf, edges, graph, pm);
+            results = compute(dsf, edges, graph,
+                              GraphCache.getInstance().getEdgeRowIndex(creator));
         } catch (DriverException ex) {
             LOGGER.error(ex.toString());
+        } finally {
+            GraphCache.getInstance().release(graph);
         }
         return results;
     }
@@ -139,17 +238,27 @@ public class ST_ShortestPath extends AbstractTableFunction {
         globalOrientation = parser.getGlobalOrientation();
         edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
         weightsColumn = parser.getWeightsColumn();
+        algorithm = parser.getAlgorithm();
+        hierarchyFile = parser.getHierarchyFile();
+        topologyFile = parser.getTopologyFile();
+        if (hierarchyFile != null) {
+            if (algorithm == null) {
+                algorithm = CH;
+            } else if (!CH.equals(algorithm)) {
+                LOGGER.warn("The hierarchy file is only used by the {} "
+                            + "algorithm.", CH);
+            }
+        }
     }
 
     /**
-     * Prepare the JGraphT graph from the given edges table.
+     * Returns a graph creator for the given edges table.
      *
      * @param edges Edges table
-     * @return JGraphT graph
+     * @return Graph creator
      */
-    private KeyedGraph<VWCent, Edge> prepareGraph(final DataSet edges) {
-        KeyedGraph<VWCent, Edge> graph;
-
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
         // Get the graph orientation.
         int graphType = -1;
         if (globalOrientation != null) {
@@ -165,35 +274,155 @@ public class ST_ShortestPath extends AbstractTableFunction {
             graphType = GraphSchema.DIRECT;
         }
 
-        // Create the graph.
+        // Create the graph creator.
         if (weightsColumn != null) {
-            graph = new WeightedGraphCreator<VWCent, Edge>(
+            final WeightedGraphCreator<VWCent, Edge> creator =
+                    new WeightedGraphCreator<VWCent, Edge>(
                     edges,
                     graphType,
                     edgeOrientationColumnName,
                     VWCent.class,
                     Edge.class,
-                    weightsColumn).prepareGraph();
+                    weightsColumn);
+            creator.setTopologyFile(topologyFile);
+            return creator;
         } else {
             throw new UnsupportedOperationException(
                     "ST_ShortestPath has not yet been implemented for "
                             + "unweighted graphs.");
         }
-        return graph;
+    }
+
+    /**
+     * Returns the point-to-point search for the given algorithm.
+     *
+     * @param algorithm {@link #BIDIRECTIONAL}, {@link #ASTAR}, {@link #CH} or
+     *                  {@link #ALT}
+     * @param graph     CSR graph of the edges table
+     * @param nodes     Nodes table, required by {@link #ASTAR}
+     * @param hierarchy Contraction hierarchy of the graph, required by
+     *                  {@link #CH}
+     * @param landmarks Landmark tables of the graph, required by
+     *                  {@link #ALT}
+     * @return The search
+     * @throws DriverException
+     */
+    static PointToPointSearch createSearch(String algorithm,
+                                           CSRGraph graph,
+                                           DataSet nodes,
+                                           ContractionHierarchy hierarchy,
+                                           Landmarks landmarks)
+            throws DriverException {
+        if (CH.equals(algorithm)) {
+            if (hierarchy == null) {
+                throw new IllegalArgumentException(
+                        "No contraction hierarchy was built for these edges, "
+                        + "weights and orientation; run "
+                        + ST_BuildContractionHierarchy.NAME + " first.");
+            }
+            return new ContractionHierarchySearch(hierarchy);
+        } else if (ALT.equals(algorithm)) {
+            if (landmarks == null) {
+                throw new IllegalArgumentException(
+                        "No landmarks were computed for these edges, "
+                        + "weights and orientation; run "
+                        + ST_BuildLandmarks.NAME + " first.");
+            }
+            return new LandmarkAStar(landmarks);
+        } else if (ASTAR.equals(algorithm)) {
+            if (nodes == null) {
+                throw new IllegalArgumentException(
+                        "The " + ASTAR + " algorithm requires the nodes "
+                        + "table to be given after the edges table.");
+            }
+            final AStar aStar =
+                    new AStar(graph, NodeCoordinates.load(nodes, graph));
+            if (aStar.getScale() == 0) {
+                LOGGER.warn("The node coordinates cannot guide the search; "
+                            + "some nodes have no coordinates or some edges "
+                            + "have zero weight.");
+            }
+            return aStar;
+        } else if (BIDIRECTIONAL.equals(algorithm)) {
+            return new BidirectionalDijkstra(graph);
+        }
+        throw new IllegalArgumentException(
+                "Unknown point-to-point algorithm '" + algorithm + "'.");
+    }
+
+    /**
+     * Compute a shortest path with the given search and write it to a table.
+     * As for the unidirectional search, the edges are listed from the
+     * destination back to the source.
+     *
+     * @param dsf     Data source factory
+     * @param dataSet Edges table
+     * @param graph   CSR graph of the edges table
+     * @param search  Point-to-point search on the graph
+     * @return The shortest path
+     * @throws DriverException
+     */
+    private DiskBufferDriver computePointToPoint(DataSourceFactory dsf,
+                                                 DataSet dataSet,
+                                                 CSRGraph graph,
+                                                 PointToPointSearch search)
+            throws DriverException {
+        DiskBufferDriver output = new DiskBufferDriver(dsf, METADATA);
+        final int sourceIndex = graph.indexOf(source);
+        final int destinationIndex = graph.indexOf(destination);
+        if (sourceIndex == -1 || destinationIndex == -1) {
+            LOGGER.error("Source or destination not found in the graph. " +
+                    "Source: " + source + ", Destination: " + destination);
+        } else {
+            final ArcPath path =
+                    search.compute(sourceIndex, destinationIndex);
+            if (path != null) {
+                // Get the index of the_geom
+                final int geomIndex = dataSet.getSpatialFieldIndex();
+                if (geomIndex == -1) {
+                    throw new IndexOutOfBoundsException("Geometry field not found.");
+                }
+                // Arcs know their row, so no index on the id is needed.
+                final int[] rows = new int[path.size()];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = (int) graph.getArcRow(path.getArc(i));
+                }
+                final Geometry[] geometries =
+                        getGeometries(dataSet, geomIndex, rows);
+                int newID = 1;
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    final int arc = path.getArc(i);
+                    output.addValues(
+                            createGeometryValue(geometries[i]),
+                            createValue(graph.getArcEdgeId(arc)),
+                            createValue(newID++),
+                            createValue(graph.getVertexId(
+                                    graph.getArcSource(arc))),
+                            createValue(graph.getVertexId(
+                                    graph.getArcTarget(arc))),
+                            createValue(graph.getArcWeight(arc)));
+                }
+            }
+        }
+        output.writingFinished();
+        output.open();
+        return output;
     }
 
     /**
      * Compute the distances and write them to a table.
      *
-     * @param dsf   Data source factory
-     * @param graph JGraphT graph
+     * @param dsf          Data source factory
+     * @param dataSet      Edges table
+     * @param graph        JGraphT graph
+     * @param edgeRowIndex Rows of the edges of the edges table
      * @return The requested distances
      * @throws DriverException
      */
     private DiskBufferDriver compute(DataSourceFactory dsf,
                                      DataSet dataSet,
                                      KeyedGraph<VWCent, Edge> graph,
-                                     ProgressMonitor pm)
+                                     EdgeRowIndex edgeRowIndex)
             throws DriverException {
 
         // A DiskBufferDriver to store the shortest path.
@@ -214,12 +443,11 @@ public class ST_ShortestPath extends AbstractTableFunction {
                 if (geomIndex == -1) {
                     throw new IndexOutOfBoundsException("Geometry field not found.");
                 }
-                // Build an index on the id
-                buildIDIndex(dsf, dataSet, pm);
-
                 // Rebuild the shortest path(s). (Yes, there could be more than
-                // one if they have the same distance!)
-                int newID = 1;
+                // one if they have the same distance!) The geometries are
+                // read once all edges are known.
+                final List<Edge> edges = new ArrayList<Edge>();
+                final List<int[]> endpoints = new ArrayList<int[]>();
 
                 Set<Edge> predecessorEdges = graph.getVertex(destination).getPredecessorEdges();
                 VWCent previousDestination = graph.getVertex(destination);
@@ -250,16 +478,28 @@ public class ST_ShortestPath extends AbstractTableFunction {
                                     "edge not ending on itself.");
                         }
 
-                        output.addValues(
-                                createValue(getEdgeGeometry(dsf, dataSet, geomIndex, e.getID())),
-                                createValue(e.getID()),
-                                createValue(newID++),
-                                createValue(sourceID),
-                                createValue(targetID),
-                                createValue(graph.getEdgeWeight(e)));
+                        edges.add(e);
+                        endpoints.add(new int[]{sourceID, targetID});
                     }
                     predecessorEdges = nextPredecessorEdges;
                 }
+
+                final int[] edgeIds = new int[edges.size()];
+                for (int i = 0; i < edgeIds.length; i++) {
+                    edgeIds[i] = edges.get(i).getID();
+                }
+                final Geometry[] geometries = getEdgeGeometries(
+                        dataSet, geomIndex, edgeRowIndex, edgeIds);
+                for (int i = 0; i < edgeIds.length; i++) {
+                    final Edge e = edges.get(i);
+                    output.addValues(
+                            createGeometryValue(geometries[i]),
+                            createValue(edgeIds[i]),
+                            createValue(i + 1),
+                            createValue(endpoints.get(i)[0]),
+                            createValue(endpoints.get(i)[1]),
+                            createValue(graph.getEdgeWeight(e)));
+                }
             } else {
                 LOGGER.error("Source or destination note configured correctly. " +
                         "Source: " + source + ", Destination: " + destination);
@@ -274,58 +514,83 @@ public class ST_ShortestPath extends AbstractTableFunction {
     }
 
     /**
-     * Build an index on the field "id" of the given dataset.
-     * @param dsf     DataSourceFactory
-     * @param dataSet DataSet
-     * @param pm      ProgressMonitor
+     * Look up the geometries of the given edges in the given {@link DataSet}.
+     *
+     * @param dataSet      Edges table
+     * @param geomIndex    Index of the_geom in dataSet
+     * @param edgeRowIndex Rows of the edges of dataSet
+     * @param edgeIds      Edge ids
+     * @return The geometry of each edge
+     * @throws DriverException If getting a geometry fails.
      */
-    public static void buildIDIndex(DataSourceFactory dsf, DataSet dataSet, ProgressMonitor pm) {
-        // Build an index on id for looking up the row index later.
-        final IndexManager indexManager = dsf.getIndexManager();
-        if (!indexManager.isIndexed(dataSet, GraphSchema.ID)) {
-            try {
-                indexManager.buildIndex(dataSet, GraphSchema.ID, pm);
-            } catch (NoSuchTableException e) {
-                LOGGER.error("Table not found when building index.");
-            } catch (IndexException e) {
-                LOGGER.error("Problem building indices.");
+    public static Geometry[] getEdgeGeometries(DataSet dataSet,
+                                               int geomIndex,
+                                               EdgeRowIndex edgeRowIndex,
+                                               int[] edgeIds)
+            throws DriverException {
+        final int[] rows = new int[edgeIds.length];
+        for (int i = 0; i < edgeIds.length; i++) {
+            // We have to use Math.abs on the id because in directed
+            // graphs, an undirected edge could have a negative id.
+            // This is used in JNA for the edge betweenness calculation.
+            // But the geometry remains the same.
+            rows[i] = edgeRowIndex.getRow(Math.abs(edgeIds[i]));
+            if (rows[i] == EdgeRowIndex.NO_ROW) {
+                throw new IllegalStateException("No row index found for edge "
+                        + edgeIds[i] + " (Edge not found).");
             }
         }
+        return getGeometries(dataSet, geomIndex, rows);
     }
 
     /**
-     * Look up the given {@link Edge}'s {@link Geometry} in the given {@link DataSet}.
+     * Reads the geometries of the given rows in ascending row order, so that
+     * file-based drivers read the edges table sequentially. Rows past the
+     * end of the table are those of edges added in memory through a
+     * {@code GDMSGraph}, which have no geometry.
      *
-     * @param dsf       DataSourceFactory
-     * @param dataSet   DataSet
+     * @param dataSet   Edges table
      * @param geomIndex Index of the_geom in dataSet
-     * @param id        Edge id
-     * @return The edge's geometry
-     * @throws DriverException If getting an iterator or getting the geometry fail.
+     * @param rows      Row ids
+     * @return The geometry of each row, in the order of {@code rows}, or
+     *         {@code null} for an added edge
+     * @throws DriverException If getting a geometry fails.
      */
-    public static Geometry getEdgeGeometry(DataSourceFactory dsf,
-                                           DataSet dataSet,
-                                           int geomIndex,
-                                           int id) throws DriverException {
-        // We have to use Math.abs on the id because in directed
-        // graphs, an undirected edge could have a negative id.
-        // This is used in JNA for the edge betweenness calculation.
-        // But the geometry remains the same.
-        Iterator<Integer> it = dataSet.queryIndex(dsf,
-                new DefaultAlphaQuery(GraphSchema.ID,
-                        createValue(Math.abs(id))));
-        // Since the id is unique, we expect the row id to be unique.
-        int edgeRowIndex = -1;
-        if (it.hasNext()) {
-            edgeRowIndex = it.next().intValue();
-            if (it.hasNext()) {
-                throw new IllegalStateException("Multiple edge ids!");
+    static Geometry[] getGeometries(DataSet dataSet,
+                                    int geomIndex,
+                                    int[] rows) throws DriverException {
+        final long rowCount = dataSet.getRowCount();
+        // Sort (row, position) pairs packed in longs.
+        final long[] order = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            order[i] = ((long) rows[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        final Geometry[] geometries = new Geometry[rows.length];
+        Geometry previous = null;
+        for (int i = 0; i < order.length; i++) {
+            final int row = (int) (order[i] >>> 32);
+            // Edges listed twice are read once.
+            if (i == 0 || row != (int) (order[i - 1] >>> 32)) {
+                previous = row < rowCount
+                        ? dataSet.getGeometry(row, geomIndex)
+                        : null;
             }
-        } else {
-            throw new IllegalStateException("No row index found for edge " + id
-                    + " (Edge not found).");
+            geometries[(int) order[i]] = previous;
         }
-        return dataSet.getGeometry(edgeRowIndex, geomIndex);
+        return geometries;
+    }
+
+    /**
+     * Returns the value of an edge geometry.
+     *
+     * @param geometry The geometry, or {@code null} for an added edge
+     * @return The value, a null value for an added edge
+     */
+    static Value createGeometryValue(Geometry geometry) {
+        return geometry == null
+                ? ValueFactory.createNullValue()
+                : createValue(geometry);
     }
 
     /**
@@ -348,7 +613,16 @@ public class ST_ShortestPath extends AbstractTableFunction {
     public String getSqlOrder() {
         return "SELECT * from  ST_ShortestPath(input_table, source_vertex, " +
                 "target_vertex, 'weights_column'[, "
-                + ST_ShortestPathLength.POSSIBLE_ORIENTATIONS + "]);";
+                + ST_ShortestPathLength.POSSIBLE_ORIENTATIONS + "][, '"
+                + DIJKSTRA + "' | '" + BIDIRECTIONAL + "' | '" + CH
+                + "' | '" + ALT + "' | '"
+                + GraphFunctionParser.HIERARCHY_PREFIX + "file'][, '"
+                + GraphFunctionParser.TOPOLOGY_PREFIX + "file']);\n"
+                + "SELECT * from  ST_ShortestPath(input_table, nodes_table, "
+                + "source_vertex, target_vertex, 'weights_column', "
+                + ST_ShortestPathLength.POSSIBLE_ORIENTATIONS + ", '"
+                + ASTAR + "'[, '" + GraphFunctionParser.TOPOLOGY_PREFIX
+                + "file']);";
     }
 
     /**
@@ -377,7 +651,32 @@ public class ST_ShortestPath extends AbstractTableFunction {
                 + "<li> '" + ST_ShortestPathLength.UNDIRECTED + "'."
                 + "</ul> The default orientation is " + ST_ShortestPathLength.DIRECTED + " with edge "
                 + "orientations given by the geometries, though edge orientations "
-                + "should most definitely be provided by the user. ";
+                + "should most definitely be provided by the user. "
+                + "The optional parameter algorithm is either '" + DIJKSTRA
+                + "' (default), which returns all shortest paths, or '"
+                + BIDIRECTIONAL + "', which returns a single shortest path "
+                + "found by a bidirectional search, much faster on large "
+                + "graphs. The algorithms below also return a single "
+                + "shortest path. '" + ASTAR + "' runs an A* search guided "
+                + "by the coordinates of the nodes table produced by "
+                + "ST_Graph, given after the input_table, and is fastest "
+                + "when weights are lengths. '" + CH + "' searches the "
+                + "contraction hierarchy built by "
+                + ST_BuildContractionHierarchy.NAME + " with the same "
+                + "weights and orientation in this session; '"
+                + GraphFunctionParser.HIERARCHY_PREFIX + "file' reads the "
+                + "hierarchy that function wrote to the file instead, "
+                + "provided the graph has not changed since. '" + ALT + "' runs an A* search "
+                + "guided by the landmarks computed by "
+                + ST_BuildLandmarks.NAME + " with the same weights and "
+                + "orientation, which suits travel times or costs. These "
+                + "algorithms are only used when requested. "
+                + "Finally, '" + GraphFunctionParser.TOPOLOGY_PREFIX
+                + "file' gives the topology file written by ST_Graph for "
+                + "the input_table, which all but the '" + DIJKSTRA
+                + "' algorithm map instead of reading the endpoints of the "
+                + "edges when the graph is directed by the edge "
+                + "geometries. ";
     }
 
     /**
@@ -399,7 +698,13 @@ public class ST_ShortestPath extends AbstractTableFunction {
      * signatures arise from some arguments being optional.
      * <p/>
      * <p> Possible signatures: <OL> <li> {@code (TABLE, INT, INT, STRING)} <li>
-     * {@code (TABLE, INT, INT, STRING, INT)} </OL>
+     * {@code (TABLE, INT, INT, STRING, STRING)} <li>
+     * {@code (TABLE, INT, INT, STRING, STRING, STRING)} <li>
+     * {@code (TABLE, INT, INT, STRING, STRING, STRING, STRING)} <li>
+     * {@code (TABLE, TABLE, INT, INT, STRING)} <li>
+     * {@code (TABLE, TABLE, INT, INT, STRING, STRING)} <li>
+     * {@code (TABLE, TABLE, INT, INT, STRING, STRING, STRING)} <li>
+     * {@code (TABLE, TABLE, INT, INT, STRING, STRING, STRING, STRING)} </OL>
      *
      * @return An array of all possible signatures of this function.
      */
@@ -418,6 +723,57 @@ public class ST_ShortestPath extends AbstractTableFunction {
                         ScalarArgument.INT,
                         ScalarArgument.INT,
                         ScalarArgument.STRING,
+                        ScalarArgument.STRING),
+                new TableFunctionSignature(
+                        TableDefinition.GEOMETRY,
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        ScalarArgument.INT,
+                        ScalarArgument.INT,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING),
+                new TableFunctionSignature(
+                        TableDefinition.GEOMETRY,
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        ScalarArgument.INT,
+                        ScalarArgument.INT,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING),
+                new TableFunctionSignature(
+                        TableDefinition.GEOMETRY,
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        ScalarArgument.INT,
+                        ScalarArgument.INT,
+                        ScalarArgument.STRING),
+                new TableFunctionSignature(
+                        TableDefinition.GEOMETRY,
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        ScalarArgument.INT,
+                        ScalarArgument.INT,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING),
+                new TableFunctionSignature(
+                        TableDefinition.GEOMETRY,
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        ScalarArgument.INT,
+                        ScalarArgument.INT,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING),
+                new TableFunctionSignature(
+                        TableDefinition.GEOMETRY,
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        new TableArgument(TableDefinition.GEOMETRY),
+                        ScalarArgument.INT,
+                        ScalarArgument.INT,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING,
+                        ScalarArgument.STRING,
                         ScalarArgument.STRING)
         };
     }
@@ -32,8 +32,10 @@
  */
 package org.gdms.gdmstopology.function;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -47,9 +49,17 @@ import org.gdms.data.values.ValueFactory;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
 import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
 import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.CSRGraph;
 import org.gdms.gdmstopology.model.GraphSchema;
 import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.gdms.gdmstopology.shortestpath.ArcPath;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchy;
+import org.gdms.gdmstopology.shortestpath.Landmarks;
+import org.gdms.gdmstopology.shortestpath.ManyToManyDijkstra;
+import org.gdms.gdmstopology.shortestpath.OneToManyDijkstra;
+import org.gdms.gdmstopology.shortestpath.SettleListener;
 import org.gdms.gdmstopology.utils.ArrayConcatenator;
 import org.gdms.sql.function.FunctionException;
 import org.gdms.sql.function.ScalarArgument;
@@ -57,10 +67,8 @@ import org.gdms.sql.function.table.AbstractTableFunction;
 import org.gdms.sql.function.table.TableArgument;
 import org.gdms.sql.function.table.TableDefinition;
 import org.gdms.sql.function.table.TableFunctionSignature;
-import org.javanetworkanalyzer.alg.Dijkstra;
 import org.javanetworkanalyzer.data.VWCent;
 import org.javanetworkanalyzer.model.Edge;
-import org.javanetworkanalyzer.model.KeyedGraph;
 import org.orbisgis.progress.ProgressMonitor;
 import org.slf4j.LoggerFactory;
 
@@ -97,7 +105,18 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
             + "output.edges, "
             + "source, destination"
             + "[, 'weights_column']"
-            + "[, " + POSSIBLE_ORIENTATIONS + "]);"
+            + "[, " + POSSIBLE_ORIENTATIONS + "]"
+            + "[, '" + ST_ShortestPath.DIJKSTRA + "' | '"
+            + ST_ShortestPath.BIDIRECTIONAL + "' | '" + ST_ShortestPath.CH
+            + "' | '" + ST_ShortestPath.ALT + "' | '"
+            + GraphFunctionParser.HIERARCHY_PREFIX + "file']);"
+            + "\n-- Compute the distance from " + SOURCE
+            + " to " + DESTINATION + " by an A* search."
+            + "\n(1') SELECT * FROM " + NAME + "("
+            + "output.edges, output.nodes, "
+            + "source, destination, "
+            + "'weights_column', "
+            + POSSIBLE_ORIENTATIONS + ", '" + ST_ShortestPath.ASTAR + "');"
             + "\n-- Compute the distance from " + SOURCE
             + " to all reachable nodes."
             + "\n(2) SELECT * FROM " + NAME + "("
@@ -142,6 +161,9 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
             + "and destinations (under column '" + DESTINATION + "') </ul></ul>"
             + "<p> Optional parameters: "
             + "<ul> "
+            + "<li> <code>output.nodes</code> - The <code>output.nodes</code> "
+            + "table produced by <code>ST_Graph</code>, used by the '"
+            + ST_ShortestPath.ASTAR + "' algorithm. "
             + "<li> <code>'weights_column'</code> - a string specifying "
             + "the name of the column of the input table that gives the weight "
             + "of each edge. If omitted, the graph is considered to be unweighted. "
@@ -153,7 +175,29 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
             + "<li> '" + UNDIRECTED + "'."
             + "</ul> The default orientation is " + DIRECTED + " with edge "
             + "orientations given by the geometries, though edge orientations "
-            + "should most definitely be provided by the user. </ul>";
+            + "should most definitely be provided by the user. "
+            + "<li> <code>algorithm</code> - for a source and a destination, "
+            + "'" + ST_ShortestPath.BIDIRECTIONAL + "' computes the distance "
+            + "by a bidirectional search, which is much faster on large "
+            + "graphs than the default ('" + ST_ShortestPath.DIJKSTRA
+            + "'). '" + ST_ShortestPath.ASTAR + "' runs an A* search "
+            + "guided by the coordinates of <code>output.nodes</code>, '"
+            + ST_ShortestPath.CH + "' uses the contraction hierarchy built "
+            + "by " + ST_BuildContractionHierarchy.NAME + " and '"
+            + ST_ShortestPath.ALT + "' uses the landmarks computed by "
+            + ST_BuildLandmarks.NAME + ", both with the same weights and "
+            + "orientation. '" + GraphFunctionParser.HIERARCHY_PREFIX
+            + "file' reads the hierarchy written to the file by "
+            + ST_BuildContractionHierarchy.NAME + " (provided the graph has "
+            + "not changed since) and implies '" + ST_ShortestPath.CH
+            + "'. These algorithms are only used when requested. "
+            + "<li> <code>'" + GraphFunctionParser.TOPOLOGY_PREFIX
+            + "file'</code> - the topology file written by "
+            + "<code>ST_Graph</code> for <code>output.edges</code>. Searches "
+            + "other than '" + ST_ShortestPath.DIJKSTRA + "' one-to-one "
+            + "queries map it instead of reading the endpoints of the edges "
+            + "when the graph is directed by the edge geometries. "
+            + "</ul>";
     /**
      * Description of this function.
      */
@@ -171,6 +215,22 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
      * Table of sources and destinations.
      */
     private DataSet sourceDestinationTable = null;
+    /**
+     * Nodes table, used by A* searches.
+     */
+    private DataSet nodes = null;
+    /**
+     * Shortest path algorithm for one-to-one queries.
+     */
+    private String algorithm = null;
+    /**
+     * Contraction hierarchy file for {@link ST_ShortestPath#CH} queries.
+     */
+    private File hierarchyFile = null;
+    /**
+     * Topology file written by ST_Graph for the edges table.
+     */
+    private File topologyFile = null;
     /**
      * Weight column name.
      */
@@ -193,6 +253,11 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
             new String[]{SOURCE,
                          DESTINATION,
                          DISTANCE});
+    /**
+     * Number of distances buffered before they are written in one-to-all
+     * mode.
+     */
+    private static final int OUTPUT_BATCH_SIZE = 4096;
     /**
      * Logger.
      */
@@ -210,17 +275,69 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
         // Recover all other parameters.
         parseArguments(edges, tables, values);
 
-        // Prepare the graph.
-        KeyedGraph<VWCent, Edge> graph = prepareGraph(edges);
+        // Recover the contraction hierarchy or landmarks, if requested.
+        ContractionHierarchy hierarchy = null;
+        if (source != -1 && destination != -1
+            && ST_ShortestPath.CH.equals(algorithm)) {
+            try {
+                hierarchy = GraphCache.getInstance().getContractionHierarchy(
+                        createGraphCreator(edges), hierarchyFile);
+            } catch (IOException ex) {
+                throw new FunctionException(ex);
+            }
+        }
+        Landmarks landmarks = null;
+        if (source != -1 && destination != -1
+            && ST_ShortestPath.ALT.equals(algorithm)) {
+            landmarks = GraphCache.getInstance()
+                    .getLandmarks(createGraphCreator(edges));
+        }
+
+        // (source, destination, ...) (One-to-one) by a point-to-point search.
+        if (source != -1 && destination != -1
+            && (ST_ShortestPath.BIDIRECTIONAL.equals(algorithm)
+                || ST_ShortestPath.ASTAR.equals(algorithm)
+                || ST_ShortestPath.CH.equals(algorithm)
+                || ST_ShortestPath.ALT.equals(algorithm))) {
+            try {
+                return computePointToPoint(dsf, edges, hierarchy, landmarks);
+            } catch (DriverException ex) {
+                LOGGER.error(ex.toString());
+                return null;
+            }
+        } else if (algorithm != null
+                   && !ST_ShortestPath.DIJKSTRA.equals(algorithm)) {
+            LOGGER.warn("The {} algorithm only applies to one-to-one "
+                        + "queries; using Dijkstra.", algorithm);
+        }
 
-        // Compute and return results.
-        DiskBufferDriver results = null;
+        // (source, ...) (One-to-ALL) streamed to the output.
+        if (source != -1 && destination == -1) {
+            try {
+                return computeOneToAll(dsf, edges);
+            } catch (DriverException ex) {
+                LOGGER.error(ex.toString());
+                return null;
+            }
+        }
+
+        // (source_dest_table, ...) (Many-to-many) in parallel.
+        if (sourceDestinationTable != null) {
+            try {
+                return computeManyToMany(dsf, edges);
+            } catch (DriverException ex) {
+                LOGGER.error(ex.toString());
+                return null;
+            }
+        }
+
+        // (source, destination, ...) (One-to-one) by Dijkstra.
         try {
-            results = compute(dsf, graph);
+            return computeOneToOne(dsf, edges);
         } catch (DriverException ex) {
             LOGGER.error(ex.toString());
+            return null;
         }
-        return results;
     }
 
     @Override
@@ -259,7 +376,8 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
         return ArrayConcatenator.
                 concatenate(sourceDestinationSignatures(),
                             sourceSignatures(),
-                            sourceDestinationTableSignatures());
+                            sourceDestinationTableSignatures(),
+                            nodesTableSignatures());
     }
 
     /**
@@ -313,6 +431,50 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
                                        ScalarArgument.INT,
                                        ScalarArgument.INT,
                                        ScalarArgument.STRING,
+                                       ScalarArgument.STRING),
+            // (s,d,w,o,a) in any order of w, o and a
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING)
+        };
+    }
+
+    /**
+     * Returns all possible function signatures for finding the distance from a
+     * given source to a given destination by an A* search using the nodes
+     * table, which must be requested by the algorithm argument.
+     *
+     * @return Nodes table signatures
+     */
+    private TableFunctionSignature[] nodesTableSignatures() {
+        return new TableFunctionSignature[]{
+            // (n,s,d,a)
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING),
+            // (n,s,d,w,a) OR (n,s,d,o,a) in any order
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING),
+            // (n,s,d,w,o,a) in any order of w, o and a
+            new TableFunctionSignature(TableDefinition.ANY,
+                                       TableArgument.GEOMETRY,
+                                       TableArgument.GEOMETRY,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.INT,
+                                       ScalarArgument.STRING,
+                                       ScalarArgument.STRING,
                                        ScalarArgument.STRING)
         };
     }
@@ -357,10 +519,14 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
     private void parseArguments(DataSet edges, DataSet[] tables, Value[] values) {
         GraphFunctionParser parser = new GraphFunctionParser();
         int valuesIndex = 0;
+        // (nodes_table, source, destination, ...)
+        if (tables.length == 2 && values.length > 0
+            && values[0].getType() == Type.INT) {
+            nodes = tables[1];
+        }
         // (source_dest_table, ...)
-        if (tables.length == 2) {
+        if (tables.length == 2 && nodes == null) {
             sourceDestinationTable = tables[1];
-            parser.parseOptionalArguments(edges, values, valuesIndex);
         } else {
             source = parser.parseSource(values[valuesIndex++]);
             if (values.length > 1) {
@@ -374,18 +540,32 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
         globalOrientation = parser.getGlobalOrientation();
         edgeOrientationColumnName = parser.getEdgeOrientationColumnName();
         weightsColumn = parser.getWeightsColumn();
+        algorithm = parser.getAlgorithm();
+        hierarchyFile = parser.getHierarchyFile();
+        topologyFile = parser.getTopologyFile();
+        if (hierarchyFile != null) {
+            if (algorithm == null) {
+                algorithm = ST_ShortestPath.CH;
+            } else if (!ST_ShortestPath.CH.equals(algorithm)) {
+                LOGGER.warn("The hierarchy file is only used by the {} "
+                            + "algorithm.", ST_ShortestPath.CH);
+            }
+        }
+        if (nodes != null && !ST_ShortestPath.ASTAR.equals(algorithm)) {
+            LOGGER.warn("The nodes table is only used by the {} algorithm.",
+                        ST_ShortestPath.ASTAR);
+        }
     }
 
     /**
-     * Prepare the JGraphT graph from the given edges table.
+     * Returns a graph creator for the given edges table.
      *
      * @param edges Edges table
      *
-     * @return JGraphT graph
+     * @return Graph creator
      */
-    private KeyedGraph<VWCent, Edge> prepareGraph(final DataSet edges) {
-        KeyedGraph<VWCent, Edge> graph;
-
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
         // Get the graph orientation.
         int graphType = -1;
         if (globalOrientation != null) {
@@ -401,108 +581,226 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
             graphType = GraphSchema.DIRECT;
         }
 
-        // Create the graph.
+        // Create the graph creator.
         if (weightsColumn != null) {
-            graph = new WeightedGraphCreator<VWCent, Edge>(
+            final WeightedGraphCreator<VWCent, Edge> creator =
+                    new WeightedGraphCreator<VWCent, Edge>(
                     edges,
                     graphType,
                     edgeOrientationColumnName,
                     VWCent.class,
                     Edge.class,
-                    weightsColumn).prepareGraph();
+                    weightsColumn);
+            creator.setTopologyFile(topologyFile);
+            return creator;
         } else {
             throw new UnsupportedOperationException(
                     NAME + " has not yet been implemented for "
                     + "unweighted graphs.");
         }
-        return graph;
     }
 
     /**
-     * Compute the distances and write them to a table.
+     * Compute the distance from the source to the destination with a
+     * point-to-point search on the CSR graph of the edges table.
+     *
+     * @param dsf       Data source factory
+     * @param edges     Edges table
+     * @param hierarchy Contraction hierarchy of the edges, or {@code null}
+     * @param landmarks Landmark tables of the edges, or {@code null}
+     *
+     * @return The requested distance
+     *
+     * @throws DriverException
+     */
+    private DiskBufferDriver computePointToPoint(DataSourceFactory dsf,
+                                                 DataSet edges,
+                                                 ContractionHierarchy hierarchy,
+                                                 Landmarks landmarks)
+            throws DriverException {
+        final CSRGraph graph = hierarchy != null
+                ? hierarchy.getGraph()
+                : landmarks != null
+                ? landmarks.getGraph()
+                : GraphCache.getInstance().getCSRGraph(
+                createGraphCreator(edges));
+        DiskBufferDriver output = new DiskBufferDriver(dsf, getMetadata(null));
+        final int sourceIndex = graph.indexOf(source);
+        final int destinationIndex = graph.indexOf(destination);
+        if (sourceIndex == -1 || destinationIndex == -1) {
+            LOGGER.error("Source or destination not found in the graph. "
+                         + "Source: " + source
+                         + ", Destination: " + destination);
+        } else {
+            final ArcPath path =
+                    ST_ShortestPath.createSearch(algorithm, graph, nodes,
+                                                 hierarchy, landmarks)
+                    .compute(sourceIndex, destinationIndex);
+            storeValue(source, destination,
+                       path == null ? Double.POSITIVE_INFINITY
+                                    : path.getLength(),
+                       output);
+        }
+        output.writingFinished();
+        output.open();
+        return output;
+    }
+
+    /**
+     * Compute the distance from the source to the destination by Dijkstra's
+     * algorithm on the CSR graph of the edges table, stopping as soon as the
+     * destination is settled.
      *
      * @param dsf   Data source factory
-     * @param graph JGraphT graph
+     * @param edges Edges table
+     *
+     * @return The requested distance
+     *
+     * @throws DriverException
+     */
+    private DiskBufferDriver computeOneToOne(DataSourceFactory dsf,
+                                             DataSet edges)
+            throws DriverException {
+        final DiskBufferDriver output =
+                new DiskBufferDriver(dsf, getMetadata(null));
+        if (source != -1 && destination != -1) {
+            final CSRGraph graph = GraphCache.getInstance().getCSRGraph(
+                    createGraphCreator(edges));
+            final int sourceIndex = graph.indexOf(source);
+            final int destinationIndex = graph.indexOf(destination);
+            if (sourceIndex == -1 || destinationIndex == -1) {
+                LOGGER.error("Source or destination not found in the graph. "
+                             + "Source: " + source
+                             + ", Destination: " + destination);
+            } else {
+                storeValue(source, destination,
+                           new OneToManyDijkstra(graph).compute(
+                           sourceIndex, new int[]{destinationIndex})[0],
+                           output);
+            }
+        }
+        output.writingFinished();
+        output.open();
+        return output;
+    }
+
+    /**
+     * Compute the distances from the source to every node and write them to
+     * a table as the search settles the nodes, in batches of
+     * {@value #OUTPUT_BATCH_SIZE}, so that no distance map is built.
+     *
+     * @param dsf   Data source factory
+     * @param edges Edges table
      *
      * @return The requested distances
      *
      * @throws DriverException
      */
-    private DiskBufferDriver compute(DataSourceFactory dsf,
-                                     KeyedGraph<VWCent, Edge> graph)
+    private DiskBufferDriver computeOneToAll(DataSourceFactory dsf,
+                                             DataSet edges)
             throws DriverException {
+        final CSRGraph graph = GraphCache.getInstance().getCSRGraph(
+                createGraphCreator(edges));
+        final DiskBufferDriver output =
+                new DiskBufferDriver(dsf, getMetadata(null));
+        final int sourceIndex = graph.indexOf(source);
+        if (sourceIndex == -1) {
+            LOGGER.error("Source not found in the graph. Source: " + source);
+        } else {
+            final BatchWriter writer = new BatchWriter(graph, output);
+            new OneToManyDijkstra(graph).computeAll(sourceIndex, writer);
+            writer.flush();
+        }
+        output.writingFinished();
+        output.open();
+        return output;
+    }
 
-        // Initialize the output.
-        DiskBufferDriver output = new DiskBufferDriver(dsf, getMetadata(null));
+    /**
+     * Compute the distances from every source of the source-destination
+     * table to its destinations. The searches run in parallel on the CSR
+     * graph of the edges table, and the distances are listed by source and
+     * destination in their order of appearance in the table.
+     *
+     * @param dsf   Data source factory
+     * @param edges Edges table
+     *
+     * @return The requested distances
+     *
+     * @throws DriverException
+     */
+    private DiskBufferDriver computeManyToMany(DataSourceFactory dsf,
+                                               DataSet edges)
+            throws DriverException {
+        // Make sure the source-destination table has columns named
+        // SOURCE and DESTINATION.
+        Metadata metadata = sourceDestinationTable.getMetadata();
+        int sourceIndex = metadata.getFieldIndex(SOURCE);
+        int targetIndex = metadata.getFieldIndex(DESTINATION);
+        if (sourceIndex == -1) {
+            throw new IllegalArgumentException(
+                    "The source-destination table must contain "
+                    + "a column named \'" + SOURCE + "\'.");
+        } else if (targetIndex == -1) {
+            throw new IllegalArgumentException(
+                    "The source-destination table must contain "
+                    + "a column named \'" + DESTINATION + "\'.");
+        }
 
-        if (graph == null) {
-            LOGGER.error("Null graph.");
-        } else {
-            // Get a Dijkstra algo for the distance calculation.
-            Dijkstra<VWCent, Edge> dijkstra = new Dijkstra<VWCent, Edge>(graph);
-
-            // (source, destination, ...) (One-to-one)
-            if (source != -1 && destination != -1) {
-                double distance =
-                        dijkstra.oneToOne(graph.getVertex(source),
-                                          graph.getVertex(destination));
-                storeValue(source, destination, distance, output);
-            } // (source, ...) (One-to-ALL)
-            else if (source != -1 && destination == -1) {
-                // TODO: Replace this by calculate().
-                Map<VWCent, Double> distances =
-                        dijkstra.oneToMany(graph.getVertex(source),
-                                           graph.vertexSet());
-                storeValues(source, distances, output);
-            } // (source_dest_table, ...) (Many-to-many)
-            else if (sourceDestinationTable != null) {
-                // Make sure the source-destination table has columns named
-                // SOURCE and DESTINATION.
-                Metadata metadata = sourceDestinationTable.getMetadata();
-                int sourceIndex = metadata.getFieldIndex(SOURCE);
-                int targetIndex = metadata.getFieldIndex(DESTINATION);
-                if (sourceIndex == -1) {
-                    throw new IllegalArgumentException(
-                            "The source-destination table must contain "
-                            + "a column named \'" + SOURCE + "\'.");
-                } else if (targetIndex == -1) {
-                    throw new IllegalArgumentException(
-                            "The source-destination table must contain "
-                            + "a column named \'" + DESTINATION + "\'.");
-                } else {
-
-                    // Prepare the source-destination map from the source-
-                    // destination table.
-                    Map<VWCent, Set<VWCent>> sourceDestinationMap =
-                            prepareSourceDestinationMap(graph,
-                                                        sourceIndex,
-                                                        targetIndex);
-                    if (sourceDestinationMap.isEmpty()) {
-                        LOGGER.error(
-                                "No sources/destinations requested.");
-                    }
-
-                    // Do One-to-Many many times!
-                    for (Entry<VWCent, Set<VWCent>> e
-                         : sourceDestinationMap.entrySet()) {
-                        Map<VWCent, Double> distances =
-                                dijkstra.oneToMany(e.getKey(), e.getValue());
-                        storeValues(e.getKey().getID(), distances, output);
-                    }
-                }
+        final CSRGraph graph = GraphCache.getInstance().getCSRGraph(
+                createGraphCreator(edges));
+        final DiskBufferDriver output =
+                new DiskBufferDriver(dsf, getMetadata(null));
+
+        // Prepare the source-destination map from the source-destination
+        // table.
+        Map<Integer, Set<Integer>> sourceDestinationMap =
+                prepareSourceDestinationMap(graph, sourceIndex, targetIndex);
+        if (sourceDestinationMap.isEmpty()) {
+            LOGGER.error("No sources/destinations requested.");
+        }
+        final int[] sources = new int[sourceDestinationMap.size()];
+        final int[][] targets = new int[sources.length][];
+        int i = 0;
+        for (Entry<Integer, Set<Integer>> e
+             : sourceDestinationMap.entrySet()) {
+            sources[i] = e.getKey();
+            targets[i] = new int[e.getValue().size()];
+            int j = 0;
+            for (Integer target : e.getValue()) {
+                targets[i][j++] = target;
             }
-            // Clean-up
-            output.writingFinished();
-            output.open();
+            i++;
         }
+
+        // Do One-to-Many many times, in parallel!
+        new ManyToManyDijkstra(graph, Runtime.getRuntime().availableProcessors())
+                .compute(sources, targets,
+                         new ManyToManyDijkstra.DistanceHandler() {
+            @Override
+            public void handle(int position, double[] distances)
+                    throws DriverException {
+                final int sourceID = graph.getVertexId(sources[position]);
+                for (int j = 0; j < distances.length; j++) {
+                    storeValue(sourceID,
+                               graph.getVertexId(targets[position][j]),
+                               distances[j],
+                               output);
+                }
+            }
+        });
+        output.writingFinished();
+        output.open();
         return output;
     }
 
     /**
      * Prepare the source-destination map (to which we will apply Dijkstra) from
-     * the source-destination table.
+     * the source-destination table. Sources and destinations are given by
+     * their dense index in the graph and kept in their order of appearance;
+     * those which are not in the graph are skipped.
      *
-     * @param graph            JGraphT graph
+     * @param graph            CSR graph
      * @param sourceIndex      Index of the source column
      * @param destinationIndex Index of the destination column.
      *
@@ -510,13 +808,13 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
      *
      * @throws DriverException
      */
-    private Map<VWCent, Set<VWCent>> prepareSourceDestinationMap(
-            KeyedGraph<VWCent, Edge> graph,
+    private Map<Integer, Set<Integer>> prepareSourceDestinationMap(
+            CSRGraph graph,
             int sourceIndex,
             int destinationIndex) throws DriverException {
         // Initialize the map.
-        Map<VWCent, Set<VWCent>> map =
-                new HashMap<VWCent, Set<VWCent>>();
+        Map<Integer, Set<Integer>> map =
+                new LinkedHashMap<Integer, Set<Integer>>();
         // Go throught the source-destination table and insert each
         // pair into the map.
         for (int i = 0;
@@ -524,15 +822,20 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
              i++) {
             Value[] row = sourceDestinationTable.getRow(i);
 
-            VWCent sourceVertex = graph.getVertex(
-                    row[sourceIndex].getAsInt());
-            VWCent destinationVertex = graph.getVertex(
-                    row[destinationIndex].getAsInt());
+            final int sourceID = row[sourceIndex].getAsInt();
+            final int destinationID = row[destinationIndex].getAsInt();
+            final int sourceVertex = graph.indexOf(sourceID);
+            final int destinationVertex = graph.indexOf(destinationID);
+            if (sourceVertex == -1 || destinationVertex == -1) {
+                LOGGER.warn("Skipping ({}, {}): not in the graph.",
+                            sourceID, destinationID);
+                continue;
+            }
 
-            Set<VWCent> targets = map.get(sourceVertex);
+            Set<Integer> targets = map.get(sourceVertex);
             // Lazy initialize if the destinations set is null.
             if (targets == null) {
-                targets = new HashSet<VWCent>();
+                targets = new LinkedHashSet<Integer>();
                 map.put(sourceVertex, targets);
             }
             // Add the destination.
@@ -541,24 +844,6 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
         return map;
     }
 
-    /**
-     * Store the distances from the given source to each destination contained
-     * in the map mapping each destination to its distance from the source.
-     *
-     * @param source Source
-     * @param map    Distances map
-     * @param output Driver
-     *
-     * @throws DriverException
-     */
-    private void storeValues(int source,
-                             Map<VWCent, Double> map,
-                             DiskBufferDriver output) throws DriverException {
-        for (Entry<VWCent, Double> e : map.entrySet()) {
-            storeValue(source, e.getKey().getID(), e.getValue(), output);
-        }
-    }
-
     /**
      * Store the distance from the given source to the given destination in the
      * given driver.
@@ -576,4 +861,66 @@ public class ST_ShortestPathLength extends AbstractTableFunction {
                          ValueFactory.createValue(destination),
                          ValueFactory.createValue(distance));
     }
+
+    /**
+     * Writes the distances from the source as they are settled, buffering
+     * them in primitive arrays and flushing every
+     * {@value #OUTPUT_BATCH_SIZE} distances.
+     */
+    private final class BatchWriter implements SettleListener {
+
+        /**
+         * The graph.
+         */
+        private final CSRGraph graph;
+        /**
+         * The output.
+         */
+        private final DiskBufferDriver output;
+        /**
+         * Buffered destinations.
+         */
+        private final int[] destinations = new int[OUTPUT_BATCH_SIZE];
+        /**
+         * Buffered distances.
+         */
+        private final double[] distances = new double[OUTPUT_BATCH_SIZE];
+        /**
+         * Number of buffered distances.
+         */
+        private int size = 0;
+
+        /**
+         * Constructs a writer to the given output.
+         *
+         * @param graph  The graph
+         * @param output The output
+         */
+        BatchWriter(CSRGraph graph, DiskBufferDriver output) {
+            this.graph = graph;
+            this.output = output;
+        }
+
+        @Override
+        public void settled(int vertex, double distance)
+                throws DriverException {
+            destinations[size] = graph.getVertexId(vertex);
+            distances[size] = distance;
+            if (++size == OUTPUT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered distances.
+         *
+         * @throws DriverException
+         */
+        void flush() throws DriverException {
+            for (int i = 0; i < size; i++) {
+                storeValue(source, destinations[i], distances[i], output);
+            }
+            size = 0;
+        }
+    }
 }
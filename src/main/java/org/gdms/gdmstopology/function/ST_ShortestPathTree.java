@@ -34,17 +34,15 @@ package org.gdms.gdmstopology.function;
 
 import com.vividsolutions.jts.geom.Geometry;
 import org.gdms.data.DataSourceFactory;
-import org.gdms.data.NoSuchTableException;
-import org.gdms.data.indexes.DefaultAlphaQuery;
-import org.gdms.data.indexes.IndexException;
-import org.gdms.data.indexes.IndexManager;
 import org.gdms.data.schema.Metadata;
 import org.gdms.data.types.Type;
 import org.gdms.data.values.Value;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
 import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
 import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.EdgeRowIndex;
 import org.gdms.gdmstopology.model.GraphMetadataFactory;
 import org.gdms.gdmstopology.model.GraphSchema;
 import org.gdms.gdmstopology.parse.GraphFunctionParser;
@@ -63,7 +61,8 @@ import org.javanetworkanalyzer.model.TraversalGraph;
 import org.orbisgis.progress.ProgressMonitor;
 import org.slf4j.LoggerFactory;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.gdms.data.values.ValueFactory.createValue;
 
@@ -112,14 +111,20 @@ public class ST_ShortestPathTree extends AbstractTableFunction {
         parseArguments(edges, values);
 
         // Prepare the graph.
-        KeyedGraph<VWCent, Edge> graph = prepareGraph(edges);
+        final WeightedGraphCreator<VWCent, Edge> creator =
+                createGraphCreator(edges);
+        KeyedGraph<VWCent, Edge> graph =
+                GraphCache.getInstance().acquire(creator);
 
         // Compute and return results.
         DiskBufferDriver results = null;
         try {
-            results = compute(dsf, edges, graph, pm);
+            results = compute(dsf, edges, graph,
+                              GraphCache.getInstance().getEdgeRowIndex(creator));
         } catch (DriverException ex) {
             LOGGER.error(ex.toString());
+        } finally {
+            GraphCache.getInstance().release(graph);
         }
         return results;
     }
@@ -144,13 +149,13 @@ public class ST_ShortestPathTree extends AbstractTableFunction {
     }
 
     /**
-     * Prepare the JGraphT graph from the given edges table.
+     * Returns a graph creator for the given edges table.
      *
      * @param edges Edges table
-     * @return JGraphT graph
+     * @return Graph creator
      */
-    private KeyedGraph<VWCent, Edge> prepareGraph(final DataSet edges) {
-        KeyedGraph<VWCent, Edge> graph;
+    private WeightedGraphCreator<VWCent, Edge> createGraphCreator(
+            final DataSet edges) {
 
         // Get the graph orientation.
         int graphType = -1;
@@ -167,35 +172,36 @@ public class ST_ShortestPathTree extends AbstractTableFunction {
             graphType = GraphSchema.DIRECT;
         }
 
-        // Create the graph.
+        // Create the graph creator.
         if (weightsColumn != null) {
-            graph = new WeightedGraphCreator<VWCent, Edge>(
+            return new WeightedGraphCreator<VWCent, Edge>(
                     edges,
                     graphType,
                     edgeOrientationColumnName,
                     VWCent.class,
                     Edge.class,
-                    weightsColumn).prepareGraph();
+                    weightsColumn);
         } else {
             throw new UnsupportedOperationException(
                     "ST_ShortestPathTree has not yet been implemented for "
                             + "unweighted graphs.");
         }
-        return graph;
     }
 
     /**
      * Compute the distances and write them to a table.
      *
-     * @param dsf   Data source factory
-     * @param graph JGraphT graph
+     * @param dsf          Data source factory
+     * @param dataSet      Edges table
+     * @param graph        JGraphT graph
+     * @param edgeRowIndex Rows of the edges of the edges table
      * @return The requested distances
      * @throws DriverException
      */
     private DiskBufferDriver compute(DataSourceFactory dsf,
                                      DataSet dataSet,
                                      KeyedGraph<VWCent, Edge> graph,
-                                     ProgressMonitor pm)
+                                     EdgeRowIndex edgeRowIndex)
             throws DriverException {
 
         // A DiskBufferDriver to store the shortest path tree.
@@ -212,9 +218,6 @@ public class ST_ShortestPathTree extends AbstractTableFunction {
                 if (geomIndex == -1) {
                     throw new IndexOutOfBoundsException("Geometry field not found.");
                 }
-                // Build an index on id for looking up the row index later.
-                ST_ShortestPath.buildIDIndex(dsf, dataSet, pm);
-
                 // Get a Dijkstra algo for the distance calculation.
                 Dijkstra<VWCent, Edge> dijkstra = new Dijkstra<VWCent, Edge>(graph);
                 final TraversalGraph<VWCent, Edge> shortestPathTree;
@@ -227,14 +230,22 @@ public class ST_ShortestPathTree extends AbstractTableFunction {
                     shortestPathTree = dijkstra.reconstructTraversalGraph();
                 }
 
-                int newID = 1;
-                for (Edge e : shortestPathTree.edgeSet()) {
+                final List<Edge> edges =
+                        new ArrayList<Edge>(shortestPathTree.edgeSet());
+                final int[] ids = new int[edges.size()];
+                for (int i = 0; i < ids.length; i++) {
                     // Get the corresponding edge in the base graph.
-                    final int id = e.getBaseGraphEdge().getID();
+                    ids[i] = edges.get(i).getBaseGraphEdge().getID();
+                }
+                // Read the geometries in row order rather than tree order.
+                final Geometry[] geometries = ST_ShortestPath.getEdgeGeometries(
+                        dataSet, geomIndex, edgeRowIndex, ids);
+                for (int i = 0; i < ids.length; i++) {
+                    final Edge e = edges.get(i);
                     output.addValues(
-                            createValue(ST_ShortestPath.getEdgeGeometry(dsf, dataSet, geomIndex, id)),
-                            createValue(id),
-                            createValue(newID++),
+                            ST_ShortestPath.createGeometryValue(geometries[i]),
+                            createValue(ids[i]),
+                            createValue(i + 1),
                             createValue(shortestPathTree.getEdgeSource(e).getID()),
                             createValue(shortestPathTree.getEdgeTarget(e).getID()),
                             createValue(shortestPathTree.getEdgeWeight(e)));
@@ -0,0 +1,116 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.graphcreator;
+
+/**
+ * The fields of the edges table needed to build a graph, decoded into
+ * primitive arrays indexed by row id.
+ *
+ * <p> Each array is filled by row ranges, possibly by several threads writing
+ * to disjoint ranges, so that the decoded edges are always in row order
+ * whatever the number of threads.
+ *
+ * @author Adam Gouge
+ */
+final class DecodedEdges {
+
+    /**
+     * Start node of each edge.
+     */
+    final int[] startNodes;
+    /**
+     * End node of each edge.
+     */
+    final int[] endNodes;
+    /**
+     * Id of each edge.
+     */
+    final int[] edgeIds;
+    /**
+     * Orientation of each edge.
+     */
+    final int[] orientations;
+    /**
+     * Weight of each edge.
+     */
+    final double[] weights;
+    /**
+     * Whether each edge was removed, or {@code null} if none was.
+     */
+    private boolean[] removed = null;
+
+    /**
+     * Allocates the arrays for the given number of edges.
+     *
+     * @param size The number of edges.
+     */
+    DecodedEdges(int size) {
+        startNodes = new int[size];
+        endNodes = new int[size];
+        edgeIds = new int[size];
+        orientations = new int[size];
+        weights = new double[size];
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return The number of edges.
+     */
+    int size() {
+        return edgeIds.length;
+    }
+
+    /**
+     * Marks an edge as removed, so that it is not loaded.
+     *
+     * @param i The edge.
+     */
+    void remove(int i) {
+        if (removed == null) {
+            removed = new boolean[size()];
+        }
+        removed[i] = true;
+    }
+
+    /**
+     * Returns {@code true} if the given edge was removed.
+     *
+     * @param i The edge.
+     *
+     * @return {@code true} if the edge was removed.
+     */
+    boolean isRemoved(int i) {
+        return removed != null && removed[i];
+    }
+}
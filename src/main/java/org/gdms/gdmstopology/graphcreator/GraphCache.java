@@ -0,0 +1,1176 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.graphcreator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.gdms.data.DataSource;
+import org.gdms.data.edition.EditionEvent;
+import org.gdms.data.edition.EditionListener;
+import org.gdms.data.edition.MultipleEditionEvent;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.EdgeRowIndex;
+import org.gdms.gdmstopology.model.GraphDelta;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchy;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchyFile;
+import org.gdms.gdmstopology.shortestpath.Landmarks;
+import org.gdms.source.Source;
+import org.javanetworkanalyzer.data.VId;
+import org.javanetworkanalyzer.model.Edge;
+import org.javanetworkanalyzer.model.KeyedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A session-wide cache of the graphs prepared by {@link GraphCreator}s.
+ *
+ * <p> Graphs are keyed by the identity of the edges table, a modification
+ * stamp of the table, whether the graph is weighted, the global orientation,
+ * the edge orientation column and the vertex and edge classes. A
+ * {@link DataSource} of a file source without pending edits is identified by
+ * its name and stamped with the modification time and length of its file, so
+ * the graphs outlive the data source objects of a query and a committed edit
+ * gives a new key. Any other data set is identified by the object itself,
+ * held weakly so that the graphs of a data set no longer in use are dropped,
+ * and data sources are stamped with the number of edits made through them,
+ * counted by an {@link EditionListener}. Keys also hold the
+ * {@link GraphDelta#getVersion() version} of the in-memory edits made to the
+ * table through a {@code GDMSGraph}, so a cached graph is rebuilt once per
+ * version of the edits. Keys are compared exactly and never read the table.
+ * The least
+ * recently used graphs are evicted when the estimated memory footprint of
+ * the cache exceeds its budget, which is read (in MB) from the
+ * {@value #MEMORY_BUDGET_PROPERTY} system property and may be changed with
+ * {@link #setMemoryBudget(long)}. A budget of zero disables caching.
+ *
+ * <p> Algorithms store their state in the vertices and edges of the graph, so
+ * a cached graph is leased to one caller at a time: {@link #acquire} hands out
+ * the cached graph if it is free and a freshly prepared, uncached graph
+ * otherwise, and {@link #release} gives it back.
+ *
+ * <p> Immutable {@link CSRGraph}s are cached too, keyed by the graph key and
+ * the weights column, and shared by all callers of {@link #getCSRGraph}. The
+ * CSR graph of a weights column is derived from any cached CSR graph of the
+ * same topology with the {@link WeightProfile} of that column (cached
+ * alongside the graphs), so switching weights columns neither decodes the
+ * edges table again nor copies the topology, unless the table was edited in
+ * memory. Keyed graphs hold their weights in their edges, so they are keyed
+ * by weights column as well and never reweighted.
+ * {@link ContractionHierarchy contraction hierarchies} and {@link Landmarks}
+ * computed on them are registered under the same key and count towards the
+ * budget. Being expensive to compute, they are evicted last, together with
+ * the CSR graph of their key.
+ *
+ * <p> The {@link EdgeRowIndex} built while loading a graph is kept under the
+ * graph key, so that path and tree outputs can read edge geometries by row
+ * even when the graph itself comes from the cache.
+ *
+ * @author Adam Gouge
+ */
+public final class GraphCache {
+
+    /**
+     * System property giving the memory budget of the cache in MB.
+     */
+    public static final String MEMORY_BUDGET_PROPERTY =
+            "org.gdms.gdmstopology.graphcache.budget";
+    /**
+     * Default memory budget (256 MB).
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    /**
+     * Rough footprint of a vertex of a keyed graph: the vertex object, its
+     * entry in the vertex map and its adjacency containers.
+     */
+    private static final long BYTES_PER_VERTEX = 256;
+    /**
+     * Rough footprint of an edge of a keyed graph: the edge object, its
+     * intrusive edge entry and its references in the adjacency containers.
+     */
+    private static final long BYTES_PER_EDGE = 128;
+    /**
+     * Footprint of a vertex of a CSR graph: its id, its offsets and its entry
+     * in the vertex index.
+     */
+    private static final long BYTES_PER_CSR_VERTEX = 24;
+    /**
+     * Footprint of an arc of a CSR graph: its endpoints, weight, edge id, row
+     * and entry in the incoming arc index.
+     */
+    private static final long BYTES_PER_CSR_ARC = 40;
+    /**
+     * Data sets identifying keys whose data set was garbage collected.
+     */
+    private static final ReferenceQueue<DataSet> COLLECTED =
+            new ReferenceQueue<DataSet>();
+    /**
+     * Edit counters of the data sources identified by themselves.
+     */
+    private static final Map<DataSource, EditCounter> EDIT_COUNTERS =
+            new WeakHashMap<DataSource, EditCounter>();
+    /**
+     * The unique instance.
+     */
+    private static final GraphCache INSTANCE =
+            new GraphCache(readMemoryBudget());
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(GraphCache.class);
+    /**
+     * Cached graphs in access order (least recently used first).
+     */
+    private final LinkedHashMap<WeightsKey, Entry> entries =
+            new LinkedHashMap<WeightsKey, Entry>(16, 0.75f, true);
+    /**
+     * Cached graphs currently leased, by graph identity.
+     */
+    private final Map<Object, Entry> leased =
+            new IdentityHashMap<Object, Entry>();
+    /**
+     * Cached weight profiles in access order (least recently used first).
+     */
+    private final LinkedHashMap<WeightsKey, WeightProfile> profiles =
+            new LinkedHashMap<WeightsKey, WeightProfile>(16, 0.75f, true);
+    /**
+     * Cached CSR graphs in access order (least recently used first).
+     */
+    private final LinkedHashMap<WeightsKey, CSRGraph> csrGraphs =
+            new LinkedHashMap<WeightsKey, CSRGraph>(16, 0.75f, true);
+    /**
+     * Cached edge row indices in access order (least recently used first).
+     */
+    private final LinkedHashMap<Key, EdgeRowIndex> edgeRowIndices =
+            new LinkedHashMap<Key, EdgeRowIndex>(16, 0.75f, true);
+    /**
+     * Registered contraction hierarchies in access order (least recently used
+     * first).
+     */
+    private final LinkedHashMap<WeightsKey, ContractionHierarchy> hierarchies =
+            new LinkedHashMap<WeightsKey, ContractionHierarchy>(
+            16, 0.75f, true);
+    /**
+     * Registered landmark tables in access order (least recently used first).
+     */
+    private final LinkedHashMap<WeightsKey, Landmarks> landmarkTables =
+            new LinkedHashMap<WeightsKey, Landmarks>(16, 0.75f, true);
+    /**
+     * Memory budget in bytes.
+     */
+    private long memoryBudget;
+    /**
+     * Estimated memory used by the cached graphs in bytes.
+     */
+    private long memoryUsage = 0;
+
+    /**
+     * Constructs a cache with the given memory budget.
+     *
+     * @param memoryBudget The memory budget in bytes.
+     */
+    private GraphCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the session-wide graph cache.
+     *
+     * @return The graph cache.
+     */
+    public static GraphCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the graph the given creator would prepare, from the cache if
+     * possible. The graph must be given back with {@link #release} once the
+     * caller is done with it.
+     *
+     * @param creator The graph creator.
+     *
+     * @return The graph.
+     */
+    public <V extends VId, E extends Edge> KeyedGraph<V, E> acquire(
+            GraphCreator<V, E> creator) {
+        final WeightsKey key = weightsKey(creator);
+        if (key != null) {
+            final Entry entry = lease(key);
+            if (entry != null) {
+                return (KeyedGraph<V, E>) entry.graph;
+            }
+        }
+        final KeyedGraph<V, E> graph = creator.prepareGraph();
+        if (key != null) {
+            store(key, graph);
+            store(key.key, creator.getEdgeRowIndex());
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the {@link CSRGraph} the given creator would prepare, from the
+     * cache if possible. CSR graphs are immutable, so a cached one is shared
+     * by all callers and need not be released.
+     *
+     * @param creator The graph creator.
+     *
+     * @return The CSR graph.
+     */
+    public CSRGraph getCSRGraph(GraphCreator<?, ?> creator) {
+        final WeightsKey key = weightsKey(creator);
+        if (key != null) {
+            synchronized (this) {
+                final CSRGraph graph = csrGraphs.get(key);
+                if (graph != null) {
+                    return graph;
+                }
+            }
+        }
+        CSRGraph graph = null;
+        if (key != null && key.weightsColumn != null
+            && key.key.editVersion == 0) {
+            graph = reweight(key, creator.dataSet);
+        }
+        if (graph == null) {
+            graph = creator.prepareCSRGraph();
+        }
+        if (key != null) {
+            store(key.key, creator.getEdgeRowIndex());
+            synchronized (this) {
+                final long size = estimateSize(graph);
+                if (!csrGraphs.containsKey(key) && size <= memoryBudget) {
+                    csrGraphs.put(key, graph);
+                    memoryUsage += size;
+                    evict();
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Derives the CSR graph of the given key from a cached CSR graph of the
+     * same topology and the weight profile of its weights column.
+     *
+     * @param key     The key.
+     * @param dataSet The edges table.
+     *
+     * @return The CSR graph, or {@code null} if no CSR graph of the same
+     *         topology is cached or its edges have no weights in the column.
+     */
+    private CSRGraph reweight(WeightsKey key, DataSet dataSet) {
+        CSRGraph topology = null;
+        synchronized (this) {
+            for (Map.Entry<WeightsKey, CSRGraph> csr : csrGraphs.entrySet()) {
+                if (csr.getKey().key.equals(key.key)) {
+                    topology = csr.getValue();
+                    break;
+                }
+            }
+        }
+        if (topology == null) {
+            return null;
+        }
+        try {
+            return topology.withWeights(
+                    getProfile(key.key, dataSet, key.weightsColumn)
+                    .getArcWeights(topology));
+        } catch (DriverException ex) {
+            LOGGER.warn("Could not read the weights column '"
+                        + key.weightsColumn + "'; "
+                        + "preparing a new graph.", ex);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warn("Could not read the weights column '"
+                        + key.weightsColumn + "'; "
+                        + "preparing a new graph.", ex);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the map from the edge ids of the edges table of the given
+     * creator to their rows, from the cache if possible. Like CSR graphs,
+     * edge row indices are immutable and need not be released.
+     *
+     * @param creator The graph creator.
+     *
+     * @return The edge row index.
+     */
+    public EdgeRowIndex getEdgeRowIndex(GraphCreator<?, ?> creator) {
+        Key key = null;
+        try {
+            key = creator.getCacheKey();
+        } catch (DriverException ex) {
+            LOGGER.warn("Could not identify the edges table; "
+                        + "the edge row index will not be cached.", ex);
+        }
+        if (key != null) {
+            synchronized (this) {
+                final EdgeRowIndex index = edgeRowIndices.get(key);
+                if (index != null) {
+                    return index;
+                }
+            }
+        }
+        EdgeRowIndex index = creator.getEdgeRowIndex();
+        if (index == null) {
+            index = creator.prepareEdgeRowIndex();
+        }
+        if (key != null) {
+            store(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Registers the contraction hierarchy of the graph the given creator
+     * would prepare, replacing any previous one, unless it is too big for the
+     * budget. Its graph becomes the cached CSR graph of the creator.
+     *
+     * @param creator   The graph creator.
+     * @param hierarchy The hierarchy.
+     */
+    public void setContractionHierarchy(GraphCreator<?, ?> creator,
+                                        ContractionHierarchy hierarchy) {
+        register(hierarchies, creator, hierarchy, hierarchy.getGraph());
+    }
+
+    /**
+     * Returns the contraction hierarchy registered for the graph the given
+     * creator would prepare.
+     *
+     * @param creator The graph creator.
+     *
+     * @return The hierarchy, or {@code null} if none was registered.
+     */
+    public ContractionHierarchy getContractionHierarchy(
+            GraphCreator<?, ?> creator) {
+        return lookUp(hierarchies, creator);
+    }
+
+    /**
+     * Returns the contraction hierarchy registered for the graph the given
+     * creator would prepare, or else reads it from the given file and
+     * registers it. The file is only accepted if it was built on the same
+     * graph.
+     *
+     * @param creator The graph creator.
+     * @param file    A file written by {@link ContractionHierarchyFile}, or
+     *                {@code null}.
+     *
+     * @return The hierarchy, or {@code null} if none was registered and no
+     *         file was given.
+     *
+     * @throws IOException If the file cannot be read or was built on another
+     *                     graph.
+     */
+    public ContractionHierarchy getContractionHierarchy(
+            GraphCreator<?, ?> creator, File file) throws IOException {
+        ContractionHierarchy hierarchy = getContractionHierarchy(creator);
+        if (hierarchy == null && file != null) {
+            hierarchy = ContractionHierarchyFile.read(
+                    file, getCSRGraph(creator));
+            setContractionHierarchy(creator, hierarchy);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Registers the landmark tables of the graph the given creator would
+     * prepare, replacing any previous ones, unless they are too big for the
+     * budget. Their graph becomes the cached CSR graph of the creator.
+     *
+     * @param creator   The graph creator.
+     * @param landmarks The landmark tables.
+     */
+    public void setLandmarks(GraphCreator<?, ?> creator, Landmarks landmarks) {
+        register(landmarkTables, creator, landmarks, landmarks.getGraph());
+    }
+
+    /**
+     * Returns the landmark tables registered for the graph the given creator
+     * would prepare.
+     *
+     * @param creator The graph creator.
+     *
+     * @return The landmark tables, or {@code null} if none were registered.
+     */
+    public Landmarks getLandmarks(GraphCreator<?, ?> creator) {
+        return lookUp(landmarkTables, creator);
+    }
+
+    /**
+     * Registers preprocessed data of the graph the given creator would
+     * prepare and caches the CSR graph it was computed on under the same key.
+     *
+     * @param map     The registry.
+     * @param creator The graph creator.
+     * @param value   The data.
+     * @param graph   The CSR graph of the data.
+     */
+    private <T> void register(Map<WeightsKey, T> map,
+                              GraphCreator<?, ?> creator,
+                              T value,
+                              CSRGraph graph) {
+        final WeightsKey key = weightsKey(creator);
+        if (key == null) {
+            return;
+        }
+        synchronized (this) {
+            final T previous = map.remove(key);
+            if (previous != null) {
+                memoryUsage -= estimatePreprocessedSize(previous);
+            }
+            final long size = estimatePreprocessedSize(value);
+            if (size + estimateSize(graph) > memoryBudget) {
+                LOGGER.warn("The preprocessed graph exceeds the memory "
+                            + "budget of the graph cache and is not kept.");
+                return;
+            }
+            map.put(key, value);
+            memoryUsage += size;
+            final CSRGraph cached = csrGraphs.put(key, graph);
+            if (cached != graph) {
+                if (cached != null) {
+                    memoryUsage -= estimateSize(cached);
+                }
+                memoryUsage += estimateSize(graph);
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Removes the CSR graph of the given key unless preprocessed data still
+     * use it.
+     *
+     * @param key The key.
+     */
+    private void removeCSRGraph(WeightsKey key) {
+        if (!hierarchies.containsKey(key)
+            && !landmarkTables.containsKey(key)) {
+            final CSRGraph graph = csrGraphs.remove(key);
+            if (graph != null) {
+                memoryUsage -= estimateSize(graph);
+            }
+        }
+    }
+
+    /**
+     * Returns the preprocessed data registered for the graph the given
+     * creator would prepare.
+     *
+     * @param map     The registry.
+     * @param creator The graph creator.
+     *
+     * @return The data, or {@code null} if none was registered.
+     */
+    private <T> T lookUp(Map<WeightsKey, T> map, GraphCreator<?, ?> creator) {
+        synchronized (this) {
+            // Spare identifying the edges table in the common case.
+            if (map.isEmpty()) {
+                return null;
+            }
+        }
+        final WeightsKey key = weightsKey(creator);
+        if (key == null) {
+            return null;
+        }
+        synchronized (this) {
+            return map.get(key);
+        }
+    }
+
+    /**
+     * Returns the key of the graphs the given creator would prepare: the
+     * graph key and the weights column.
+     *
+     * @param creator The graph creator.
+     *
+     * @return The key, or {@code null} if the edges table could not be
+     *         identified.
+     */
+    private static WeightsKey weightsKey(GraphCreator<?, ?> creator) {
+        try {
+            return new WeightsKey(creator.getCacheKey(),
+                                  creator instanceof WeightedGraphCreator
+                    ? ((WeightedGraphCreator<?, ?>) creator)
+                    .getWeightColumnName()
+                    : null);
+        } catch (DriverException ex) {
+            LOGGER.warn("Could not identify the edges table; "
+                        + "the graph will not be cached.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the weight profile read from the given column of an edges
+     * table, from the cache if possible.
+     *
+     * @param key           The key of the graph of the edges table.
+     * @param dataSet       The edges table.
+     * @param weightsColumn The weights column.
+     *
+     * @return The weight profile.
+     *
+     * @throws DriverException
+     */
+    private WeightProfile getProfile(Key key, DataSet dataSet,
+                                     String weightsColumn)
+            throws DriverException {
+        final WeightsKey profileKey = new WeightsKey(key, weightsColumn);
+        synchronized (this) {
+            final WeightProfile profile = profiles.get(profileKey);
+            if (profile != null) {
+                return profile;
+            }
+        }
+        final WeightProfile profile = WeightProfile.load(dataSet, weightsColumn);
+        synchronized (this) {
+            final long size = profile.getMemoryUsage();
+            if (!profiles.containsKey(profileKey) && size <= memoryBudget) {
+                profiles.put(profileKey, profile);
+                memoryUsage += size;
+                evict();
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Leases the cached graph with the given key if it is free.
+     *
+     * @param key The key.
+     *
+     * @return Its entry, or {@code null} if there is no free cached graph.
+     */
+    private synchronized Entry lease(WeightsKey key) {
+        purge();
+        final Entry entry = entries.get(key);
+        if (entry != null && !entry.leased) {
+            entry.leased = true;
+            leased.put(entry.graph, entry);
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Gives back a graph obtained from {@link #acquire}.
+     *
+     * @param graph The graph.
+     */
+    public synchronized void release(KeyedGraph<?, ?> graph) {
+        final Entry entry = leased.remove(graph);
+        if (entry != null) {
+            entry.leased = false;
+        }
+    }
+
+    /**
+     * Returns the memory budget of the cache.
+     *
+     * @return The memory budget in bytes.
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the memory budget of the cache, evicting graphs if necessary.
+     *
+     * @param memoryBudget The memory budget in bytes (0 disables caching).
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException(
+                    "The memory budget must be non-negative.");
+        }
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    /**
+     * Returns the estimated memory used by the cached graphs.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Returns the number of cached weight profiles.
+     *
+     * @return The number of cached weight profiles.
+     */
+    public synchronized int getProfileCount() {
+        return profiles.size();
+    }
+
+    /**
+     * Returns the number of cached graphs.
+     *
+     * @return The number of cached graphs.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all graphs from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        leased.clear();
+        profiles.clear();
+        csrGraphs.clear();
+        edgeRowIndices.clear();
+        hierarchies.clear();
+        landmarkTables.clear();
+        memoryUsage = 0;
+    }
+
+    /**
+     * Stores a freshly prepared graph, already leased to the caller, unless
+     * it is too big for the budget or another caller stored one first.
+     *
+     * @param key   The key.
+     * @param graph The graph.
+     */
+    private synchronized void store(WeightsKey key, KeyedGraph<?, ?> graph) {
+        final long size = estimateSize(graph);
+        if (entries.containsKey(key) || size > memoryBudget) {
+            return;
+        }
+        final Entry entry = new Entry(graph, size);
+        entry.leased = true;
+        entries.put(key, entry);
+        leased.put(graph, entry);
+        memoryUsage += size;
+        evict();
+    }
+
+    /**
+     * Stores the edge row index built while loading a graph, unless it is too
+     * big for the budget or one was stored first.
+     *
+     * @param key   The key of the graph.
+     * @param index The edge row index, or {@code null}.
+     */
+    private synchronized void store(Key key, EdgeRowIndex index) {
+        if (index == null || edgeRowIndices.containsKey(key)
+            || index.getMemoryUsage() > memoryBudget) {
+            return;
+        }
+        edgeRowIndices.put(key, index);
+        memoryUsage += index.getMemoryUsage();
+        evict();
+    }
+
+    /**
+     * Evicts the least recently used weight profiles and edge row indices,
+     * which are cheap to read again, then CSR graphs, then keyed graphs, then
+     * landmark tables and contraction hierarchies with their CSR graphs until
+     * the budget is respected. Leased graphs may be evicted; their holders
+     * keep using them.
+     */
+    private void evict() {
+        purge();
+        for (Iterator<WeightProfile> it = profiles.values().iterator();
+                it.hasNext() && memoryUsage > memoryBudget;) {
+            memoryUsage -= it.next().getMemoryUsage();
+            it.remove();
+        }
+        for (Iterator<EdgeRowIndex> it = edgeRowIndices.values().iterator();
+                it.hasNext() && memoryUsage > memoryBudget;) {
+            memoryUsage -= it.next().getMemoryUsage();
+            it.remove();
+        }
+        for (Iterator<Map.Entry<WeightsKey, CSRGraph>> it =
+                csrGraphs.entrySet().iterator();
+                it.hasNext() && memoryUsage > memoryBudget;) {
+            final Map.Entry<WeightsKey, CSRGraph> csr = it.next();
+            if (!hierarchies.containsKey(csr.getKey())
+                && !landmarkTables.containsKey(csr.getKey())) {
+                memoryUsage -= estimateSize(csr.getValue());
+                it.remove();
+            }
+        }
+        for (Iterator<Entry> it = entries.values().iterator();
+                it.hasNext() && memoryUsage > memoryBudget;) {
+            final Entry entry = it.next();
+            it.remove();
+            leased.remove(entry.graph);
+            memoryUsage -= entry.size;
+        }
+        for (Iterator<Map.Entry<WeightsKey, Landmarks>> it =
+                landmarkTables.entrySet().iterator();
+                it.hasNext() && memoryUsage > memoryBudget;) {
+            final Map.Entry<WeightsKey, Landmarks> landmarks = it.next();
+            memoryUsage -= estimatePreprocessedSize(landmarks.getValue());
+            it.remove();
+            removeCSRGraph(landmarks.getKey());
+        }
+        for (Iterator<Map.Entry<WeightsKey, ContractionHierarchy>> it =
+                hierarchies.entrySet().iterator();
+                it.hasNext() && memoryUsage > memoryBudget;) {
+            final Map.Entry<WeightsKey, ContractionHierarchy> hierarchy =
+                    it.next();
+            memoryUsage -= estimatePreprocessedSize(hierarchy.getValue());
+            it.remove();
+            removeCSRGraph(hierarchy.getKey());
+        }
+    }
+
+    /**
+     * Drops everything cached for data sets that were garbage collected.
+     */
+    private void purge() {
+        Reference<? extends DataSet> collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            for (Iterator<Map.Entry<WeightsKey, Entry>> it =
+                    entries.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<WeightsKey, Entry> entry = it.next();
+                if (entry.getKey().key.dataSet == collected) {
+                    leased.remove(entry.getValue().graph);
+                    memoryUsage -= entry.getValue().size;
+                    it.remove();
+                }
+            }
+            for (Iterator<Map.Entry<WeightsKey, WeightProfile>> it =
+                    profiles.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<WeightsKey, WeightProfile> profile = it.next();
+                if (profile.getKey().key.dataSet == collected) {
+                    memoryUsage -= profile.getValue().getMemoryUsage();
+                    it.remove();
+                }
+            }
+            for (Iterator<Map.Entry<Key, EdgeRowIndex>> it =
+                    edgeRowIndices.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<Key, EdgeRowIndex> index = it.next();
+                if (index.getKey().dataSet == collected) {
+                    memoryUsage -= index.getValue().getMemoryUsage();
+                    it.remove();
+                }
+            }
+            for (Iterator<Map.Entry<WeightsKey, Landmarks>> it =
+                    landmarkTables.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<WeightsKey, Landmarks> landmarks = it.next();
+                if (landmarks.getKey().key.dataSet == collected) {
+                    memoryUsage -=
+                            estimatePreprocessedSize(landmarks.getValue());
+                    it.remove();
+                }
+            }
+            for (Iterator<Map.Entry<WeightsKey, ContractionHierarchy>> it =
+                    hierarchies.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<WeightsKey, ContractionHierarchy> hierarchy =
+                        it.next();
+                if (hierarchy.getKey().key.dataSet == collected) {
+                    memoryUsage -=
+                            estimatePreprocessedSize(hierarchy.getValue());
+                    it.remove();
+                }
+            }
+            for (Iterator<Map.Entry<WeightsKey, CSRGraph>> it =
+                    csrGraphs.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<WeightsKey, CSRGraph> csr = it.next();
+                if (csr.getKey().key.dataSet == collected) {
+                    memoryUsage -= estimateSize(csr.getValue());
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by a graph.
+     *
+     * @param graph The graph.
+     *
+     * @return The estimate in bytes.
+     */
+    private static long estimateSize(KeyedGraph<?, ?> graph) {
+        return BYTES_PER_VERTEX * graph.vertexSet().size()
+               + BYTES_PER_EDGE * graph.edgeSet().size();
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by a CSR graph.
+     *
+     * @param graph The graph.
+     *
+     * @return The memory usage in bytes.
+     */
+    private static long estimateSize(CSRGraph graph) {
+        return BYTES_PER_CSR_VERTEX * graph.getVertexCount()
+               + BYTES_PER_CSR_ARC * graph.getArcCount();
+    }
+
+    /**
+     * Returns the estimated memory used by preprocessed data, their graph
+     * excluded.
+     *
+     * @param data A contraction hierarchy or landmark tables.
+     *
+     * @return The memory usage in bytes.
+     */
+    private static long estimatePreprocessedSize(Object data) {
+        return data instanceof ContractionHierarchy
+                ? ((ContractionHierarchy) data).getMemoryUsage()
+                : ((Landmarks) data).getMemoryUsage();
+    }
+
+    /**
+     * Reads the memory budget from the system properties.
+     *
+     * @return The memory budget in bytes.
+     */
+    private static long readMemoryBudget() {
+        final String budget = System.getProperty(MEMORY_BUDGET_PROPERTY);
+        if (budget != null) {
+            try {
+                return Math.max(0, Long.parseLong(budget.trim())) * 1024 * 1024;
+            } catch (NumberFormatException ex) {
+                LoggerFactory.getLogger(GraphCache.class).warn(
+                        "Ignoring invalid graph cache budget '{}'.", budget);
+            }
+        }
+        return DEFAULT_MEMORY_BUDGET;
+    }
+
+    /**
+     * A cached graph.
+     */
+    private static final class Entry {
+
+        /**
+         * The graph.
+         */
+        private final KeyedGraph<?, ?> graph;
+        /**
+         * Its estimated size in bytes.
+         */
+        private final long size;
+        /**
+         * Whether the graph is currently leased.
+         */
+        private boolean leased = false;
+
+        /**
+         * Constructs a new entry.
+         *
+         * @param graph The graph.
+         * @param size  Its estimated size in bytes.
+         */
+        private Entry(KeyedGraph<?, ?> graph, long size) {
+            this.graph = graph;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Identifies a prepared graph.
+     */
+    public static final class Key {
+
+        /**
+         * The name of the edges table if it is a file source without pending
+         * edits, or {@code null}.
+         */
+        private final String name;
+        /**
+         * The edges table if it is identified by itself, or {@code null}.
+         */
+        private final WeakReference<DataSet> dataSet;
+        /**
+         * Identity hash code of the edges table identified by itself.
+         */
+        private final int identityHash;
+        /**
+         * Modification time of the file of a named edges table, or the number
+         * of edits made through an edges table identified by itself.
+         */
+        private final long stamp;
+        /**
+         * Length of the file of a named edges table.
+         */
+        private final long fileLength;
+        /**
+         * Row count of the edges table.
+         */
+        private final long rowCount;
+        /**
+         * Version of the in-memory edits made to the edges table, or 0 if
+         * there are none.
+         */
+        private final long editVersion;
+        /**
+         * Whether the graph is weighted.
+         */
+        private final boolean weighted;
+        /**
+         * Global orientation.
+         */
+        private final int globalOrientation;
+        /**
+         * Edge orientation column, or {@code null}.
+         */
+        private final String edgeOrientationColumn;
+        /**
+         * Vertex class.
+         */
+        private final Class<?> vertexClass;
+        /**
+         * Edge class.
+         */
+        private final Class<?> edgeClass;
+
+        /**
+         * Constructs the key of a graph.
+         *
+         * @param dataSet               The edges table.
+         * @param weighted              Whether the graph is weighted.
+         * @param globalOrientation     The global orientation.
+         * @param edgeOrientationColumn The edge orientation column or
+         *                              {@code null}.
+         * @param vertexClass           The vertex class.
+         * @param edgeClass             The edge class.
+         *
+         * @throws DriverException
+         */
+        Key(DataSet dataSet,
+            boolean weighted,
+            int globalOrientation,
+            String edgeOrientationColumn,
+            Class<?> vertexClass,
+            Class<?> edgeClass) throws DriverException {
+            final File file = committedFile(dataSet);
+            if (file != null) {
+                this.name = ((DataSource) dataSet).getName();
+                this.dataSet = null;
+                this.identityHash = 0;
+                this.stamp = file.lastModified();
+                this.fileLength = file.length();
+            } else {
+                this.name = null;
+                this.dataSet = new WeakReference<DataSet>(dataSet, COLLECTED);
+                this.identityHash = System.identityHashCode(dataSet);
+                this.stamp = dataSet instanceof DataSource
+                        ? editCounter((DataSource) dataSet).count
+                        : 0;
+                this.fileLength = 0;
+            }
+            this.rowCount = dataSet.getRowCount();
+            final GraphDelta edits = GraphDelta.getEdits(dataSet);
+            this.editVersion = edits == null ? 0 : edits.getVersion();
+            this.weighted = weighted;
+            this.globalOrientation = globalOrientation;
+            this.edgeOrientationColumn = edgeOrientationColumn;
+            this.vertexClass = vertexClass;
+            this.edgeClass = edgeClass;
+        }
+
+        /**
+         * Returns the file of a named file source without pending edits,
+         * whose contents are those of the file.
+         *
+         * @param dataSet The edges table.
+         *
+         * @return The file, or {@code null} if the table is not such a source.
+         */
+        private static File committedFile(DataSet dataSet) {
+            if (!(dataSet instanceof DataSource)) {
+                return null;
+            }
+            final DataSource dataSource = (DataSource) dataSet;
+            if (dataSource.getName() == null || dataSource.isModified()) {
+                return null;
+            }
+            final Source source = dataSource.getSource();
+            if (source == null || !source.isFileSource()
+                || source.getFile() == null || !source.getFile().isFile()) {
+                return null;
+            }
+            return source.getFile();
+        }
+
+        /**
+         * Returns the counter of the edits made through a data source,
+         * listening to it on the first call.
+         *
+         * @param dataSource The data source.
+         *
+         * @return Its edit counter.
+         */
+        private static EditCounter editCounter(DataSource dataSource) {
+            synchronized (EDIT_COUNTERS) {
+                EditCounter counter = EDIT_COUNTERS.get(dataSource);
+                if (counter == null) {
+                    counter = new EditCounter();
+                    dataSource.addEditionListener(counter);
+                    EDIT_COUNTERS.put(dataSource, counter);
+                }
+                return counter;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            // Data sets identified by themselves are compared by identity;
+            // a collected one matches no other key.
+            return (name != null
+                    ? name.equals(other.name)
+                    : other.dataSet != null && dataSet.get() != null
+                      && dataSet.get() == other.dataSet.get())
+                   && stamp == other.stamp
+                   && fileLength == other.fileLength
+                   && rowCount == other.rowCount
+                   && editVersion == other.editVersion
+                   && weighted == other.weighted
+                   && globalOrientation == other.globalOrientation
+                   && equal(edgeOrientationColumn, other.edgeOrientationColumn)
+                   && vertexClass == other.vertexClass
+                   && edgeClass == other.edgeClass;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = name != null ? name.hashCode() : identityHash;
+            hash = 31 * hash + (int) (stamp ^ (stamp >>> 32));
+            hash = 31 * hash + (int) (fileLength ^ (fileLength >>> 32));
+            hash = 31 * hash + (int) (rowCount ^ (rowCount >>> 32));
+            hash = 31 * hash + (int) (editVersion ^ (editVersion >>> 32));
+            hash = 31 * hash + (weighted ? 1 : 0);
+            hash = 31 * hash + globalOrientation;
+            hash = 31 * hash + (edgeOrientationColumn == null
+                                ? 0 : edgeOrientationColumn.hashCode());
+            hash = 31 * hash + vertexClass.hashCode();
+            return 31 * hash + edgeClass.hashCode();
+        }
+
+        /**
+         * Null-safe equality of two strings.
+         */
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Counts the edits made through a data source.
+     */
+    private static final class EditCounter implements EditionListener {
+
+        /**
+         * The number of edits.
+         */
+        private volatile long count = 0;
+
+        @Override
+        public void singleModification(EditionEvent e) {
+            count++;
+        }
+
+        @Override
+        public void multipleModification(MultipleEditionEvent e) {
+            count++;
+        }
+    }
+
+    /**
+     * Identifies a cached weight profile or CSR graph: the key of the graph
+     * of the edges table and a weights column.
+     */
+    private static final class WeightsKey {
+
+        /**
+         * The key of the graph of the edges table.
+         */
+        private final Key key;
+        /**
+         * The weights column, or {@code null}.
+         */
+        private final String weightsColumn;
+
+        /**
+         * Constructs the key of a weight profile or weighted graph.
+         *
+         * @param key           The key of the graph of the edges table.
+         * @param weightsColumn The weights column, or {@code null}.
+         */
+        private WeightsKey(Key key, String weightsColumn) {
+            this.key = key;
+            this.weightsColumn = weightsColumn;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof WeightsKey)) {
+                return false;
+            }
+            final WeightsKey other = (WeightsKey) obj;
+            return key.equals(other.key)
+                   && Key.equal(weightsColumn, other.weightsColumn);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode()
+                   + (weightsColumn == null ? 0 : weightsColumn.hashCode());
+        }
+    }
+}
@@ -32,15 +32,30 @@
  */
 package org.gdms.gdmstopology.graphcreator;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.gdms.data.indexes.IndexException;
 import org.gdms.data.schema.Metadata;
 import org.gdms.data.types.Type;
-import org.gdms.data.values.Value;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
+import org.gdms.driver.memory.MemoryDataSetDriver;
 import org.gdms.gdmstopology.function.ST_ShortestPathLength;
-import org.gdms.gdmstopology.model.GraphException;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.CSRGraphFile;
+import org.gdms.gdmstopology.model.EdgeRowIndex;
+import org.gdms.gdmstopology.model.GraphDelta;
+import org.gdms.gdmstopology.model.GraphEdge;
 import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.model.VertexIndex;
 import org.javanetworkanalyzer.data.VId;
 import org.javanetworkanalyzer.model.DirectedPseudoG;
 import org.javanetworkanalyzer.model.Edge;
@@ -56,6 +71,13 @@ import static org.javanetworkanalyzer.graphcreators.GraphCreator.UNDIRECTED;
  * Creates a graph with a specified globalOrientation from the given
  * {@link DataSet}.
  *
+ * <p> The edits made to the edges table through a
+ * {@link org.gdms.gdmstopology.model.GDMSGraph} (see {@link GraphDelta}) are
+ * taken into account: removed rows are skipped, weights are overridden in
+ * weighted graphs, and added edges are loaded after the rows of the table,
+ * oriented from their source to their target, with the edge ids following
+ * the largest edge id of the table. Added edges have no geometry.
+ *
  * @author Adam Gouge
  */
 public class GraphCreator<V extends VId, E extends Edge> {
@@ -85,6 +107,54 @@ public class GraphCreator<V extends VId, E extends Edge> {
     public static final int DIRECTED_EDGE = 1;
     public static final int REVERSED_EDGE = -1;
     public static final int UNDIRECTED_EDGE = 0;
+    /**
+     * An edge is ignored.
+     */
+    protected static final int NO_ARC = 0;
+    /**
+     * An edge is loaded from its start node to its end node.
+     */
+    protected static final int FORWARD_ARC = 1;
+    /**
+     * An edge is loaded from its end node to its start node.
+     */
+    protected static final int BACKWARD_ARC = 2;
+    /**
+     * An edge is loaded in both directions.
+     */
+    protected static final int BOTH_ARCS = FORWARD_ARC | BACKWARD_ARC;
+    /**
+     * Dense vertex index of the last graph prepared by
+     * {@link #prepareCSRGraph()}.
+     */
+    private VertexIndex vertexIndex = null;
+    /**
+     * Edge id to row map of the edges table, built while loading the last
+     * graph.
+     */
+    private EdgeRowIndex edgeRowIndex = null;
+    /**
+     * The cache key of the graph, computed once.
+     */
+    private GraphCache.Key cacheKey = null;
+    /**
+     * Topology file written by {@code ST_Graph} for the edges table, or
+     * {@code null}.
+     */
+    private File topologyFile = null;
+    /**
+     * The number of threads used to decode the edges table.
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    /**
+     * The number of rows from which an in-memory edges table is decoded in
+     * parallel.
+     */
+    protected static final int PARALLEL_LOADING_THRESHOLD = 100000;
+    /**
+     * The smallest number of rows decoded by a single task.
+     */
+    private static final int MIN_CHUNK_SIZE = 16384;
     /**
      * An error message given when a user inputs an erroneous graph
      * globalOrientation.
@@ -150,6 +220,51 @@ public class GraphCreator<V extends VId, E extends Edge> {
         this(dataSet, globalOrientation, null, vertexClass, edgeClass);
     }
 
+    /**
+     * Sets the number of threads used to decode the edges table. Defaults to
+     * the number of available processors.
+     *
+     * <p> Only in-memory edges tables of at least
+     * {@link #PARALLEL_LOADING_THRESHOLD} rows are decoded in parallel, each
+     * thread reading its own range of rows, since other drivers do not
+     * guarantee thread-safe random access; those are read by a single thread
+     * in row order. Inserting the decoded edges into the graph is always
+     * sequential, and the prepared graph does not depend on the number of
+     * threads.
+     *
+     * @param threadCount The number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be positive.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Returns the number of threads used to decode the edges table.
+     *
+     * @return The number of threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets the topology file written by {@code ST_Graph} for the edges table.
+     * Its arcs go from the start node to the end node of every edge, so it
+     * stands for the directed graph oriented by the geometries: in that case
+     * {@link #prepareCSRGraph()} maps it instead of decoding the endpoints of
+     * the edges and building the adjacency arrays, and only reads the
+     * weights. Other orientations ignore it.
+     *
+     * @param topologyFile The topology file, or {@code null}.
+     */
+    public void setTopologyFile(File topologyFile) {
+        this.topologyFile = topologyFile;
+    }
+
     /**
      * Prepares a graph.
      *
@@ -172,6 +287,179 @@ public class GraphCreator<V extends VId, E extends Edge> {
         return graph;
     }
 
+    /**
+     * Prepares a {@link CSRGraph} with the same vertices, edges, edge ids,
+     * weights and orientations as the graph returned by
+     * {@link #prepareGraph()}, but held in primitive arrays with vertices
+     * remapped to a dense index space. In undirected graphs every edge is
+     * represented by two arcs carrying the same edge id.
+     *
+     * <p> If a {@link #setTopologyFile topology file} applies, the adjacency
+     * arrays are mapped from it after checking that every arc matches the id
+     * and endpoints of the row it refers to; the file is ignored with a
+     * warning otherwise.
+     *
+     * @return The newly prepared graph.
+     */
+    public CSRGraph prepareCSRGraph() {
+        initializeIndices();
+        if (topologyFile != null) {
+            if (GraphDelta.getEdits(dataSet) != null) {
+                LOGGER.warn("The edges table was edited since the topology "
+                            + "file was written; ignoring it.");
+            } else if (globalOrientation == GraphSchema.DIRECT
+                && edgeOrientationIndex == -1) {
+                try {
+                    final CSRGraph graph = mapTopology();
+                    vertexIndex = null;
+                    return graph;
+                } catch (IOException ex) {
+                    LOGGER.warn("Ignoring the topology file: {}",
+                                ex.getMessage());
+                } catch (DriverException ex) {
+                    throw new IllegalStateException(EDGE_LOADING_ERROR, ex);
+                }
+            } else {
+                LOGGER.warn("The topology file only holds the graph directed "
+                            + "by the edge geometries; ignoring it.");
+            }
+        }
+        warnIfNoEdgeOrientations();
+        final DecodedEdges edges = decodeEdges();
+        final CSRGraph.Builder builder = new CSRGraph.Builder(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            if (!edges.isRemoved(i)) {
+                loadArcs(edges, i, builder);
+            }
+        }
+        final CSRGraph graph = builder.build();
+        vertexIndex = graph.getVertexIndex();
+        return graph;
+    }
+
+    /**
+     * Maps the topology file and reweights it from the edges table, checking
+     * the arcs against the rows they refer to.
+     *
+     * @return The graph.
+     *
+     * @throws IOException     If the file cannot be mapped or does not match
+     *                         the edges table.
+     * @throws DriverException
+     */
+    private CSRGraph mapTopology() throws IOException, DriverException {
+        final CSRGraph mapped = CSRGraphFile.map(topologyFile);
+        final long rowCount = dataSet.getRowCount();
+        if (mapped.getArcCount() != rowCount) {
+            throw new IOException(topologyFile + " has "
+                                  + mapped.getArcCount() + " arcs but the "
+                                  + "edges table has " + rowCount + " rows.");
+        }
+        final int[] edgeIds = new int[(int) rowCount];
+        final double[] weights = new double[mapped.getArcCount()];
+        for (int arc = 0; arc < weights.length; arc++) {
+            final long rowId = mapped.getArcRow(arc);
+            if (rowId < 0 || rowId >= rowCount
+                || mapped.getArcEdgeId(arc)
+                   != dataSet.getInt(rowId, edgeIdIndex)
+                || mapped.getVertexId(mapped.getArcSource(arc))
+                   != dataSet.getInt(rowId, startNodeIndex)
+                || mapped.getVertexId(mapped.getArcTarget(arc))
+                   != dataSet.getInt(rowId, endNodeIndex)) {
+                throw new IOException(topologyFile + " does not match the "
+                                      + "edges table at row " + rowId + ".");
+            }
+            edgeIds[(int) rowId] = mapped.getArcEdgeId(arc);
+            weights[arc] = getWeight(rowId);
+        }
+        edgeRowIndex = new EdgeRowIndex(edgeIds);
+        return mapped.withWeights(weights);
+    }
+
+    /**
+     * Returns the mapping between the node ids of the edges table and the
+     * dense vertex indices of the last graph prepared by
+     * {@link #prepareCSRGraph()}.
+     *
+     * @return The vertex index, or {@code null} if no such graph was prepared
+     *         or if it was mapped from a topology file.
+     */
+    public VertexIndex getVertexIndex() {
+        return vertexIndex;
+    }
+
+    /**
+     * Returns the map from the edge ids of the edges table to their rows,
+     * built while loading the last graph prepared by this creator.
+     *
+     * @return The edge row index, or {@code null} if no graph was prepared.
+     */
+    public EdgeRowIndex getEdgeRowIndex() {
+        return edgeRowIndex;
+    }
+
+    /**
+     * Builds the map from the edge ids of the edges table to their rows,
+     * reading only the id column. Used when the graph itself came from the
+     * {@link GraphCache}.
+     *
+     * @return The edge row index.
+     *
+     * @throws IllegalStateException If the edges cannot be read.
+     */
+    public EdgeRowIndex prepareEdgeRowIndex() {
+        initializeIndices();
+        try {
+            final long rowCount = dataSet.getRowCount();
+            if (rowCount > Integer.MAX_VALUE) {
+                throw new IllegalStateException(
+                        "Too many edges to load: " + rowCount);
+            }
+            final GraphDelta edits = GraphDelta.getEdits(dataSet);
+            final int rows = (int) rowCount;
+            final int[] edgeIds = new int[rows + countAddedEdges(edits)];
+            for (int rowId = 0; rowId < rows; rowId++) {
+                edgeIds[rowId] = dataSet.getInt(rowId, edgeIdIndex);
+            }
+            numberAddedEdges(edgeIds, rows);
+            edgeRowIndex = new EdgeRowIndex(edgeIds);
+            return edgeRowIndex;
+        } catch (DriverException ex) {
+            throw new IllegalStateException(EDGE_LOADING_ERROR, ex);
+        }
+    }
+
+    /**
+     * Returns the key identifying the graph prepared by this creator in the
+     * {@link GraphCache}. It is computed on the first call only, so that all
+     * the lookups of a query use the same modification stamp.
+     *
+     * @return The cache key.
+     *
+     * @throws DriverException
+     */
+    protected final synchronized GraphCache.Key getCacheKey()
+            throws DriverException {
+        if (cacheKey == null) {
+            cacheKey = createCacheKey();
+        }
+        return cacheKey;
+    }
+
+    /**
+     * Computes the key identifying the graph prepared by this creator in the
+     * {@link GraphCache}.
+     *
+     * @return The cache key.
+     *
+     * @throws DriverException
+     */
+    protected GraphCache.Key createCacheKey() throws DriverException {
+        return new GraphCache.Key(dataSet, false, globalOrientation,
+                                  edgeOrientationColumnName,
+                                  vertexClass, edgeClass);
+    }
+
     /**
      * Initializes a graph.
      *
@@ -195,11 +483,214 @@ public class GraphCreator<V extends VId, E extends Edge> {
     /**
      * Loads the graph edges with the appropriate globalOrientation.
      *
+     * <p> Only the fields needed to build the graph are read, by field index
+     * and row id, so geometries and other attributes of the edges table are
+     * never materialized.
+     *
      * @param graph The graph.
      *
-     * @throws GraphException
+     * @throws IllegalStateException If the edges cannot be read.
      */
     private KeyedGraph<V, E> loadEdges(KeyedGraph<V, E> graph) {
+        warnIfNoEdgeOrientations();
+        final DecodedEdges edges = decodeEdges();
+        for (int i = 0; i < edges.size(); i++) {
+            if (!edges.isRemoved(i)) {
+                loadEdge(edges, i, graph);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Decodes the fields of the edges table needed to build the graph, in
+     * parallel if possible (see {@link #setThreadCount(int)}).
+     *
+     * @return The decoded edges, in row order.
+     *
+     * @throws IllegalStateException If the edges cannot be read.
+     */
+    private DecodedEdges decodeEdges() {
+        try {
+            final GraphDelta edits = GraphDelta.getEdits(dataSet);
+            final long rowCount = dataSet.getRowCount();
+            final long size = rowCount + countAddedEdges(edits);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException(
+                        "Too many edges to load: " + size);
+            }
+            final int rows = (int) rowCount;
+            final DecodedEdges edges = new DecodedEdges((int) size);
+            if (threadCount < 2
+                    || rowCount < PARALLEL_LOADING_THRESHOLD
+                    || !(dataSet instanceof MemoryDataSetDriver)) {
+                decodeEdges(edges, 0, rows);
+            } else {
+                decodeEdgesInParallel(edges, rows);
+            }
+            if (edits != null) {
+                applyEdits(edges, rows, edits);
+            }
+            edgeRowIndex = new EdgeRowIndex(edges.edgeIds);
+            return edges;
+        } catch (DriverException ex) {
+            throw new IllegalStateException(EDGE_LOADING_ERROR, ex);
+        }
+    }
+
+    /**
+     * Splits the rows into chunks decoded by {@link #getThreadCount()}
+     * threads. Every chunk is written to its own range of the arrays, so no
+     * merge is needed and the result is the same as a sequential decoding.
+     *
+     * @param edges The decoded edges.
+     * @param size  The number of rows.
+     *
+     * @throws DriverException
+     */
+    private void decodeEdgesInParallel(final DecodedEdges edges, int size)
+            throws DriverException {
+        // A few chunks per thread to even out the load.
+        final int chunks = 4 * threadCount;
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE,
+                                       size / chunks + 1);
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+            for (int from = 0; from < size; from += chunkSize) {
+                final int start = from;
+                final int end = size - from > chunkSize
+                        ? from + chunkSize
+                        : size;
+                tasks.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws DriverException {
+                        decodeEdges(edges, start, end);
+                        return null;
+                    }
+                }));
+                if (end == size) {
+                    break;
+                }
+            }
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DriverException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof DriverException) {
+                throw (DriverException) ex.getCause();
+            }
+            throw new DriverException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decodes the rows {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @param edges The decoded edges.
+     * @param from  The first row.
+     * @param to    One past the last row.
+     *
+     * @throws DriverException
+     */
+    private void decodeEdges(DecodedEdges edges, int from, int to)
+            throws DriverException {
+        for (int rowId = from; rowId < to; rowId++) {
+            edges.startNodes[rowId] = dataSet.getInt(rowId, startNodeIndex);
+            edges.endNodes[rowId] = dataSet.getInt(rowId, endNodeIndex);
+            edges.edgeIds[rowId] = dataSet.getInt(rowId, edgeIdIndex);
+            edges.orientations[rowId] = getEdgeOrientation(rowId);
+            edges.weights[rowId] = getWeight(rowId);
+        }
+    }
+
+    /**
+     * Applies the edits made to the edges table to the decoded edges: removed
+     * rows are marked, weights overridden if the graph is weighted, and the
+     * added edges stored after the rows of the table.
+     *
+     * @param edges    The decoded edges.
+     * @param rowCount The number of rows of the edges table.
+     * @param edits    The edits.
+     */
+    private void applyEdits(DecodedEdges edges, int rowCount,
+                            GraphDelta edits) {
+        for (long rowId : edits.getRemovedRows()) {
+            if (rowId < rowCount) {
+                edges.remove((int) rowId);
+            }
+        }
+        if (isWeighted()) {
+            for (Map.Entry<Long, Double> weight
+                 : edits.getWeights().entrySet()) {
+                if (weight.getKey() < rowCount) {
+                    edges.weights[weight.getKey().intValue()] =
+                            weight.getValue();
+                }
+            }
+        }
+        final List<GraphEdge> added = edits.getAddedEdges();
+        for (int i = 0; i < added.size(); i++) {
+            final GraphEdge edge = added.get(i);
+            final int rowId = rowCount + i;
+            edges.startNodes[rowId] = edge.getSource();
+            edges.endNodes[rowId] = edge.getTarget();
+            edges.orientations[rowId] = DIRECTED_EDGE;
+            edges.weights[rowId] = isWeighted()
+                    ? edits.getWeight(edge.getRowId(), edge.getWeight())
+                    : 1.0;
+        }
+        numberAddedEdges(edges.edgeIds, rowCount);
+    }
+
+    /**
+     * Returns the number of edges added to the edges table.
+     *
+     * @param edits The edits, or {@code null}.
+     *
+     * @return The number of added edges.
+     */
+    private static int countAddedEdges(GraphDelta edits) {
+        return edits == null ? 0 : edits.getAddedEdges().size();
+    }
+
+    /**
+     * Gives the added edges, stored after the rows of the edges table, the
+     * edge ids following the largest edge id of the table.
+     *
+     * @param edgeIds  The edge ids.
+     * @param rowCount The number of rows of the edges table.
+     */
+    private static void numberAddedEdges(int[] edgeIds, int rowCount) {
+        int maxId = 0;
+        for (int rowId = 0; rowId < rowCount; rowId++) {
+            maxId = Math.max(maxId, edgeIds[rowId]);
+        }
+        for (int rowId = rowCount; rowId < edgeIds.length; rowId++) {
+            edgeIds[rowId] = maxId + 1 + rowId - rowCount;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the prepared graphs are weighted.
+     *
+     * @return {@code true} if the prepared graphs are weighted.
+     */
+    boolean isWeighted() {
+        return false;
+    }
+
+    /**
+     * Warns that edges are oriented by their geometries when a directed graph
+     * is requested without an edge orientation column.
+     */
+    private void warnIfNoEdgeOrientations() {
         if (edgeOrientationIndex == -1 && globalOrientation != UNDIRECTED) {
             LOGGER.warn("Assuming all edges are oriented by their " +
                     "geometric coordinates.  You should specify " +
@@ -207,25 +698,110 @@ public class GraphCreator<V extends VId, E extends Edge> {
                     "obtaining strange results (such as an empty table), " +
                     "this is most likely the reason why.");
         }
-        for (Value[] row : dataSet) {
-            loadEdge(row, graph);
+    }
+
+    /**
+     * Returns the orientation of the edge stored in the given row.
+     *
+     * @param rowId The row id.
+     *
+     * @return The edge orientation.
+     *
+     * @throws DriverException
+     */
+    private int getEdgeOrientation(long rowId) throws DriverException {
+        return (edgeOrientationIndex == -1)
+                ? DIRECTED_EDGE
+                : dataSet.getInt(rowId, edgeOrientationIndex);
+    }
+
+    /**
+     * Returns the directions in which an edge of a directed graph is loaded,
+     * taking into account the global orientation.
+     *
+     * @param edgeOrientation The edge orientation.
+     *
+     * @return {@link #FORWARD_ARC}, {@link #BACKWARD_ARC},
+     *         {@link #BOTH_ARCS}, or {@link #NO_ARC} if the edge orientation
+     *         is invalid.
+     */
+    protected int getArcDirections(int edgeOrientation) {
+        if (edgeOrientation == UNDIRECTED_EDGE) {
+            return BOTH_ARCS;
+        } else if (edgeOrientation == DIRECTED_EDGE) {
+            // Reverse a directed edge (global).
+            return globalOrientation == REVERSED ? BACKWARD_ARC : FORWARD_ARC;
+        } else if (edgeOrientation == REVERSED_EDGE) {
+            // Reversing twice is the same as no reversal.
+            return globalOrientation == REVERSED ? FORWARD_ARC : BACKWARD_ARC;
+        }
+        return NO_ARC;
+    }
+
+    /**
+     * Returns the weight of the edge stored in the given row.
+     *
+     * @param rowId The row id.
+     *
+     * @return The weight (1 for unweighted graphs).
+     *
+     * @throws DriverException
+     */
+    protected double getWeight(long rowId) throws DriverException {
+        return 1.0;
+    }
+
+    /**
+     * Loads the arcs of an edge into a {@link CSRGraph} builder.
+     *
+     * @param edges   The decoded edges.
+     * @param rowId   The row id.
+     * @param builder The builder.
+     */
+    private void loadArcs(DecodedEdges edges, int rowId,
+                          CSRGraph.Builder builder) {
+        final int startNode = edges.startNodes[rowId];
+        final int endNode = edges.endNodes[rowId];
+        final int edgeID = edges.edgeIds[rowId];
+        final boolean undirectedGraph =
+                globalOrientation == GraphSchema.UNDIRECT;
+        final int edgeOrientation = undirectedGraph
+                ? UNDIRECTED_EDGE
+                : edges.orientations[rowId];
+        final int directions = getArcDirections(edgeOrientation);
+        if (directions == NO_ARC) {
+            LOGGER.warn("Edge ({},{}) ignored since {} is not a valid "
+                        + "edge orientation.", startNode, endNode,
+                        edgeOrientation);
+            return;
+        }
+        final double weight = edges.weights[rowId];
+        if ((directions & FORWARD_ARC) != 0) {
+            builder.addArc(startNode, endNode, edgeID, weight, rowId);
+        }
+        if ((directions & BACKWARD_ARC) != 0) {
+            // As in prepareGraph(), the reverse arc of an undirected edge in
+            // a directed graph has the opposite id.
+            final int id = (directions == BOTH_ARCS && !undirectedGraph)
+                    ? -edgeID
+                    : edgeID;
+            builder.addArc(endNode, startNode, id, weight, rowId);
         }
-        return graph;
     }
 
     /**
      * Loads an edge into the graph.
      *
-     * @param row   The row from which to load the edge.
+     * @param edges The decoded edges.
+     * @param rowId The row from which to load the edge.
      * @param graph The graph to which the edges will be added.
      *
      * @return The newly loaded edge.
      */
-    protected E loadEdge(Value[] row, KeyedGraph<V, E> graph) {
-        // TODO: Also recover the edge id.
-        final int startNode = row[startNodeIndex].getAsInt();
-        final int endNode = row[endNodeIndex].getAsInt();
-        final int edgeID = row[edgeIdIndex].getAsInt();
+    E loadEdge(DecodedEdges edges, int rowId, KeyedGraph<V, E> graph) {
+        final int startNode = edges.startNodes[rowId];
+        final int endNode = edges.endNodes[rowId];
+        final int edgeID = edges.edgeIds[rowId];
         // Undirected graphs are either pseudographs or weighted pseudographs,
         // which are undirected, so there is no need to add edges in both
         // directions.
@@ -237,27 +813,15 @@ public class GraphCreator<V extends VId, E extends Edge> {
             // individual edge. If no orientations are specified, every edge
             // is considered to be directed with orientation given by the
             // geometry.
-            int edgeOrientation = (edgeOrientationIndex == -1)
-                    ? DIRECTED_EDGE
-                    : row[edgeOrientationIndex].getAsInt();
-            if (edgeOrientation == UNDIRECTED_EDGE) {
-                return loadDoubleEdge(row, graph, startNode, endNode, edgeID);
-            } else if (edgeOrientation == DIRECTED_EDGE) {
-                // Reverse a directed edge (global).
-                if (globalOrientation == REVERSED) {
-                    return graph.addEdge(endNode, startNode, edgeID);
-                } // No reversal.
-                else {
-                    return graph.addEdge(startNode, endNode, edgeID);
-                }
-            } else if (edgeOrientation == REVERSED_EDGE) {
-                // Reversing twice is the same as no reversal.
-                if (globalOrientation == REVERSED) {
-                    return graph.addEdge(startNode, endNode, edgeID);
-                } // Otherwise reverse just once (local).
-                else {
-                    return graph.addEdge(endNode, startNode, edgeID);
-                }
+            final int edgeOrientation = edges.orientations[rowId];
+            final int directions = getArcDirections(edgeOrientation);
+            if (directions == BOTH_ARCS) {
+                return loadDoubleEdge(edges, rowId, graph,
+                                      startNode, endNode, edgeID);
+            } else if (directions == FORWARD_ARC) {
+                return graph.addEdge(startNode, endNode, edgeID);
+            } else if (directions == BACKWARD_ARC) {
+                return graph.addEdge(endNode, startNode, edgeID);
             } else {
                 LOGGER.warn("Edge ({},{}) ignored since {} is not a valid "
                             + "edge orientation.", startNode, endNode,
@@ -271,7 +835,8 @@ public class GraphCreator<V extends VId, E extends Edge> {
      * In directed graphs, undirected edges are represented by directed edges
      * in both directions. The edges are assigned ids with opposite signs.
      *
-     * @param row       The row from which to load the edge.
+     * @param edges     The decoded edges.
+     * @param rowId     The row from which to load the edge.
      * @param graph     The graph to which the edges will be added.
      * @param startNode Start node
      * @param endNode   End Node
@@ -280,13 +845,14 @@ public class GraphCreator<V extends VId, E extends Edge> {
      * @return One of the two directed edges used to represent an undirected
      * edge in a directed graph (the one with a negative id).
      */
-    protected E loadDoubleEdge(Value[] row,
-                               KeyedGraph<V, E> graph,
-                               final int startNode,
-                               final int endNode,
-                               final int edgeID) {
+    E loadDoubleEdge(DecodedEdges edges,
+                     int rowId,
+                     KeyedGraph<V, E> graph,
+                     final int startNode,
+                     final int endNode,
+                     final int edgeID) {
 
-        // Note: row is ignored since we only need it for weighted graphs.
+        // Note: the row is ignored since we only need it for weighted graphs.
         graph.addEdge(startNode, endNode, edgeID);
         return graph.addEdge(endNode, startNode, -edgeID);
     }
@@ -0,0 +1,232 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.graphcreator;
+
+import java.util.Arrays;
+import org.gdms.data.schema.Metadata;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.utils.IntIntHashMap;
+
+/**
+ * A set of edge weights indexed by edge id, which may be used with any graph
+ * prepared from the same edges table.
+ *
+ * <p> Weights are stored in a primitive array indexed directly by edge id.
+ * When the ids are too sparse for that, they are first remapped to dense
+ * slots. A profile never changes the graph it is used with: {@link
+ * #getArcWeights} gives the weights of the arcs of a {@link CSRGraph}, to be
+ * passed to {@link CSRGraph#withWeights} for a single query, so one topology
+ * may be shared by queries using different weight columns.
+ *
+ * @author Adam Gouge
+ */
+public final class WeightProfile {
+
+    /**
+     * Ids are remapped once the largest id exceeds this many times the number
+     * of edges.
+     */
+    private static final int MAX_SPARSITY = 4;
+    /**
+     * The name of the profile (the weight column it was read from).
+     */
+    private final String name;
+    /**
+     * Weights by edge id, or by slot if {@link #slots} is not null. Ids
+     * without a weight hold {@link Double#NaN}.
+     */
+    private final double[] weights;
+    /**
+     * Slots of sparse edge ids, or {@code null} if weights are indexed
+     * directly by edge id.
+     */
+    private final IntIntHashMap slots;
+
+    /**
+     * Constructs a weight profile.
+     *
+     * @param name    The name of the profile.
+     * @param weights Weights by edge id or by slot.
+     * @param slots   Slots of the edge ids, or {@code null}.
+     */
+    private WeightProfile(String name, double[] weights, IntIntHashMap slots) {
+        this.name = name;
+        this.weights = weights;
+        this.slots = slots;
+    }
+
+    /**
+     * Constructs a weight profile from parallel arrays of edge ids and
+     * weights.
+     *
+     * @param name    The name of the profile.
+     * @param edgeIds The edge ids (positive).
+     * @param weights The weights (numbers).
+     *
+     * @return The weight profile.
+     */
+    public static WeightProfile create(String name, int[] edgeIds,
+                                       double[] weights) {
+        if (edgeIds.length != weights.length) {
+            throw new IllegalArgumentException(
+                    "There must be exactly one weight per edge id.");
+        }
+        int maxId = 0;
+        for (int id : edgeIds) {
+            if (id <= 0) {
+                throw new IllegalArgumentException(
+                        "Edge ids must be positive, found " + id + ".");
+            }
+            maxId = Math.max(maxId, id);
+        }
+        for (double weight : weights) {
+            if (Double.isNaN(weight)) {
+                throw new IllegalArgumentException(
+                        "Weights must be numbers, found NaN.");
+            }
+        }
+        if (maxId / MAX_SPARSITY <= edgeIds.length) {
+            final double[] byId = new double[maxId + 1];
+            Arrays.fill(byId, Double.NaN);
+            for (int i = 0; i < edgeIds.length; i++) {
+                byId[edgeIds[i]] = weights[i];
+            }
+            return new WeightProfile(name, byId, null);
+        }
+        final IntIntHashMap slots = new IntIntHashMap(edgeIds.length);
+        final double[] bySlot = new double[edgeIds.length];
+        for (int i = 0; i < edgeIds.length; i++) {
+            int slot = slots.get(edgeIds[i]);
+            if (slot == -1) {
+                slot = slots.size();
+                slots.put(edgeIds[i], slot);
+            }
+            bySlot[slot] = weights[i];
+        }
+        return new WeightProfile(name, bySlot, slots);
+    }
+
+    /**
+     * Reads a weight profile from the given column of an edges table.
+     *
+     * @param dataSet      The edges table.
+     * @param weightColumn The weight column.
+     *
+     * @return The weight profile.
+     *
+     * @throws DriverException
+     */
+    public static WeightProfile load(DataSet dataSet, String weightColumn)
+            throws DriverException {
+        final Metadata md = dataSet.getMetadata();
+        final int edgeIdIndex = md.getFieldIndex(GraphSchema.ID);
+        final int weightIndex = md.getFieldIndex(weightColumn);
+        if (edgeIdIndex == -1) {
+            throw new IllegalArgumentException(
+                    GraphCreator.MISSING_FIELD_ERROR + GraphSchema.ID + "'.");
+        }
+        if (weightIndex == -1) {
+            throw new IllegalArgumentException(
+                    GraphCreator.MISSING_FIELD_ERROR + weightColumn + "'.");
+        }
+        final int rowCount = (int) dataSet.getRowCount();
+        final int[] edgeIds = new int[rowCount];
+        final double[] weights = new double[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            edgeIds[row] = dataSet.getInt(row, edgeIdIndex);
+            weights[row] = dataSet.getDouble(row, weightIndex);
+        }
+        return create(weightColumn, edgeIds, weights);
+    }
+
+    /**
+     * Returns the name of this profile.
+     *
+     * @return The name of this profile.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the weight of the given edge. The arcs representing an
+     * undirected edge in a directed graph, with ids {@code id} and
+     * {@code -id}, share its weight.
+     *
+     * @param edgeId The edge id.
+     *
+     * @return The weight of the edge.
+     *
+     * @throws IllegalArgumentException If the edge has no weight.
+     */
+    public double getWeight(int edgeId) {
+        final int id = Math.abs(edgeId);
+        final int slot = slots == null ? id : slots.get(id);
+        if (slot < 0 || slot >= weights.length || Double.isNaN(weights[slot])) {
+            throw new IllegalArgumentException(
+                    "No weight for edge " + edgeId + " in profile '"
+                    + name + "'.");
+        }
+        return weights[slot];
+    }
+
+    /**
+     * Returns the weights of the arcs of the given graph.
+     *
+     * @param graph The graph, prepared from the table this profile was read
+     *              from.
+     *
+     * @return The weights, indexed by arc.
+     *
+     * @throws IllegalArgumentException If an edge of the graph has no weight.
+     */
+    public double[] getArcWeights(CSRGraph graph) {
+        final double[] arcWeights = new double[graph.getArcCount()];
+        for (int arc = 0; arc < arcWeights.length; arc++) {
+            arcWeights[arc] = getWeight(graph.getArcEdgeId(arc));
+        }
+        return arcWeights;
+    }
+
+    /**
+     * Returns the estimated memory used by this profile.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    long getMemoryUsage() {
+        return 8L * weights.length + (slots == null ? 0 : 16L * slots.size());
+    }
+}
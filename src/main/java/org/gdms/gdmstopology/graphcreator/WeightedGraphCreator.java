@@ -34,7 +34,6 @@ package org.gdms.gdmstopology.graphcreator;
 
 import org.gdms.data.indexes.IndexException;
 import org.gdms.data.schema.Metadata;
-import org.gdms.data.values.Value;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
 import static org.gdms.gdmstopology.graphcreator.GraphCreator.METADATA_ERROR;
@@ -104,6 +103,22 @@ public class WeightedGraphCreator<V extends VId, E extends Edge>
         return (WeightedKeyedGraph<V, E>) super.prepareGraph();
     }
 
+    /**
+     * Returns the name of the weight column.
+     *
+     * @return The name of the weight column.
+     */
+    String getWeightColumnName() {
+        return weightColumnName;
+    }
+
+    @Override
+    protected GraphCache.Key createCacheKey() throws DriverException {
+        return new GraphCache.Key(dataSet, true, globalOrientation,
+                                  edgeOrientationColumnName,
+                                  vertexClass, edgeClass);
+    }
+
     /**
      * Recovers the indices from the metadata.
      *
@@ -143,26 +158,37 @@ public class WeightedGraphCreator<V extends VId, E extends Edge>
     }
 
     @Override
-    protected E loadEdge(Value[] row, KeyedGraph<V, E> graph) {
-        E edge = super.loadEdge(row, graph);
+    boolean isWeighted() {
+        return true;
+    }
+
+    @Override
+    protected double getWeight(long rowId) throws DriverException {
+        return dataSet.getDouble(rowId, weightFieldIndex);
+    }
+
+    @Override
+    E loadEdge(DecodedEdges edges, int rowId, KeyedGraph<V, E> graph) {
+        E edge = super.loadEdge(edges, rowId, graph);
         if (edge != null) {
-            double weight = row[weightFieldIndex].getAsDouble();
+            double weight = edges.weights[rowId];
             edge.setWeight(weight);
         }
         return edge;
     }
 
     @Override
-    protected E loadDoubleEdge(Value[] row,
-                               KeyedGraph<V, E> graph,
-                               final int startNode,
-                               final int endNode,
-                               final int edgeID) {
+    E loadDoubleEdge(DecodedEdges edges,
+                     int rowId,
+                     KeyedGraph<V, E> graph,
+                     final int startNode,
+                     final int endNode,
+                     final int edgeID) {
         // In directed graphs, undirected edges are represented
         // by directed edges in both directions.
         E edgeTo = graph.addEdge(startNode, endNode, edgeID);
         E edgeFrom = graph.addEdge(endNode, startNode, -edgeID);
-        double weight = row[weightFieldIndex].getAsDouble();
+        double weight = edges.weights[rowId];
         edgeTo.setWeight(weight);
         edgeFrom.setWeight(weight);
         return edgeFrom;
@@ -0,0 +1,677 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable graph stored in compressed sparse row (CSR) form.
+ *
+ * <p> Vertices are addressed by a dense index in {@code 0..n-1} given by a
+ * {@link VertexIndex}; the original vertex ids are recovered with
+ * {@link #getVertexId(int)}. Arcs are numbered
+ * {@code 0..m-1} and grouped by source vertex, so the outgoing arcs of vertex
+ * {@code v} are the arcs {@code outArcsBegin(v)} (inclusive) to
+ * {@code outArcsEnd(v)} (exclusive). Incoming arcs are reachable through a
+ * second index: {@code getInArc(i)} for {@code i} between
+ * {@code inArcsBegin(v)} and {@code inArcsEnd(v)}.
+ *
+ * <p> All adjacency data is held in primitive buffers, so expanding a vertex
+ * neither queries an index nor allocates anything. The buffers either wrap
+ * heap arrays (graphs made by a {@link Builder}) or are mapped from a file
+ * written by {@link CSRGraphFile}, in which case the graph costs almost no
+ * heap. Instances may be shared between threads; only absolute buffer reads
+ * are used.
+ *
+ * @author Adam Gouge
+ */
+public final class CSRGraph {
+
+    /**
+     * Dense vertex index to vertex id.
+     */
+    private final IntBuffer vertexIds;
+    /**
+     * Vertex id to dense vertex index; built lazily for mapped graphs.
+     */
+    private VertexIndex vertexIndex;
+    /**
+     * Vertex ids in increasing order, or {@code null} if ids are looked up in
+     * {@link #vertexIndex}.
+     */
+    private final IntBuffer sortedIds;
+    /**
+     * Dense index of each vertex of {@link #sortedIds}, or {@code null}.
+     */
+    private final IntBuffer sortedIndices;
+    /**
+     * Offsets of the outgoing arcs of each vertex (length n + 1).
+     */
+    private final IntBuffer outOffsets;
+    /**
+     * Offsets in {@link #inArcs} of the incoming arcs of each vertex (length
+     * n + 1).
+     */
+    private final IntBuffer inOffsets;
+    /**
+     * Arc numbers grouped by target vertex.
+     */
+    private final IntBuffer inArcs;
+    /**
+     * Source vertex (dense index) of each arc.
+     */
+    private final IntBuffer arcSources;
+    /**
+     * Target vertex (dense index) of each arc.
+     */
+    private final IntBuffer arcTargets;
+    /**
+     * Weight of each arc.
+     */
+    private final DoubleBuffer arcWeights;
+    /**
+     * Edge id of each arc.
+     */
+    private final IntBuffer arcEdgeIds;
+    /**
+     * Row id in the data set of each arc.
+     */
+    private final LongBuffer arcRows;
+    /**
+     * Result of {@link #getMaxIntegerWeight()}, or {@code -2} until it is
+     * computed.
+     */
+    private long maxIntegerWeight = -2;
+
+    /**
+     * Constructs a CSR graph from its buffers. Used by the {@link Builder} and
+     * by {@link CSRGraphFile}.
+     *
+     * <p> Exactly one of {@code vertexIndex} and the pair
+     * {@code sortedIds}/{@code sortedIndices} must be given.
+     */
+    CSRGraph(IntBuffer vertexIds,
+             VertexIndex vertexIndex,
+             IntBuffer sortedIds,
+             IntBuffer sortedIndices,
+             IntBuffer outOffsets,
+             IntBuffer inOffsets,
+             IntBuffer inArcs,
+             IntBuffer arcSources,
+             IntBuffer arcTargets,
+             DoubleBuffer arcWeights,
+             IntBuffer arcEdgeIds,
+             LongBuffer arcRows) {
+        this.vertexIds = vertexIds;
+        this.vertexIndex = vertexIndex;
+        this.sortedIds = sortedIds;
+        this.sortedIndices = sortedIndices;
+        this.outOffsets = outOffsets;
+        this.inOffsets = inOffsets;
+        this.inArcs = inArcs;
+        this.arcSources = arcSources;
+        this.arcTargets = arcTargets;
+        this.arcWeights = arcWeights;
+        this.arcEdgeIds = arcEdgeIds;
+        this.arcRows = arcRows;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return The number of vertices.
+     */
+    public int getVertexCount() {
+        return vertexIds.capacity();
+    }
+
+    /**
+     * Returns the number of arcs.
+     *
+     * @return The number of arcs.
+     */
+    public int getArcCount() {
+        return arcTargets.capacity();
+    }
+
+    /**
+     * Returns the id of the vertex with the given dense index.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return The vertex id.
+     */
+    public int getVertexId(int vertex) {
+        return vertexIds.get(vertex);
+    }
+
+    /**
+     * Returns the dense index of the vertex with the given id, or {@code -1}
+     * if there is no such vertex.
+     *
+     * @param id The vertex id.
+     *
+     * @return The dense vertex index, or {@code -1}.
+     */
+    public int indexOf(int id) {
+        if (sortedIds == null) {
+            return vertexIndex.indexOf(id);
+        }
+        int low = 0;
+        int high = sortedIds.capacity() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midId = sortedIds.get(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return sortedIndices.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the mapping between vertex ids and dense vertex indices. For a
+     * mapped graph, the mapping is copied to the heap on the first call.
+     *
+     * @return The vertex index.
+     */
+    public synchronized VertexIndex getVertexIndex() {
+        if (vertexIndex == null) {
+            final int n = getVertexCount();
+            final VertexIndex index = new VertexIndex(n);
+            for (int v = 0; v < n; v++) {
+                index.add(vertexIds.get(v));
+            }
+            vertexIndex = index;
+        }
+        return vertexIndex;
+    }
+
+    /**
+     * Returns {@code true} if the graph contains a vertex with the given id.
+     *
+     * @param id The vertex id.
+     *
+     * @return {@code true} if the graph contains a vertex with the given id.
+     */
+    public boolean containsVertex(int id) {
+        return indexOf(id) != -1;
+    }
+
+    /**
+     * Returns the first outgoing arc of the given vertex.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return The first outgoing arc of the vertex.
+     */
+    public int outArcsBegin(int vertex) {
+        return outOffsets.get(vertex);
+    }
+
+    /**
+     * Returns one past the last outgoing arc of the given vertex.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return One past the last outgoing arc of the vertex.
+     */
+    public int outArcsEnd(int vertex) {
+        return outOffsets.get(vertex + 1);
+    }
+
+    /**
+     * Returns the position of the first incoming arc of the given vertex, to
+     * be passed to {@link #getInArc(int)}.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return The position of the first incoming arc of the vertex.
+     */
+    public int inArcsBegin(int vertex) {
+        return inOffsets.get(vertex);
+    }
+
+    /**
+     * Returns one past the position of the last incoming arc of the given
+     * vertex.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return One past the position of the last incoming arc of the vertex.
+     */
+    public int inArcsEnd(int vertex) {
+        return inOffsets.get(vertex + 1);
+    }
+
+    /**
+     * Returns the arc stored at the given position of the incoming arc index.
+     *
+     * @param position A position between {@link #inArcsBegin(int)} and
+     *                 {@link #inArcsEnd(int)}.
+     *
+     * @return The arc.
+     */
+    public int getInArc(int position) {
+        return inArcs.get(position);
+    }
+
+    /**
+     * Returns the out-degree of the given vertex.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return The out-degree of the vertex.
+     */
+    public int getOutDegree(int vertex) {
+        return outOffsets.get(vertex + 1) - outOffsets.get(vertex);
+    }
+
+    /**
+     * Returns the in-degree of the given vertex.
+     *
+     * @param vertex The dense vertex index.
+     *
+     * @return The in-degree of the vertex.
+     */
+    public int getInDegree(int vertex) {
+        return inOffsets.get(vertex + 1) - inOffsets.get(vertex);
+    }
+
+    /**
+     * Returns the source vertex of the given arc.
+     *
+     * @param arc The arc.
+     *
+     * @return The dense index of the source vertex.
+     */
+    public int getArcSource(int arc) {
+        return arcSources.get(arc);
+    }
+
+    /**
+     * Returns the target vertex of the given arc.
+     *
+     * @param arc The arc.
+     *
+     * @return The dense index of the target vertex.
+     */
+    public int getArcTarget(int arc) {
+        return arcTargets.get(arc);
+    }
+
+    /**
+     * Returns the weight of the given arc.
+     *
+     * @param arc The arc.
+     *
+     * @return The weight of the arc.
+     */
+    public double getArcWeight(int arc) {
+        return arcWeights.get(arc);
+    }
+
+    /**
+     * Returns a graph with the same vertices and arcs as this one but the
+     * given arc weights. The adjacency buffers are shared, so reweighting a
+     * mapped graph only costs the weights on the heap.
+     *
+     * @param weights The weight of each arc.
+     *
+     * @return The reweighted graph.
+     */
+    public CSRGraph withWeights(double[] weights) {
+        if (weights.length != getArcCount()) {
+            throw new IllegalArgumentException(
+                    "There must be a weight for every arc.");
+        }
+        return new CSRGraph(vertexIds,
+                            sortedIds == null ? getVertexIndex() : null,
+                            sortedIds,
+                            sortedIndices,
+                            outOffsets,
+                            inOffsets,
+                            inArcs,
+                            arcSources,
+                            arcTargets,
+                            DoubleBuffer.wrap(weights),
+                            arcEdgeIds,
+                            arcRows);
+    }
+
+    /**
+     * Returns the largest arc weight if all arc weights are non-negative
+     * integers, as for unweighted graphs or integer weights columns, and
+     * small enough for path lengths to be exact. Computed on the first call.
+     *
+     * @return The largest arc weight, or {@code -1} if some weight is not a
+     *         non-negative integer or path lengths could exceed
+     *         2<sup>53</sup>.
+     */
+    public synchronized long getMaxIntegerWeight() {
+        if (maxIntegerWeight == -2) {
+            // A shortest path has fewer arcs than there are vertices.
+            final double limit = Math.scalb(1.0, 53)
+                                 / Math.max(1, getVertexCount());
+            double max = 0.0;
+            for (int arc = 0; arc < getArcCount(); arc++) {
+                final double weight = arcWeights.get(arc);
+                if (!(weight >= 0.0 && weight < limit)
+                    || weight != Math.rint(weight)) {
+                    max = -1.0;
+                    break;
+                }
+                if (weight > max) {
+                    max = weight;
+                }
+            }
+            maxIntegerWeight = (long) max;
+        }
+        return maxIntegerWeight;
+    }
+
+    /**
+     * Returns the edge id of the given arc. In a directed graph, the two arcs
+     * representing an undirected edge have opposite edge ids.
+     *
+     * @param arc The arc.
+     *
+     * @return The edge id of the arc.
+     */
+    public int getArcEdgeId(int arc) {
+        return arcEdgeIds.get(arc);
+    }
+
+    /**
+     * Returns the row id of the given arc in the data set it was read from.
+     *
+     * @param arc The arc.
+     *
+     * @return The row id of the arc.
+     */
+    public long getArcRow(int arc) {
+        return arcRows.get(arc);
+    }
+
+    /**
+     * Returns {@code true} if the adjacency data is mapped from a file rather
+     * than held on the heap.
+     *
+     * @return {@code true} for a graph loaded by {@link CSRGraphFile#map}.
+     */
+    public boolean isMapped() {
+        return sortedIds != null;
+    }
+
+    /**
+     * Returns a read-only view of the dense index to vertex id buffer.
+     */
+    IntBuffer vertexIdBuffer() {
+        return vertexIds.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the outgoing arc offsets.
+     */
+    IntBuffer outOffsetBuffer() {
+        return outOffsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the incoming arc offsets.
+     */
+    IntBuffer inOffsetBuffer() {
+        return inOffsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the incoming arc index.
+     */
+    IntBuffer inArcBuffer() {
+        return inArcs.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the arc sources.
+     */
+    IntBuffer arcSourceBuffer() {
+        return arcSources.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the arc targets.
+     */
+    IntBuffer arcTargetBuffer() {
+        return arcTargets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the arc weights.
+     */
+    DoubleBuffer arcWeightBuffer() {
+        return arcWeights.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the arc edge ids.
+     */
+    IntBuffer arcEdgeIdBuffer() {
+        return arcEdgeIds.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the arc row ids.
+     */
+    LongBuffer arcRowBuffer() {
+        return arcRows.asReadOnlyBuffer();
+    }
+
+    /**
+     * Accumulates arcs in insertion order and builds a {@link CSRGraph} from
+     * them. Arcs leaving the same vertex keep their insertion order in the
+     * built graph.
+     */
+    public static final class Builder {
+
+        /**
+         * Vertex id to dense vertex index.
+         */
+        private final VertexIndex vertexIndex;
+        /**
+         * Arc sources (dense indices, grows as needed).
+         */
+        private int[] sources;
+        /**
+         * Arc targets (dense indices, grows as needed).
+         */
+        private int[] targets;
+        /**
+         * Arc weights (grows as needed).
+         */
+        private double[] weights;
+        /**
+         * Arc edge ids (grows as needed).
+         */
+        private int[] edgeIds;
+        /**
+         * Arc row ids (grows as needed).
+         */
+        private long[] rows;
+        /**
+         * The number of arcs added so far.
+         */
+        private int arcCount = 0;
+
+        /**
+         * Constructs a builder sized for the given number of arcs.
+         *
+         * @param expectedArcs The expected number of arcs.
+         */
+        public Builder(int expectedArcs) {
+            final int capacity = Math.max(expectedArcs, 16);
+            vertexIndex = new VertexIndex(capacity);
+            sources = new int[capacity];
+            targets = new int[capacity];
+            weights = new double[capacity];
+            edgeIds = new int[capacity];
+            rows = new long[capacity];
+        }
+
+        /**
+         * Adds a vertex if it is not already present.
+         *
+         * @param id The vertex id.
+         *
+         * @return The dense index of the vertex.
+         */
+        public int addVertex(int id) {
+            return vertexIndex.add(id);
+        }
+
+        /**
+         * Adds an arc, adding its endpoints if necessary.
+         *
+         * @param sourceId The source vertex id.
+         * @param targetId The target vertex id.
+         * @param edgeId   The edge id.
+         * @param weight   The weight.
+         * @param row      The row id in the data set.
+         */
+        public void addArc(int sourceId, int targetId, int edgeId,
+                           double weight, long row) {
+            final int source = addVertex(sourceId);
+            final int target = addVertex(targetId);
+            if (arcCount == targets.length) {
+                final int newLength = grow(arcCount);
+                sources = Arrays.copyOf(sources, newLength);
+                targets = Arrays.copyOf(targets, newLength);
+                weights = Arrays.copyOf(weights, newLength);
+                edgeIds = Arrays.copyOf(edgeIds, newLength);
+                rows = Arrays.copyOf(rows, newLength);
+            }
+            sources[arcCount] = source;
+            targets[arcCount] = target;
+            weights[arcCount] = weight;
+            edgeIds[arcCount] = edgeId;
+            rows[arcCount] = row;
+            arcCount++;
+        }
+
+        /**
+         * Builds the graph. The builder should not be used afterwards.
+         *
+         * @return The graph.
+         */
+        public CSRGraph build() {
+            final int n = vertexIndex.size();
+            final int m = arcCount;
+
+            // Counting sort of the arcs by source vertex.
+            final int[] outOffsets = offsets(sources, n, m);
+            final int[] position = Arrays.copyOf(outOffsets, n);
+            final int[] arcSources = new int[m];
+            final int[] arcTargets = new int[m];
+            final double[] arcWeights = new double[m];
+            final int[] arcEdgeIds = new int[m];
+            final long[] arcRows = new long[m];
+            for (int i = 0; i < m; i++) {
+                final int arc = position[sources[i]]++;
+                arcSources[arc] = sources[i];
+                arcTargets[arc] = targets[i];
+                arcWeights[arc] = weights[i];
+                arcEdgeIds[arc] = edgeIds[i];
+                arcRows[arc] = rows[i];
+            }
+
+            // Index of the arcs by target vertex.
+            final int[] inOffsets = offsets(arcTargets, n, m);
+            System.arraycopy(inOffsets, 0, position, 0, n);
+            final int[] inArcs = new int[m];
+            for (int arc = 0; arc < m; arc++) {
+                inArcs[position[arcTargets[arc]]++] = arc;
+            }
+
+            return new CSRGraph(IntBuffer.wrap(vertexIndex.toIdArray()),
+                                vertexIndex,
+                                null,
+                                null,
+                                IntBuffer.wrap(outOffsets),
+                                IntBuffer.wrap(inOffsets),
+                                IntBuffer.wrap(inArcs),
+                                IntBuffer.wrap(arcSources),
+                                IntBuffer.wrap(arcTargets),
+                                DoubleBuffer.wrap(arcWeights),
+                                IntBuffer.wrap(arcEdgeIds),
+                                LongBuffer.wrap(arcRows));
+        }
+
+        /**
+         * Returns the CSR offsets obtained by counting the occurrences of each
+         * vertex in the first {@code m} entries of the given array.
+         *
+         * @param vertices Dense vertex indices.
+         * @param n        The number of vertices.
+         * @param m        The number of entries to count.
+         *
+         * @return The offsets (length n + 1).
+         */
+        private static int[] offsets(int[] vertices, int n, int m) {
+            final int[] offsets = new int[n + 1];
+            for (int i = 0; i < m; i++) {
+                offsets[vertices[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            return offsets;
+        }
+
+        /**
+         * Returns the new length of an array that is full.
+         *
+         * @param length The current length.
+         *
+         * @return The new length.
+         */
+        private static int grow(int length) {
+            return length + (length >> 1) + 1;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes {@link CSRGraph}s in a compact binary topology file.
+ *
+ * <p> The file starts with a 16-byte header (magic number, format version,
+ * vertex count <i>n</i> and arc count <i>m</i>), followed by the sections
+ * <ol> <li> arc weights ({@code double[m]}) <li> arc row ids
+ * ({@code long[m]}) <li> vertex ids by dense index ({@code int[n]}) <li> vertex
+ * ids in increasing order ({@code int[n]}) <li> the dense index of each sorted
+ * id ({@code int[n]}) <li> outgoing arc offsets ({@code int[n + 1]}) <li>
+ * incoming arc offsets ({@code int[n + 1]}) <li> incoming arc index
+ * ({@code int[m]}) <li> arc sources, arc targets and arc edge ids
+ * ({@code int[m]} each) </ol> all in little-endian byte order. The 8-byte
+ * sections come first so that every section is naturally aligned.
+ *
+ * <p> {@link #map(File)} maps each section with {@link FileChannel#map}
+ * instead of reading it, so opening a large network takes next to no time or
+ * heap; pages are loaded by the operating system as the graph is traversed.
+ * Vertex ids are resolved by binary search over the sorted id section.
+ * {@link org.gdms.gdmstopology.graphcreator.GraphCreator#setTopologyFile}
+ * uses mapped graphs in place of graphs built from the edges table.
+ *
+ * @author Adam Gouge
+ */
+public final class CSRGraphFile {
+
+    /**
+     * Magic number at the start of every topology file ("GTOP").
+     */
+    public static final int MAGIC = 0x47544F50;
+    /**
+     * Current version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+    /**
+     * Byte order of the file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private CSRGraphFile() {
+    }
+
+    /**
+     * Writes the given graph to the given file, replacing its contents.
+     *
+     * @param graph The graph.
+     * @param file  The file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(CSRGraph graph, File file) throws IOException {
+        final int n = graph.getVertexCount();
+        final int m = graph.getArcCount();
+
+        // Sort the vertex ids, remembering their dense indices.
+        final long[] pairs = new long[n];
+        for (int v = 0; v < n; v++) {
+            pairs[v] = ((long) graph.getVertexId(v) << 32) | v;
+        }
+        Arrays.sort(pairs);
+        final IntBuffer sortedIds = IntBuffer.allocate(n);
+        final IntBuffer sortedIndices = IntBuffer.allocate(n);
+        for (int i = 0; i < n; i++) {
+            sortedIds.put(i, (int) (pairs[i] >> 32));
+            sortedIndices.put(i, (int) pairs[i]);
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            raf.setLength(0);
+            raf.setLength(fileSize(n, m));
+
+            final ByteBuffer header = mapSection(
+                    channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+
+            long offset = HEADER_SIZE;
+            mapSection(channel, FileChannel.MapMode.READ_WRITE, offset, 8L * m)
+                    .asDoubleBuffer().put(graph.arcWeightBuffer());
+            offset += 8L * m;
+            mapSection(channel, FileChannel.MapMode.READ_WRITE, offset, 8L * m)
+                    .asLongBuffer().put(graph.arcRowBuffer());
+            offset += 8L * m;
+            offset = writeInts(channel, offset, graph.vertexIdBuffer());
+            offset = writeInts(channel, offset, sortedIds);
+            offset = writeInts(channel, offset, sortedIndices);
+            offset = writeInts(channel, offset, graph.outOffsetBuffer());
+            offset = writeInts(channel, offset, graph.inOffsetBuffer());
+            offset = writeInts(channel, offset, graph.inArcBuffer());
+            offset = writeInts(channel, offset, graph.arcSourceBuffer());
+            offset = writeInts(channel, offset, graph.arcTargetBuffer());
+            writeInts(channel, offset, graph.arcEdgeIdBuffer());
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Maps the graph stored in the given file. The returned graph stays valid
+     * after this method returns; the mapping is released when the graph is
+     * garbage collected. The file must not be modified while the graph is in
+     * use.
+     *
+     * @param file The file.
+     *
+     * @return The mapped graph.
+     *
+     * @throws IOException If the file cannot be read or is not a topology
+     *                     file.
+     */
+    public static CSRGraph map(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a topology file.");
+            }
+            final ByteBuffer header = mapSection(
+                    channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a topology file.");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported topology file version "
+                                      + version + " in " + file + ".");
+            }
+            final int n = header.getInt();
+            final int m = header.getInt();
+            if (n < 0 || m < 0 || channel.size() != fileSize(n, m)) {
+                throw new IOException("Truncated topology file " + file + ".");
+            }
+
+            long offset = HEADER_SIZE;
+            final DoubleBuffer arcWeights = mapSection(
+                    channel, FileChannel.MapMode.READ_ONLY, offset, 8L * m)
+                    .asDoubleBuffer();
+            offset += 8L * m;
+            final LongBuffer arcRows = mapSection(
+                    channel, FileChannel.MapMode.READ_ONLY, offset, 8L * m)
+                    .asLongBuffer();
+            offset += 8L * m;
+            final IntBuffer vertexIds = mapInts(channel, offset, n);
+            offset += 4L * n;
+            final IntBuffer sortedIds = mapInts(channel, offset, n);
+            offset += 4L * n;
+            final IntBuffer sortedIndices = mapInts(channel, offset, n);
+            offset += 4L * n;
+            final IntBuffer outOffsets = mapInts(channel, offset, n + 1);
+            offset += 4L * (n + 1);
+            final IntBuffer inOffsets = mapInts(channel, offset, n + 1);
+            offset += 4L * (n + 1);
+            final IntBuffer inArcs = mapInts(channel, offset, m);
+            offset += 4L * m;
+            final IntBuffer arcSources = mapInts(channel, offset, m);
+            offset += 4L * m;
+            final IntBuffer arcTargets = mapInts(channel, offset, m);
+            offset += 4L * m;
+            final IntBuffer arcEdgeIds = mapInts(channel, offset, m);
+
+            return new CSRGraph(vertexIds,
+                                null,
+                                sortedIds,
+                                sortedIndices,
+                                outOffsets,
+                                inOffsets,
+                                inArcs,
+                                arcSources,
+                                arcTargets,
+                                arcWeights,
+                                arcEdgeIds,
+                                arcRows);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the size in bytes of the file holding a graph with the given
+     * number of vertices and arcs.
+     *
+     * @param n The number of vertices.
+     * @param m The number of arcs.
+     *
+     * @return The file size.
+     */
+    private static long fileSize(int n, int m) {
+        return HEADER_SIZE + 16L * m + 12L * n + 8L * (n + 1) + 16L * m;
+    }
+
+    /**
+     * Maps a section of the file in the file's byte order.
+     *
+     * @param channel The file channel.
+     * @param mode    The mapping mode.
+     * @param offset  The offset of the section.
+     * @param size    The size of the section in bytes.
+     *
+     * @return The mapped section.
+     *
+     * @throws IOException
+     */
+    private static ByteBuffer mapSection(FileChannel channel,
+                                         FileChannel.MapMode mode,
+                                         long offset,
+                                         long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Topology file section too large: "
+                                  + size + " bytes.");
+        }
+        final MappedByteBuffer buffer = channel.map(mode, offset, size);
+        buffer.order(ORDER);
+        return buffer;
+    }
+
+    /**
+     * Maps a read-only section of {@code count} ints.
+     *
+     * @param channel The file channel.
+     * @param offset  The offset of the section.
+     * @param count   The number of ints.
+     *
+     * @return The mapped section.
+     *
+     * @throws IOException
+     */
+    private static IntBuffer mapInts(FileChannel channel,
+                                     long offset,
+                                     int count) throws IOException {
+        return mapSection(channel, FileChannel.MapMode.READ_ONLY,
+                          offset, 4L * count).asIntBuffer();
+    }
+
+    /**
+     * Writes the remaining ints of the given buffer at the given offset.
+     *
+     * @param channel The file channel.
+     * @param offset  The offset.
+     * @param ints    The ints to write.
+     *
+     * @return The offset just past the written ints.
+     *
+     * @throws IOException
+     */
+    private static long writeInts(FileChannel channel,
+                                  long offset,
+                                  IntBuffer ints) throws IOException {
+        final long size = 4L * ints.remaining();
+        mapSection(channel, FileChannel.MapMode.READ_WRITE, offset, size)
+                .asIntBuffer().put(ints);
+        return offset + size;
+    }
+}
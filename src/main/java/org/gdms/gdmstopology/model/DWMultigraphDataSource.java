@@ -92,6 +92,92 @@ public class DWMultigraphDataSource
         GDMSGraph.setWeightFieldIndex(fieldName);
     }
 
+    /**
+     * Loads an in-memory snapshot of the adjacency so that subsequent graph
+     * operations no longer query the index manager.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#loadSnapshot()
+     *
+     * @return The snapshot.
+     * @throws DriverException
+     */
+    public CSRGraph loadSnapshot() throws DriverException {
+        return GDMSGraph.loadSnapshot();
+    }
+
+    /**
+     * Sets the number of threads used to recover the vertex set.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#setThreadCount(int)
+     *
+     * @param threadCount The number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        GDMSGraph.setThreadCount(threadCount);
+    }
+
+    /**
+     * Visits the edges that start at a given vertex.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#visitOutgoingEdges(int,
+     * EdgeVisitor)
+     *
+     * @param vertex The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    @Override
+    public boolean visitOutgoingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return GDMSGraph.visitOutgoingEdges(vertex, visitor);
+    }
+
+    /**
+     * Visits the edges that start at a given vertex with their endpoints
+     * swapped, for the reversed view of this graph.
+     *
+     * @param vertex The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    boolean visitReversedOutgoingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return GDMSGraph.visitOutgoingEdges(vertex, visitor, true, false);
+    }
+
+    /**
+     * Visits the edges that end at a given vertex.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#visitIncomingEdges(int,
+     * EdgeVisitor)
+     *
+     * @param vertex The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    @Override
+    public boolean visitIncomingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return GDMSGraph.visitIncomingEdges(vertex, visitor);
+    }
+
+    /**
+     * Visits the edges that end at a given vertex with their endpoints
+     * swapped, for the reversed view of this graph.
+     *
+     * @param vertex The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    boolean visitReversedIncomingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return GDMSGraph.visitIncomingEdges(vertex, visitor, true, false);
+    }
+
     /**
      * Returns the {@link Set} of edges that end at a given vertex.
      *
@@ -339,4 +425,13 @@ public class DWMultigraphDataSource
     public long getRowCount() throws DriverException {
         return GDMSGraph.getRowCount();
     }
+
+    /**
+     * @see org.gdms.gdmstopology.model.GDMSGraph#getGraphEdge(long)
+     */
+    // Javadoc will be copied from the GDMSValueGraph interface.
+    @Override
+    public GraphEdge getGraphEdge(long rowId) throws DriverException {
+        return GDMSGraph.getGraphEdge(rowId);
+    }
 }
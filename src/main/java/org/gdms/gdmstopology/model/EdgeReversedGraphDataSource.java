@@ -103,4 +103,50 @@ public class EdgeReversedGraphDataSource
     public long getRowCount() throws DriverException {
         return dWMultigraphDataSource.getRowCount();
     }
+
+    /**
+     * Returns the edge stored at a given row, oriented as in the data set
+     * rather than reversed.
+     *
+     * @see org.gdms.gdmstopology.model.DWMultigraphDataSource#getGraphEdge(long)
+     */
+    // Javadoc will be copied from the GDMSValueGraph interface.
+    @Override
+    public GraphEdge getGraphEdge(long rowId) throws DriverException {
+        return dWMultigraphDataSource.getGraphEdge(rowId);
+    }
+
+    /**
+     * Visits the edges that start at a given vertex in the reversed graph,
+     * that is, the edges that end at it in the original graph, with their
+     * endpoints swapped.
+     *
+     * @see
+     * org.gdms.gdmstopology.model.DWMultigraphDataSource#visitIncomingEdges(int,
+     * EdgeVisitor)
+     */
+    // Javadoc will be copied from the GDMSValueGraph interface.
+    @Override
+    public boolean visitOutgoingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return dWMultigraphDataSource.visitReversedIncomingEdges(
+                vertex, visitor);
+    }
+
+    /**
+     * Visits the edges that end at a given vertex in the reversed graph, that
+     * is, the edges that start at it in the original graph, with their
+     * endpoints swapped.
+     *
+     * @see
+     * org.gdms.gdmstopology.model.DWMultigraphDataSource#visitOutgoingEdges(int,
+     * EdgeVisitor)
+     */
+    // Javadoc will be copied from the GDMSValueGraph interface.
+    @Override
+    public boolean visitIncomingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return dWMultigraphDataSource.visitReversedOutgoingEdges(
+                vertex, visitor);
+    }
 }
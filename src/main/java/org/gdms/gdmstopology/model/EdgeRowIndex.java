@@ -0,0 +1,169 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.util.Arrays;
+import org.gdms.gdmstopology.utils.IntIntHashMap;
+
+/**
+ * Maps the edge ids of an edges table (the values of its {@code id} column)
+ * to the rows holding them, so that the geometries of the edges of a path or
+ * tree can be read by row id instead of querying an index on the id column
+ * for every edge.
+ *
+ * <p> Edge ids produced by {@code ST_Graph} are {@code 1..n}, so the map is
+ * usually a plain {@code int[]} indexed by the id minus the smallest id.
+ * Tables with sparse ids fall back to a primitive hash map.
+ *
+ * @author Adam Gouge
+ */
+public final class EdgeRowIndex {
+
+    /**
+     * Returned by {@link #getRow(int)} for an unknown edge id.
+     */
+    public static final int NO_ROW = -1;
+    /**
+     * Marks an edge id held by several rows.
+     */
+    private static final int DUPLICATE = -2;
+    /**
+     * The largest ratio of the id range to the number of edges for which a
+     * dense array is used.
+     */
+    private static final int MAX_SPARSITY = 4;
+    /**
+     * Smallest edge id.
+     */
+    private final int minId;
+    /**
+     * Row of each edge id minus {@link #minId}, or {@code null} if the ids
+     * are too sparse.
+     */
+    private final int[] edgeIdToRow;
+    /**
+     * Row of each edge id when the ids are too sparse for
+     * {@link #edgeIdToRow}.
+     */
+    private final IntIntHashMap rows;
+    /**
+     * Number of rows.
+     */
+    private final int size;
+
+    /**
+     * Constructs the index of the given edge ids.
+     *
+     * @param edgeIds The edge id of each row.
+     */
+    public EdgeRowIndex(int[] edgeIds) {
+        size = edgeIds.length;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int id : edgeIds) {
+            if (id < min) {
+                min = id;
+            }
+            if (id > max) {
+                max = id;
+            }
+        }
+        final long range = (long) max - min + 1;
+        if (size == 0 || range > (long) MAX_SPARSITY * size + 1024) {
+            minId = 0;
+            edgeIdToRow = null;
+            rows = new IntIntHashMap(size, NO_ROW);
+            for (int row = 0; row < size; row++) {
+                if (rows.putIfAbsent(edgeIds[row], row) != NO_ROW) {
+                    rows.put(edgeIds[row], DUPLICATE);
+                }
+            }
+        } else {
+            minId = min;
+            edgeIdToRow = new int[(int) range];
+            Arrays.fill(edgeIdToRow, NO_ROW);
+            rows = null;
+            for (int row = 0; row < size; row++) {
+                final int slot = edgeIds[row] - minId;
+                edgeIdToRow[slot] = edgeIdToRow[slot] == NO_ROW
+                        ? row
+                        : DUPLICATE;
+            }
+        }
+    }
+
+    /**
+     * Returns the row holding the given edge id.
+     *
+     * @param id The edge id.
+     *
+     * @return The row, or {@link #NO_ROW} if the id is unknown.
+     *
+     * @throws IllegalStateException If several rows hold the id.
+     */
+    public int getRow(int id) {
+        final int row;
+        if (edgeIdToRow != null) {
+            final long slot = (long) id - minId;
+            row = slot < 0 || slot >= edgeIdToRow.length
+                    ? NO_ROW
+                    : edgeIdToRow[(int) slot];
+        } else {
+            row = rows.get(id);
+        }
+        if (row == DUPLICATE) {
+            throw new IllegalStateException("Multiple edge ids: " + id);
+        }
+        return row;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the estimated memory used by this index.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public long getMemoryUsage() {
+        return edgeIdToRow != null
+                ? 4L * edgeIdToRow.length
+                : 16L * size;
+    }
+}
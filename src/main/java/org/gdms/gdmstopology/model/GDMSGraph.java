@@ -43,6 +43,7 @@ import org.gdms.data.values.Value;
 import org.gdms.data.values.ValueFactory;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
+import org.gdms.driver.memory.MemoryDataSetDriver;
 import org.jgrapht.EdgeFactory;
 import org.jgrapht.graph.AbstractGraph;
 import org.jgrapht.graph.ClassBasedEdgeFactory;
@@ -50,9 +51,18 @@ import org.orbisgis.progress.ProgressMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A (JGraphT) graph created from an existing data source.
@@ -60,6 +70,13 @@ import java.util.Set;
  * <b>Warning</b>: The input {@link DataSet} must respect the following metadata
  * format: {@code [start_node (INT), end_node (INT), weight (DOUBLE)]}.
  *
+ * <p> The graph may be edited (edges and vertices added or removed, edge
+ * weights overridden) without touching the data set: edits are kept in an
+ * in-memory overlay which all queries take into account, until
+ * {@link #clearEdits()} is called. The overlay is shared by all the graphs
+ * built on the same edges table, including the graphs prepared by the graph
+ * functions (see {@link GraphDelta}).
+ *
  * <p> October 10, 2012: Documentation updated by Adam Gouge.
  *
  * @author Erwan Bocher
@@ -86,10 +103,31 @@ public final class GDMSGraph
      */
     private static final Logger LOGGER =
             LoggerFactory.getLogger(GDMSGraph.class);
+    /**
+     * The number of rows from which the vertex set of an in-memory data set
+     * is recovered in parallel.
+     */
+    private static final long PARALLEL_SCAN_THRESHOLD = 100000;
+    /**
+     * The number of threads used to recover the vertex set.
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
     /**
      * Used to recover the set of vertices.
      */
-    private HashSet<Integer> vertexSet = null;
+    private VertexSet vertexSet = null;
+    /**
+     * An optional in-memory snapshot of the adjacency, used instead of index
+     * queries once loaded.
+     *
+     * @see #loadSnapshot()
+     */
+    private CSRGraph snapshot = null;
+    /**
+     * In-memory edits layered over the data set, shared with the other graphs
+     * of the same edges table.
+     */
+    private final GraphDelta delta;
     /**
      * Used to track the progress of the index initialization.
      */
@@ -131,6 +169,7 @@ public final class GDMSGraph
         this.dsf = dsf;
         this.pm = pm;
         edgesMetadata = dataSet.getMetadata();
+        delta = GraphDelta.of(dataSet);
         initIndex();
     }
 
@@ -244,6 +283,83 @@ public final class GDMSGraph
                     "The table must contains a field named " + fieldName);
         }
         this.WEIGHT_FIELD_INDEX = fieldIndex;
+        // The snapshot holds the weights, so it has to be rebuilt.
+        if (snapshot != null) {
+            loadSnapshot();
+        }
+    }
+
+    /**
+     * Sets the number of threads used to recover the vertex set. Defaults to
+     * the number of available processors.
+     *
+     * <p> Only in-memory data sets of at least
+     * {@link #PARALLEL_SCAN_THRESHOLD} rows are scanned in parallel; other
+     * data sets are read by a single thread in row order. The vertex set does
+     * not depend on the number of threads.
+     *
+     * @param threadCount The number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be positive.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Loads an immutable {@link CSRGraph} snapshot of the data set in one
+     * sequential scan. Once loaded, the adjacency queries of this graph
+     * ({@link #outgoingEdgesOf(Integer)}, {@link #incomingEdgesOf(Integer)},
+     * {@link #edgesOf(Integer)}, the degree and containment queries and
+     * {@link #vertexSet()}) are answered from memory instead of from the
+     * index manager.
+     *
+     * <p> The snapshot is not updated if the data set changes; call this
+     * method again to refresh it. If no weight field has been set, all
+     * snapshot edges have weight 1. Snapshot edge ids are the row ids.
+     *
+     * @return The snapshot.
+     *
+     * @throws DriverException
+     */
+    public CSRGraph loadSnapshot() throws DriverException {
+        final long rowCount = dataSet.getRowCount();
+        if (rowCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                    "Too many edges to load a snapshot: " + rowCount);
+        }
+        final CSRGraph.Builder builder = new CSRGraph.Builder((int) rowCount);
+        for (long i = 0; i < rowCount; i++) {
+            builder.addArc(getSourceVertex(i),
+                           getTargetVertex(i),
+                           (int) i,
+                           WEIGHT_FIELD_INDEX == -1 ? 1 : getWeightVertex(i),
+                           i);
+        }
+        snapshot = builder.build();
+        vertexSet = null;
+        return snapshot;
+    }
+
+    /**
+     * Releases the snapshot, if any, so that adjacency queries go back to the
+     * index manager.
+     */
+    public void releaseSnapshot() {
+        snapshot = null;
+        vertexSet = null;
+    }
+
+    /**
+     * Returns the snapshot loaded by {@link #loadSnapshot()}, or {@code null}
+     * if none is loaded.
+     *
+     * @return The snapshot or {@code null}.
+     */
+    public CSRGraph getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -295,6 +411,10 @@ public final class GDMSGraph
      * if such edges exist; otherwise returns
      * {@link java.util.Collections.EMPTY_SET}.
      *
+     * <p> Edits made through {@link #addEdge(Integer, Integer)},
+     * {@link #removeEdge(GraphEdge)}, {@link #setEdgeWeight(GraphEdge, double)}
+     * and the other mutators are taken into account.
+     *
      * @param startVertex The start vertex.
      * @param endVertex   The end vertex.
      *
@@ -306,6 +426,42 @@ public final class GDMSGraph
     public Set<GraphEdge> getAllEdges(
             Integer startVertex,
             Integer endVertex) {
+        if (hasDelta()) {
+            final HashSet<GraphEdge> edges = new HashSet<GraphEdge>();
+            for (GraphEdge edge : baseAllEdges(startVertex, endVertex)) {
+                addWithDelta(edges, edge);
+            }
+            for (GraphEdge edge : delta.addedOutgoing(startVertex)) {
+                if (edge.getTarget().equals(endVertex)) {
+                    addWithDelta(edges, edge);
+                }
+            }
+            return edges;
+        }
+        return baseAllEdges(startVertex, endVertex);
+    }
+
+    /**
+     * Returns the edges of the data set from a given start vertex to a given
+     * end vertex, ignoring the edits.
+     */
+    private Set<GraphEdge> baseAllEdges(
+            Integer startVertex,
+            Integer endVertex) {
+        if (snapshot != null) {
+            HashSet<GraphEdge> edges = new HashSet<GraphEdge>();
+            final int source = snapshot.indexOf(startVertex);
+            final int target = snapshot.indexOf(endVertex);
+            if (source != -1 && target != -1) {
+                for (int arc = snapshot.outArcsBegin(source);
+                        arc < snapshot.outArcsEnd(source); arc++) {
+                    if (snapshot.getArcTarget(arc) == target) {
+                        edges.add(snapshotEdge(arc));
+                    }
+                }
+            }
+            return edges;
+        }
         try {
             // Initialize a set to hold the edges.
             HashSet<GraphEdge> edges = new HashSet<GraphEdge>();
@@ -342,6 +498,15 @@ public final class GDMSGraph
      */
     @Override
     public GraphEdge getEdge(Integer startVertex, Integer endVertex) {
+        if (hasDelta()) {
+            final Iterator<GraphEdge> edges =
+                    getAllEdges(startVertex, endVertex).iterator();
+            return edges.hasNext() ? edges.next() : null;
+        }
+        if (snapshot != null) {
+            final int arc = findSnapshotArc(startVertex, endVertex);
+            return arc == -1 ? null : snapshotEdge(arc);
+        }
         try {
             Iterator<Integer> queryResult =
                     getMultiIndexIterator(startVertex, endVertex);
@@ -369,47 +534,172 @@ public final class GDMSGraph
     }
 
     /**
-     * Adds an edge from a given start vertex to a given end vertex (NOT YET
-     * SUPPORTED!).
+     * Adds an edge of weight 1 from a given start vertex to a given end
+     * vertex. The data set is not modified.
      *
      * @param startVertex The start vertex.
      * @param endVertex   The end vertex.
      *
      * @return The newly added GraphEdge.
+     *
+     * @see #addEdge(int, int, double)
      */
-    // TODO: Implement this.
     @Override
     public GraphEdge addEdge(Integer startVertex, Integer endVertex) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return addEdge(startVertex, endVertex, 1.0);
+    }
+
+    /**
+     * Adds an edge with the given weight from a given start vertex to a given
+     * end vertex, adding the vertices if necessary. The data set is not
+     * modified: the edge is kept in memory and gets a row id past the last
+     * row of the data set, which has no geometry nor values.
+     *
+     * @param startVertex The start vertex.
+     * @param endVertex   The end vertex.
+     * @param weight      The weight.
+     *
+     * @return The newly added GraphEdge.
+     */
+    public GraphEdge addEdge(int startVertex, int endVertex, double weight) {
+        final GraphEdge edge = delta.addEdge(startVertex, endVertex, weight);
+        touchVertex(startVertex);
+        touchVertex(endVertex);
+        return edge;
     }
 
     /**
      * Adds a given {@link GraphEdge} from a given start vertex to a given end
-     * vertex (NOT YET SUPPORTED!).
+     * vertex. An edge of the data set that was removed is restored; any other
+     * edge not already in the graph is added as by
+     * {@link #addEdge(int, int, double)} with the weight of the given edge.
      *
      * @param startVertex The start vertex.
      * @param endVertex   The end vertex.
      * @param e           The GraphEdge to add.
      *
      * @return True if the edge was successfully added.
+     *
+     * @throws IllegalArgumentException If the edge does not go from the start
+     *                                  vertex to the end vertex.
      */
-    // TODO: Implement this.
     @Override
     public boolean addEdge(Integer startVertex, Integer endVertex, GraphEdge e) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (!startVertex.equals(e.getSource())
+                || !endVertex.equals(e.getTarget())) {
+            throw new IllegalArgumentException(
+                    "The edge " + e + " does not go from " + startVertex
+                    + " to " + endVertex + ".");
+        }
+        final long rowId = e.getRowId();
+        if (isBaseRow(rowId)) {
+            if (!delta.restoreRow(rowId)) {
+                return false;
+            }
+        } else if (delta.isAdded(rowId)) {
+            return false;
+        } else {
+            delta.addEdge(startVertex, endVertex, e.getWeight());
+        }
+        touchVertex(startVertex);
+        touchVertex(endVertex);
+        return true;
     }
 
     /**
-     * Adds a vertex to the graph (NOT YET SUPPORTED!).
+     * Adds a vertex to the graph. The data set is not modified.
      *
      * @param vertex The vertex to add.
      *
      * @return {@code true} if the vertex was successfully added.
      */
-    // TODO: Implement this.
     @Override
     public boolean addVertex(Integer vertex) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (containsVertex(vertex)) {
+            return false;
+        }
+        delta.addVertex(vertex, baseContainsVertex(vertex));
+        return true;
+    }
+
+    /**
+     * Overrides the weight of the given edge. The data set is not modified.
+     *
+     * @param graphEdge The edge.
+     * @param weight    The new weight.
+     */
+    public void setEdgeWeight(GraphEdge graphEdge, double weight) {
+        delta.setWeight(graphEdge.getRowId(), weight);
+    }
+
+    /**
+     * Returns {@code true} if edges or vertices were added or removed, or
+     * weights overridden, through this graph or another graph of the same
+     * edges table, since the edits were last cleared.
+     *
+     * @return {@code true} if the graph was edited.
+     */
+    public boolean isEdited() {
+        return hasDelta();
+    }
+
+    /**
+     * Discards all edits, so that the graph (and every other graph of the
+     * same edges table) reflects the data set again.
+     */
+    public void clearEdits() {
+        delta.clear();
+    }
+
+    /**
+     * Returns {@code true} if there are edits to take into account.
+     *
+     * @return {@code true} if there are edits to take into account.
+     */
+    private boolean hasDelta() {
+        return !delta.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if the given row id is a row of the data set.
+     *
+     * @param rowId The row id.
+     *
+     * @return {@code true} if the given row id is a row of the data set.
+     */
+    private boolean isBaseRow(long rowId) {
+        try {
+            return rowId >= 0 && rowId < dataSet.getRowCount();
+        } catch (DriverException ex) {
+            throw new IllegalStateException(
+                    "Cannot count the rows of the data set.", ex);
+        }
+    }
+
+    /**
+     * Makes sure the given vertex, the endpoint of an added or restored edge,
+     * is in the graph.
+     *
+     * @param vertex The vertex.
+     */
+    private void touchVertex(int vertex) {
+        if (!containsVertex(vertex)) {
+            delta.addVertex(vertex, baseContainsVertex(vertex));
+        }
+    }
+
+    /**
+     * Adds the edited version of the given edge to the given set, unless the
+     * edge was removed.
+     *
+     * @param edges The set.
+     * @param edge  The edge.
+     */
+    private void addWithDelta(Set<GraphEdge> edges, GraphEdge edge) {
+        final GraphEdge edited = delta.apply(edge);
+        if (edited != null) {
+            edges.add(edited);
+        }
     }
 
     /**
@@ -424,6 +714,12 @@ public final class GDMSGraph
      */
     @Override
     public boolean containsEdge(Integer startVertex, Integer endVertex) {
+        if (hasDelta()) {
+            return !getAllEdges(startVertex, endVertex).isEmpty();
+        }
+        if (snapshot != null) {
+            return findSnapshotArc(startVertex, endVertex) != -1;
+        }
         try {
             return getMultiIndexIterator(startVertex, endVertex).hasNext();
         } catch (DriverException ex) {
@@ -449,6 +745,10 @@ public final class GDMSGraph
     /**
      * Returns {@code true} if the data set contains a given vertex.
      *
+     * <p> Edits made through {@link #addEdge(Integer, Integer)},
+     * {@link #removeEdge(GraphEdge)}, {@link #setEdgeWeight(GraphEdge, double)}
+     * and the other mutators are taken into account.
+     *
      * @param vertex The vertex.
      *
      * @return {@code true} if and only if the vertex is contained in the data
@@ -456,6 +756,29 @@ public final class GDMSGraph
      */
     @Override
     public boolean containsVertex(Integer vertex) {
+        if (hasDelta()) {
+            if (delta.isVertexAdded(vertex)) {
+                return true;
+            }
+            if (delta.isVertexRemoved(vertex)) {
+                return false;
+            }
+        }
+        return baseContainsVertex(vertex);
+    }
+
+    /**
+     * Returns {@code true} if the data set contains a given vertex, ignoring
+     * the edits.
+     */
+    private boolean baseContainsVertex(Integer vertex) {
+        if (snapshot != null) {
+            return snapshot.containsVertex(vertex);
+        }
+        // Use the vertex set if it was already recovered.
+        if (vertexSet != null) {
+            return vertexSet.containsId(vertex);
+        }
         try {
             // Check in the start node column.
             Iterator<Integer> queryResult = getIndexIterator(
@@ -494,6 +817,10 @@ public final class GDMSGraph
      * Returns the {@link Set} of all edges touching the specified vertex, or
      * the empty set if no edges touch the vertex.
      *
+     * <p> Edits made through {@link #addEdge(Integer, Integer)},
+     * {@link #removeEdge(GraphEdge)}, {@link #setEdgeWeight(GraphEdge, double)}
+     * and the other mutators are taken into account.
+     *
      * @param vertex The vertex to be examined.
      *
      * @return The edges touching this vertex, or the empty set if no edges
@@ -501,8 +828,43 @@ public final class GDMSGraph
      */
     @Override
     public Set<GraphEdge> edgesOf(Integer vertex) {
+        if (hasDelta()) {
+            final HashSet<GraphEdge> edges = new HashSet<GraphEdge>();
+            for (GraphEdge edge : baseEdgesOf(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            for (GraphEdge edge : delta.addedOutgoing(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            for (GraphEdge edge : delta.addedIncoming(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            return edges;
+        }
+        return baseEdgesOf(vertex);
+    }
+
+    /**
+     * Returns the edges of the data set touching a given vertex, ignoring the
+     * edits.
+     */
+    private Set<GraphEdge> baseEdgesOf(Integer vertex) {
         // Create an empty set to store the edges.
         HashSet<GraphEdge> edgesOf = new HashSet<GraphEdge>();
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            if (v != -1) {
+                for (int arc = snapshot.outArcsBegin(v);
+                        arc < snapshot.outArcsEnd(v); arc++) {
+                    edgesOf.add(snapshotEdge(arc));
+                }
+                for (int i = snapshot.inArcsBegin(v);
+                        i < snapshot.inArcsEnd(v); i++) {
+                    edgesOf.add(snapshotEdge(snapshot.getInArc(i)));
+                }
+            }
+            return edgesOf;
+        }
         try {
             // Recover the edges that start at the given vertex.
             for (Iterator<Integer> queryResult = getIndexIterator(
@@ -544,38 +906,46 @@ public final class GDMSGraph
 
     /**
      * Removes an edge beginning at a given start vertex and ending at a given
-     * end vertex (NOT YET SUPPORTED!).
+     * end vertex. The data set is not modified.
      *
      * @param startVertex The start vertex.
      * @param endVertex   The end vertex.
      *
-     * @return The GraphEdge that was removed.
+     * @return The GraphEdge that was removed, or {@code null} if there was no
+     *         such edge.
      */
-    // TODO: Implement this.
     @Override
     public GraphEdge removeEdge(
             Integer startVertex,
             Integer endVertex) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        final GraphEdge edge = getEdge(startVertex, endVertex);
+        if (edge != null) {
+            removeEdge(edge);
+        }
+        return edge;
     }
 
     /**
-     * Removes the specified edge from the graph (NOT YET SUPPORTED!).
+     * Removes the specified edge from the graph. Edges of the data set are
+     * tombstoned by row id; the data set is not modified.
      *
      * @param graphEdge The {@link GraphEdge} to be removed.
      *
      * @return {@code true} if and only if the graph contained the specified
      *         edge.
      */
-    // TODO: Implement this.
     @Override
     public boolean removeEdge(GraphEdge graphEdge) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        final long rowId = graphEdge.getRowId();
+        if (delta.isAdded(rowId)) {
+            return delta.removeAddedEdge(rowId);
+        }
+        return isBaseRow(rowId) && delta.removeRow(rowId);
     }
 
     /**
      * Removes the specified vertex from this graph as well as all the edges
-     * that touch it if it is present (NOT YET SUPPORTED!).
+     * that touch it if it is present. The data set is not modified.
      *
      * @param vertex The vertex to be removed.
      *
@@ -584,7 +954,14 @@ public final class GDMSGraph
      */
     @Override
     public boolean removeVertex(Integer vertex) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (!containsVertex(vertex)) {
+            return false;
+        }
+        for (GraphEdge edge : new ArrayList<GraphEdge>(edgesOf(vertex))) {
+            removeEdge(edge);
+        }
+        delta.removeVertex(vertex, baseContainsVertex(vertex));
+        return true;
     }
 
     /**
@@ -592,28 +969,47 @@ public final class GDMSGraph
      * recovers all source and target vertices into the vertex set and returns
      * the vertex set; if not, returns the vertex set directly.
      *
+     * <p> The vertex set is a {@link VertexSet}, which stores the ids in a
+     * primitive hash table. It is read from the snapshot if one is loaded,
+     * and otherwise by scanning the start and end node columns, in parallel
+     * over row ranges for large in-memory data sets.
+     *
+     * <p> Edits made through {@link #addEdge(Integer, Integer)},
+     * {@link #removeEdge(GraphEdge)}, {@link #setEdgeWeight(GraphEdge, double)}
+     * and the other mutators are taken into account.
+     *
      * @return The {@link Set} of vertices located in the data source.
      */
-    // Why does this method return Set<Integer> and not HashSet<Integer>?
     @Override
     public Set<Integer> vertexSet() {
+        if (!delta.getAddedVertices().isEmpty()
+                || !delta.getRemovedVertices().isEmpty()) {
+            return new EditedVertexSet(baseVertexSet(), delta);
+        }
+        return baseVertexSet();
+    }
+
+    /**
+     * Returns the vertices of the data set, ignoring the edits.
+     */
+    private Set<Integer> baseVertexSet() {
         // Make sure we haven't already done this calculation.
         if (vertexSet == null) {
-            // Initialize the vertex set.
-            vertexSet = new HashSet<Integer>();
-            try {
-                // Count the number of rows.
-                long rowCount = dataSet.getRowCount();
-                // For each row, add the source and target vertices to the set.
-                for (int i = 0; i < rowCount; i++) {
-                    Integer source = getSourceVertex(i);
-                    Integer dest = getTargetVertex(i);
-                    vertexSet.add(source);
-                    vertexSet.add(dest);
+            // The snapshot already knows its vertices.
+            if (snapshot != null) {
+                final int n = snapshot.getVertexCount();
+                final VertexSet vertices = new VertexSet(n);
+                for (int v = 0; v < n; v++) {
+                    vertices.addId(snapshot.getVertexId(v));
                 }
-                // Return the vertex set.
+                vertexSet = vertices;
                 return vertexSet;
+            }
+            try {
+                vertexSet = scanVertices();
             } catch (DriverException ex) {
+                LOGGER.error("Could not recover the vertex set.", ex);
+                return new VertexSet(0);
             }
         }
         // If the vertex set was not null, then we already calculated
@@ -621,6 +1017,80 @@ public final class GDMSGraph
         return vertexSet;
     }
 
+    /**
+     * Recovers all source and target vertices of the data set. The rows of an
+     * in-memory data set of at least {@link #PARALLEL_SCAN_THRESHOLD} rows
+     * are split into ranges scanned by parallel tasks; the partial sets are
+     * merged in row order, so the iteration order does not depend on
+     * scheduling. Other data sets are not known to support concurrent reads
+     * and are scanned sequentially.
+     *
+     * @return The vertex set.
+     *
+     * @throws DriverException
+     */
+    private VertexSet scanVertices() throws DriverException {
+        final long rowCount = dataSet.getRowCount();
+        final int threads = threadCount;
+        if (threads < 2 || rowCount < PARALLEL_SCAN_THRESHOLD
+                || !(dataSet instanceof MemoryDataSetDriver)) {
+            return scanVertices(0, rowCount);
+        }
+        final long chunk = (rowCount + threads - 1) / threads;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<VertexSet>> parts =
+                    new ArrayList<Future<VertexSet>>(threads);
+            for (long from = 0; from < rowCount; from += chunk) {
+                final long start = from;
+                final long end = Math.min(from + chunk, rowCount);
+                parts.add(executor.submit(new Callable<VertexSet>() {
+                    @Override
+                    public VertexSet call() throws DriverException {
+                        return scanVertices(start, end);
+                    }
+                }));
+            }
+            final VertexSet vertices = new VertexSet(
+                    (int) Math.min(rowCount, Integer.MAX_VALUE));
+            for (Future<VertexSet> part : parts) {
+                vertices.addIds(part.get());
+            }
+            return vertices;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DriverException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof DriverException) {
+                throw (DriverException) ex.getCause();
+            }
+            throw new DriverException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Recovers the source and target vertices of the rows {@code from}
+     * (inclusive) to {@code to} (exclusive).
+     *
+     * @param from The first row.
+     * @param to   One past the last row.
+     *
+     * @return The vertex set of these rows.
+     *
+     * @throws DriverException
+     */
+    private VertexSet scanVertices(long from, long to) throws DriverException {
+        final VertexSet vertices = new VertexSet(
+                (int) Math.min(to - from, Integer.MAX_VALUE));
+        for (long i = from; i < to; i++) {
+            vertices.addId(getSourceVertex(i));
+            vertices.addId(getTargetVertex(i));
+        }
+        return vertices;
+    }
+
     /**
      * Returns the source vertex of a given {@link GraphEdge}.
      *
@@ -660,17 +1130,53 @@ public final class GDMSGraph
      */
     @Override
     public double getEdgeWeight(GraphEdge graphEdge) {
-        return graphEdge.getWeight();
+        return hasDelta()
+                ? delta.getWeight(graphEdge.getRowId(), graphEdge.getWeight())
+                : graphEdge.getWeight();
     }
 
     /**
      * Returns the {@link Set} of edges that end at a given vertex.
      *
+     * <p> Edits made through {@link #addEdge(Integer, Integer)},
+     * {@link #removeEdge(GraphEdge)}, {@link #setEdgeWeight(GraphEdge, double)}
+     * and the other mutators are taken into account.
+     *
      * @param vertex The vertex.
      *
      * @return The set of incoming edges.
      */
     public Set<GraphEdge> incomingEdgesOf(Integer vertex) {
+        if (hasDelta()) {
+            final HashSet<GraphEdge> edges = new HashSet<GraphEdge>();
+            for (GraphEdge edge : baseIncomingEdgesOf(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            for (GraphEdge edge : delta.addedIncoming(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            return edges;
+        }
+        return baseIncomingEdgesOf(vertex);
+    }
+
+    /**
+     * Returns the edges of the data set that end at a given vertex, ignoring
+     * the edits.
+     */
+    private Set<GraphEdge> baseIncomingEdgesOf(Integer vertex) {
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            if (v != -1 && snapshot.getInDegree(v) > 0) {
+                HashSet<GraphEdge> incomingEdges = new HashSet<GraphEdge>();
+                for (int i = snapshot.inArcsBegin(v);
+                        i < snapshot.inArcsEnd(v); i++) {
+                    incomingEdges.add(snapshotEdge(snapshot.getInArc(i)));
+                }
+                return incomingEdges;
+            }
+            return java.util.Collections.EMPTY_SET;
+        }
         try {
             // Get an index iterator on the edges that end at
             // the given vertex.
@@ -707,11 +1213,45 @@ public final class GDMSGraph
     /**
      * Returns the {@link Set} of edges that start at a given vertex.
      *
+     * <p> Edits made through {@link #addEdge(Integer, Integer)},
+     * {@link #removeEdge(GraphEdge)}, {@link #setEdgeWeight(GraphEdge, double)}
+     * and the other mutators are taken into account.
+     *
      * @param vertex The vertex.
      *
      * @return The set of outgoing edges.
      */
     public Set<GraphEdge> outgoingEdgesOf(Integer vertex) {
+        if (hasDelta()) {
+            final HashSet<GraphEdge> edges = new HashSet<GraphEdge>();
+            for (GraphEdge edge : baseOutgoingEdgesOf(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            for (GraphEdge edge : delta.addedOutgoing(vertex)) {
+                addWithDelta(edges, edge);
+            }
+            return edges;
+        }
+        return baseOutgoingEdgesOf(vertex);
+    }
+
+    /**
+     * Returns the edges of the data set that start at a given vertex,
+     * ignoring the edits.
+     */
+    private Set<GraphEdge> baseOutgoingEdgesOf(Integer vertex) {
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            if (v != -1 && snapshot.getOutDegree(v) > 0) {
+                HashSet<GraphEdge> outgoingEdges = new HashSet<GraphEdge>();
+                for (int arc = snapshot.outArcsBegin(v);
+                        arc < snapshot.outArcsEnd(v); arc++) {
+                    outgoingEdges.add(snapshotEdge(arc));
+                }
+                return outgoingEdges;
+            }
+            return java.util.Collections.EMPTY_SET;
+        }
         try {
             // Get an index iterator on the edges that start at
             // the given vertex.
@@ -744,6 +1284,215 @@ public final class GDMSGraph
         return java.util.Collections.EMPTY_SET;
     }
 
+    /**
+     * Calls the given visitor once for each edge that starts at the given
+     * vertex, in the order of {@link #outgoingEdgesOf(Integer)}, without
+     * building any {@link GraphEdge}.
+     *
+     * @param vertex  The vertex.
+     * @param visitor The visitor.
+     *
+     * @return {@code false} if the visitor stopped the enumeration.
+     *
+     * @throws DriverException
+     */
+    @Override
+    public boolean visitOutgoingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return visitOutgoingEdges(vertex, visitor, false, false);
+    }
+
+    /**
+     * Calls the given visitor once for each edge that starts at the given
+     * vertex, possibly with its endpoints swapped. This lets the views of this
+     * graph (reversed or undirected) reuse the visitor of the caller instead
+     * of wrapping it.
+     *
+     * @param vertex    The vertex.
+     * @param visitor   The visitor.
+     * @param swapped   {@code true} to pass the target of each edge as its
+     *                  source and conversely.
+     * @param skipLoops {@code true} to skip the edges ending where they start.
+     *
+     * @return {@code false} if the visitor stopped the enumeration.
+     *
+     * @throws DriverException
+     */
+    boolean visitOutgoingEdges(int vertex, EdgeVisitor visitor,
+                               boolean swapped, boolean skipLoops)
+            throws DriverException {
+        final GraphDelta edits = hasDelta() ? delta : null;
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            if (v != -1) {
+                final int end = snapshot.outArcsEnd(v);
+                for (int arc = snapshot.outArcsBegin(v); arc < end; arc++) {
+                    final int target =
+                            snapshot.getVertexId(snapshot.getArcTarget(arc));
+                    if (skipLoops && target == vertex) {
+                        continue;
+                    }
+                    if (!visit(visitor, swapped, edits, vertex, target,
+                               snapshot.getArcWeight(arc),
+                               snapshot.getArcRow(arc))) {
+                        return false;
+                    }
+                }
+            }
+        } else {
+            for (Iterator<Integer> queryResult = getIndexIterator(
+                    GraphSchema.START_NODE,
+                    vertex);
+                    queryResult.hasNext();) {
+                final int rowId = queryResult.next();
+                final int target = getTargetVertex(rowId);
+                if (skipLoops && target == vertex) {
+                    continue;
+                }
+                if (!visit(visitor, swapped, edits, vertex, target,
+                           getWeightVertex(rowId), rowId)) {
+                    return false;
+                }
+            }
+        }
+        return edits == null || visitAdded(edits.addedOutgoing(vertex),
+                                           visitor, swapped, edits, skipLoops);
+    }
+
+    /**
+     * Calls the given visitor once for each edge that ends at the given
+     * vertex, in the order of {@link #incomingEdgesOf(Integer)}, without
+     * building any {@link GraphEdge}.
+     *
+     * @param vertex  The vertex.
+     * @param visitor The visitor.
+     *
+     * @return {@code false} if the visitor stopped the enumeration.
+     *
+     * @throws DriverException
+     */
+    @Override
+    public boolean visitIncomingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        return visitIncomingEdges(vertex, visitor, false, false);
+    }
+
+    /**
+     * Calls the given visitor once for each edge that ends at the given
+     * vertex, possibly with its endpoints swapped.
+     *
+     * @param vertex    The vertex.
+     * @param visitor   The visitor.
+     * @param swapped   {@code true} to pass the target of each edge as its
+     *                  source and conversely.
+     * @param skipLoops {@code true} to skip the edges ending where they start.
+     *
+     * @return {@code false} if the visitor stopped the enumeration.
+     *
+     * @throws DriverException
+     *
+     * @see #visitOutgoingEdges(int, EdgeVisitor, boolean, boolean)
+     */
+    boolean visitIncomingEdges(int vertex, EdgeVisitor visitor,
+                               boolean swapped, boolean skipLoops)
+            throws DriverException {
+        final GraphDelta edits = hasDelta() ? delta : null;
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            if (v != -1) {
+                final int end = snapshot.inArcsEnd(v);
+                for (int i = snapshot.inArcsBegin(v); i < end; i++) {
+                    final int arc = snapshot.getInArc(i);
+                    final int source =
+                            snapshot.getVertexId(snapshot.getArcSource(arc));
+                    if (skipLoops && source == vertex) {
+                        continue;
+                    }
+                    if (!visit(visitor, swapped, edits, source, vertex,
+                               snapshot.getArcWeight(arc),
+                               snapshot.getArcRow(arc))) {
+                        return false;
+                    }
+                }
+            }
+        } else {
+            for (Iterator<Integer> queryResult = getIndexIterator(
+                    GraphSchema.END_NODE,
+                    vertex);
+                    queryResult.hasNext();) {
+                final int rowId = queryResult.next();
+                final int source = getSourceVertex(rowId);
+                if (skipLoops && source == vertex) {
+                    continue;
+                }
+                if (!visit(visitor, swapped, edits, source, vertex,
+                           getWeightVertex(rowId), rowId)) {
+                    return false;
+                }
+            }
+        }
+        return edits == null || visitAdded(edits.addedIncoming(vertex),
+                                           visitor, swapped, edits, skipLoops);
+    }
+
+    /**
+     * Passes an edge of the data set to a visitor, with its endpoints swapped
+     * if requested, unless the edits removed it.
+     *
+     * @param visitor The visitor.
+     * @param swapped {@code true} to swap the endpoints.
+     * @param edits   The edits, or {@code null}.
+     * @param source  The source vertex.
+     * @param target  The target vertex.
+     * @param weight  The weight in the data set.
+     * @param rowId   The row id.
+     *
+     * @return The answer of the visitor, {@code true} for a removed edge.
+     */
+    private static boolean visit(EdgeVisitor visitor, boolean swapped,
+                                 GraphDelta edits,
+                                 int source, int target, double weight,
+                                 long rowId) {
+        if (edits != null) {
+            if (edits.isRemoved(rowId)) {
+                return true;
+            }
+            weight = edits.getWeight(rowId, weight);
+        }
+        return swapped
+                ? visitor.visit(target, source, weight, rowId)
+                : visitor.visit(source, target, weight, rowId);
+    }
+
+    /**
+     * Passes added edges to a visitor, with their endpoints swapped if
+     * requested.
+     *
+     * @param edges     The added edges.
+     * @param visitor   The visitor.
+     * @param swapped   {@code true} to swap the endpoints.
+     * @param edits     The edits, which may override their weights.
+     * @param skipLoops {@code true} to skip the edges ending where they start.
+     *
+     * @return {@code false} if the visitor stopped the enumeration.
+     */
+    private static boolean visitAdded(List<GraphEdge> edges,
+                                      EdgeVisitor visitor,
+                                      boolean swapped, GraphDelta edits,
+                                      boolean skipLoops) {
+        for (int i = 0; i < edges.size(); i++) {
+            final GraphEdge edge = edges.get(i);
+            if (skipLoops && edge.getSource() == edge.getTarget()) {
+                continue;
+            }
+            if (!visit(visitor, swapped, edits, edge.getSource(),
+                       edge.getTarget(), edge.getWeight(), edge.getRowId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns an {@link Iterator} on the indices of all values of a given
      * field.
@@ -843,6 +1592,45 @@ public final class GDMSGraph
                 WEIGHT_FIELD_INDEX);
     }
 
+    /**
+     * Returns a new {@link GraphEdge} corresponding to the given arc of the
+     * snapshot.
+     *
+     * @param arc The arc.
+     *
+     * @return The new {@link GraphEdge}.
+     */
+    private GraphEdge snapshotEdge(int arc) {
+        return new GraphEdge(
+                snapshot.getVertexId(snapshot.getArcSource(arc)),
+                snapshot.getVertexId(snapshot.getArcTarget(arc)),
+                snapshot.getArcWeight(arc),
+                snapshot.getArcRow(arc));
+    }
+
+    /**
+     * Returns the first arc of the snapshot from the given start vertex to
+     * the given end vertex, or {@code -1} if there is none.
+     *
+     * @param startVertex The start vertex.
+     * @param endVertex   The end vertex.
+     *
+     * @return The arc or {@code -1}.
+     */
+    private int findSnapshotArc(int startVertex, int endVertex) {
+        final int source = snapshot.indexOf(startVertex);
+        final int target = snapshot.indexOf(endVertex);
+        if (source != -1 && target != -1) {
+            for (int arc = snapshot.outArcsBegin(source);
+                    arc < snapshot.outArcsEnd(source); arc++) {
+                if (snapshot.getArcTarget(arc) == target) {
+                    return arc;
+                }
+            }
+        }
+        return -1;
+    }
+
     /**
      * Returns the indegree of a vertex (the number of head endpoints adjacent
      * to the vertex).
@@ -852,6 +1640,13 @@ public final class GDMSGraph
      * @return The indegree of the vertex.
      */
     public int inDegreeOf(Integer vertex) {
+        if (hasDelta()) {
+            return incomingEdgesOf(vertex).size();
+        }
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            return v == -1 ? 0 : snapshot.getInDegree(v);
+        }
         try {
             int counter = 0;
             for (Iterator<Integer> queryResult = getIndexIterator(
@@ -876,6 +1671,13 @@ public final class GDMSGraph
      * @return The outdegree of the vertex.
      */
     public int outDegreeOf(Integer vertex) {
+        if (hasDelta()) {
+            return outgoingEdgesOf(vertex).size();
+        }
+        if (snapshot != null) {
+            final int v = snapshot.indexOf(vertex);
+            return v == -1 ? 0 : snapshot.getOutDegree(v);
+        }
         try {
             int counter = 0;
             for (Iterator<Integer> queryResult = getIndexIterator(
@@ -923,7 +1725,8 @@ public final class GDMSGraph
 
     /**
      * Creates a new {@link GraphEdge} based on the values stored in the input
-     * dataset at the given index.
+     * dataset at the given index, or returns the added edge with this row id.
+     * Weight overrides apply.
      *
      * @param index The index value.
      *
@@ -931,11 +1734,104 @@ public final class GDMSGraph
      *
      * @throws DriverException
      */
+    @Override
     public GraphEdge getGraphEdge(long index) throws DriverException {
+        if (hasDelta()) {
+            final GraphEdge added = delta.getAddedEdge(index);
+            final GraphEdge edge = added != null ? added : new GraphEdge(
+                    getSourceVertex(index),
+                    getTargetVertex(index),
+                    getWeightVertex(index),
+                    index);
+            return new GraphEdge(edge.getSource(), edge.getTarget(),
+                                 delta.getWeight(index, edge.getWeight()),
+                                 index);
+        }
         return new GraphEdge(
                 getSourceVertex(index),
                 getTargetVertex(index),
                 getWeightVertex(index),
                 index);
     }
-}
\ No newline at end of file
+
+    /**
+     * A view of the vertex set of the data set with the added vertices and
+     * without the removed ones.
+     */
+    private static final class EditedVertexSet extends AbstractSet<Integer> {
+
+        /**
+         * The vertices of the data set.
+         */
+        private final Set<Integer> base;
+        /**
+         * The edits.
+         */
+        private final GraphDelta edits;
+
+        EditedVertexSet(Set<Integer> base, GraphDelta edits) {
+            this.base = base;
+            this.edits = edits;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Integer)) {
+                return false;
+            }
+            final Integer vertex = (Integer) o;
+            return edits.isVertexAdded(vertex)
+                    || (!edits.isVertexRemoved(vertex)
+                        && base.contains(vertex));
+        }
+
+        @Override
+        public int size() {
+            return base.size() - edits.getRemovedVertices().size()
+                    + edits.getAddedVertices().size();
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            final Iterator<Integer> baseVertices = base.iterator();
+            final Iterator<Integer> addedVertices =
+                    edits.getAddedVertices().iterator();
+            return new Iterator<Integer>() {
+                private Integer next = advance();
+
+                private Integer advance() {
+                    while (baseVertices.hasNext()) {
+                        final Integer vertex = baseVertices.next();
+                        if (!edits.isVertexRemoved(vertex)) {
+                            return vertex;
+                        }
+                    }
+                    return addedVertices.hasNext()
+                            ? addedVertices.next()
+                            : null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    final Integer vertex = next;
+                    next = advance();
+                    return vertex;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException(
+                            "Use GDMSGraph.removeVertex instead.");
+                }
+            };
+        }
+    }
+}
@@ -80,4 +80,39 @@ public interface GDMSValueGraph<V extends Integer, E extends GraphEdge> extends
      * @throws DriverException
      */
     long getRowCount() throws DriverException;
+
+    /**
+     * Returns the edge stored at a given row, oriented as in the data set.
+     *
+     * @param rowId The row id.
+     * @return The edge.
+     * @throws DriverException
+     */
+    GraphEdge getGraphEdge(long rowId) throws DriverException;
+
+    /**
+     * Calls the given visitor once for each edge leaving the given vertex,
+     * without building any {@link GraphEdge}. For an undirected graph, every
+     * edge touching the vertex is visited with the vertex as its source.
+     *
+     * @param vertex  The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    boolean visitOutgoingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException;
+
+    /**
+     * Calls the given visitor once for each edge entering the given vertex,
+     * without building any {@link GraphEdge}. For an undirected graph, every
+     * edge touching the vertex is visited with the vertex as its target.
+     *
+     * @param vertex  The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    boolean visitIncomingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException;
 }
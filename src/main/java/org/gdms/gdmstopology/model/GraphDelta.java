@@ -0,0 +1,517 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.gdms.data.DataSource;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DriverException;
+
+/**
+ * The in-memory edits made to a {@link GDMSGraph}: added edges, removed
+ * (tombstoned) rows, weight overrides and added or removed vertices. The
+ * underlying data set is never modified; the graph merges its answers with
+ * the delta, so an edit costs time proportional to the change rather than to
+ * the network.
+ *
+ * <p> Added edges get row ids starting at the row count of the data set, so
+ * they can be told apart from (and never collide with) the rows of the data
+ * set. Such row ids have no geometry nor values.
+ *
+ * <p> The vertex sets are kept so that {@code removedVertices} only contains
+ * vertices of the data set and {@code addedVertices} only vertices which are
+ * not in it.
+ *
+ * <p> There is one delta per edges table, shared by all the graphs built on
+ * it: a {@link DataSource} with a name is identified by its name, so the
+ * edits made through a {@link GDMSGraph} are seen by the graph functions
+ * called on the same table, and any other data set by the object itself,
+ * held weakly. The graph creators read the edits through {@link
+ * #getEdits(DataSet)} and the graph cache keys graphs on {@link
+ * #getVersion()}, so cached graphs are rebuilt once per version of the edits.
+ * Edits must not be made while graphs are prepared from the same table.
+ *
+ * @author Adam Gouge
+ */
+public final class GraphDelta {
+
+    /**
+     * Deltas of the named data sources, by name.
+     */
+    private static final Map<String, GraphDelta> BY_NAME =
+            new HashMap<String, GraphDelta>();
+    /**
+     * Deltas of the other data sets, held weakly.
+     */
+    private static final Map<DataSet, GraphDelta> BY_DATA_SET =
+            new WeakHashMap<DataSet, GraphDelta>();
+    /**
+     * The last version given to a delta.
+     */
+    private static long lastVersion = 0;
+    /**
+     * The row id of the next added edge.
+     */
+    private long nextRowId;
+    /**
+     * The version of the edits, changed by every edit.
+     */
+    private volatile long version = 0;
+    /**
+     * Added edges by row id, in row id order.
+     */
+    private final Map<Long, GraphEdge> addedEdges =
+            new LinkedHashMap<Long, GraphEdge>();
+    /**
+     * Added edges by source vertex.
+     */
+    private final Map<Integer, List<GraphEdge>> addedOut =
+            new HashMap<Integer, List<GraphEdge>>();
+    /**
+     * Added edges by target vertex.
+     */
+    private final Map<Integer, List<GraphEdge>> addedIn =
+            new HashMap<Integer, List<GraphEdge>>();
+    /**
+     * Removed rows of the data set.
+     */
+    private final Set<Long> removedRows = new HashSet<Long>();
+    /**
+     * Weight overrides by row id.
+     */
+    private final Map<Long, Double> weights = new HashMap<Long, Double>();
+    /**
+     * Vertices which are not in the data set.
+     */
+    private final Set<Integer> addedVertices = new HashSet<Integer>();
+    /**
+     * Vertices of the data set which were removed.
+     */
+    private final Set<Integer> removedVertices = new HashSet<Integer>();
+
+    /**
+     * Constructs an empty delta.
+     *
+     * @param firstRowId The row id of the first added edge (the row count of
+     *                   the data set).
+     */
+    GraphDelta(long firstRowId) {
+        this.nextRowId = firstRowId;
+    }
+
+    /**
+     * Returns the delta of the given edges table, creating an empty one if
+     * there is none.
+     *
+     * @param dataSet The edges table.
+     *
+     * @return The delta.
+     *
+     * @throws DriverException
+     */
+    static GraphDelta of(DataSet dataSet) throws DriverException {
+        final String name = getName(dataSet);
+        synchronized (BY_NAME) {
+            GraphDelta delta = name == null
+                    ? BY_DATA_SET.get(dataSet)
+                    : BY_NAME.get(name);
+            if (delta == null) {
+                delta = new GraphDelta(dataSet.getRowCount());
+                if (name == null) {
+                    BY_DATA_SET.put(dataSet, delta);
+                } else {
+                    BY_NAME.put(name, delta);
+                }
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * Returns the edits made to the given edges table.
+     *
+     * @param dataSet The edges table.
+     *
+     * @return The edits, or {@code null} if there are none.
+     */
+    public static GraphDelta getEdits(DataSet dataSet) {
+        final String name = getName(dataSet);
+        final GraphDelta delta;
+        synchronized (BY_NAME) {
+            delta = name == null ? BY_DATA_SET.get(dataSet) : BY_NAME.get(name);
+        }
+        return delta == null || delta.isEmpty() ? null : delta;
+    }
+
+    /**
+     * Returns the name identifying the given edges table.
+     *
+     * @param dataSet The edges table.
+     *
+     * @return Its name, or {@code null} if it is identified by itself.
+     */
+    private static String getName(DataSet dataSet) {
+        return dataSet instanceof DataSource
+                ? ((DataSource) dataSet).getName()
+                : null;
+    }
+
+    /**
+     * Returns {@code true} if no edit is recorded.
+     *
+     * @return {@code true} if no edit is recorded.
+     */
+    boolean isEmpty() {
+        return addedEdges.isEmpty() && removedRows.isEmpty()
+                && weights.isEmpty() && addedVertices.isEmpty()
+                && removedVertices.isEmpty();
+    }
+
+    /**
+     * Returns the version of the edits. Every edit gives a new version,
+     * never given to any other delta.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gives the edits a new version.
+     */
+    private void changed() {
+        synchronized (BY_NAME) {
+            version = ++lastVersion;
+        }
+    }
+
+    /**
+     * Discards all edits. Row ids of added edges are not reused.
+     */
+    void clear() {
+        if (!isEmpty()) {
+            addedEdges.clear();
+            addedOut.clear();
+            addedIn.clear();
+            removedRows.clear();
+            weights.clear();
+            addedVertices.clear();
+            removedVertices.clear();
+            changed();
+        }
+    }
+
+    /**
+     * Adds an edge with a new row id.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @param weight The weight.
+     *
+     * @return The new edge.
+     */
+    GraphEdge addEdge(int source, int target, double weight) {
+        final GraphEdge edge =
+                new GraphEdge(source, target, weight, nextRowId++);
+        addedEdges.put(edge.getRowId(), edge);
+        edgeList(addedOut, source).add(edge);
+        edgeList(addedIn, target).add(edge);
+        changed();
+        return edge;
+    }
+
+    /**
+     * Returns {@code true} if the given row id is that of an added edge.
+     *
+     * @param rowId The row id.
+     *
+     * @return {@code true} if the row id is that of an added edge.
+     */
+    public boolean isAdded(long rowId) {
+        return addedEdges.containsKey(rowId);
+    }
+
+    /**
+     * Returns the added edge with the given row id, with its own weight.
+     *
+     * @param rowId The row id.
+     *
+     * @return The edge, or {@code null} if no added edge has this row id.
+     */
+    GraphEdge getAddedEdge(long rowId) {
+        return addedEdges.get(rowId);
+    }
+
+    /**
+     * Removes the added edge with the given row id.
+     *
+     * @param rowId The row id.
+     *
+     * @return {@code true} if there was such an edge.
+     */
+    boolean removeAddedEdge(long rowId) {
+        final GraphEdge edge = addedEdges.remove(rowId);
+        if (edge == null) {
+            return false;
+        }
+        addedOut.get(edge.getSource()).remove(edge);
+        addedIn.get(edge.getTarget()).remove(edge);
+        weights.remove(rowId);
+        changed();
+        return true;
+    }
+
+    /**
+     * Tombstones the given row of the data set.
+     *
+     * @param rowId The row id.
+     *
+     * @return {@code true} if the row was not already removed.
+     */
+    boolean removeRow(long rowId) {
+        weights.remove(rowId);
+        if (!removedRows.add(rowId)) {
+            return false;
+        }
+        changed();
+        return true;
+    }
+
+    /**
+     * Restores a tombstoned row of the data set.
+     *
+     * @param rowId The row id.
+     *
+     * @return {@code true} if the row was removed.
+     */
+    boolean restoreRow(long rowId) {
+        if (!removedRows.remove(rowId)) {
+            return false;
+        }
+        changed();
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the given row of the data set was removed.
+     *
+     * @param rowId The row id.
+     *
+     * @return {@code true} if the row was removed.
+     */
+    public boolean isRemoved(long rowId) {
+        return removedRows.contains(rowId);
+    }
+
+    /**
+     * Overrides the weight of the edge with the given row id.
+     *
+     * @param rowId  The row id.
+     * @param weight The new weight.
+     */
+    void setWeight(long rowId, double weight) {
+        weights.put(rowId, weight);
+        changed();
+    }
+
+    /**
+     * Returns the weight of the edge with the given row id.
+     *
+     * @param rowId      The row id.
+     * @param baseWeight The weight stored in the data set.
+     *
+     * @return The overridden weight, or the base weight.
+     */
+    public double getWeight(long rowId, double baseWeight) {
+        final Double weight = weights.get(rowId);
+        return weight == null ? baseWeight : weight;
+    }
+
+    /**
+     * Applies the delta to an edge.
+     *
+     * @param edge The edge, as read from the data set or added.
+     *
+     * @return {@code null} if the edge was removed, an edge carrying the
+     *         overridden weight if there is one, or the edge itself.
+     */
+    public GraphEdge apply(GraphEdge edge) {
+        final long rowId = edge.getRowId();
+        if (removedRows.contains(rowId)) {
+            return null;
+        }
+        final Double weight = weights.get(rowId);
+        if (weight == null || weight == edge.getWeight()) {
+            return edge;
+        }
+        return new GraphEdge(edge.getSource(), edge.getTarget(),
+                             weight, rowId);
+    }
+
+    /**
+     * Returns the removed rows of the data set.
+     *
+     * @return The removed rows.
+     */
+    public Set<Long> getRemovedRows() {
+        return Collections.unmodifiableSet(removedRows);
+    }
+
+    /**
+     * Returns the weight overrides, by row id.
+     *
+     * @return The weight overrides.
+     */
+    public Map<Long, Double> getWeights() {
+        return Collections.unmodifiableMap(weights);
+    }
+
+    /**
+     * Returns the added edges, with their own weights, in row id order.
+     *
+     * @return The added edges.
+     */
+    public List<GraphEdge> getAddedEdges() {
+        return new ArrayList<GraphEdge>(addedEdges.values());
+    }
+
+    /**
+     * Returns the added edges leaving the given vertex.
+     *
+     * @param vertex The vertex.
+     *
+     * @return The added edges leaving the vertex.
+     */
+    List<GraphEdge> addedOutgoing(int vertex) {
+        final List<GraphEdge> edges = addedOut.get(vertex);
+        return edges == null ? Collections.<GraphEdge>emptyList() : edges;
+    }
+
+    /**
+     * Returns the added edges entering the given vertex.
+     *
+     * @param vertex The vertex.
+     *
+     * @return The added edges entering the vertex.
+     */
+    List<GraphEdge> addedIncoming(int vertex) {
+        final List<GraphEdge> edges = addedIn.get(vertex);
+        return edges == null ? Collections.<GraphEdge>emptyList() : edges;
+    }
+
+    /**
+     * Records that a vertex is in the graph.
+     *
+     * @param vertex The vertex.
+     * @param inBase {@code true} if the data set contains the vertex.
+     */
+    void addVertex(int vertex, boolean inBase) {
+        if (inBase ? removedVertices.remove(vertex) : addedVertices.add(vertex)) {
+            changed();
+        }
+    }
+
+    /**
+     * Records that a vertex is no longer in the graph.
+     *
+     * @param vertex The vertex.
+     * @param inBase {@code true} if the data set contains the vertex.
+     */
+    void removeVertex(int vertex, boolean inBase) {
+        if (inBase ? removedVertices.add(vertex) : addedVertices.remove(vertex)) {
+            changed();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given vertex was added.
+     *
+     * @param vertex The vertex.
+     *
+     * @return {@code true} if the vertex was added.
+     */
+    boolean isVertexAdded(int vertex) {
+        return addedVertices.contains(vertex);
+    }
+
+    /**
+     * Returns {@code true} if the given vertex of the data set was removed.
+     *
+     * @param vertex The vertex.
+     *
+     * @return {@code true} if the vertex was removed.
+     */
+    boolean isVertexRemoved(int vertex) {
+        return removedVertices.contains(vertex);
+    }
+
+    /**
+     * Returns the vertices which are not in the data set.
+     *
+     * @return The added vertices.
+     */
+    Set<Integer> getAddedVertices() {
+        return addedVertices;
+    }
+
+    /**
+     * Returns the vertices of the data set which were removed.
+     *
+     * @return The removed vertices.
+     */
+    Set<Integer> getRemovedVertices() {
+        return removedVertices;
+    }
+
+    /**
+     * Returns the list of edges of the given vertex, creating it if needed.
+     */
+    private static List<GraphEdge> edgeList(Map<Integer, List<GraphEdge>> map,
+                                            int vertex) {
+        List<GraphEdge> edges = map.get(vertex);
+        if (edges == null) {
+            edges = new ArrayList<GraphEdge>(2);
+            map.put(vertex, edges);
+        }
+        return edges;
+    }
+}
@@ -128,6 +128,40 @@ public final class GraphMetadataFactory {
         return md;
     }
 
+    /**
+     * Creates the metadata model used by
+     * {@link org.gdms.gdmstopology.function.ST_KShortestPaths}: the shortest
+     * path metadata followed by the rank of the path each edge belongs to.
+     *
+     * <p> Format: {@code [the_geom (CONSTRAINED GEOMETRY), ID (INT), PATH_ID
+     * (INT), START_NODE (INT), END_NODE (INT), WEIGHT (DOUBLE), PATH_RANK
+     * (INT)]}.
+     *
+     * @return The metadata model used by the k shortest paths function.
+     */
+    public static Metadata createEdgeMetadataKShortestPaths() {
+        Metadata md = new DefaultMetadata(
+                new Type[]{
+            TypeFactory.createType(Type.GEOMETRY,
+                    new Constraint[]{new GeometryDimensionConstraint(
+                            GeometryDimensionConstraint.DIMENSION_CURVE)}),
+                        TypeFactory.createType(Type.INT),
+                        TypeFactory.createType(Type.INT),
+                        TypeFactory.createType(Type.INT),
+                        TypeFactory.createType(Type.INT),
+                        TypeFactory.createType(Type.DOUBLE),
+                        TypeFactory.createType(Type.INT)},
+                new String[]{
+                        "the_geom",
+                        GraphSchema.ID,
+                        GraphSchema.PATH_ID,
+                        GraphSchema.START_NODE,
+                        GraphSchema.END_NODE,
+                        GraphSchema.WEIGHT,
+                        GraphSchema.PATH_RANK});
+        return md;
+    }
+
     /**
      * Creates the metadata model used by the distance functions
      * {@link org.gdms.gdmstopology.function.ST_ShortestPathLength} and
@@ -80,6 +80,10 @@ public final class GraphSchema {
      * Specifies the path id field.
      */
     public static final String PATH_ID = "path_id";
+    /**
+     * Specifies the path rank field (1 for the shortest path).
+     */
+    public static final String PATH_RANK = "path_rank";
     /**
      * Specifies the source node field.
      */
@@ -117,6 +121,30 @@ public final class GraphSchema {
      * Specifies betweenness centrality.
      */
     public static final String BETWEENNESS_CENTRALITY = "betweenness_centrality";
+    /**
+     * Specifies the estimated error of an approximate betweenness centrality.
+     */
+    public static final String BETWEENNESS_ERROR = "betweenness_error";
+    /**
+     * Specifies the number of nodes reachable, or within the search radius.
+     */
+    public static final String REACH = "reach";
+    /**
+     * Specifies harmonic closeness centrality.
+     */
+    public static final String HARMONIC_CLOSENESS = "harmonic_closeness";
+    /**
+     * Specifies straightness centrality.
+     */
+    public static final String STRAIGHTNESS = "straightness";
+    /**
+     * Specifies the gravity index.
+     */
+    public static final String GRAVITY = "gravity";
+    /**
+     * Specifies eccentricity.
+     */
+    public static final String ECCENTRICITY = "eccentricity";
     /**
      * Specifies graph analysis.
      */
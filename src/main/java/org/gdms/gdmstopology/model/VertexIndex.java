@@ -0,0 +1,146 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.util.Arrays;
+import org.gdms.gdmstopology.utils.IntIntHashMap;
+
+/**
+ * Maps external vertex ids (the values of the {@code start_node} and
+ * {@code end_node} columns) to a dense index space {@code 0..n-1}, in order of
+ * first appearance, and back.
+ *
+ * <p> The forward direction uses a primitive open-addressing hash map and the
+ * reverse direction a plain {@code int[]}, so no {@link Integer} is allocated
+ * per vertex. Algorithms can then store per-vertex data in arrays indexed by
+ * the dense index and translate back to ids only when writing results.
+ *
+ * @author Adam Gouge
+ */
+public final class VertexIndex {
+
+    /**
+     * Id to dense index.
+     */
+    private final IntIntHashMap indices;
+    /**
+     * Dense index to id (grows as needed).
+     */
+    private int[] ids;
+
+    /**
+     * Constructs an empty vertex index.
+     *
+     * @param expectedSize The expected number of vertices.
+     */
+    public VertexIndex(int expectedSize) {
+        indices = new IntIntHashMap(expectedSize, -1);
+        ids = new int[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * Returns the dense index of the given vertex id, assigning the next
+     * index if the id has not been seen yet.
+     *
+     * @param id The vertex id.
+     *
+     * @return The dense index.
+     */
+    public int add(int id) {
+        final int size = indices.size();
+        final int index = indices.putIfAbsent(id, size);
+        if (index != -1) {
+            return index;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        ids[size] = id;
+        return size;
+    }
+
+    /**
+     * Returns the dense index of the given vertex id, or {@code -1} if the id
+     * is unknown.
+     *
+     * @param id The vertex id.
+     *
+     * @return The dense index or {@code -1}.
+     */
+    public int indexOf(int id) {
+        return indices.get(id);
+    }
+
+    /**
+     * Returns {@code true} if the given vertex id is known.
+     *
+     * @param id The vertex id.
+     *
+     * @return {@code true} if the given vertex id is known.
+     */
+    public boolean contains(int id) {
+        return indices.containsKey(id);
+    }
+
+    /**
+     * Returns the vertex id of the given dense index.
+     *
+     * @param index The dense index.
+     *
+     * @return The vertex id.
+     */
+    public int getId(int index) {
+        if (index >= indices.size()) {
+            throw new IndexOutOfBoundsException("No vertex " + index);
+        }
+        return ids[index];
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return The number of vertices.
+     */
+    public int size() {
+        return indices.size();
+    }
+
+    /**
+     * Returns a copy of the vertex ids in dense index order.
+     *
+     * @return The vertex ids.
+     */
+    public int[] toIdArray() {
+        return Arrays.copyOf(ids, indices.size());
+    }
+}
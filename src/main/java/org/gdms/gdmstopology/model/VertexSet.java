@@ -0,0 +1,173 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only {@link java.util.Set} view of vertex ids backed by a
+ * {@link VertexIndex}, so that no {@link Integer} is stored per vertex.
+ *
+ * <p> The smallest and largest ids are tracked as well, which lets
+ * {@link #containsId(int)} reject ids outside of that range without a hash
+ * lookup. Ids are iterated in order of first appearance.
+ *
+ * @author Adam Gouge
+ */
+public final class VertexSet extends AbstractSet<Integer> {
+
+    /**
+     * The vertex ids.
+     */
+    private final VertexIndex ids;
+    /**
+     * The smallest id (meaningless if the set is empty).
+     */
+    private int min = Integer.MAX_VALUE;
+    /**
+     * The largest id (meaningless if the set is empty).
+     */
+    private int max = Integer.MIN_VALUE;
+
+    /**
+     * Constructs an empty vertex set.
+     *
+     * @param expectedSize The expected number of vertices.
+     */
+    VertexSet(int expectedSize) {
+        ids = new VertexIndex(expectedSize);
+    }
+
+    /**
+     * Adds the given id.
+     *
+     * @param id The vertex id.
+     */
+    void addId(int id) {
+        ids.add(id);
+        if (id < min) {
+            min = id;
+        }
+        if (id > max) {
+            max = id;
+        }
+    }
+
+    /**
+     * Adds all ids of the given set, in its iteration order.
+     *
+     * @param other The other set.
+     */
+    void addIds(VertexSet other) {
+        for (int i = 0; i < other.ids.size(); i++) {
+            addId(other.ids.getId(i));
+        }
+    }
+
+    /**
+     * Returns {@code true} if the set contains the given id.
+     *
+     * @param id The vertex id.
+     *
+     * @return {@code true} if the set contains the given id.
+     */
+    public boolean containsId(int id) {
+        return id >= min && id <= max && ids.contains(id);
+    }
+
+    /**
+     * Returns the smallest id in the set.
+     *
+     * @return The smallest id.
+     *
+     * @throws NoSuchElementException If the set is empty.
+     */
+    public int getMin() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("The vertex set is empty.");
+        }
+        return min;
+    }
+
+    /**
+     * Returns the largest id in the set.
+     *
+     * @return The largest id.
+     *
+     * @throws NoSuchElementException If the set is empty.
+     */
+    public int getMax() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("The vertex set is empty.");
+        }
+        return max;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsId((Integer) o);
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.size();
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return ids.getId(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "The vertex set is read-only.");
+            }
+        };
+    }
+}
@@ -90,6 +90,70 @@ public class WMultigraphDataSource extends WeightedMultigraph<Integer, GraphEdge
         GDMSGraph.setWeightFieldIndex(fieldName);
     }
 
+    /**
+     * Loads an in-memory snapshot of the adjacency so that subsequent graph
+     * operations no longer query the index manager.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#loadSnapshot()
+     *
+     * @return The snapshot.
+     * @throws DriverException
+     */
+    public CSRGraph loadSnapshot() throws DriverException {
+        return GDMSGraph.loadSnapshot();
+    }
+
+    /**
+     * Sets the number of threads used to recover the vertex set.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#setThreadCount(int)
+     *
+     * @param threadCount The number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        GDMSGraph.setThreadCount(threadCount);
+    }
+
+    /**
+     * Visits every edge touching a given vertex, oriented away from it: edges
+     * ending at the vertex are passed with their endpoints swapped.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#visitOutgoingEdges(int,
+     * EdgeVisitor)
+     *
+     * @param vertex The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    @Override
+    public boolean visitOutgoingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        // Loops were already visited as outgoing edges.
+        return GDMSGraph.visitOutgoingEdges(vertex, visitor, false, false)
+                && GDMSGraph.visitIncomingEdges(vertex, visitor, true, true);
+    }
+
+    /**
+     * Visits every edge touching a given vertex, oriented towards it: edges
+     * starting at the vertex are passed with their endpoints swapped.
+     *
+     * @see org.gdms.gdmstopology.model.GDMSGraph#visitIncomingEdges(int,
+     * EdgeVisitor)
+     *
+     * @param vertex The vertex.
+     * @param visitor The visitor.
+     * @return {@code false} if the visitor stopped the enumeration.
+     * @throws DriverException
+     */
+    @Override
+    public boolean visitIncomingEdges(int vertex, EdgeVisitor visitor)
+            throws DriverException {
+        // Loops were already visited as incoming edges.
+        return GDMSGraph.visitIncomingEdges(vertex, visitor, false, false)
+                && GDMSGraph.visitOutgoingEdges(vertex, visitor, true, true);
+    }
+
     /**
      * Returns the {@link Set} of edges that end at a given vertex.
      *
@@ -337,4 +401,13 @@ public class WMultigraphDataSource extends WeightedMultigraph<Integer, GraphEdge
     public long getRowCount() throws DriverException {
         return GDMSGraph.getRowCount();
     }
+
+    /**
+     * @see org.gdms.gdmstopology.model.GDMSGraph#getGraphEdge(long)
+     */
+    // Javadoc will be copied from the GDMSValueGraph interface.
+    @Override
+    public GraphEdge getGraphEdge(long rowId) throws DriverException {
+        return GDMSGraph.getGraphEdge(rowId);
+    }
 }
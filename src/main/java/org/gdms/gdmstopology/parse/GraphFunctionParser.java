@@ -32,6 +32,7 @@
  */
 package org.gdms.gdmstopology.parse;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -39,6 +40,9 @@ import org.gdms.data.types.Type;
 import org.gdms.data.values.Value;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.centrality.CentralityMetrics;
+import org.gdms.gdmstopology.centrality.PivotSampling;
+import org.gdms.gdmstopology.function.ST_ShortestPath;
 import org.gdms.gdmstopology.function.ST_ShortestPathLength;
 import static org.gdms.gdmstopology.function.ST_ShortestPathLength.DIRECTED;
 import static org.gdms.gdmstopology.function.ST_ShortestPathLength.REVERSED;
@@ -68,6 +72,48 @@ public class GraphFunctionParser {
      * Edge orientation string.
      */
     private String edgeOrientationColumnName = null;
+    /**
+     * Shortest path algorithm.
+     */
+    private String algorithm = null;
+    /**
+     * Pivot sampling of an approximate centrality analysis.
+     */
+    private PivotSampling sampling = null;
+    /**
+     * Additional metrics of a centrality analysis.
+     */
+    private CentralityMetrics metrics = null;
+    /**
+     * Checkpoint file of a centrality analysis.
+     */
+    private File checkpointFile = null;
+    /**
+     * Contraction hierarchy file of a shortest path query.
+     */
+    private File hierarchyFile = null;
+    /**
+     * Topology file of the edges table.
+     */
+    private File topologyFile = null;
+    /**
+     * Prefix of the string giving a checkpoint file.
+     */
+    public static final String CHECKPOINT_PREFIX = "checkpoint=";
+    /**
+     * Prefix of the string giving a contraction hierarchy file.
+     */
+    public static final String HIERARCHY_PREFIX = "hierarchy=";
+    /**
+     * Prefix of the string giving a topology file.
+     */
+    public static final String TOPOLOGY_PREFIX = "topology=";
+    /**
+     * Recognized shortest path algorithms.
+     */
+    private static final String[] ALGORITHMS = new String[]{
+        ST_ShortestPath.DIJKSTRA, ST_ShortestPath.BIDIRECTIONAL,
+        ST_ShortestPath.ASTAR, ST_ShortestPath.CH, ST_ShortestPath.ALT};
     /**
      * Logger
      */
@@ -101,6 +147,60 @@ public class GraphFunctionParser {
         return edgeOrientationColumnName;
     }
 
+    /**
+     * Returns the shortest path algorithm.
+     *
+     * @return The shortest path algorithm, or {@code null} if none was given
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the pivot sampling.
+     *
+     * @return The pivot sampling, or {@code null} if none was given
+     */
+    public PivotSampling getSampling() {
+        return sampling;
+    }
+
+    /**
+     * Returns the additional centrality metrics.
+     *
+     * @return The metrics, or {@code null} if none were given
+     */
+    public CentralityMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the checkpoint file.
+     *
+     * @return The checkpoint file, or {@code null} if none was given
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Returns the contraction hierarchy file.
+     *
+     * @return The hierarchy file, or {@code null} if none was given
+     */
+    public File getHierarchyFile() {
+        return hierarchyFile;
+    }
+
+    /**
+     * Returns the topology file.
+     *
+     * @return The topology file, or {@code null} if none was given
+     */
+    public File getTopologyFile() {
+        return topologyFile;
+    }
+
     /**
      * Parse the optional arguments.
      *
@@ -109,16 +209,17 @@ public class GraphFunctionParser {
      */
     public void parseOptionalArguments(DataSet edges, Value[] values,
                                        int argIndex) {
-        // If more than two optional arguments are given, ignore the extras.
-        int argIndexLimiter = argIndex + 2;
+        // If more than four optional arguments are given, ignore the extras.
+        int argIndexLimiter = argIndex + 4;
         while (argIndex < values.length && argIndex < argIndexLimiter) {
             parseStringArgument(edges, values[argIndex++]);
         }
     }
 
     /**
-     * Parse possible String arguments for graph functions, namely weight and
-     * orientation.
+     * Parse possible String arguments for graph functions, namely weight,
+     * orientation, algorithm, sampling, metrics, checkpoint file, hierarchy
+     * file and topology file.
      *
      * @param edges The edges
      * @param value A given argument to parse.
@@ -129,7 +230,9 @@ public class GraphFunctionParser {
                     "Weights and orientations must be specified as strings.");
         } else {
             String v = value.getAsString();
-            if (!parseOrientation(edges, v)) {
+            if (!parseAlgorithm(v) && !parseSampling(v) && !parseMetrics(v)
+                && !parseCheckpoint(v) && !parseHierarchyFile(v)
+                && !parseTopologyFile(v) && !parseOrientation(edges, v)) {
                 if (!parseWeight(v)) {
                     throw new IllegalArgumentException(
                             "Unrecognized string argument.");
@@ -175,6 +278,155 @@ public class GraphFunctionParser {
         return false;
     }
 
+    /**
+     * Recovers the shortest path algorithm from the given string.
+     *
+     * @param v String
+     *
+     * @return True if the string names a shortest path algorithm.
+     */
+    protected boolean parseAlgorithm(String v) {
+        if (isAlgorithmString(v)) {
+            algorithm = v.trim().toLowerCase();
+            LOGGER.info("Algorithm = '{}'.", algorithm);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the given string names a shortest path algorithm.
+     *
+     * @param s String
+     *
+     * @return Whether or not the string names a shortest path algorithm.
+     */
+    protected boolean isAlgorithmString(String s) {
+        return Arrays.asList(ALGORITHMS).contains(s.trim().toLowerCase());
+    }
+
+    /**
+     * Recovers the pivot sampling from the given string.
+     *
+     * @param v String
+     *
+     * @return True if the string gives a pivot sampling.
+     */
+    protected boolean parseSampling(String v) {
+        if (PivotSampling.isSamplingString(v)) {
+            sampling = PivotSampling.parse(v);
+            LOGGER.info("Sampling = '{}'.", sampling);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recovers the additional centrality metrics from the given string.
+     *
+     * @param v String
+     *
+     * @return True if the string gives centrality metrics.
+     */
+    protected boolean parseMetrics(String v) {
+        if (CentralityMetrics.isMetricsString(v)) {
+            metrics = CentralityMetrics.parse(v);
+            LOGGER.info("Metrics = '{}'.", metrics);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recovers the checkpoint file from the given string.
+     *
+     * @param v String
+     *
+     * @return True if the string gives a checkpoint file.
+     */
+    protected boolean parseCheckpoint(String v) {
+        if (isCheckpointString(v)) {
+            checkpointFile = new File(
+                    v.trim().substring(CHECKPOINT_PREFIX.length()).trim());
+            LOGGER.info("Checkpoint file = '{}'.", checkpointFile);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the given string gives a checkpoint file.
+     *
+     * @param s String
+     *
+     * @return Whether or not the string gives a checkpoint file.
+     */
+    protected boolean isCheckpointString(String s) {
+        final String trimmed = s.trim();
+        return trimmed.length() > CHECKPOINT_PREFIX.length()
+               && trimmed.toLowerCase().startsWith(CHECKPOINT_PREFIX);
+    }
+
+    /**
+     * Recovers the contraction hierarchy file from the given string.
+     *
+     * @param v String
+     *
+     * @return True if the string gives a hierarchy file.
+     */
+    protected boolean parseHierarchyFile(String v) {
+        if (isHierarchyString(v)) {
+            hierarchyFile = new File(
+                    v.trim().substring(HIERARCHY_PREFIX.length()).trim());
+            LOGGER.info("Hierarchy file = '{}'.", hierarchyFile);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the given string gives a contraction hierarchy file.
+     *
+     * @param s String
+     *
+     * @return Whether or not the string gives a hierarchy file.
+     */
+    protected boolean isHierarchyString(String s) {
+        final String trimmed = s.trim();
+        return trimmed.length() > HIERARCHY_PREFIX.length()
+               && trimmed.toLowerCase().startsWith(HIERARCHY_PREFIX);
+    }
+
+    /**
+     * Recovers the topology file from the given string.
+     *
+     * @param v String
+     *
+     * @return True if the string gives a topology file.
+     */
+    protected boolean parseTopologyFile(String v) {
+        if (isTopologyString(v)) {
+            topologyFile = new File(
+                    v.trim().substring(TOPOLOGY_PREFIX.length()).trim());
+            LOGGER.info("Topology file = '{}'.", topologyFile);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the given string gives a topology file.
+     *
+     * @param s String
+     *
+     * @return Whether or not the string gives a topology file.
+     */
+    protected boolean isTopologyString(String s) {
+        final String trimmed = s.trim();
+        return trimmed.length() > TOPOLOGY_PREFIX.length()
+               && trimmed.toLowerCase().startsWith(TOPOLOGY_PREFIX);
+    }
+
     /**
      * Recovers the weight column name from the given string.
      *
@@ -259,11 +511,16 @@ public class GraphFunctionParser {
      * @param s String
      *
      * @return Whether or not the string represents a weighted graph, since
-     *         weight and orientation are the only optional arguments.
+     *         weight, orientation and algorithm are the only optional
+     *         arguments.
      */
     protected boolean isWeightsString(String s) {
         return !(isDirectedString(s) || isReversedString(s)
-                 || isUndirectedString(s));
+                 || isUndirectedString(s) || isAlgorithmString(s)
+                 || PivotSampling.isSamplingString(s)
+                 || CentralityMetrics.isMetricsString(s)
+                 || isCheckpointString(s) || isHierarchyString(s)
+                 || isTopologyString(s));
     }
 
     private String getEdgeOrientationColumnName(DataSet edges,
@@ -388,8 +645,8 @@ public class GraphFunctionParser {
      */
     public double parseRadius(Value value) {
         final int slotType = value.getType();
-        if (slotType == Type.FLOAT) {
-            final double radius = value.getAsFloat();
+        if (slotType == Type.FLOAT || slotType == Type.DOUBLE) {
+            final double radius = value.getAsDouble();
             LOGGER.info("Setting the search radius to be {}.", radius);
             return radius;
         } else {
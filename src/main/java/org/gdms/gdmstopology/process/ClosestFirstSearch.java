@@ -0,0 +1,347 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.process;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.EdgeVisitor;
+import org.gdms.gdmstopology.model.GDMSValueGraph;
+import org.gdms.gdmstopology.model.GraphEdge;
+import org.gdms.gdmstopology.utils.IntIntHashMap;
+
+/**
+ * Enumerates the vertices of a {@link GDMSValueGraph} reachable from a source
+ * vertex by increasing shortest path length, like JGraphT's
+ * {@code ClosestFirstIterator}, and records the shortest path tree.
+ *
+ * <p> Vertices are expanded through
+ * {@link GDMSValueGraph#visitOutgoingEdges(int, EdgeVisitor)}, with this
+ * search as the visitor, and the tree is stored in primitive arrays indexed by
+ * the order in which vertices are reached. Nothing is allocated per edge, and
+ * the tree edge of a vertex is only built as a {@link GraphEdge}, from its row,
+ * when asked for by {@link #getSpanningTreeEdge(int)}.
+ *
+ * @author Adam Gouge
+ */
+final class ClosestFirstSearch implements EdgeVisitor {
+
+    /**
+     * Marks a slot whose vertex was returned by {@link #next()}.
+     */
+    private static final int SETTLED = -2;
+    /**
+     * The graph.
+     */
+    private final GDMSValueGraph<Integer, GraphEdge> graph;
+    /**
+     * Vertices farther than this are not enumerated.
+     */
+    private final double radius;
+    /**
+     * The slot of each reached vertex.
+     */
+    private final IntIntHashMap slots = new IntIntHashMap(16);
+    /**
+     * Reached vertices, by slot.
+     */
+    private int[] vertices = new int[16];
+    /**
+     * Tentative or shortest path lengths, by slot.
+     */
+    private double[] distances = new double[16];
+    /**
+     * The slot of the parent in the tree, or -1 for the source, by slot.
+     */
+    private int[] parents = new int[16];
+    /**
+     * The row of the tree edge, or -1 for the source, by slot.
+     */
+    private long[] treeRows = new long[16];
+    /**
+     * The position in the heap, or {@link #SETTLED}, by slot.
+     */
+    private int[] heapPositions = new int[16];
+    /**
+     * A binary heap of slots ordered by distance.
+     */
+    private int[] heap = new int[16];
+    /**
+     * The number of slots in the heap.
+     */
+    private int heapSize = 0;
+    /**
+     * The slot of the vertex being expanded.
+     */
+    private int current;
+
+    /**
+     * Prepares a search from the given source vertex without a radius.
+     *
+     * @param graph  The graph.
+     * @param source The source vertex.
+     *
+     * @throws IllegalArgumentException If the graph does not contain the
+     *                                  source vertex.
+     */
+    ClosestFirstSearch(GDMSValueGraph<Integer, GraphEdge> graph, int source) {
+        this(graph, source, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Prepares a search from the given source vertex.
+     *
+     * @param graph  The graph.
+     * @param source The source vertex.
+     * @param radius Vertices farther than this are not enumerated.
+     *
+     * @throws IllegalArgumentException If the graph does not contain the
+     *                                  source vertex.
+     */
+    ClosestFirstSearch(GDMSValueGraph<Integer, GraphEdge> graph, int source,
+                       double radius) {
+        if (!graph.containsVertex(source)) {
+            throw new IllegalArgumentException(
+                    "The graph must contain the start vertex.");
+        }
+        this.graph = graph;
+        this.radius = radius;
+        push(reach(source, 0.0, -1, -1L));
+    }
+
+    /**
+     * Returns {@code true} if there is another vertex within the radius.
+     *
+     * @return {@code true} if there is another vertex within the radius.
+     */
+    boolean hasNext() {
+        if (heapSize > 0 && distances[heap[0]] > radius) {
+            heapSize = 0;
+        }
+        return heapSize > 0;
+    }
+
+    /**
+     * Returns the closest vertex not returned yet and expands it.
+     *
+     * @return The vertex.
+     *
+     * @throws DriverException
+     * @throws NoSuchElementException   If there is no other vertex within the
+     *                                  radius.
+     * @throws IllegalArgumentException If an edge has a negative weight.
+     */
+    int next() throws DriverException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        current = pop();
+        graph.visitOutgoingEdges(vertices[current], this);
+        return vertices[current];
+    }
+
+    /**
+     * Relaxes an edge leaving the vertex being expanded.
+     */
+    @Override
+    public boolean visit(int source, int target, double weight, long rowId) {
+        if (weight < 0) {
+            throw new IllegalArgumentException(
+                    "Negative edge weights are not allowed.");
+        }
+        final double distance = distances[current] + weight;
+        final int slot = slots.get(target);
+        if (slot == -1) {
+            push(reach(target, distance, current, rowId));
+        } else if (heapPositions[slot] != SETTLED
+                   && distance < distances[slot]) {
+            distances[slot] = distance;
+            parents[slot] = current;
+            treeRows[slot] = rowId;
+            siftUp(heapPositions[slot]);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the length of the shortest path to the given vertex, which is
+     * final once the vertex was returned by {@link #next()}.
+     *
+     * @param vertex The vertex.
+     *
+     * @return The length, or {@link Double#POSITIVE_INFINITY} if the vertex
+     *         was not reached.
+     */
+    double getShortestPathLength(int vertex) {
+        final int slot = slots.get(vertex);
+        return slot == -1 ? Double.POSITIVE_INFINITY : distances[slot];
+    }
+
+    /**
+     * Returns the vertex preceding the given vertex on its shortest path.
+     *
+     * @param vertex The vertex.
+     *
+     * @return The parent, or {@code vertex} itself for the source or a vertex
+     *         that was not reached.
+     */
+    int getParent(int vertex) {
+        final int slot = slots.get(vertex);
+        return slot == -1 || parents[slot] == -1
+                ? vertex
+                : vertices[parents[slot]];
+    }
+
+    /**
+     * Returns the last edge of the shortest path to the given vertex, read
+     * from its row and oriented as in the data set.
+     *
+     * @param vertex The vertex.
+     *
+     * @return The edge, or {@code null} for the source or a vertex that was
+     *         not reached.
+     *
+     * @throws DriverException
+     */
+    GraphEdge getSpanningTreeEdge(int vertex) throws DriverException {
+        final int slot = slots.get(vertex);
+        return slot == -1 || treeRows[slot] == -1
+                ? null
+                : graph.getGraphEdge(treeRows[slot]);
+    }
+
+    /**
+     * Gives a slot to a newly reached vertex.
+     *
+     * @param vertex   The vertex.
+     * @param distance Its tentative distance.
+     * @param parent   The slot of its parent, or -1.
+     * @param rowId    The row of its tree edge, or -1.
+     *
+     * @return The slot.
+     */
+    private int reach(int vertex, double distance, int parent, long rowId) {
+        final int slot = slots.size();
+        if (slot == vertices.length) {
+            final int capacity = 2 * slot;
+            vertices = Arrays.copyOf(vertices, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            treeRows = Arrays.copyOf(treeRows, capacity);
+            heapPositions = Arrays.copyOf(heapPositions, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+        }
+        slots.put(vertex, slot);
+        vertices[slot] = vertex;
+        distances[slot] = distance;
+        parents[slot] = parent;
+        treeRows[slot] = rowId;
+        return slot;
+    }
+
+    /**
+     * Adds a slot to the heap.
+     *
+     * @param slot The slot.
+     */
+    private void push(int slot) {
+        heap[heapSize] = slot;
+        heapPositions[slot] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /**
+     * Removes the closest slot from the heap and marks it settled.
+     *
+     * @return The slot.
+     */
+    private int pop() {
+        final int slot = heap[0];
+        heapPositions[slot] = SETTLED;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPositions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return slot;
+    }
+
+    /**
+     * Moves the slot at the given heap position up to its place.
+     *
+     * @param position The position.
+     */
+    private void siftUp(int position) {
+        final int slot = heap[position];
+        final double distance = distances[slot];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (distances[heap[parent]] <= distance) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPositions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = slot;
+        heapPositions[slot] = position;
+    }
+
+    /**
+     * Moves the slot at the given heap position down to its place.
+     *
+     * @param position The position.
+     */
+    private void siftDown(int position) {
+        final int slot = heap[position];
+        final double distance = distances[slot];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                && distances[heap[child + 1]] < distances[heap[child]]) {
+                child++;
+            }
+            if (distances[heap[child]] >= distance) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPositions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = slot;
+        heapPositions[slot] = position;
+    }
+}
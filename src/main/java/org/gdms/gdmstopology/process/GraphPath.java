@@ -44,9 +44,7 @@ import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
 import org.gdms.driver.DriverException;
 import org.gdms.gdmstopology.model.*;
-import org.jgrapht.Graphs;
 import org.jgrapht.alg.DijkstraShortestPath;
-import org.jgrapht.traverse.ClosestFirstIterator;
 import org.orbisgis.progress.NullProgressMonitor;
 import org.orbisgis.progress.ProgressMonitor;
 
@@ -129,9 +127,8 @@ public class GraphPath extends GraphAnalysis {
         pm.startTask("Find shortest path", 100);
 
         // Go through the closest neighbors.
-        for (ClosestFirstIterator<Integer, GraphEdge> cl 
-                = new ClosestFirstIterator<Integer, GraphEdge>(
-                graph, sourceVertex, radius);
+        for (ClosestFirstSearch cl
+                = new ClosestFirstSearch(graph, sourceVertex, radius);
                 cl.hasNext();) {
 
             // Check if the calculation has been canceled.
@@ -191,9 +188,10 @@ public class GraphPath extends GraphAnalysis {
                     edgeID++;
                     // Update the current vertex to be the one across 
                     // from the current edge.
-                    currentVertex = Graphs.getOppositeVertex(graph, currentEdge, currentVertex);
+                    currentVertex = cl.getParent(currentVertex);
                 }
-                
+                // The rest of the graph is not needed.
+                break;
             } // Finished writing the shortest path to the diskBufferDriver.
 
         } // Finished going through the iterator
@@ -248,9 +246,8 @@ public class GraphPath extends GraphAnalysis {
 
         int count = 0;
         pm.startTask("Calculate distances path", 100);
-        for (ClosestFirstIterator<Integer, GraphEdge> cl 
-                = new ClosestFirstIterator<Integer, GraphEdge>(
-                graph, sourceVertex, radius);
+        for (ClosestFirstSearch cl
+                = new ClosestFirstSearch(graph, sourceVertex, radius);
                 cl.hasNext();) {
             if (count >= 100 && count % 100 == 0) {
                 if (pm.isCancelled()) {
@@ -258,7 +255,7 @@ public class GraphPath extends GraphAnalysis {
                 }
             }
             count++;
-            Integer node = cl.next();
+            int node = cl.next();
             if (node != sourceVertex) {
                 double length = cl.getShortestPathLength(node);
                 diskBufferDriver.addValues(new Value[]{ValueFactory.createValue(node),
@@ -317,7 +314,7 @@ public class GraphPath extends GraphAnalysis {
         DiskBufferDriver diskBufferDriver = new DiskBufferDriver(dsf, GraphMetadataFactory.createEdgeMetadataShortestPath());
 
         
-        ClosestFirstIterator<Integer, GraphEdge> cl = null;
+        ClosestFirstSearch cl = null;
         HashSet<Integer> visitedSources = new HashSet<Integer>();
         int count = 0;
         pm.startTask("Processing input nodes", 100);
@@ -332,7 +329,7 @@ public class GraphPath extends GraphAnalysis {
             count++;
 
             if (!visitedSources.contains(source)) {
-                cl = new ClosestFirstIterator<Integer, GraphEdge>(graph, source);
+                cl = new ClosestFirstSearch(graph, source);
                 targets = getTargets(dsf, nodes, source);
                 int targetsNumber = targets.size();
                 int targetVisisted = 0;
@@ -358,7 +355,7 @@ public class GraphPath extends GraphAnalysis {
                                         ValueFactory.createValue(edge.getTarget()),
                                         ValueFactory.createValue(edge.getWeight())});
                             k++;
-                            v = Graphs.getOppositeVertex(graph, edge, v);
+                            v = cl.getParent(v);
                         }
                     }
                 }
@@ -404,7 +401,7 @@ public class GraphPath extends GraphAnalysis {
         initIndex(dsf, nodes, new NullProgressMonitor());
         DiskBufferDriver diskBufferDriver = new DiskBufferDriver(dsf, GraphMetadataFactory.createDistancesMetadata());
 
-        ClosestFirstIterator<Integer, GraphEdge> cl = null;
+        ClosestFirstSearch cl = null;
         HashSet<Integer> visitedSources = new HashSet<Integer>();
         int count = 0;
         pm.startTask("Compute distance from nodes", 100);
@@ -419,7 +416,7 @@ public class GraphPath extends GraphAnalysis {
             int source = row[SOURCE_FIELD_INDEX].getAsInt();
             HashMap<Integer, Integer> targets = null;
             if (!visitedSources.contains(source)) {
-                cl = new ClosestFirstIterator<Integer, GraphEdge>(graph, source);
+                cl = new ClosestFirstSearch(graph, source);
                 targets = getTargets(dsf, nodes, source);
                 int targetsNumber = targets.size();
                 int targetVisisted = 0;
@@ -441,7 +438,7 @@ public class GraphPath extends GraphAnalysis {
                             }
                             sum += edge.getWeight();
                             k++;
-                            v = Graphs.getOppositeVertex(graph, edge, v);
+                            v = cl.getParent(v);
                         }
                         diskBufferDriver.addValues(new Value[]{
                                     ValueFactory.createValue(idNodes),
@@ -519,15 +516,18 @@ public class GraphPath extends GraphAnalysis {
             if (graphType == GraphSchema.DIRECT) {
                 DWMultigraphDataSource dwMultigraphDataSource = new DWMultigraphDataSource(dsf, dataSet, pm);
                 dwMultigraphDataSource.setWeightFieldIndex(costField);
+                dwMultigraphDataSource.loadSnapshot();
                 return findPathBetweenSeveralNodes(dsf, dwMultigraphDataSource, nodes, pm);
             } else if (graphType == GraphSchema.DIRECT_REVERSED) {
                 DWMultigraphDataSource dwMultigraphDataSource = new DWMultigraphDataSource(dsf, dataSet, pm);
                 dwMultigraphDataSource.setWeightFieldIndex(costField);
+                dwMultigraphDataSource.loadSnapshot();
                 EdgeReversedGraphDataSource edgeReversedGraph = new EdgeReversedGraphDataSource(dwMultigraphDataSource);
                 return findPathBetweenSeveralNodes(dsf, edgeReversedGraph, nodes, pm);
             } else if (graphType == GraphSchema.UNDIRECT) {
                 WMultigraphDataSource wMultigraphDataSource = new WMultigraphDataSource(dsf, dataSet, pm);
                 wMultigraphDataSource.setWeightFieldIndex(costField);
+                wMultigraphDataSource.loadSnapshot();
                 return findPathBetweenSeveralNodes(dsf, wMultigraphDataSource, nodes, pm);
             } else {
                 throw new GraphException("Only 3 type of graphs are allowed."
@@ -558,15 +558,18 @@ public class GraphPath extends GraphAnalysis {
         if (graphType == GraphSchema.DIRECT) {
             DWMultigraphDataSource dwMultigraphDataSource = new DWMultigraphDataSource(dsf, dataSet, pm);
             dwMultigraphDataSource.setWeightFieldIndex(costField);
+            dwMultigraphDataSource.loadSnapshot();
             return computeDistancesBetweenOneNode(dsf, dwMultigraphDataSource, source, pm);
         } else if (graphType == GraphSchema.DIRECT_REVERSED) {
             DWMultigraphDataSource dwMultigraphDataSource = new DWMultigraphDataSource(dsf, dataSet, pm);
             dwMultigraphDataSource.setWeightFieldIndex(costField);
+            dwMultigraphDataSource.loadSnapshot();
             EdgeReversedGraphDataSource edgeReversedGraph = new EdgeReversedGraphDataSource(dwMultigraphDataSource);
             return computeDistancesBetweenOneNode(dsf, edgeReversedGraph, source, pm);
         } else if (graphType == GraphSchema.UNDIRECT) {
             WMultigraphDataSource wMultigraphDataSource = new WMultigraphDataSource(dsf, dataSet, pm);
             wMultigraphDataSource.setWeightFieldIndex(costField);
+            wMultigraphDataSource.loadSnapshot();
             return computeDistancesBetweenOneNode(dsf, wMultigraphDataSource, source, pm);
         } else {
             throw new GraphException("Only 3 type of graphs are allowed."
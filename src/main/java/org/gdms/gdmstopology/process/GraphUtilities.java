@@ -50,7 +50,6 @@ import org.gdms.gdmstopology.model.GraphSchema;
 import org.gdms.gdmstopology.model.WMultigraphDataSource;
 import org.jgrapht.alg.ConnectivityInspector;
 import org.jgrapht.graph.Subgraph;
-import org.jgrapht.traverse.ClosestFirstIterator;
 import org.orbisgis.progress.ProgressMonitor;
 
 /**
@@ -78,15 +77,18 @@ public class GraphUtilities extends GraphAnalysis {
                 if (graphType == GraphSchema.DIRECT) {
                         DWMultigraphDataSource dwMultigraphDataSource = new DWMultigraphDataSource(dsf, dataSet, pm);
                         dwMultigraphDataSource.setWeightFieldIndex(costField);
+                        dwMultigraphDataSource.loadSnapshot();
                         return findReachableEdges(dsf, dwMultigraphDataSource, source, Double.POSITIVE_INFINITY, pm);
                 } else if (graphType == GraphSchema.DIRECT_REVERSED) {
                         DWMultigraphDataSource dwMultigraphDataSource = new DWMultigraphDataSource(dsf, dataSet, pm);
                         dwMultigraphDataSource.setWeightFieldIndex(costField);
+                        dwMultigraphDataSource.loadSnapshot();
                         EdgeReversedGraphDataSource edgeReversedGraph = new EdgeReversedGraphDataSource(dwMultigraphDataSource);
                         return findReachableEdges(dsf, edgeReversedGraph, source, Double.POSITIVE_INFINITY, pm);
                 } else if (graphType == GraphSchema.UNDIRECT) {
                         WMultigraphDataSource wMultigraphDataSource = new WMultigraphDataSource(dsf, dataSet, pm);
                         wMultigraphDataSource.setWeightFieldIndex(costField);
+                        wMultigraphDataSource.loadSnapshot();
                         return findReachableEdges(dsf, wMultigraphDataSource, source, Double.POSITIVE_INFINITY, pm);
                 } else {
                         throw new GraphException("Only 3 type of graphs are allowed."
@@ -119,8 +121,7 @@ public class GraphUtilities extends GraphAnalysis {
                 int count = 0;
                 pm.startTask("Find reachable edges", 100);
 
-                for (ClosestFirstIterator<Integer, GraphEdge> cl =
-                        new ClosestFirstIterator<Integer, GraphEdge>(graph, source);
+                for (ClosestFirstSearch cl = new ClosestFirstSearch(graph, source);
                         cl.hasNext();) {
                         if (count >= 100 && count % 100 == 0) {
                                 if (pm.isCancelled()) {
@@ -128,7 +129,7 @@ public class GraphUtilities extends GraphAnalysis {
                                 }
                         }
                         count++;
-                        Integer node = cl.next();
+                        int node = cl.next();
                         if (node != source) {
                                 double length = cl.getShortestPathLength(node);
                                 GraphEdge edge = cl.getSpanningTreeEdge(node);
@@ -210,8 +211,7 @@ public class GraphUtilities extends GraphAnalysis {
                                 int count = 0;
                                 pm.startTask("Find reachable edges", 100);
 
-                                for (ClosestFirstIterator<Integer, GraphEdge> cl =
-                                        new ClosestFirstIterator<Integer, GraphEdge>(graph, source);
+                                for (ClosestFirstSearch cl = new ClosestFirstSearch(graph, source);
                                         cl.hasNext();) {
                                         if (count >= 100 && count % 100 == 0) {
                                                 if (pm.isCancelled()) {
@@ -219,7 +219,7 @@ public class GraphUtilities extends GraphAnalysis {
                                                 }
                                         }
                                         count++;
-                                        Integer node = cl.next();
+                                        int node = cl.next();
                                         if (node != source) {
                                                 double length = cl.getShortestPathLength(node);
                                                 GraphEdge edge = cl.getSpanningTreeEdge(node);
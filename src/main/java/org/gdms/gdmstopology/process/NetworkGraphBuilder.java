@@ -49,6 +49,8 @@ import org.gdms.data.values.ValueFactory;
 import org.gdms.driver.DataSet;
 import org.gdms.driver.DiskBufferDriver;
 import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.CSRGraphFile;
 import org.gdms.gdmstopology.model.GraphMetadataFactory;
 import org.gdms.gdmstopology.model.GraphSchema;
 import org.orbisgis.progress.ProgressMonitor;
@@ -59,7 +61,8 @@ import org.orbisgis.progress.ProgressMonitor;
  * Concretely, {@link #buildGraph} uses an RTreeDisk on the given input network
  * to produce two tables, nodes and edges. These tables contain unique ids
  * assigned to each node (intersections) and edge edge (lines cut by
- * intersections).
+ * intersections). If a topology file is set, the edges are also written to it
+ * as a {@link CSRGraph} (see {@link CSRGraphFile}).
  *
  * @author Erwan Bocher, Adam Gouge
  */
@@ -97,6 +100,10 @@ public class NetworkGraphBuilder {
      * The output name to prefix ".nodes" and ".edges".
      */
     private String output_name;
+    /**
+     * The binary topology file to write, or {@code null}.
+     */
+    private File topologyFile = null;
 
     /**
      * This class is used to order edges and create required nodes to build a
@@ -139,6 +146,18 @@ public class NetworkGraphBuilder {
         this.output_name = output_name;
     }
 
+    /**
+     * Sets the binary topology file to write alongside the nodes and edges
+     * tables. It holds one arc from {@code start_node} to {@code end_node} per
+     * edge, weighted by the length of the edge's geometry, with the edge id as
+     * arc edge id and the row of the edge in the edges table as arc row.
+     *
+     * @param topologyFile The topology file, or {@code null} to write none.
+     */
+    public void setTopologyFile(File topologyFile) {
+        this.topologyFile = topologyFile;
+    }
+
     /**
      * Create the two data structure nodes and edges using a RTree disk. This
      * method limits the overhead when the all nodes are ordered.
@@ -199,6 +218,10 @@ public class NetworkGraphBuilder {
             // COUNTERS
             int edgeGID = 1;
             int nodesGID = 1;
+            // TOPOLOGY
+            final CSRGraph.Builder topology = topologyFile == null
+                    ? null
+                    : new CSRGraph.Builder((int) dataSet.getRowCount());
 
             // Go through the DataSet.
             for (Value[] row : dataSet) {
@@ -247,6 +270,20 @@ public class NetworkGraphBuilder {
 
                 // Add the edges row to the edges table.
                 edgesDriver.addValues(edgesRow);
+
+                // Add the corresponding arc to the topology.
+                if (topology != null) {
+                    final int edgeId = edgeGID - 1;
+                    topology.addArc(edgesRow[startIndex].getAsInt(),
+                                    edgesRow[endIndex].getAsInt(),
+                                    edgeId,
+                                    geom.getLength(),
+                                    edgeId - 1);
+                }
+            }
+            // Write the topology file.
+            if (topology != null) {
+                CSRGraphFile.write(topology.build(), topologyFile);
             }
             // Clean up.
             cleanUp(nodesDriver, edgesDriver, diskRTreeFile);
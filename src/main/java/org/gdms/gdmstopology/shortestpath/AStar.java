@@ -0,0 +1,145 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Point-to-point shortest paths by A* search on a {@link CSRGraph}, guided by
+ * the straight-line distance to the target.
+ *
+ * <p> The heuristic of a vertex is {@code scale * d(v, target)}, where
+ * {@code d} is the Euclidean distance between the {@link NodeCoordinates} of
+ * the vertices. It is admissible and consistent as long as no arc weighs less
+ * than {@code scale} times the distance between its endpoints. By default the
+ * scale is the smallest such ratio over all arcs, which is 1 (or a bit more)
+ * for length weights and the inverse of the maximum speed for travel time
+ * weights. Vertices without coordinates get a zero heuristic, so the default
+ * scale is zero (plain Dijkstra) unless every vertex has coordinates.
+ *
+ * @author Adam Gouge
+ */
+public class AStar extends AbstractAStar {
+
+    /**
+     * The vertex coordinates.
+     */
+    private final NodeCoordinates coordinates;
+    /**
+     * The factor converting straight-line distances into weights.
+     */
+    private final double scale;
+
+    /**
+     * Constructs an A* search on the given graph with the largest admissible
+     * scale.
+     *
+     * @param graph       The graph.
+     * @param coordinates The coordinates of its vertices.
+     */
+    public AStar(CSRGraph graph, NodeCoordinates coordinates) {
+        this(graph, coordinates, admissibleScale(graph, coordinates));
+    }
+
+    /**
+     * Constructs an A* search on the given graph.
+     *
+     * @param graph       The graph.
+     * @param coordinates The coordinates of its vertices.
+     * @param scale       The factor converting straight-line distances into
+     *                    weights, e.g. the inverse of the maximum speed for
+     *                    travel time weights.
+     */
+    public AStar(CSRGraph graph, NodeCoordinates coordinates, double scale) {
+        super(graph);
+        if (coordinates.size() != graph.getVertexCount()) {
+            throw new IllegalArgumentException(
+                    "There must be coordinates for every vertex.");
+        }
+        if (!(scale >= 0)) {
+            throw new IllegalArgumentException(
+                    "The scale must be non-negative.");
+        }
+        this.coordinates = coordinates;
+        this.scale = scale;
+    }
+
+    /**
+     * Returns the largest scale for which the straight-line heuristic is
+     * admissible on the given graph: the smallest ratio of the weight of an
+     * arc to the distance between its endpoints, or zero if some vertex has
+     * no coordinates.
+     *
+     * @param graph       The graph.
+     * @param coordinates The coordinates of its vertices.
+     *
+     * @return The scale.
+     */
+    public static double admissibleScale(CSRGraph graph,
+                                         NodeCoordinates coordinates) {
+        double scale = Double.POSITIVE_INFINITY;
+        for (int vertex = 0; vertex < coordinates.size(); vertex++) {
+            if (!coordinates.isKnown(vertex)) {
+                return 0.0;
+            }
+        }
+        for (int arc = 0; arc < graph.getArcCount(); arc++) {
+            final double d = coordinates.distance(graph.getArcSource(arc),
+                                                  graph.getArcTarget(arc));
+            if (d > 0) {
+                scale = Math.min(scale, graph.getArcWeight(arc) / d);
+            }
+        }
+        return Double.isInfinite(scale) ? 0.0 : Math.max(0.0, scale);
+    }
+
+    /**
+     * Returns the factor converting straight-line distances into weights.
+     *
+     * @return The scale.
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    protected boolean isGuided(int target) {
+        return scale > 0 && coordinates.isKnown(target);
+    }
+
+    @Override
+    protected double heuristic(int vertex, int target) {
+        final double d = coordinates.distance(vertex, target);
+        return Double.isNaN(d) ? 0.0 : scale * d;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Root of the A* searches, which differ only by their heuristic.
+ *
+ * <p> Vertices are settled again if a shorter path to them is found later, so
+ * the search stays exact with admissible but inconsistent heuristics. A
+ * vertex with an infinite heuristic cannot reach the target and is never
+ * queued. Arc weights must be non-negative.
+ *
+ * @author Adam Gouge
+ */
+abstract class AbstractAStar extends AbstractPointToPointSearch {
+
+    /**
+     * Tentative distances from the source.
+     */
+    private final double[] distances;
+    /**
+     * Arc by which each vertex was reached.
+     */
+    private final int[] arcs;
+    /**
+     * Query in which each vertex was last reached; the distance of a vertex is
+     * only valid if this is the current query.
+     */
+    private final int[] queries;
+    /**
+     * Queue keyed by distance plus heuristic.
+     */
+    private final BinaryHeap queue;
+    /**
+     * Current query number.
+     */
+    private int query = 0;
+
+    /**
+     * Constructs an A* search on the given graph.
+     *
+     * @param graph The graph.
+     */
+    AbstractAStar(CSRGraph graph) {
+        super(graph);
+        final int n = graph.getVertexCount();
+        distances = new double[n];
+        arcs = new int[n];
+        queries = new int[n];
+        queue = new BinaryHeap(n);
+    }
+
+    /**
+     * Returns {@code true} if the heuristic can guide a search towards the
+     * given target; otherwise the search is a plain Dijkstra search.
+     *
+     * @param target The target.
+     *
+     * @return {@code true} if the heuristic applies.
+     */
+    protected boolean isGuided(int target) {
+        return true;
+    }
+
+    /**
+     * Returns the heuristic of a vertex.
+     *
+     * @param vertex The vertex.
+     * @param target The target.
+     *
+     * @return A lower bound of the distance from the vertex to the target.
+     */
+    protected abstract double heuristic(int vertex, int target);
+
+    @Override
+    public ArcPath compute(int source, int target) {
+        checkVertex(source);
+        checkVertex(target);
+        query++;
+        settledCount = 0;
+        queue.clear();
+        final boolean guided = isGuided(target);
+        final double h = guided ? heuristic(source, target) : 0.0;
+        if (Double.isInfinite(h)) {
+            return null;
+        }
+        reach(source, 0.0, -1, h);
+        while (!queue.isEmpty()) {
+            final int u = queue.poll();
+            settledCount++;
+            if (u == target) {
+                return new ArcPath(recoverArcs(target), distances[target]);
+            }
+            final double du = distances[u];
+            for (int arc = graph.outArcsBegin(u); arc < graph.outArcsEnd(u);
+                    arc++) {
+                final int w = graph.getArcTarget(arc);
+                final double d = du + graph.getArcWeight(arc);
+                if (queries[w] != query || d < distances[w]) {
+                    final double hw = guided ? heuristic(w, target) : 0.0;
+                    if (!Double.isInfinite(hw)) {
+                        reach(w, d, arc, hw);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records that the search reached a vertex.
+     *
+     * @param vertex    The vertex.
+     * @param distance  Its tentative distance from the source.
+     * @param arc       The arc it was reached by, or -1.
+     * @param heuristic Its heuristic.
+     */
+    private void reach(int vertex, double distance, int arc,
+                       double heuristic) {
+        queries[vertex] = query;
+        distances[vertex] = distance;
+        arcs[vertex] = arc;
+        queue.insertOrDecrease(vertex, distance + heuristic);
+    }
+
+    /**
+     * Recovers the arcs of the path to the given vertex.
+     *
+     * @param target The vertex.
+     *
+     * @return The arcs from the source to the vertex.
+     */
+    private int[] recoverArcs(int target) {
+        int length = 0;
+        for (int v = target; arcs[v] != -1; v = graph.getArcSource(arcs[v])) {
+            length++;
+        }
+        final int[] path = new int[length];
+        for (int v = target; arcs[v] != -1; v = graph.getArcSource(arcs[v])) {
+            path[--length] = arcs[v];
+        }
+        return path;
+    }
+}
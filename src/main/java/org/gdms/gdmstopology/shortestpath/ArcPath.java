@@ -0,0 +1,100 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+/**
+ * A path of a {@link org.gdms.gdmstopology.model.CSRGraph}, given as the
+ * sequence of its arcs from the source to the target.
+ *
+ * @author Adam Gouge
+ */
+public final class ArcPath {
+
+    /**
+     * The arcs of the path, from the source to the target.
+     */
+    private final int[] arcs;
+    /**
+     * The length of the path.
+     */
+    private final double length;
+
+    /**
+     * Constructs a path.
+     *
+     * @param arcs   The arcs of the path, from the source to the target.
+     * @param length The length of the path.
+     */
+    public ArcPath(int[] arcs, double length) {
+        this.arcs = arcs;
+        this.length = length;
+    }
+
+    /**
+     * Returns the number of arcs of the path.
+     *
+     * @return The number of arcs of the path.
+     */
+    public int size() {
+        return arcs.length;
+    }
+
+    /**
+     * Returns the arc at the given position of the path.
+     *
+     * @param position The position, from 0 (the arc leaving the source).
+     *
+     * @return The arc.
+     */
+    public int getArc(int position) {
+        return arcs[position];
+    }
+
+    /**
+     * Returns a copy of the arcs of the path, from the source to the target.
+     *
+     * @return The arcs of the path.
+     */
+    public int[] getArcs() {
+        return arcs.clone();
+    }
+
+    /**
+     * Returns the length of the path.
+     *
+     * @return The length of the path.
+     */
+    public double getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Point-to-point shortest paths by bidirectional Dijkstra search on a
+ * {@link CSRGraph}.
+ *
+ * <p> A forward search from the source over outgoing arcs and a backward
+ * search from the target over incoming arcs are run alternately, always
+ * expanding the side with the smaller tentative distance. Every time a vertex
+ * is reached by one search after having been reached by the other, the length
+ * of the path through it is compared with the best path so far, and the
+ * search stops as soon as the sum of the smallest keys of the two queues is
+ * no smaller than that length. Both searches then cover roughly a ball of half
+ * the source-target distance, which settles far fewer vertices than a
+ * unidirectional search on road networks.
+ *
+ * <p> Both searches count towards {@link #getSettledCount()}. Arc weights must
+ * be non-negative. Search state is allocated once per
+ * instance and reused by successive queries, so an instance must not be
+ * shared between threads.
+ *
+ * @author Adam Gouge
+ */
+public class BidirectionalDijkstra extends AbstractPointToPointSearch {
+
+    /**
+     * Forward tentative distances.
+     */
+    private final double[] forwardDistances;
+    /**
+     * Backward tentative distances.
+     */
+    private final double[] backwardDistances;
+    /**
+     * Arc by which each vertex was reached in the forward search.
+     */
+    private final int[] forwardArcs;
+    /**
+     * Arc by which each vertex was reached in the backward search.
+     */
+    private final int[] backwardArcs;
+    /**
+     * Query in which each vertex was last reached by the forward search; the
+     * forward distance of a vertex is only valid if this is the current query.
+     */
+    private final int[] forwardQueries;
+    /**
+     * Query in which each vertex was last reached by the backward search.
+     */
+    private final int[] backwardQueries;
+    /**
+     * Forward queue.
+     */
+    private final VertexQueue forwardQueue;
+    /**
+     * Backward queue.
+     */
+    private final VertexQueue backwardQueue;
+    /**
+     * Current query number.
+     */
+    private int query = 0;
+
+    /**
+     * Constructs a bidirectional search on the given graph.
+     *
+     * @param graph The graph.
+     */
+    public BidirectionalDijkstra(CSRGraph graph) {
+        super(graph);
+        final int n = graph.getVertexCount();
+        forwardDistances = new double[n];
+        backwardDistances = new double[n];
+        forwardArcs = new int[n];
+        backwardArcs = new int[n];
+        forwardQueries = new int[n];
+        backwardQueries = new int[n];
+        forwardQueue = VertexQueues.create(graph);
+        backwardQueue = VertexQueues.create(graph);
+    }
+
+    @Override
+    public ArcPath compute(int source, int target) {
+        checkVertex(source);
+        checkVertex(target);
+        query++;
+        settledCount = 0;
+        forwardQueue.clear();
+        backwardQueue.clear();
+        reachForward(source, 0.0, -1);
+        reachBackward(target, 0.0, -1);
+
+        double best = source == target ? 0.0 : Double.POSITIVE_INFINITY;
+        int meeting = source == target ? source : -1;
+        while (forwardQueue.peekKey() + backwardQueue.peekKey() < best) {
+            if (forwardQueue.peekKey() <= backwardQueue.peekKey()) {
+                final int u = forwardQueue.poll();
+                settledCount++;
+                final double du = forwardDistances[u];
+                for (int arc = graph.outArcsBegin(u);
+                        arc < graph.outArcsEnd(u); arc++) {
+                    final int w = graph.getArcTarget(arc);
+                    final double d = du + graph.getArcWeight(arc);
+                    if (forwardQueries[w] != query
+                        || d < forwardDistances[w]) {
+                        reachForward(w, d, arc);
+                        if (backwardQueries[w] == query
+                            && d + backwardDistances[w] < best) {
+                            best = d + backwardDistances[w];
+                            meeting = w;
+                        }
+                    }
+                }
+            } else {
+                final int u = backwardQueue.poll();
+                settledCount++;
+                final double du = backwardDistances[u];
+                for (int i = graph.inArcsBegin(u); i < graph.inArcsEnd(u); i++) {
+                    final int arc = graph.getInArc(i);
+                    final int w = graph.getArcSource(arc);
+                    final double d = du + graph.getArcWeight(arc);
+                    if (backwardQueries[w] != query
+                        || d < backwardDistances[w]) {
+                        reachBackward(w, d, arc);
+                        if (forwardQueries[w] == query
+                            && d + forwardDistances[w] < best) {
+                            best = d + forwardDistances[w];
+                            meeting = w;
+                        }
+                    }
+                }
+            }
+        }
+        if (meeting == -1) {
+            return null;
+        }
+        return new ArcPath(recoverArcs(meeting), best);
+    }
+
+    /**
+     * Records that the forward search reached a vertex.
+     *
+     * @param vertex   The vertex.
+     * @param distance Its tentative distance from the source.
+     * @param arc      The arc it was reached by, or -1.
+     */
+    private void reachForward(int vertex, double distance, int arc) {
+        forwardQueries[vertex] = query;
+        forwardDistances[vertex] = distance;
+        forwardArcs[vertex] = arc;
+        forwardQueue.insertOrDecrease(vertex, distance);
+    }
+
+    /**
+     * Records that the backward search reached a vertex.
+     *
+     * @param vertex   The vertex.
+     * @param distance Its tentative distance to the target.
+     * @param arc      The arc it was reached by, or -1.
+     */
+    private void reachBackward(int vertex, double distance, int arc) {
+        backwardQueries[vertex] = query;
+        backwardDistances[vertex] = distance;
+        backwardArcs[vertex] = arc;
+        backwardQueue.insertOrDecrease(vertex, distance);
+    }
+
+    /**
+     * Recovers the arcs of the path through the given meeting vertex.
+     *
+     * @param meeting The meeting vertex.
+     *
+     * @return The arcs from the source to the target.
+     */
+    private int[] recoverArcs(int meeting) {
+        int forwardLength = 0;
+        for (int v = meeting; forwardArcs[v] != -1;
+                v = graph.getArcSource(forwardArcs[v])) {
+            forwardLength++;
+        }
+        int backwardLength = 0;
+        for (int v = meeting; backwardArcs[v] != -1;
+                v = graph.getArcTarget(backwardArcs[v])) {
+            backwardLength++;
+        }
+        final int[] arcs = new int[forwardLength + backwardLength];
+        int position = forwardLength;
+        for (int v = meeting; forwardArcs[v] != -1;
+                v = graph.getArcSource(forwardArcs[v])) {
+            arcs[--position] = forwardArcs[v];
+        }
+        position = forwardLength;
+        for (int v = meeting; backwardArcs[v] != -1;
+                v = graph.getArcTarget(backwardArcs[v])) {
+            arcs[position++] = backwardArcs[v];
+        }
+        return arcs;
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+
+/**
+ * An indexed binary min-heap of the dense vertex indices of a graph, keyed by
+ * tentative distance, supporting decrease-key.
+ *
+ * @author Adam Gouge
+ */
+final class BinaryHeap implements VertexQueue {
+
+    /**
+     * Heap of vertices.
+     */
+    private final int[] heap;
+    /**
+     * Position of each vertex in the heap, or -1 if it is not in the heap.
+     */
+    private final int[] positions;
+    /**
+     * Key of each vertex in the heap.
+     */
+    private final double[] keys;
+    /**
+     * Number of vertices in the heap.
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty heap for the given number of vertices.
+     *
+     * @param vertexCount The number of vertices.
+     */
+    BinaryHeap(int vertexCount) {
+        heap = new int[vertexCount];
+        positions = new int[vertexCount];
+        keys = new double[vertexCount];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Returns {@code true} if the heap is empty.
+     *
+     * @return {@code true} if the heap is empty.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the smallest key in the heap.
+     *
+     * @return The smallest key, or infinity if the heap is empty.
+     */
+    @Override
+    public double peekKey() {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    /**
+     * Inserts a vertex or decreases its key.
+     *
+     * @param vertex The vertex.
+     * @param key    Its new key, which must not be larger than its current key
+     *               if it is in the heap.
+     */
+    @Override
+    public void insertOrDecrease(int vertex, double key) {
+        int position = positions[vertex];
+        if (position == -1) {
+            position = size++;
+            heap[position] = vertex;
+            positions[vertex] = position;
+        }
+        keys[vertex] = key;
+        siftUp(position);
+    }
+
+    /**
+     * Inserts a vertex or changes its key, up or down.
+     *
+     * @param vertex The vertex.
+     * @param key    Its new key.
+     */
+    void insertOrUpdate(int vertex, double key) {
+        final int position = positions[vertex];
+        if (position == -1 || key <= keys[vertex]) {
+            insertOrDecrease(vertex, key);
+        } else {
+            keys[vertex] = key;
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Removes and returns the vertex with the smallest key.
+     *
+     * @return The vertex with the smallest key.
+     */
+    @Override
+    public int poll() {
+        final int min = heap[0];
+        positions[min] = -1;
+        if (--size > 0) {
+            final int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Empties the heap.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the vertex at the given position up to its place.
+     *
+     * @param position The position.
+     */
+    private void siftUp(int position) {
+        final int vertex = heap[position];
+        final double key = keys[vertex];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            final int parentVertex = heap[parent];
+            if (keys[parentVertex] <= key) {
+                break;
+            }
+            heap[position] = parentVertex;
+            positions[parentVertex] = position;
+            position = parent;
+        }
+        heap[position] = vertex;
+        positions[vertex] = position;
+    }
+
+    /**
+     * Moves the vertex at the given position down to its place.
+     *
+     * @param position The position.
+     */
+    private void siftDown(int position) {
+        final int vertex = heap[position];
+        final double key = keys[vertex];
+        final int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            final int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            final int childVertex = heap[child];
+            if (key <= keys[childVertex]) {
+                break;
+            }
+            heap[position] = childVertex;
+            positions[childVertex] = position;
+            position = child;
+        }
+        heap[position] = vertex;
+        positions[vertex] = position;
+    }
+}
@@ -0,0 +1,375 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * A contraction hierarchy of a {@link CSRGraph}.
+ *
+ * <p> Vertices are contracted one by one in order of importance (see
+ * {@link ContractionHierarchyBuilder}); contracting a vertex adds a shortcut
+ * between two of its remaining neighbors whenever it lies on the only
+ * shortest path between them. The hierarchy holds the rank of every vertex and
+ * its arcs: the arcs of the graph and the shortcuts, each of which remembers
+ * the two arcs it replaces. Arcs are split into upward arcs, leading to a
+ * vertex of higher rank, grouped by tail, and downward arcs, coming from a
+ * vertex of higher rank, grouped by head. A shortest path query is then a
+ * bidirectional search in which both directions only go up the hierarchy
+ * (see {@link ContractionHierarchySearch}); it settles a few hundred vertices
+ * even on country-sized networks.
+ *
+ * <p> Hierarchies are immutable, may be shared between threads and are
+ * stored with {@link ContractionHierarchyFile}.
+ *
+ * @author Adam Gouge
+ */
+public final class ContractionHierarchy {
+
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * Rank of each vertex.
+     */
+    private final int[] ranks;
+    /**
+     * Tail of each arc.
+     */
+    private final int[] arcTails;
+    /**
+     * Head of each arc.
+     */
+    private final int[] arcHeads;
+    /**
+     * Weight of each arc.
+     */
+    private final double[] arcWeights;
+    /**
+     * Arc of the graph of each arc, or -1 for shortcuts.
+     */
+    private final int[] arcOriginals;
+    /**
+     * First arc replaced by each shortcut, or -1.
+     */
+    private final int[] arcFirsts;
+    /**
+     * Second arc replaced by each shortcut, or -1.
+     */
+    private final int[] arcSeconds;
+    /**
+     * Offsets of the upward arcs of each vertex (length n + 1).
+     */
+    private final int[] upOffsets;
+    /**
+     * Upward arcs grouped by tail.
+     */
+    private final int[] upArcs;
+    /**
+     * Offsets of the downward arcs of each vertex (length n + 1).
+     */
+    private final int[] downOffsets;
+    /**
+     * Downward arcs grouped by head.
+     */
+    private final int[] downArcs;
+    /**
+     * Number of shortcuts.
+     */
+    private final int shortcutCount;
+
+    /**
+     * Constructs a hierarchy from its vertex ranks and arcs.
+     *
+     * @param graph        The graph.
+     * @param ranks        Rank of each vertex.
+     * @param arcTails     Tail of each arc.
+     * @param arcHeads     Head of each arc.
+     * @param arcWeights   Weight of each arc.
+     * @param arcOriginals Arc of the graph of each arc, or -1 for shortcuts.
+     * @param arcFirsts    First arc replaced by each shortcut, or -1.
+     * @param arcSeconds   Second arc replaced by each shortcut, or -1.
+     */
+    ContractionHierarchy(CSRGraph graph,
+                         int[] ranks,
+                         int[] arcTails,
+                         int[] arcHeads,
+                         double[] arcWeights,
+                         int[] arcOriginals,
+                         int[] arcFirsts,
+                         int[] arcSeconds) {
+        this.graph = graph;
+        this.ranks = ranks;
+        this.arcTails = arcTails;
+        this.arcHeads = arcHeads;
+        this.arcWeights = arcWeights;
+        this.arcOriginals = arcOriginals;
+        this.arcFirsts = arcFirsts;
+        this.arcSeconds = arcSeconds;
+        final int n = ranks.length;
+        final int k = arcTails.length;
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        int shortcuts = 0;
+        for (int arc = 0; arc < k; arc++) {
+            if (isUpward(arc)) {
+                upOffsets[arcTails[arc] + 1]++;
+            } else {
+                downOffsets[arcHeads[arc] + 1]++;
+            }
+            if (arcOriginals[arc] == -1) {
+                shortcuts++;
+            }
+        }
+        shortcutCount = shortcuts;
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upArcs = new int[upOffsets[n]];
+        downArcs = new int[downOffsets[n]];
+        final int[] upPosition = new int[n];
+        final int[] downPosition = new int[n];
+        System.arraycopy(upOffsets, 0, upPosition, 0, n);
+        System.arraycopy(downOffsets, 0, downPosition, 0, n);
+        for (int arc = 0; arc < k; arc++) {
+            if (isUpward(arc)) {
+                upArcs[upPosition[arcTails[arc]]++] = arc;
+            } else {
+                downArcs[downPosition[arcHeads[arc]]++] = arc;
+            }
+        }
+    }
+
+    /**
+     * Builds the contraction hierarchy of the given graph.
+     *
+     * @param graph The graph, with non-negative weights.
+     *
+     * @return The hierarchy.
+     */
+    public static ContractionHierarchy build(CSRGraph graph) {
+        return new ContractionHierarchyBuilder(graph).build();
+    }
+
+    /**
+     * Returns the graph of this hierarchy.
+     *
+     * @return The graph.
+     */
+    public CSRGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the rank of a vertex, from 0 (contracted first) to n - 1.
+     *
+     * @param vertex The dense index of the vertex.
+     *
+     * @return Its rank.
+     */
+    public int getRank(int vertex) {
+        return ranks[vertex];
+    }
+
+    /**
+     * Returns the number of arcs, shortcuts included.
+     *
+     * @return The number of arcs.
+     */
+    public int getArcCount() {
+        return arcTails.length;
+    }
+
+    /**
+     * Returns the number of shortcuts.
+     *
+     * @return The number of shortcuts.
+     */
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Returns the estimated memory used by this hierarchy, its graph
+     * excluded.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public long getMemoryUsage() {
+        // Ranks and both offset arrays per vertex; six int arrays, the
+        // weights and one of the adjacency arrays per arc.
+        return 12L * (ranks.length + 1) + 32L * arcTails.length;
+    }
+
+    /**
+     * Returns the given arcs of the hierarchy with every shortcut replaced by
+     * the arcs of the graph it stands for.
+     *
+     * @param arcs A path of arcs of the hierarchy.
+     *
+     * @return The same path as arcs of the graph.
+     */
+    public int[] unpack(int[] arcs) {
+        final IntList path = new IntList(2 * arcs.length);
+        final IntList stack = new IntList(16);
+        for (int arc : arcs) {
+            stack.add(arc);
+            while (!stack.isEmpty()) {
+                final int a = stack.removeLast();
+                if (arcOriginals[a] != -1) {
+                    path.add(arcOriginals[a]);
+                } else {
+                    stack.add(arcSeconds[a]);
+                    stack.add(arcFirsts[a]);
+                }
+            }
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Returns the position of the first upward arc of a vertex.
+     */
+    int upArcsBegin(int vertex) {
+        return upOffsets[vertex];
+    }
+
+    /**
+     * Returns the position just past the last upward arc of a vertex.
+     */
+    int upArcsEnd(int vertex) {
+        return upOffsets[vertex + 1];
+    }
+
+    /**
+     * Returns the upward arc at the given position.
+     */
+    int getUpArc(int position) {
+        return upArcs[position];
+    }
+
+    /**
+     * Returns the position of the first downward arc of a vertex.
+     */
+    int downArcsBegin(int vertex) {
+        return downOffsets[vertex];
+    }
+
+    /**
+     * Returns the position just past the last downward arc of a vertex.
+     */
+    int downArcsEnd(int vertex) {
+        return downOffsets[vertex + 1];
+    }
+
+    /**
+     * Returns the downward arc at the given position.
+     */
+    int getDownArc(int position) {
+        return downArcs[position];
+    }
+
+    /**
+     * Returns the tail of an arc.
+     */
+    int getArcTail(int arc) {
+        return arcTails[arc];
+    }
+
+    /**
+     * Returns the head of an arc.
+     */
+    int getArcHead(int arc) {
+        return arcHeads[arc];
+    }
+
+    /**
+     * Returns the weight of an arc.
+     */
+    double getArcWeight(int arc) {
+        return arcWeights[arc];
+    }
+
+    /**
+     * Returns the arc of the graph of an arc, or -1 for shortcuts.
+     */
+    int getArcOriginal(int arc) {
+        return arcOriginals[arc];
+    }
+
+    /**
+     * Returns the first arc replaced by a shortcut, or -1.
+     */
+    int getArcFirst(int arc) {
+        return arcFirsts[arc];
+    }
+
+    /**
+     * Returns the second arc replaced by a shortcut, or -1.
+     */
+    int getArcSecond(int arc) {
+        return arcSeconds[arc];
+    }
+
+    /**
+     * Returns a fingerprint of the arcs of a graph, used to make sure a stored
+     * hierarchy, landmark table or centrality checkpoint belongs to a graph.
+     *
+     * @param graph The graph.
+     *
+     * @return The fingerprint.
+     */
+    public static int fingerprint(CSRGraph graph) {
+        int hash = graph.getVertexCount();
+        for (int arc = 0; arc < graph.getArcCount(); arc++) {
+            final long weight = Double.doubleToLongBits(graph.getArcWeight(arc));
+            hash = 31 * hash + graph.getArcSource(arc);
+            hash = 31 * hash + graph.getArcTarget(arc);
+            hash = 31 * hash + (int) (weight ^ (weight >>> 32));
+        }
+        return hash;
+    }
+
+    /**
+     * Returns {@code true} if the given arc leads to a vertex of higher rank.
+     *
+     * @param arc The arc.
+     *
+     * @return {@code true} if the arc is upward.
+     */
+    private boolean isUpward(int arc) {
+        return ranks[arcHeads[arc]] > ranks[arcTails[arc]];
+    }
+}
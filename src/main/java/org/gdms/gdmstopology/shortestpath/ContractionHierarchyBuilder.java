@@ -0,0 +1,377 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Builds the {@link ContractionHierarchy} of a {@link CSRGraph}.
+ *
+ * <p> Vertices are contracted in increasing order of priority, the priority
+ * of a vertex being its edge difference (shortcuts its contraction would add
+ * minus arcs it would remove) plus the number of its neighbors already
+ * contracted, which spreads contractions evenly over the graph. Priorities
+ * are updated lazily: a vertex is only contracted if its recomputed priority
+ * is still the smallest, and the priorities of its neighbors are recomputed
+ * after its contraction.
+ *
+ * <p> Whether a shortcut {@code u -> v -> w} is needed is decided by a
+ * witness search: a Dijkstra search from {@code u} avoiding {@code v},
+ * bounded by the length of the longest candidate shortcut and by
+ * {@value #MAX_WITNESS_SETTLED} settled vertices. A bounded search may miss a
+ * witness and add an unnecessary shortcut, which costs a little space but
+ * never affects distances.
+ *
+ * @author Adam Gouge
+ */
+final class ContractionHierarchyBuilder {
+
+    /**
+     * Maximum number of vertices settled by a witness search.
+     */
+    private static final int MAX_WITNESS_SETTLED = 500;
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * Number of arcs of the hierarchy so far.
+     */
+    private int arcCount = 0;
+    /**
+     * Tail of each arc.
+     */
+    private int[] tails;
+    /**
+     * Head of each arc.
+     */
+    private int[] heads;
+    /**
+     * Weight of each arc.
+     */
+    private double[] weights;
+    /**
+     * Arc of the graph of each arc, or -1 for shortcuts.
+     */
+    private int[] originals;
+    /**
+     * First arc replaced by each shortcut, or -1.
+     */
+    private int[] firsts;
+    /**
+     * Second arc replaced by each shortcut, or -1.
+     */
+    private int[] seconds;
+    /**
+     * Arcs leaving each vertex towards vertices not yet contracted.
+     */
+    private final IntList[] outArcs;
+    /**
+     * Arcs entering each vertex from vertices not yet contracted.
+     */
+    private final IntList[] inArcs;
+    /**
+     * Number of contracted neighbors of each vertex.
+     */
+    private final int[] contractedNeighbors;
+    /**
+     * Rank of each vertex.
+     */
+    private final int[] ranks;
+    /**
+     * Witness search distances.
+     */
+    private final double[] witnessDistances;
+    /**
+     * Witness search in which each vertex was last reached.
+     */
+    private final int[] witnessSearches;
+    /**
+     * Witness search queue.
+     */
+    private final BinaryHeap witnessQueue;
+    /**
+     * Current witness search number.
+     */
+    private int witnessSearch = 0;
+
+    /**
+     * Prepares the contraction of the given graph.
+     *
+     * @param graph The graph.
+     */
+    ContractionHierarchyBuilder(CSRGraph graph) {
+        this.graph = graph;
+        final int n = graph.getVertexCount();
+        final int capacity = Math.max(16, 2 * graph.getArcCount());
+        tails = new int[capacity];
+        heads = new int[capacity];
+        weights = new double[capacity];
+        originals = new int[capacity];
+        firsts = new int[capacity];
+        seconds = new int[capacity];
+        outArcs = new IntList[n];
+        inArcs = new IntList[n];
+        for (int v = 0; v < n; v++) {
+            outArcs[v] = new IntList(graph.getOutDegree(v));
+            inArcs[v] = new IntList(graph.getInDegree(v));
+        }
+        contractedNeighbors = new int[n];
+        ranks = new int[n];
+        witnessDistances = new double[n];
+        witnessSearches = new int[n];
+        witnessQueue = new BinaryHeap(n);
+    }
+
+    /**
+     * Contracts every vertex and returns the hierarchy.
+     *
+     * @return The hierarchy.
+     */
+    ContractionHierarchy build() {
+        final int n = graph.getVertexCount();
+        // Start from the arcs of the graph, keeping the lightest of parallel
+        // arcs and dropping loops.
+        for (int arc = 0; arc < graph.getArcCount(); arc++) {
+            final int source = graph.getArcSource(arc);
+            final int target = graph.getArcTarget(arc);
+            final double weight = graph.getArcWeight(arc);
+            if (weight < 0) {
+                throw new IllegalArgumentException(
+                        "Contraction hierarchies require non-negative weights.");
+            }
+            if (source == target) {
+                continue;
+            }
+            final int parallel = findArc(source, target);
+            if (parallel == -1) {
+                addArc(source, target, weight, arc, -1, -1);
+            } else if (weight < weights[parallel]) {
+                weights[parallel] = weight;
+                originals[parallel] = arc;
+            }
+        }
+
+        final BinaryHeap queue = new BinaryHeap(n);
+        for (int v = 0; v < n; v++) {
+            queue.insertOrDecrease(v, priority(v));
+        }
+        final IntList neighbors = new IntList(16);
+        int rank = 0;
+        while (!queue.isEmpty()) {
+            final int v = queue.poll();
+            final double priority = priority(v);
+            if (!queue.isEmpty() && priority > queue.peekKey()) {
+                queue.insertOrDecrease(v, priority);
+                continue;
+            }
+            neighbors.clear();
+            for (int i = 0; i < inArcs[v].size(); i++) {
+                neighbors.add(tails[inArcs[v].get(i)]);
+            }
+            for (int i = 0; i < outArcs[v].size(); i++) {
+                neighbors.add(heads[outArcs[v].get(i)]);
+            }
+            contract(v, false);
+            ranks[v] = rank++;
+            for (int i = 0; i < neighbors.size(); i++) {
+                final int u = neighbors.get(i);
+                contractedNeighbors[u]++;
+                queue.insertOrUpdate(u, priority(u));
+            }
+        }
+        return new ContractionHierarchy(graph,
+                                        ranks,
+                                        Arrays.copyOf(tails, arcCount),
+                                        Arrays.copyOf(heads, arcCount),
+                                        Arrays.copyOf(weights, arcCount),
+                                        Arrays.copyOf(originals, arcCount),
+                                        Arrays.copyOf(firsts, arcCount),
+                                        Arrays.copyOf(seconds, arcCount));
+    }
+
+    /**
+     * Returns the contraction priority of a vertex not yet contracted.
+     *
+     * @param v The vertex.
+     *
+     * @return Its priority.
+     */
+    private double priority(int v) {
+        final int shortcuts = contract(v, true);
+        return shortcuts - inArcs[v].size() - outArcs[v].size()
+               + contractedNeighbors[v];
+    }
+
+    /**
+     * Contracts a vertex, adding the necessary shortcuts between its
+     * neighbors, or only counts these shortcuts.
+     *
+     * @param v        The vertex.
+     * @param simulate Whether to only count the shortcuts.
+     *
+     * @return The number of shortcuts.
+     */
+    private int contract(int v, boolean simulate) {
+        int shortcuts = 0;
+        final IntList in = inArcs[v];
+        final IntList out = outArcs[v];
+        for (int i = 0; i < in.size(); i++) {
+            final int inArc = in.get(i);
+            final int u = tails[inArc];
+            double maxWeight = -1;
+            for (int j = 0; j < out.size(); j++) {
+                final int outArc = out.get(j);
+                if (heads[outArc] != u) {
+                    maxWeight = Math.max(maxWeight, weights[outArc]);
+                }
+            }
+            if (maxWeight < 0) {
+                continue;
+            }
+            searchWitnesses(u, v, weights[inArc] + maxWeight);
+            for (int j = 0; j < out.size(); j++) {
+                final int outArc = out.get(j);
+                final int w = heads[outArc];
+                if (w == u) {
+                    continue;
+                }
+                final double weight = weights[inArc] + weights[outArc];
+                if (witnessSearches[w] != witnessSearch
+                    || witnessDistances[w] > weight) {
+                    shortcuts++;
+                    if (!simulate) {
+                        addArc(u, w, weight, -1, inArc, outArc);
+                    }
+                }
+            }
+        }
+        if (!simulate) {
+            for (int i = 0; i < in.size(); i++) {
+                outArcs[tails[in.get(i)]].removeValue(in.get(i));
+            }
+            for (int j = 0; j < out.size(); j++) {
+                inArcs[heads[out.get(j)]].removeValue(out.get(j));
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Runs a bounded Dijkstra search from a vertex among the vertices not yet
+     * contracted, avoiding the given vertex.
+     *
+     * @param source      The source.
+     * @param avoided     The avoided vertex.
+     * @param maxDistance The distance beyond which the search stops.
+     */
+    private void searchWitnesses(int source, int avoided, double maxDistance) {
+        witnessSearch++;
+        witnessQueue.clear();
+        witnessSearches[source] = witnessSearch;
+        witnessDistances[source] = 0.0;
+        witnessQueue.insertOrDecrease(source, 0.0);
+        int settled = 0;
+        while (!witnessQueue.isEmpty() && settled < MAX_WITNESS_SETTLED
+               && witnessQueue.peekKey() <= maxDistance) {
+            final int x = witnessQueue.poll();
+            settled++;
+            final IntList arcs = outArcs[x];
+            for (int i = 0; i < arcs.size(); i++) {
+                final int arc = arcs.get(i);
+                final int y = heads[arc];
+                if (y == avoided) {
+                    continue;
+                }
+                final double d = witnessDistances[x] + weights[arc];
+                if (witnessSearches[y] != witnessSearch
+                    || d < witnessDistances[y]) {
+                    witnessSearches[y] = witnessSearch;
+                    witnessDistances[y] = d;
+                    witnessQueue.insertOrDecrease(y, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an arc between two vertices not yet contracted.
+     *
+     * @param tail The tail.
+     * @param head The head.
+     *
+     * @return The arc, or -1 if there is none.
+     */
+    private int findArc(int tail, int head) {
+        final IntList arcs = outArcs[tail];
+        for (int i = 0; i < arcs.size(); i++) {
+            if (heads[arcs.get(i)] == head) {
+                return arcs.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an arc to the hierarchy.
+     *
+     * @param tail     The tail.
+     * @param head     The head.
+     * @param weight   The weight.
+     * @param original The arc of the graph, or -1 for a shortcut.
+     * @param first    The first arc replaced by a shortcut, or -1.
+     * @param second   The second arc replaced by a shortcut, or -1.
+     */
+    private void addArc(int tail, int head, double weight,
+                        int original, int first, int second) {
+        if (arcCount == tails.length) {
+            final int length = 2 * arcCount;
+            tails = Arrays.copyOf(tails, length);
+            heads = Arrays.copyOf(heads, length);
+            weights = Arrays.copyOf(weights, length);
+            originals = Arrays.copyOf(originals, length);
+            firsts = Arrays.copyOf(firsts, length);
+            seconds = Arrays.copyOf(seconds, length);
+        }
+        tails[arcCount] = tail;
+        heads[arcCount] = head;
+        weights[arcCount] = weight;
+        originals[arcCount] = original;
+        firsts[arcCount] = first;
+        seconds[arcCount] = second;
+        outArcs[tail].add(arcCount);
+        inArcs[head].add(arcCount);
+        arcCount++;
+    }
+}
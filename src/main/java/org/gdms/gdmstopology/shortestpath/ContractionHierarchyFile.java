@@ -0,0 +1,287 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Reads and writes {@link ContractionHierarchy}s in a binary file, so that
+ * the preprocessing only has to be done once per network.
+ *
+ * <p> The file starts with a 24-byte header (magic number, format version,
+ * vertex count <i>n</i>, graph arc count <i>m</i>, hierarchy arc count
+ * <i>k</i> and a fingerprint of the graph), followed by the sections
+ * <ol> <li> arc weights ({@code double[k]}) <li> vertex ranks
+ * ({@code int[n]}) <li> arc tails, arc heads, original arcs, first and second
+ * replaced arcs ({@code int[k]} each) </ol> all in little-endian byte order.
+ * The hierarchy only refers to the graph by dense vertex and arc indices, so
+ * {@link #read(File, CSRGraph)} checks the graph against the header before
+ * accepting the file.
+ *
+ * @author Adam Gouge
+ */
+public final class ContractionHierarchyFile {
+
+    /**
+     * Magic number at the start of every hierarchy file ("GTCH").
+     */
+    public static final int MAGIC = 0x47544348;
+    /**
+     * Current version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 24;
+    /**
+     * Byte order of the file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private ContractionHierarchyFile() {
+    }
+
+    /**
+     * Writes the given hierarchy to the given file, replacing its contents.
+     *
+     * @param hierarchy The hierarchy.
+     * @param file      The file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(ContractionHierarchy hierarchy, File file)
+            throws IOException {
+        final CSRGraph graph = hierarchy.getGraph();
+        final int n = graph.getVertexCount();
+        final int k = hierarchy.getArcCount();
+        final int[] ranks = new int[n];
+        for (int v = 0; v < n; v++) {
+            ranks[v] = hierarchy.getRank(v);
+        }
+        final double[] weights = new double[k];
+        final int[] tails = new int[k];
+        final int[] heads = new int[k];
+        final int[] originals = new int[k];
+        final int[] firsts = new int[k];
+        final int[] seconds = new int[k];
+        for (int arc = 0; arc < k; arc++) {
+            weights[arc] = hierarchy.getArcWeight(arc);
+            tails[arc] = hierarchy.getArcTail(arc);
+            heads[arc] = hierarchy.getArcHead(arc);
+            originals[arc] = hierarchy.getArcOriginal(arc);
+            firsts[arc] = hierarchy.getArcFirst(arc);
+            seconds[arc] = hierarchy.getArcSecond(arc);
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            raf.setLength(0);
+            raf.setLength(fileSize(n, k));
+
+            mapSection(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(n)
+                    .putInt(graph.getArcCount()).putInt(k)
+                    .putInt(ContractionHierarchy.fingerprint(graph));
+
+            long offset = HEADER_SIZE;
+            mapSection(channel, FileChannel.MapMode.READ_WRITE, offset, 8L * k)
+                    .asDoubleBuffer().put(weights);
+            offset += 8L * k;
+            offset = writeInts(channel, offset, ranks);
+            offset = writeInts(channel, offset, tails);
+            offset = writeInts(channel, offset, heads);
+            offset = writeInts(channel, offset, originals);
+            offset = writeInts(channel, offset, firsts);
+            writeInts(channel, offset, seconds);
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads the hierarchy of the given graph stored in the given file.
+     *
+     * @param file  The file.
+     * @param graph The graph the hierarchy was built on.
+     *
+     * @return The hierarchy.
+     *
+     * @throws IOException If the file cannot be read, is not a hierarchy
+     *                     file or was built on a different graph.
+     */
+    public static ContractionHierarchy read(File file, CSRGraph graph)
+            throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a hierarchy file.");
+            }
+            final ByteBuffer header = mapSection(
+                    channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a hierarchy file.");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported hierarchy file version "
+                                      + version + " in " + file + ".");
+            }
+            final int n = header.getInt();
+            final int m = header.getInt();
+            final int k = header.getInt();
+            final int fingerprint = header.getInt();
+            if (n < 0 || k < 0 || channel.size() != fileSize(n, k)) {
+                throw new IOException("Truncated hierarchy file " + file + ".");
+            }
+            if (n != graph.getVertexCount() || m != graph.getArcCount()
+                || fingerprint != ContractionHierarchy.fingerprint(graph)) {
+                throw new IOException(file + " was built on another graph.");
+            }
+
+            long offset = HEADER_SIZE;
+            final double[] weights = new double[k];
+            mapSection(channel, FileChannel.MapMode.READ_ONLY, offset, 8L * k)
+                    .asDoubleBuffer().get(weights);
+            offset += 8L * k;
+            final int[] ranks = readInts(channel, offset, n);
+            offset += 4L * n;
+            final int[] tails = readInts(channel, offset, k);
+            offset += 4L * k;
+            final int[] heads = readInts(channel, offset, k);
+            offset += 4L * k;
+            final int[] originals = readInts(channel, offset, k);
+            offset += 4L * k;
+            final int[] firsts = readInts(channel, offset, k);
+            offset += 4L * k;
+            final int[] seconds = readInts(channel, offset, k);
+
+            return new ContractionHierarchy(graph, ranks, tails, heads,
+                                            weights, originals, firsts,
+                                            seconds);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the size in bytes of the file holding a hierarchy with the
+     * given number of vertices and arcs.
+     *
+     * @param n The number of vertices.
+     * @param k The number of hierarchy arcs.
+     *
+     * @return The file size.
+     */
+    private static long fileSize(int n, int k) {
+        return HEADER_SIZE + 8L * k + 4L * n + 20L * k;
+    }
+
+    /**
+     * Maps a section of the file in the file's byte order.
+     *
+     * @param channel The file channel.
+     * @param mode    The mapping mode.
+     * @param offset  The offset of the section.
+     * @param size    The size of the section in bytes.
+     *
+     * @return The mapped section.
+     *
+     * @throws IOException
+     */
+    private static ByteBuffer mapSection(FileChannel channel,
+                                         FileChannel.MapMode mode,
+                                         long offset,
+                                         long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Hierarchy file section too large: "
+                                  + size + " bytes.");
+        }
+        final MappedByteBuffer buffer = channel.map(mode, offset, size);
+        buffer.order(ORDER);
+        return buffer;
+    }
+
+    /**
+     * Reads a section of {@code count} ints.
+     *
+     * @param channel The file channel.
+     * @param offset  The offset of the section.
+     * @param count   The number of ints.
+     *
+     * @return The ints.
+     *
+     * @throws IOException
+     */
+    private static int[] readInts(FileChannel channel,
+                                  long offset,
+                                  int count) throws IOException {
+        final int[] ints = new int[count];
+        final IntBuffer section = mapSection(
+                channel, FileChannel.MapMode.READ_ONLY, offset, 4L * count)
+                .asIntBuffer();
+        section.get(ints);
+        return ints;
+    }
+
+    /**
+     * Writes the given ints at the given offset.
+     *
+     * @param channel The file channel.
+     * @param offset  The offset.
+     * @param ints    The ints to write.
+     *
+     * @return The offset just past the written ints.
+     *
+     * @throws IOException
+     */
+    private static long writeInts(FileChannel channel,
+                                  long offset,
+                                  int[] ints) throws IOException {
+        final long size = 4L * ints.length;
+        mapSection(channel, FileChannel.MapMode.READ_WRITE, offset, size)
+                .asIntBuffer().put(ints);
+        return offset + size;
+    }
+}
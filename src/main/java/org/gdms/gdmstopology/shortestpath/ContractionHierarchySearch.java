@@ -0,0 +1,220 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+/**
+ * Point-to-point shortest paths on a {@link ContractionHierarchy}.
+ *
+ * <p> A forward search from the source over upward arcs and a backward search
+ * from the target over downward arcs are run alternately. Since both only go
+ * up the hierarchy, they meet at the highest vertex of a shortest path, and
+ * each direction stops once its smallest key is no smaller than the best path
+ * found so far. The shortcuts of the path are then unpacked into arcs of the
+ * graph.
+ *
+ * <p> Both searches count towards {@link #getSettledCount()}. Search state is
+ * reused by successive queries, so an instance must not be shared between
+ * threads; the hierarchy itself may be.
+ *
+ * @author Adam Gouge
+ */
+public class ContractionHierarchySearch extends AbstractPointToPointSearch {
+
+    /**
+     * The hierarchy.
+     */
+    private final ContractionHierarchy hierarchy;
+    /**
+     * Forward tentative distances.
+     */
+    private final double[] forwardDistances;
+    /**
+     * Backward tentative distances.
+     */
+    private final double[] backwardDistances;
+    /**
+     * Hierarchy arc by which each vertex was reached in the forward search.
+     */
+    private final int[] forwardArcs;
+    /**
+     * Hierarchy arc by which each vertex was reached in the backward search.
+     */
+    private final int[] backwardArcs;
+    /**
+     * Query in which each vertex was last reached by the forward search.
+     */
+    private final int[] forwardQueries;
+    /**
+     * Query in which each vertex was last reached by the backward search.
+     */
+    private final int[] backwardQueries;
+    /**
+     * Forward queue.
+     */
+    private final BinaryHeap forwardQueue;
+    /**
+     * Backward queue.
+     */
+    private final BinaryHeap backwardQueue;
+    /**
+     * Current query number.
+     */
+    private int query = 0;
+
+    /**
+     * Constructs a search on the given hierarchy.
+     *
+     * @param hierarchy The hierarchy.
+     */
+    public ContractionHierarchySearch(ContractionHierarchy hierarchy) {
+        super(hierarchy.getGraph());
+        this.hierarchy = hierarchy;
+        final int n = graph.getVertexCount();
+        forwardDistances = new double[n];
+        backwardDistances = new double[n];
+        forwardArcs = new int[n];
+        backwardArcs = new int[n];
+        forwardQueries = new int[n];
+        backwardQueries = new int[n];
+        forwardQueue = new BinaryHeap(n);
+        backwardQueue = new BinaryHeap(n);
+    }
+
+    @Override
+    public ArcPath compute(int source, int target) {
+        checkVertex(source);
+        checkVertex(target);
+        query++;
+        settledCount = 0;
+        forwardQueue.clear();
+        backwardQueue.clear();
+        forwardQueries[source] = query;
+        forwardDistances[source] = 0.0;
+        forwardArcs[source] = -1;
+        forwardQueue.insertOrDecrease(source, 0.0);
+        backwardQueries[target] = query;
+        backwardDistances[target] = 0.0;
+        backwardArcs[target] = -1;
+        backwardQueue.insertOrDecrease(target, 0.0);
+
+        double best = source == target ? 0.0 : Double.POSITIVE_INFINITY;
+        int meeting = source == target ? source : -1;
+        boolean forward = true;
+        while (forwardQueue.peekKey() < best
+               || backwardQueue.peekKey() < best) {
+            // Alternate between the directions which may still improve.
+            if (forward && forwardQueue.peekKey() >= best) {
+                forward = false;
+            } else if (!forward && backwardQueue.peekKey() >= best) {
+                forward = true;
+            }
+            if (forward) {
+                final int u = forwardQueue.poll();
+                settledCount++;
+                final double du = forwardDistances[u];
+                for (int i = hierarchy.upArcsBegin(u);
+                        i < hierarchy.upArcsEnd(u); i++) {
+                    final int arc = hierarchy.getUpArc(i);
+                    final int w = hierarchy.getArcHead(arc);
+                    final double d = du + hierarchy.getArcWeight(arc);
+                    if (forwardQueries[w] != query
+                        || d < forwardDistances[w]) {
+                        forwardQueries[w] = query;
+                        forwardDistances[w] = d;
+                        forwardArcs[w] = arc;
+                        forwardQueue.insertOrDecrease(w, d);
+                        if (backwardQueries[w] == query
+                            && d + backwardDistances[w] < best) {
+                            best = d + backwardDistances[w];
+                            meeting = w;
+                        }
+                    }
+                }
+            } else {
+                final int u = backwardQueue.poll();
+                settledCount++;
+                final double du = backwardDistances[u];
+                for (int i = hierarchy.downArcsBegin(u);
+                        i < hierarchy.downArcsEnd(u); i++) {
+                    final int arc = hierarchy.getDownArc(i);
+                    final int w = hierarchy.getArcTail(arc);
+                    final double d = du + hierarchy.getArcWeight(arc);
+                    if (backwardQueries[w] != query
+                        || d < backwardDistances[w]) {
+                        backwardQueries[w] = query;
+                        backwardDistances[w] = d;
+                        backwardArcs[w] = arc;
+                        backwardQueue.insertOrDecrease(w, d);
+                        if (forwardQueries[w] == query
+                            && d + forwardDistances[w] < best) {
+                            best = d + forwardDistances[w];
+                            meeting = w;
+                        }
+                    }
+                }
+            }
+            forward = !forward;
+        }
+        if (meeting == -1) {
+            return null;
+        }
+        return new ArcPath(hierarchy.unpack(recoverArcs(meeting)), best);
+    }
+
+    /**
+     * Recovers the hierarchy arcs of the path through the given meeting
+     * vertex.
+     *
+     * @param meeting The meeting vertex.
+     *
+     * @return The hierarchy arcs from the source to the target.
+     */
+    private int[] recoverArcs(int meeting) {
+        final IntList arcs = new IntList(16);
+        for (int v = meeting; forwardArcs[v] != -1;
+                v = hierarchy.getArcTail(forwardArcs[v])) {
+            arcs.add(forwardArcs[v]);
+        }
+        // Reverse the forward part.
+        final int[] forwardPart = arcs.toArray();
+        arcs.clear();
+        for (int i = forwardPart.length - 1; i >= 0; i--) {
+            arcs.add(forwardPart[i]);
+        }
+        for (int v = meeting; backwardArcs[v] != -1;
+                v = hierarchy.getArcHead(backwardArcs[v])) {
+            arcs.add(backwardArcs[v]);
+        }
+        return arcs.toArray();
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+
+/**
+ * Dial's bucket queue: a monotone {@link VertexQueue} for integer keys which
+ * never exceed the last polled key by more than the largest arc weight
+ * {@code C}.
+ *
+ * <p> The queue is a ring of {@code C + 1} buckets, each holding the
+ * vertices with one key as a doubly linked list in primitive arrays, so
+ * insertion and decrease-key are O(1) and polling scans at most {@code C}
+ * buckets. Suited to small integer weights, such as unweighted graphs
+ * ({@code C = 1}) or travel times in seconds.
+ *
+ * @author Adam Gouge
+ */
+final class DialQueue implements VertexQueue {
+
+    /**
+     * Marks the end of a list, or a vertex which is not in the queue.
+     */
+    private static final int NONE = -1;
+    /**
+     * First vertex of each bucket.
+     */
+    private final int[] heads;
+    /**
+     * Next vertex in the bucket of each vertex.
+     */
+    private final int[] next;
+    /**
+     * Previous vertex in the bucket of each vertex.
+     */
+    private final int[] previous;
+    /**
+     * Bucket of each vertex, or {@link #NONE} if it is not in the queue.
+     */
+    private final int[] buckets;
+    /**
+     * Key of the bucket at which the search for the smallest key starts,
+     * which is the last polled key.
+     */
+    private long cursor = 0;
+    /**
+     * Number of vertices in the queue.
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty queue.
+     *
+     * @param vertexCount The number of vertices.
+     * @param maxWeight   The largest arc weight.
+     */
+    DialQueue(int vertexCount, int maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException(
+                    "The largest weight must be non-negative.");
+        }
+        heads = new int[maxWeight + 1];
+        next = new int[vertexCount];
+        previous = new int[vertexCount];
+        buckets = new int[vertexCount];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(buckets, NONE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public double peekKey() {
+        if (size == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        long key = cursor;
+        while (heads[bucketOf(key)] == NONE) {
+            key++;
+        }
+        return key;
+    }
+
+    @Override
+    public void insertOrDecrease(int vertex, double key) {
+        if (buckets[vertex] != NONE) {
+            unlink(vertex);
+        } else {
+            size++;
+        }
+        final int bucket = bucketOf((long) key);
+        final int head = heads[bucket];
+        next[vertex] = head;
+        previous[vertex] = NONE;
+        if (head != NONE) {
+            previous[head] = vertex;
+        }
+        heads[bucket] = vertex;
+        buckets[vertex] = bucket;
+    }
+
+    @Override
+    public int poll() {
+        while (heads[bucketOf(cursor)] == NONE) {
+            cursor++;
+        }
+        final int vertex = heads[bucketOf(cursor)];
+        unlink(vertex);
+        buckets[vertex] = NONE;
+        size--;
+        return vertex;
+    }
+
+    @Override
+    public void clear() {
+        // The vertices left lie in the buckets following the cursor.
+        for (long key = cursor; size > 0; key++) {
+            final int bucket = bucketOf(key);
+            for (int v = heads[bucket]; v != NONE; v = next[v]) {
+                buckets[v] = NONE;
+                size--;
+            }
+            heads[bucket] = NONE;
+        }
+        cursor = 0;
+    }
+
+    /**
+     * Returns the bucket of the given key.
+     *
+     * @param key The key.
+     *
+     * @return The bucket.
+     */
+    private int bucketOf(long key) {
+        return (int) (key % heads.length);
+    }
+
+    /**
+     * Removes a vertex from its bucket.
+     *
+     * @param vertex The vertex.
+     */
+    private void unlink(int vertex) {
+        final int before = previous[vertex];
+        final int after = next[vertex];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            heads[buckets[vertex]] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A dense matrix of distances from sources (rows) to targets (columns),
+ * filled one row at a time.
+ *
+ * <p> Small matrices are held in a {@code double} array. Matrices larger than
+ * the memory limit are spilled to a temporary file, row by row, in
+ * little-endian byte order; the file is deleted by {@link #close()}.
+ *
+ * @author Adam Gouge
+ */
+public final class DistanceMatrix {
+
+    /**
+     * Default memory limit (64 MB).
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+    /**
+     * Byte order of the spill file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /**
+     * The number of rows.
+     */
+    private final int sourceCount;
+    /**
+     * The number of columns.
+     */
+    private final int targetCount;
+    /**
+     * The distances in row-major order, or {@code null} if spilled.
+     */
+    private final double[] distances;
+    /**
+     * The spill file, or {@code null}.
+     */
+    private final File spillFile;
+    /**
+     * The spill file, opened for reading and writing, or {@code null}.
+     */
+    private final RandomAccessFile spill;
+    /**
+     * Buffer holding one row of the spill file.
+     */
+    private final ByteBuffer rowBuffer;
+
+    /**
+     * Constructs a matrix.
+     *
+     * @param sourceCount The number of sources.
+     * @param targetCount The number of targets.
+     * @param spillFile   The spill file, or {@code null} to keep the
+     *                    distances in memory.
+     *
+     * @throws IOException If the spill file cannot be opened.
+     */
+    private DistanceMatrix(int sourceCount, int targetCount, File spillFile)
+            throws IOException {
+        this.sourceCount = sourceCount;
+        this.targetCount = targetCount;
+        this.spillFile = spillFile;
+        if (spillFile == null) {
+            distances = new double[sourceCount * targetCount];
+            spill = null;
+            rowBuffer = null;
+        } else {
+            distances = null;
+            spill = new RandomAccessFile(spillFile, "rw");
+            spill.setLength(8L * sourceCount * targetCount);
+            rowBuffer = ByteBuffer.allocateDirect(8 * targetCount).order(ORDER);
+        }
+    }
+
+    /**
+     * Creates a matrix of the given size, in memory if it fits in the given
+     * limit and spilled to a temporary file otherwise.
+     *
+     * @param sourceCount The number of sources.
+     * @param targetCount The number of targets.
+     * @param memoryLimit The largest size in bytes held in memory.
+     *
+     * @return The matrix.
+     *
+     * @throws IOException If the spill file cannot be created.
+     */
+    public static DistanceMatrix create(int sourceCount,
+                                        int targetCount,
+                                        long memoryLimit) throws IOException {
+        if (sourceCount < 0 || targetCount < 0) {
+            throw new IllegalArgumentException(
+                    "The matrix size must be non-negative.");
+        }
+        final long size = 8L * sourceCount * targetCount;
+        if (size <= memoryLimit && size / 8 <= Integer.MAX_VALUE) {
+            return new DistanceMatrix(sourceCount, targetCount, null);
+        }
+        final File file = File.createTempFile("distances", ".bin");
+        file.deleteOnExit();
+        return new DistanceMatrix(sourceCount, targetCount, file);
+    }
+
+    /**
+     * Returns the number of sources.
+     *
+     * @return The number of rows.
+     */
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    /**
+     * Returns the number of targets.
+     *
+     * @return The number of columns.
+     */
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * Returns {@code true} if the matrix was spilled to disk.
+     *
+     * @return {@code true} if the matrix is not held in memory.
+     */
+    public boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * Stores the distances from a source.
+     *
+     * @param source The row.
+     * @param row    The distance to every target.
+     *
+     * @throws IOException If the row cannot be spilled.
+     */
+    public void setRow(int source, double[] row) throws IOException {
+        checkRow(source, row);
+        if (distances != null) {
+            System.arraycopy(row, 0, distances, source * targetCount,
+                             targetCount);
+        } else {
+            rowBuffer.clear();
+            rowBuffer.asDoubleBuffer().put(row);
+            writeFully(spill.getChannel(), rowBuffer,
+                       8L * source * targetCount);
+        }
+    }
+
+    /**
+     * Copies the distances from a source into the given array.
+     *
+     * @param source The row.
+     * @param row    The array receiving the distance to every target.
+     *
+     * @throws IOException If the row cannot be read back.
+     */
+    public void getRow(int source, double[] row) throws IOException {
+        checkRow(source, row);
+        if (distances != null) {
+            System.arraycopy(distances, source * targetCount, row, 0,
+                             targetCount);
+        } else {
+            rowBuffer.clear();
+            final FileChannel channel = spill.getChannel();
+            long position = 8L * source * targetCount;
+            while (rowBuffer.hasRemaining()) {
+                final int read = channel.read(rowBuffer, position);
+                if (read < 0) {
+                    throw new IOException("Truncated spill file.");
+                }
+                position += read;
+            }
+            rowBuffer.flip();
+            rowBuffer.asDoubleBuffer().get(row);
+        }
+    }
+
+    /**
+     * Releases the spill file, if any.
+     *
+     * @throws IOException If the spill file cannot be closed.
+     */
+    public void close() throws IOException {
+        if (spill != null) {
+            try {
+                spill.close();
+            } finally {
+                spillFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer at the given position.
+     *
+     * @param channel  The channel.
+     * @param buffer   The buffer.
+     * @param position The position.
+     *
+     * @throws IOException
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer,
+                           long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Makes sure a row index and array are valid.
+     *
+     * @param source The row.
+     * @param row    The array.
+     */
+    private void checkRow(int source, double[] row) {
+        if (source < 0 || source >= sourceCount) {
+            throw new IllegalArgumentException(
+                    "Row " + source + " is not in the matrix.");
+        }
+        if (row.length != targetCount) {
+            throw new IllegalArgumentException(
+                    "A row must have " + targetCount + " distances.");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes {@link DistanceMatrix}es in a compact binary file.
+ *
+ * <p> The file starts with a 16-byte header (magic number, format version,
+ * source count <i>s</i> and target count <i>t</i>), followed by the sections
+ * <ol> <li> distances in row-major order ({@code double[s * t]}) <li> source
+ * node ids ({@code int[s]}) <li> target node ids ({@code int[t]}) </ol> all
+ * in little-endian byte order. Unreachable targets have an infinite
+ * distance. The distances come first so that they are naturally aligned.
+ *
+ * @author Adam Gouge
+ */
+public final class DistanceMatrixFile {
+
+    /**
+     * Magic number at the start of every distance matrix file ("GTDM").
+     */
+    public static final int MAGIC = 0x4754444D;
+    /**
+     * Current version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 16;
+    /**
+     * Byte order of the file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private DistanceMatrixFile() {
+    }
+
+    /**
+     * Writes the given matrix to the given file, replacing its contents.
+     *
+     * @param matrix    The matrix.
+     * @param sourceIds The node id of each source.
+     * @param targetIds The node id of each target.
+     * @param file      The file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(DistanceMatrix matrix,
+                             int[] sourceIds,
+                             int[] targetIds,
+                             File file) throws IOException {
+        final int s = matrix.getSourceCount();
+        final int t = matrix.getTargetCount();
+        if (sourceIds.length != s || targetIds.length != t) {
+            throw new IllegalArgumentException(
+                    "There must be an id for every source and target.");
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            raf.setLength(0);
+
+            final ByteBuffer header =
+                    ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(s).putInt(t);
+            header.flip();
+            DistanceMatrix.writeFully(channel, header, 0);
+
+            long offset = HEADER_SIZE;
+            final double[] row = new double[t];
+            final ByteBuffer rowBuffer = ByteBuffer.allocate(8 * t).order(ORDER);
+            for (int i = 0; i < s; i++) {
+                matrix.getRow(i, row);
+                rowBuffer.clear();
+                rowBuffer.asDoubleBuffer().put(row);
+                DistanceMatrix.writeFully(channel, rowBuffer, offset);
+                offset += 8L * t;
+            }
+            offset = writeInts(channel, offset, sourceIds);
+            writeInts(channel, offset, targetIds);
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the given ints at the given offset.
+     *
+     * @param channel The file channel.
+     * @param offset  The offset.
+     * @param ints    The ints to write.
+     *
+     * @return The offset just past the written ints.
+     *
+     * @throws IOException
+     */
+    private static long writeInts(FileChannel channel,
+                                  long offset,
+                                  int[] ints) throws IOException {
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(4 * ints.length).order(ORDER);
+        buffer.asIntBuffer().put(ints);
+        DistanceMatrix.writeFully(channel, buffer, offset);
+        return offset + 4L * ints.length;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints.
+ *
+ * @author Adam Gouge
+ */
+final class IntList {
+
+    /**
+     * The elements.
+     */
+    private int[] elements;
+    /**
+     * The number of elements.
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty list.
+     *
+     * @param capacity The initial capacity.
+     */
+    IntList(int capacity) {
+        elements = new int[Math.max(capacity, 2)];
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return The number of elements.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if the list is empty.
+     *
+     * @return {@code true} if the list is empty.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the element at the given position.
+     *
+     * @param index The position.
+     *
+     * @return The element.
+     */
+    int get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Appends an element.
+     *
+     * @param element The element.
+     */
+    void add(int element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, 2 * size);
+        }
+        elements[size++] = element;
+    }
+
+    /**
+     * Removes and returns the last element.
+     *
+     * @return The last element.
+     */
+    int removeLast() {
+        return elements[--size];
+    }
+
+    /**
+     * Removes an occurrence of the given element, replacing it by the last
+     * element.
+     *
+     * @param element The element.
+     *
+     * @return {@code true} if the element was found.
+     */
+    boolean removeValue(int element) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == element) {
+                elements[i] = elements[--size];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all elements.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the elements.
+     *
+     * @return The elements.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
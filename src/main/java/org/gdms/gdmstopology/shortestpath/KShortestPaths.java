@@ -0,0 +1,533 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Finds the k shortest loopless paths between two vertices of a
+ * {@link CSRGraph} with Yen's algorithm.
+ *
+ * <p> A single reverse Dijkstra search from the target computes the shortest
+ * path tree towards it, which is shared by all the spur searches of a query
+ * (and by later queries to the same target):
+ * <ul>
+ * <li> its distances are exact lower bounds of the remaining distance, so the
+ * spur searches are A* searches which never queue vertices unable to reach
+ * the target;
+ * <li> a spur search stops as soon as the tree path from the vertex it
+ * settles avoids the removed vertices and arcs, since that completion is
+ * then a shortest one.
+ * </ul>
+ * As in Lawler's variant, a path is only deviated from at or after the
+ * position where it deviated from its parent. Paths are sequences of arcs, so
+ * parallel edges give distinct paths. Arc weights must be non-negative.
+ *
+ * @author Adam Gouge
+ */
+public final class KShortestPaths {
+
+    /**
+     * Orders paths by length, then by number of arcs, then by arcs.
+     */
+    private static final Comparator<Candidate> PATH_ORDER =
+            new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate a, Candidate b) {
+                    final int byLength = Double.compare(
+                            a.path.getLength(), b.path.getLength());
+                    if (byLength != 0) {
+                        return byLength;
+                    }
+                    if (a.arcs.length != b.arcs.length) {
+                        return a.arcs.length < b.arcs.length ? -1 : 1;
+                    }
+                    for (int i = 0; i < a.arcs.length; i++) {
+                        if (a.arcs[i] != b.arcs[i]) {
+                            return a.arcs[i] < b.arcs[i] ? -1 : 1;
+                        }
+                    }
+                    return 0;
+                }
+            };
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * Distance from each vertex to the target of the tree.
+     */
+    private final double[] toTarget;
+    /**
+     * Arc leaving each vertex on its shortest path to the target of the tree,
+     * or -1.
+     */
+    private final int[] treeArcs;
+    /**
+     * Target of the shortest path tree, or -1.
+     */
+    private int treeTarget = -1;
+    /**
+     * Tentative distances of the spur search from the spur vertex.
+     */
+    private final double[] distances;
+    /**
+     * Arc by which each vertex was reached by the spur search.
+     */
+    private final int[] arcs;
+    /**
+     * Spur search in which each vertex was last reached.
+     */
+    private final int[] queries;
+    /**
+     * Deviation in which each vertex was last removed.
+     */
+    private final int[] removedVertices;
+    /**
+     * Deviation in which each arc was last removed.
+     */
+    private final int[] removedArcs;
+    /**
+     * Stamps of the vertices of the spur path being checked for a tree
+     * completion.
+     */
+    private final int[] marks;
+    /**
+     * Queue of the tree and spur searches.
+     */
+    private final BinaryHeap queue;
+    /**
+     * Current spur search number.
+     */
+    private int query = 0;
+    /**
+     * Current deviation number.
+     */
+    private int deviation = 0;
+    /**
+     * Current mark number.
+     */
+    private int mark = 0;
+    /**
+     * Number of vertices settled by the spur searches of the last query.
+     */
+    private int settledCount = 0;
+
+    /**
+     * Constructs a k shortest paths search on the given graph.
+     *
+     * @param graph The graph.
+     */
+    public KShortestPaths(CSRGraph graph) {
+        this.graph = graph;
+        final int n = graph.getVertexCount();
+        toTarget = new double[n];
+        treeArcs = new int[n];
+        distances = new double[n];
+        arcs = new int[n];
+        queries = new int[n];
+        removedVertices = new int[n];
+        removedArcs = new int[graph.getArcCount()];
+        marks = new int[n];
+        queue = new BinaryHeap(n);
+    }
+
+    /**
+     * Returns the k shortest loopless paths from the source to the target,
+     * shortest first.
+     *
+     * @param source The source.
+     * @param target The target.
+     * @param k      The number of paths.
+     *
+     * @return At most k paths; fewer if there are no more loopless paths, and
+     *         none if the target cannot be reached.
+     */
+    public List<ArcPath> compute(int source, int target, int k) {
+        checkVertex(source);
+        checkVertex(target);
+        if (k < 1) {
+            throw new IllegalArgumentException(
+                    "The number of paths must be positive.");
+        }
+        if (target != treeTarget) {
+            buildTree(target);
+        }
+        settledCount = 0;
+        final List<ArcPath> paths = new ArrayList<ArcPath>();
+        if (Double.isInfinite(toTarget[source])) {
+            return paths;
+        }
+        final List<Candidate> accepted = new ArrayList<Candidate>();
+        final PriorityQueue<Candidate> candidates =
+                new PriorityQueue<Candidate>(11, PATH_ORDER);
+        final Set<Candidate> seen = new HashSet<Candidate>();
+        Candidate last = new Candidate(treePath(source, target, new int[0]), 0);
+        seen.add(last);
+        while (true) {
+            accepted.add(last);
+            paths.add(last.path);
+            if (paths.size() == k) {
+                break;
+            }
+            deviate(last, accepted, candidates, seen, target);
+            last = candidates.poll();
+            if (last == null) {
+                break;
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the number of vertices settled by the spur searches of the last
+     * query.
+     *
+     * @return The number of settled vertices.
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Adds the deviations of the last accepted path to the candidates.
+     *
+     * @param last       The last accepted path.
+     * @param accepted   The accepted paths.
+     * @param candidates The candidate paths.
+     * @param seen       The accepted and candidate paths.
+     * @param target     The target.
+     */
+    private void deviate(Candidate last,
+                         List<Candidate> accepted,
+                         PriorityQueue<Candidate> candidates,
+                         Set<Candidate> seen,
+                         int target) {
+        final int[] lastArcs = last.arcs;
+        for (int i = last.deviation; i < lastArcs.length; i++) {
+            final int spur = graph.getArcSource(lastArcs[i]);
+            deviation++;
+            // Remove the root path, except the spur vertex, to keep the
+            // paths loopless...
+            for (int j = 0; j < i; j++) {
+                removedVertices[graph.getArcSource(lastArcs[j])] = deviation;
+            }
+            // ... and the arcs by which accepted paths with the same root
+            // leave the spur vertex.
+            for (Candidate path : accepted) {
+                if (path.arcs.length > i && sharesRoot(path.arcs, lastArcs, i)) {
+                    removedArcs[path.arcs[i]] = deviation;
+                }
+            }
+            final int[] root = Arrays.copyOf(lastArcs, i);
+            final ArcPath path = spurSearch(spur, target, root);
+            if (path != null) {
+                final Candidate candidate = new Candidate(path, i);
+                if (seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the shortest path from the spur vertex to the target avoiding
+     * the removed vertices and arcs, and prepends the root path to it.
+     *
+     * @param spur   The spur vertex.
+     * @param target The target.
+     * @param root   The arcs of the root path.
+     *
+     * @return The whole path, or {@code null} if there is none.
+     */
+    private ArcPath spurSearch(int spur, int target, int[] root) {
+        query++;
+        queue.clear();
+        reach(spur, 0.0, -1);
+        while (!queue.isEmpty()) {
+            final int u = queue.poll();
+            settledCount++;
+            if (u == target || followsTree(u, spur, target)) {
+                final int[] prefix = concat(root, recoverArcs(u, spur));
+                return u == target
+                        ? toPath(prefix)
+                        : treePath(u, target, prefix);
+            }
+            final double du = distances[u];
+            for (int arc = graph.outArcsBegin(u); arc < graph.outArcsEnd(u);
+                    arc++) {
+                if (removedArcs[arc] == deviation) {
+                    continue;
+                }
+                final int w = graph.getArcTarget(arc);
+                if (removedVertices[w] == deviation
+                    || Double.isInfinite(toTarget[w])) {
+                    continue;
+                }
+                final double d = du + graph.getArcWeight(arc);
+                if (queries[w] != query || d < distances[w]) {
+                    reach(w, d, arc);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if the tree path from the given settled vertex to
+     * the target avoids the removed vertices and arcs and the vertices of the
+     * spur path to the vertex.
+     *
+     * @param vertex The settled vertex.
+     * @param spur   The spur vertex.
+     * @param target The target.
+     *
+     * @return {@code true} if the spur path can follow the tree.
+     */
+    private boolean followsTree(int vertex, int spur, int target) {
+        mark++;
+        for (int v = vertex; v != spur; v = graph.getArcSource(arcs[v])) {
+            marks[v] = mark;
+        }
+        marks[spur] = mark;
+        for (int v = vertex; v != target;) {
+            final int arc = treeArcs[v];
+            if (removedArcs[arc] == deviation) {
+                return false;
+            }
+            v = graph.getArcTarget(arc);
+            if (removedVertices[v] == deviation || marks[v] == mark) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that the spur search reached a vertex.
+     *
+     * @param vertex   The vertex.
+     * @param distance Its tentative distance from the spur vertex.
+     * @param arc      The arc it was reached by, or -1.
+     */
+    private void reach(int vertex, double distance, int arc) {
+        queries[vertex] = query;
+        distances[vertex] = distance;
+        arcs[vertex] = arc;
+        queue.insertOrDecrease(vertex, distance + toTarget[vertex]);
+    }
+
+    /**
+     * Computes the shortest path tree towards the given target by a Dijkstra
+     * search on the incoming arcs.
+     *
+     * @param target The target.
+     */
+    private void buildTree(int target) {
+        Arrays.fill(toTarget, Double.POSITIVE_INFINITY);
+        Arrays.fill(treeArcs, -1);
+        queue.clear();
+        toTarget[target] = 0.0;
+        queue.insertOrDecrease(target, 0.0);
+        while (!queue.isEmpty()) {
+            final int v = queue.poll();
+            final double dv = toTarget[v];
+            for (int i = graph.inArcsBegin(v); i < graph.inArcsEnd(v); i++) {
+                final int arc = graph.getInArc(i);
+                final int u = graph.getArcSource(arc);
+                final double d = dv + graph.getArcWeight(arc);
+                if (d < toTarget[u]) {
+                    toTarget[u] = d;
+                    treeArcs[u] = arc;
+                    queue.insertOrDecrease(u, d);
+                }
+            }
+        }
+        treeTarget = target;
+    }
+
+    /**
+     * Appends the tree path from the given vertex to the target to the given
+     * arcs.
+     *
+     * @param vertex The vertex.
+     * @param target The target.
+     * @param prefix The arcs leading to the vertex.
+     *
+     * @return The whole path.
+     */
+    private ArcPath treePath(int vertex, int target, int[] prefix) {
+        int length = 0;
+        for (int v = vertex; v != target; v = graph.getArcTarget(treeArcs[v])) {
+            length++;
+        }
+        final int[] path = Arrays.copyOf(prefix, prefix.length + length);
+        int position = prefix.length;
+        for (int v = vertex; v != target; v = graph.getArcTarget(treeArcs[v])) {
+            path[position++] = treeArcs[v];
+        }
+        return toPath(path);
+    }
+
+    /**
+     * Recovers the arcs of the spur search from the spur vertex to the given
+     * vertex.
+     *
+     * @param vertex The vertex.
+     * @param spur   The spur vertex.
+     *
+     * @return The arcs from the spur vertex to the vertex.
+     */
+    private int[] recoverArcs(int vertex, int spur) {
+        int length = 0;
+        for (int v = vertex; v != spur; v = graph.getArcSource(arcs[v])) {
+            length++;
+        }
+        final int[] path = new int[length];
+        for (int v = vertex; v != spur; v = graph.getArcSource(arcs[v])) {
+            path[--length] = arcs[v];
+        }
+        return path;
+    }
+
+    /**
+     * Returns the path made of the given arcs, whose length is summed from the
+     * source so that equal paths have equal lengths.
+     *
+     * @param path The arcs.
+     *
+     * @return The path.
+     */
+    private ArcPath toPath(int[] path) {
+        double length = 0.0;
+        for (int arc : path) {
+            length += graph.getArcWeight(arc);
+        }
+        return new ArcPath(path, length);
+    }
+
+    /**
+     * Makes sure the given dense index is a vertex of the graph.
+     *
+     * @param vertex The dense index.
+     */
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= graph.getVertexCount()) {
+            throw new IllegalArgumentException(
+                    "Vertex index " + vertex + " is not in the graph.");
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given paths have the same first arcs.
+     *
+     * @param a      A path.
+     * @param b      Another path.
+     * @param length The number of arcs to compare.
+     *
+     * @return {@code true} if the paths have the same first arcs.
+     */
+    private static boolean sharesRoot(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the concatenation of two arrays.
+     *
+     * @param a The first array.
+     * @param b The second array.
+     *
+     * @return The concatenation.
+     */
+    private static int[] concat(int[] a, int[] b) {
+        final int[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    /**
+     * A path together with the position at which it deviates from its
+     * parent. Candidates are equal if their arcs are.
+     */
+    private static final class Candidate {
+
+        /**
+         * The path.
+         */
+        private final ArcPath path;
+        /**
+         * The arcs of the path.
+         */
+        private final int[] arcs;
+        /**
+         * The position of the first arc not shared with the parent.
+         */
+        private final int deviation;
+
+        /**
+         * Constructs a candidate.
+         *
+         * @param path      The path.
+         * @param deviation The position of the first arc not shared with the
+         *                  parent.
+         */
+        private Candidate(ArcPath path, int deviation) {
+            this.path = path;
+            this.arcs = path.getArcs();
+            this.deviation = deviation;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Candidate
+                   && Arrays.equals(arcs, ((Candidate) obj).arcs);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arcs);
+        }
+    }
+}
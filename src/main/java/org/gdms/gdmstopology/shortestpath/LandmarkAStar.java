@@ -0,0 +1,71 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+/**
+ * Point-to-point shortest paths by A* search guided by the triangle
+ * inequality bounds of {@link Landmarks} (ALT).
+ *
+ * <p> The bounds are consistent up to the rounding of the stored distances,
+ * and vertices which the landmarks prove unable to reach the target are
+ * pruned.
+ *
+ * @author Adam Gouge
+ */
+public class LandmarkAStar extends AbstractAStar {
+
+    /**
+     * The landmark tables.
+     */
+    private final Landmarks landmarks;
+
+    /**
+     * Constructs an ALT search on the graph of the given landmark tables.
+     *
+     * @param landmarks The landmark tables.
+     */
+    public LandmarkAStar(Landmarks landmarks) {
+        super(landmarks.getGraph());
+        this.landmarks = landmarks;
+    }
+
+    @Override
+    protected boolean isGuided(int target) {
+        return landmarks.getLandmarkCount() > 0;
+    }
+
+    @Override
+    protected double heuristic(int vertex, int target) {
+        return landmarks.lowerBound(vertex, target);
+    }
+}
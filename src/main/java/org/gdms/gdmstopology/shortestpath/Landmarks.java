@@ -0,0 +1,600 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Landmark distance tables of a {@link CSRGraph}, giving lower bounds of
+ * distances by the triangle inequality for {@link LandmarkAStar} (ALT)
+ * searches.
+ *
+ * <p> For every landmark <i>L</i> and vertex <i>v</i>, the distances
+ * <i>d(L, v)</i> and <i>d(v, L)</i> are stored as floats, vertex by vertex.
+ * The distance from <i>v</i> to <i>t</i> is then at least
+ * <i>d(L, t) - d(L, v)</i> and <i>d(v, L) - d(t, L)</i>; the bounds are
+ * lowered by the rounding error of the floats so that they stay admissible.
+ * Unlike straight-line distances, the bounds work as well for travel times
+ * or costs as for lengths.
+ *
+ * <p> The first landmark is the vertex farthest from vertex 0. With
+ * {@link #FARTHEST} selection, every other one is the vertex farthest from
+ * the landmarks already chosen, vertices unreachable from them first. With
+ * {@link #AVOID} selection (the default), every other one is a leaf of a
+ * shortest path tree grown from a random root, reached through the subtree
+ * whose distances the landmarks already chosen bound the worst, so that the
+ * new landmark covers the regions they miss.
+ *
+ * <p> The tables hold <i>k * n</i> floats each, which must fit in an array.
+ *
+ * @author Adam Gouge
+ */
+public final class Landmarks {
+
+    /**
+     * Chooses every landmark farthest from the ones already chosen.
+     */
+    public static final int FARTHEST = 1;
+    /**
+     * Chooses every landmark in the region the ones already chosen bound
+     * worst.
+     */
+    public static final int AVOID = 2;
+    /**
+     * Seed of the random roots of {@link #AVOID} selection, so that the same
+     * graph always gets the same landmarks.
+     */
+    private static final long SEED = 0x4754L;
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * The landmarks.
+     */
+    private final int[] landmarks;
+    /**
+     * Distance from each landmark to each vertex, at
+     * {@code vertex * k + landmark}.
+     */
+    private final float[] fromLandmarks;
+    /**
+     * Distance from each vertex to each landmark, at
+     * {@code vertex * k + landmark}.
+     */
+    private final float[] toLandmarks;
+
+    /**
+     * Constructs the landmark tables of a graph.
+     *
+     * @param graph         The graph.
+     * @param landmarks     The landmarks.
+     * @param fromLandmarks Distance from each landmark to each vertex.
+     * @param toLandmarks   Distance from each vertex to each landmark.
+     */
+    Landmarks(CSRGraph graph,
+              int[] landmarks,
+              float[] fromLandmarks,
+              float[] toLandmarks) {
+        final long size = (long) landmarks.length * graph.getVertexCount();
+        if (fromLandmarks.length != size || toLandmarks.length != size) {
+            throw new IllegalArgumentException(
+                    "There must be a distance for every landmark and vertex.");
+        }
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmarks = fromLandmarks;
+        this.toLandmarks = toLandmarks;
+    }
+
+    /**
+     * Chooses landmarks on the given graph by {@link #AVOID} selection and
+     * computes their distance tables.
+     *
+     * @param graph The graph, with non-negative weights.
+     * @param count The number of landmarks; fewer are chosen if the graph has
+     *              fewer vertices.
+     *
+     * @return The landmark tables.
+     */
+    public static Landmarks build(CSRGraph graph, int count) {
+        return build(graph, count, AVOID);
+    }
+
+    /**
+     * Chooses landmarks on the given graph and computes their distance
+     * tables.
+     *
+     * @param graph     The graph, with non-negative weights.
+     * @param count     The number of landmarks; fewer are chosen if the graph
+     *                  has fewer vertices.
+     * @param selection {@link #FARTHEST} or {@link #AVOID}.
+     *
+     * @return The landmark tables.
+     */
+    public static Landmarks build(CSRGraph graph, int count, int selection) {
+        if (count < 1) {
+            throw new IllegalArgumentException(
+                    "There must be at least one landmark.");
+        }
+        if (selection != FARTHEST && selection != AVOID) {
+            throw new IllegalArgumentException(
+                    "Unknown landmark selection " + selection + ".");
+        }
+        final int n = graph.getVertexCount();
+        final int k = Math.min(count, n);
+        final int size = tableSize(k, n);
+        final int[] landmarks = new int[k];
+        final float[] fromLandmarks = new float[size];
+        final float[] toLandmarks = new float[size];
+        if (k == 0) {
+            return new Landmarks(graph, landmarks, fromLandmarks, toLandmarks);
+        }
+        final OneToAll search = new OneToAll(graph);
+        final Random random = new Random(SEED);
+        // Distance from the closest landmark chosen so far.
+        final double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        double[] distances = search.compute(0, true);
+        for (int i = 0; i < k; i++) {
+            int landmark = -1;
+            if (i == 0) {
+                landmark = farthest(distances, landmarks, 0);
+            } else if (selection == AVOID) {
+                landmark = avoid(search, random.nextInt(n), landmarks, i,
+                                 fromLandmarks, toLandmarks, k);
+            }
+            if (landmark == -1) {
+                landmark = farthest(closest, landmarks, i);
+            }
+            landmarks[i] = landmark;
+            distances = search.compute(landmark, true);
+            for (int v = 0; v < n; v++) {
+                fromLandmarks[v * k + i] = (float) distances[v];
+                closest[v] = Math.min(closest[v], distances[v]);
+            }
+            distances = search.compute(landmark, false);
+            for (int v = 0; v < n; v++) {
+                toLandmarks[v * k + i] = (float) distances[v];
+            }
+        }
+        return new Landmarks(graph, landmarks, fromLandmarks, toLandmarks);
+    }
+
+    /**
+     * Returns the length of the tables of the given number of landmarks on a
+     * graph with the given number of vertices.
+     *
+     * @param k The number of landmarks.
+     * @param n The number of vertices.
+     *
+     * @return The table length.
+     *
+     * @throws IllegalArgumentException If the tables do not fit in an array.
+     */
+    static int tableSize(int k, int n) {
+        final long size = (long) k * n;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "The tables of " + k + " landmarks on " + n
+                    + " nodes do not fit in memory; use fewer landmarks.");
+        }
+        return (int) size;
+    }
+
+    /**
+     * Returns the graph.
+     *
+     * @return The graph.
+     */
+    public CSRGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return The number of landmarks.
+     */
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Returns the estimated memory used by the landmark tables, their graph
+     * excluded.
+     *
+     * @return The estimated memory usage in bytes.
+     */
+    public long getMemoryUsage() {
+        return 4L * landmarks.length
+               + 4L * fromLandmarks.length + 4L * toLandmarks.length;
+    }
+
+    /**
+     * Returns a landmark.
+     *
+     * @param i The index of the landmark.
+     *
+     * @return The dense index of the landmark vertex.
+     */
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    /**
+     * Returns the stored distance from a landmark to a vertex.
+     *
+     * @param i      The index of the landmark.
+     * @param vertex The vertex.
+     *
+     * @return The distance, infinite if the vertex cannot be reached.
+     */
+    public float getDistanceFrom(int i, int vertex) {
+        return fromLandmarks[vertex * landmarks.length + i];
+    }
+
+    /**
+     * Returns the stored distance from a vertex to a landmark.
+     *
+     * @param i      The index of the landmark.
+     * @param vertex The vertex.
+     *
+     * @return The distance, infinite if the landmark cannot be reached.
+     */
+    public float getDistanceTo(int i, int vertex) {
+        return toLandmarks[vertex * landmarks.length + i];
+    }
+
+    /**
+     * Returns a lower bound of the distance from a vertex to a target.
+     *
+     * @param vertex The vertex.
+     * @param target The target.
+     *
+     * @return The lower bound, infinite if the vertex cannot reach the target.
+     */
+    public double lowerBound(int vertex, int target) {
+        return lowerBound(fromLandmarks, toLandmarks, landmarks.length,
+                          landmarks.length, vertex, target);
+    }
+
+    /**
+     * Returns a lower bound of the distance from a vertex to a target given
+     * by the first landmarks of the tables.
+     *
+     * @param fromLandmarks Distance from each landmark to each vertex.
+     * @param toLandmarks   Distance from each vertex to each landmark.
+     * @param k             The number of landmarks of the tables.
+     * @param count         The number of landmarks to use.
+     * @param vertex        The vertex.
+     * @param target        The target.
+     *
+     * @return The lower bound, infinite if the vertex cannot reach the target.
+     */
+    private static double lowerBound(float[] fromLandmarks,
+                                     float[] toLandmarks,
+                                     int k, int count,
+                                     int vertex, int target) {
+        // The table size check keeps these indices within int range.
+        final int v = vertex * k;
+        final int t = target * k;
+        double bound = 0.0;
+        for (int i = 0; i < count; i++) {
+            // d(v, t) >= d(L, t) - d(L, v), and d(v, t) >= d(v, L) - d(t, L).
+            // NaN bounds (both distances infinite) fail the comparisons.
+            final double forward = difference(fromLandmarks[t + i],
+                                              fromLandmarks[v + i]);
+            if (forward > bound) {
+                bound = forward;
+            }
+            final double backward = difference(toLandmarks[v + i],
+                                               toLandmarks[t + i]);
+            if (backward > bound) {
+                bound = backward;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Returns the float array of distances from the landmarks, for
+     * {@link LandmarksFile}.
+     *
+     * @return The distances from the landmarks.
+     */
+    float[] fromLandmarks() {
+        return fromLandmarks;
+    }
+
+    /**
+     * Returns the float array of distances to the landmarks, for
+     * {@link LandmarksFile}.
+     *
+     * @return The distances to the landmarks.
+     */
+    float[] toLandmarks() {
+        return toLandmarks;
+    }
+
+    /**
+     * Returns a lower bound of {@code a - b} where {@code a} and {@code b}
+     * are rounded distances.
+     *
+     * @param a The first distance.
+     * @param b The second distance.
+     *
+     * @return The lower bound, possibly infinite or NaN.
+     */
+    private static double difference(float a, float b) {
+        final double difference = (double) a - b;
+        if (Double.isInfinite(difference)) {
+            return difference;
+        }
+        // Each float is within half an ulp of the exact distance.
+        return difference - Math.ulp(a) - Math.ulp(b);
+    }
+
+    /**
+     * Chooses a landmark by avoid selection: grows a shortest path tree from
+     * the root, weighs every vertex by how much its distance from the root
+     * exceeds the bound given by the landmarks already chosen, and returns
+     * the leaf reached from the heaviest subtree free of landmarks by always
+     * following the heaviest child.
+     *
+     * @param search        The one-to-all search.
+     * @param root          The root of the tree.
+     * @param landmarks     The landmarks.
+     * @param count         The number of landmarks already chosen.
+     * @param fromLandmarks Distance from each landmark to each vertex.
+     * @param toLandmarks   Distance from each vertex to each landmark.
+     * @param k             The number of landmarks of the tables.
+     *
+     * @return The new landmark, or -1 if every subtree holds a landmark or
+     *         is bound exactly.
+     */
+    private static int avoid(OneToAll search, int root, int[] landmarks,
+                             int count, float[] fromLandmarks,
+                             float[] toLandmarks, int k) {
+        final double[] distances = search.compute(root, true);
+        final int[] parents = search.parents;
+        final int[] order = search.order;
+        final int reached = search.reached;
+        final int n = distances.length;
+        final double[] sizes = new double[n];
+        final boolean[] covered = new boolean[n];
+        for (int i = 0; i < count; i++) {
+            covered[landmarks[i]] = true;
+        }
+        // Children are settled after their parent, so walking the settling
+        // order backwards completes every subtree before its root.
+        for (int j = reached - 1; j >= 0; j--) {
+            final int v = order[j];
+            final double bound = lowerBound(fromLandmarks, toLandmarks, k,
+                                            count, root, v);
+            sizes[v] += Math.max(0.0, distances[v] - bound);
+            final int parent = parents[v];
+            if (parent != -1) {
+                if (covered[v]) {
+                    covered[parent] = true;
+                } else {
+                    sizes[parent] += sizes[v];
+                }
+            }
+        }
+        int heaviest = -1;
+        for (int j = 0; j < reached; j++) {
+            final int v = order[j];
+            if (!covered[v] && sizes[v] > 0.0
+                && (heaviest == -1 || sizes[v] > sizes[heaviest])) {
+                heaviest = v;
+            }
+        }
+        if (heaviest == -1) {
+            return -1;
+        }
+        // Index the children of every vertex.
+        final int[] childStart = new int[n + 1];
+        for (int j = 0; j < reached; j++) {
+            final int parent = parents[order[j]];
+            if (parent != -1) {
+                childStart[parent + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        final int[] children = new int[childStart[n]];
+        final int[] next = Arrays.copyOf(childStart, n);
+        for (int j = 0; j < reached; j++) {
+            final int v = order[j];
+            final int parent = parents[v];
+            if (parent != -1) {
+                children[next[parent]++] = v;
+            }
+        }
+        // No child of an uncovered vertex is covered.
+        int leaf = heaviest;
+        while (childStart[leaf] < childStart[leaf + 1]) {
+            int child = children[childStart[leaf]];
+            for (int c = childStart[leaf] + 1; c < childStart[leaf + 1]; c++) {
+                if (sizes[children[c]] > sizes[child]) {
+                    child = children[c];
+                }
+            }
+            leaf = child;
+        }
+        return leaf;
+    }
+
+    /**
+     * Returns the vertex with the largest distance, preferring unreachable
+     * vertices.
+     *
+     * @param distances     The distances.
+     * @param excluded      Vertices that may not be chosen.
+     * @param excludedCount The number of excluded vertices.
+     *
+     * @return The farthest vertex.
+     */
+    private static int farthest(double[] distances, int[] excluded,
+                                int excludedCount) {
+        int farthest = -1;
+        for (int v = 0; v < distances.length; v++) {
+            if (contains(excluded, excludedCount, v)) {
+                continue;
+            }
+            if (farthest == -1 || distances[v] > distances[farthest]) {
+                farthest = v;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Returns {@code true} if the first elements of an array contain a value.
+     *
+     * @param array The array.
+     * @param count The number of elements to look at.
+     * @param value The value.
+     *
+     * @return {@code true} if the value was found.
+     */
+    private static boolean contains(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One-to-all Dijkstra searches, forwards or backwards, reusing their
+     * state.
+     */
+    private static final class OneToAll {
+
+        /**
+         * The graph.
+         */
+        private final CSRGraph graph;
+        /**
+         * The queue.
+         */
+        private final VertexQueue queue;
+        /**
+         * Parent of each vertex in the tree of the last forward search, -1
+         * for its source and unreached vertices.
+         */
+        final int[] parents;
+        /**
+         * Vertices in the order the last search settled them.
+         */
+        final int[] order;
+        /**
+         * The number of vertices the last search settled.
+         */
+        int reached;
+
+        /**
+         * Prepares searches on the given graph.
+         *
+         * @param graph The graph.
+         */
+        OneToAll(CSRGraph graph) {
+            this.graph = graph;
+            this.queue = VertexQueues.create(graph);
+            this.parents = new int[graph.getVertexCount()];
+            this.order = new int[graph.getVertexCount()];
+        }
+
+        /**
+         * Computes the distances from (or to) a vertex.
+         *
+         * @param source  The vertex.
+         * @param forward {@code true} for distances from the vertex,
+         *                {@code false} for distances to it.
+         *
+         * @return The distances, infinite for unreachable vertices.
+         */
+        double[] compute(int source, boolean forward) {
+            final double[] distances = new double[graph.getVertexCount()];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            distances[source] = 0.0;
+            Arrays.fill(parents, -1);
+            reached = 0;
+            queue.clear();
+            queue.insertOrDecrease(source, 0.0);
+            while (!queue.isEmpty()) {
+                final int u = queue.poll();
+                order[reached++] = u;
+                final double du = distances[u];
+                if (forward) {
+                    for (int arc = graph.outArcsBegin(u);
+                            arc < graph.outArcsEnd(u); arc++) {
+                        relax(u, graph.getArcTarget(arc),
+                              du + graph.getArcWeight(arc), distances);
+                    }
+                } else {
+                    for (int i = graph.inArcsBegin(u);
+                            i < graph.inArcsEnd(u); i++) {
+                        final int arc = graph.getInArc(i);
+                        relax(u, graph.getArcSource(arc),
+                              du + graph.getArcWeight(arc), distances);
+                    }
+                }
+            }
+            return distances;
+        }
+
+        /**
+         * Lowers the distance of a vertex if the given one is shorter.
+         *
+         * @param parent    The vertex the new distance goes through.
+         * @param vertex    The vertex.
+         * @param distance  The new distance.
+         * @param distances The distances.
+         */
+        private void relax(int parent, int vertex, double distance,
+                           double[] distances) {
+            if (distance < distances[vertex]) {
+                distances[vertex] = distance;
+                parents[vertex] = parent;
+                queue.insertOrDecrease(vertex, distance);
+            }
+        }
+    }
+}
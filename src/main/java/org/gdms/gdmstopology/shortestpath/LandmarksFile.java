@@ -0,0 +1,236 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Reads and writes {@link Landmarks} in a binary file, so that the tables
+ * can be kept next to the edges table and reused across sessions.
+ *
+ * <p> The file starts with a 24-byte header (magic number, format version,
+ * vertex count <i>n</i>, graph arc count <i>m</i>, landmark count <i>k</i>
+ * and a fingerprint of the graph), followed by the sections
+ * <ol> <li> landmarks ({@code int[k]}) <li> distances from the landmarks
+ * ({@code float[n * k]}) <li> distances to the landmarks
+ * ({@code float[n * k]}) </ol> all in little-endian byte order. The tables
+ * only refer to the graph by dense vertex indices, so
+ * {@link #read(File, CSRGraph)} checks the graph against the header before
+ * accepting the file.
+ *
+ * @author Adam Gouge
+ */
+public final class LandmarksFile {
+
+    /**
+     * Magic number at the start of every landmarks file ("GTLM").
+     */
+    public static final int MAGIC = 0x47544C4D;
+    /**
+     * Current version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 24;
+    /**
+     * Byte order of the file.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private LandmarksFile() {
+    }
+
+    /**
+     * Writes the given landmark tables to the given file, replacing its
+     * contents.
+     *
+     * @param landmarks The landmark tables.
+     * @param file      The file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Landmarks landmarks, File file)
+            throws IOException {
+        final CSRGraph graph = landmarks.getGraph();
+        final int n = graph.getVertexCount();
+        final int k = landmarks.getLandmarkCount();
+        final int[] vertices = new int[k];
+        for (int i = 0; i < k; i++) {
+            vertices[i] = landmarks.getLandmark(i);
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            raf.setLength(0);
+            raf.setLength(fileSize(n, k));
+
+            mapSection(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(n)
+                    .putInt(graph.getArcCount()).putInt(k)
+                    .putInt(ContractionHierarchy.fingerprint(graph));
+
+            long offset = HEADER_SIZE;
+            mapSection(channel, FileChannel.MapMode.READ_WRITE, offset, 4L * k)
+                    .asIntBuffer().put(vertices);
+            offset += 4L * k;
+            final long tableSize = 4L * n * k;
+            mapSection(channel, FileChannel.MapMode.READ_WRITE,
+                       offset, tableSize)
+                    .asFloatBuffer().put(landmarks.fromLandmarks());
+            offset += tableSize;
+            mapSection(channel, FileChannel.MapMode.READ_WRITE,
+                       offset, tableSize)
+                    .asFloatBuffer().put(landmarks.toLandmarks());
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads the landmark tables of the given graph stored in the given file.
+     *
+     * @param file  The file.
+     * @param graph The graph the tables were computed on.
+     *
+     * @return The landmark tables.
+     *
+     * @throws IOException If the file cannot be read, is not a landmarks
+     *                     file or was computed on a different graph.
+     */
+    public static Landmarks read(File file, CSRGraph graph)
+            throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a landmarks file.");
+            }
+            final ByteBuffer header = mapSection(
+                    channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a landmarks file.");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported landmarks file version "
+                                      + version + " in " + file + ".");
+            }
+            final int n = header.getInt();
+            final int m = header.getInt();
+            final int k = header.getInt();
+            final int fingerprint = header.getInt();
+            if (n < 0 || k < 0 || channel.size() != fileSize(n, k)) {
+                throw new IOException("Truncated landmarks file " + file + ".");
+            }
+            if (n != graph.getVertexCount() || m != graph.getArcCount()
+                || fingerprint != ContractionHierarchy.fingerprint(graph)) {
+                throw new IOException(file + " was computed on another graph.");
+            }
+            final int size;
+            try {
+                size = Landmarks.tableSize(k, n);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(ex.getMessage());
+            }
+
+            long offset = HEADER_SIZE;
+            final int[] vertices = new int[k];
+            mapSection(channel, FileChannel.MapMode.READ_ONLY, offset, 4L * k)
+                    .asIntBuffer().get(vertices);
+            offset += 4L * k;
+            final long tableSize = 4L * n * k;
+            final float[] fromLandmarks = new float[size];
+            mapSection(channel, FileChannel.MapMode.READ_ONLY,
+                       offset, tableSize)
+                    .asFloatBuffer().get(fromLandmarks);
+            offset += tableSize;
+            final float[] toLandmarks = new float[size];
+            mapSection(channel, FileChannel.MapMode.READ_ONLY,
+                       offset, tableSize)
+                    .asFloatBuffer().get(toLandmarks);
+
+            return new Landmarks(graph, vertices, fromLandmarks, toLandmarks);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the size in bytes of the file holding the tables of the given
+     * number of landmarks on a graph with the given number of vertices.
+     *
+     * @param n The number of vertices.
+     * @param k The number of landmarks.
+     *
+     * @return The file size.
+     */
+    private static long fileSize(int n, int k) {
+        return HEADER_SIZE + 4L * k + 8L * n * k;
+    }
+
+    /**
+     * Maps a section of the file in the file's byte order.
+     *
+     * @param channel The file channel.
+     * @param mode    The mapping mode.
+     * @param offset  The offset of the section.
+     * @param size    The size of the section in bytes.
+     *
+     * @return The mapped section.
+     *
+     * @throws IOException
+     */
+    private static ByteBuffer mapSection(FileChannel channel,
+                                         FileChannel.MapMode mode,
+                                         long offset,
+                                         long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Landmarks file section too large: "
+                                  + size + " bytes.");
+        }
+        final MappedByteBuffer buffer = channel.map(mode, offset, size);
+        buffer.order(ORDER);
+        return buffer;
+    }
+}
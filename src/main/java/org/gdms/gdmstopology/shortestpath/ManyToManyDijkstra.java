@@ -0,0 +1,170 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Distances from many sources to their own sets of targets, with one
+ * {@link OneToManyDijkstra} search per source spread over a thread pool.
+ *
+ * <p> The graph is shared read-only by all threads and each thread has its
+ * own search state. The results are handed to a {@link DistanceHandler} on
+ * the calling thread, in the order of the sources, so the handler needs no
+ * synchronization and the output does not depend on the thread count. At
+ * most a few searches per thread run ahead of the handler, which bounds the
+ * memory held by pending results.
+ *
+ * @author Adam Gouge
+ */
+public final class ManyToManyDijkstra {
+
+    /**
+     * Number of searches per thread which may run ahead of the handler.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * The number of threads.
+     */
+    private final int threadCount;
+
+    /**
+     * Receives the distances from each source, in the order of the sources.
+     */
+    public interface DistanceHandler {
+
+        /**
+         * Handles the distances from a source to its targets.
+         *
+         * @param sourceIndex The position of the source in the source array.
+         * @param distances   The distance to each of its targets, infinite
+         *                    if a target cannot be reached.
+         *
+         * @throws DriverException
+         */
+        void handle(int sourceIndex, double[] distances)
+                throws DriverException;
+    }
+
+    /**
+     * Constructs a many-to-many search on the given graph.
+     *
+     * @param graph       The graph.
+     * @param threadCount The number of threads.
+     */
+    public ManyToManyDijkstra(CSRGraph graph, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "There must be at least one thread.");
+        }
+        this.graph = graph;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Computes the distances from every source to its targets.
+     *
+     * @param sources The dense indices of the sources.
+     * @param targets The dense indices of the targets of each source.
+     * @param handler The handler receiving the distances.
+     *
+     * @throws DriverException If the handler fails or the computation is
+     *                         interrupted.
+     */
+    public void compute(final int[] sources,
+                        final int[][] targets,
+                        DistanceHandler handler) throws DriverException {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException(
+                    "There must be targets for every source.");
+        }
+        if (threadCount < 2 || sources.length < 2) {
+            final OneToManyDijkstra search = new OneToManyDijkstra(graph);
+            for (int i = 0; i < sources.length; i++) {
+                handler.handle(i, search.compute(sources[i], targets[i]));
+            }
+            return;
+        }
+        final ThreadLocal<OneToManyDijkstra> searches =
+                new ThreadLocal<OneToManyDijkstra>() {
+            @Override
+            protected OneToManyDijkstra initialValue() {
+                return new OneToManyDijkstra(graph);
+            }
+        };
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(threadCount);
+        try {
+            final int window = TASKS_PER_THREAD * threadCount;
+            final Deque<Future<double[]>> pending =
+                    new ArrayDeque<Future<double[]>>(window);
+            int submitted = 0;
+            for (int handled = 0; handled < sources.length; handled++) {
+                while (submitted < sources.length
+                       && pending.size() < window) {
+                    final int i = submitted++;
+                    pending.addLast(executor.submit(new Callable<double[]>() {
+                        @Override
+                        public double[] call() {
+                            return searches.get().compute(sources[i],
+                                                          targets[i]);
+                        }
+                    }));
+                }
+                handler.handle(handled, pending.removeFirst().get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DriverException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new DriverException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * The nearest of a set of targets of a {@link CSRGraph} from every vertex,
+ * and the distance to it, by a single Dijkstra search started from all the
+ * targets at once along the incoming arcs.
+ *
+ * <p> The graph is only read, so any number of searches may share it, but
+ * the results are overwritten by the next query, so an instance must not be
+ * shared between threads.
+ *
+ * @author Adam Gouge
+ */
+public final class NearestTargetDijkstra {
+
+    /**
+     * Returned by {@link #getNearestTarget(int)} for a vertex from which no
+     * target can be reached.
+     */
+    public static final int NO_TARGET = -1;
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * Distance from each vertex to its nearest target.
+     */
+    private final double[] distances;
+    /**
+     * Nearest target of each vertex.
+     */
+    private final int[] nearest;
+    /**
+     * The queue.
+     */
+    private final VertexQueue queue;
+
+    /**
+     * Constructs a search on the given graph.
+     *
+     * @param graph The graph.
+     */
+    public NearestTargetDijkstra(CSRGraph graph) {
+        this.graph = graph;
+        final int n = graph.getVertexCount();
+        distances = new double[n];
+        nearest = new int[n];
+        queue = VertexQueues.create(graph);
+    }
+
+    /**
+     * Computes the nearest target of every vertex and the distance to it.
+     *
+     * @param targets The dense indices of the targets.
+     */
+    public void compute(int[] targets) {
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(nearest, NO_TARGET);
+        queue.clear();
+        for (int target : targets) {
+            if (target < 0 || target >= graph.getVertexCount()) {
+                throw new IllegalArgumentException(
+                        "Vertex index " + target + " is not in the graph.");
+            }
+            if (nearest[target] == NO_TARGET) {
+                distances[target] = 0.0;
+                nearest[target] = target;
+                queue.insertOrDecrease(target, 0.0);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int v = queue.poll();
+            final double dv = distances[v];
+            for (int position = graph.inArcsBegin(v);
+                 position < graph.inArcsEnd(v); position++) {
+                final int arc = graph.getInArc(position);
+                final int u = graph.getArcSource(arc);
+                final double d = dv + graph.getArcWeight(arc);
+                if (d < distances[u]) {
+                    distances[u] = d;
+                    nearest[u] = nearest[v];
+                    queue.insertOrDecrease(u, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the nearest target of the given vertex found by the last query.
+     *
+     * @param vertex The dense index of the vertex.
+     *
+     * @return The dense index of its nearest target, or {@link #NO_TARGET}
+     *         if no target can be reached.
+     */
+    public int getNearestTarget(int vertex) {
+        return nearest[vertex];
+    }
+
+    /**
+     * Returns the distance from the given vertex to its nearest target found
+     * by the last query.
+     *
+     * @param vertex The dense index of the vertex.
+     *
+     * @return The distance, infinite if no target can be reached.
+     */
+    public double getDistance(int vertex) {
+        return distances[vertex];
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import java.util.Arrays;
+import org.gdms.driver.DataSet;
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.GraphSchema;
+
+/**
+ * The planar coordinates of the vertices of a {@link CSRGraph}, held in
+ * primitive arrays indexed by dense vertex index.
+ *
+ * @author Adam Gouge
+ */
+public final class NodeCoordinates {
+
+    /**
+     * X coordinate of each vertex, or NaN if unknown.
+     */
+    private final double[] x;
+    /**
+     * Y coordinate of each vertex, or NaN if unknown.
+     */
+    private final double[] y;
+
+    /**
+     * Constructs coordinates from their arrays.
+     *
+     * @param x X coordinate of each vertex, or NaN if unknown.
+     * @param y Y coordinate of each vertex, or NaN if unknown.
+     */
+    public NodeCoordinates(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException(
+                    "There must be as many x as y coordinates.");
+        }
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Reads the coordinates of the vertices of a graph from a nodes table
+     * such as the one produced by {@code ST_Graph}: the coordinates of a
+     * vertex are the first coordinate of the geometry of the row with its id.
+     * Nodes which are not in the graph are ignored, and vertices which are not
+     * in the table have unknown coordinates.
+     *
+     * @param nodes The nodes table.
+     * @param graph The graph.
+     *
+     * @return The coordinates of the vertices of the graph.
+     *
+     * @throws DriverException
+     */
+    public static NodeCoordinates load(DataSet nodes, CSRGraph graph)
+            throws DriverException {
+        final int idIndex = nodes.getMetadata().getFieldIndex(GraphSchema.ID);
+        if (idIndex == -1) {
+            throw new IllegalArgumentException(
+                    "The nodes table must contain a column named '"
+                    + GraphSchema.ID + "'.");
+        }
+        final int geomIndex = nodes.getSpatialFieldIndex();
+        if (geomIndex == -1) {
+            throw new IllegalArgumentException(
+                    "The nodes table must contain a geometry column.");
+        }
+        final int n = graph.getVertexCount();
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        Arrays.fill(x, Double.NaN);
+        Arrays.fill(y, Double.NaN);
+        final long rowCount = nodes.getRowCount();
+        for (long row = 0; row < rowCount; row++) {
+            final int vertex = graph.indexOf(nodes.getInt(row, idIndex));
+            if (vertex != -1) {
+                final Geometry geometry = nodes.getGeometry(row, geomIndex);
+                if (geometry != null && !geometry.isEmpty()) {
+                    final Coordinate c = geometry.getCoordinate();
+                    x[vertex] = c.x;
+                    y[vertex] = c.y;
+                }
+            }
+        }
+        return new NodeCoordinates(x, y);
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return The number of vertices.
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Returns {@code true} if the coordinates of the given vertex are known.
+     *
+     * @param vertex The dense index of the vertex.
+     *
+     * @return {@code true} if the coordinates of the vertex are known.
+     */
+    public boolean isKnown(int vertex) {
+        return !Double.isNaN(x[vertex]) && !Double.isNaN(y[vertex]);
+    }
+
+    /**
+     * Returns the Euclidean distance between two vertices.
+     *
+     * @param u The dense index of the first vertex.
+     * @param v The dense index of the second vertex.
+     *
+     * @return The distance, or NaN if the coordinates of either vertex are
+     *         unknown.
+     */
+    public double distance(int u, int v) {
+        final double dx = x[u] - x[v];
+        final double dy = y[u] - y[v];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import org.gdms.driver.DriverException;
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Distances from one vertex of a {@link CSRGraph} to a set of targets by
+ * Dijkstra's algorithm, stopping as soon as every target is settled, or to
+ * every vertex, streamed to a {@link SettleListener}.
+ *
+ * <p> The graph is only read, so any number of searches may share it, but
+ * the search state (distances, target marks and queue) is reused by
+ * successive queries, so an instance must not be shared between threads.
+ *
+ * @author Adam Gouge
+ */
+public final class OneToManyDijkstra {
+
+    /**
+     * The graph.
+     */
+    private final CSRGraph graph;
+    /**
+     * Tentative distances from the source.
+     */
+    private final double[] distances;
+    /**
+     * Query in which each vertex was last reached.
+     */
+    private final int[] queries;
+    /**
+     * Query in which each vertex was last a target.
+     */
+    private final int[] targetQueries;
+    /**
+     * The queue.
+     */
+    private final VertexQueue queue;
+    /**
+     * Current query number.
+     */
+    private int query = 0;
+    /**
+     * Number of vertices settled by the last query.
+     */
+    private int settledCount = 0;
+
+    /**
+     * Constructs a search on the given graph.
+     *
+     * @param graph The graph.
+     */
+    public OneToManyDijkstra(CSRGraph graph) {
+        this.graph = graph;
+        final int n = graph.getVertexCount();
+        distances = new double[n];
+        queries = new int[n];
+        targetQueries = new int[n];
+        queue = VertexQueues.create(graph);
+    }
+
+    /**
+     * Computes the distances from a source to the given targets.
+     *
+     * @param source  The dense index of the source.
+     * @param targets The dense indices of the targets.
+     *
+     * @return The distance to each target, infinite if it cannot be reached.
+     */
+    public double[] compute(int source, int[] targets) {
+        checkVertex(source);
+        query++;
+        settledCount = 0;
+        queue.clear();
+        int remaining = 0;
+        for (int target : targets) {
+            checkVertex(target);
+            if (targetQueries[target] != query) {
+                targetQueries[target] = query;
+                remaining++;
+            }
+        }
+        queries[source] = query;
+        distances[source] = 0.0;
+        queue.insertOrDecrease(source, 0.0);
+        while (remaining > 0 && !queue.isEmpty()) {
+            final int u = queue.poll();
+            settledCount++;
+            if (targetQueries[u] == query) {
+                remaining--;
+            }
+            final double du = distances[u];
+            for (int arc = graph.outArcsBegin(u); arc < graph.outArcsEnd(u);
+                    arc++) {
+                final int w = graph.getArcTarget(arc);
+                final double d = du + graph.getArcWeight(arc);
+                if (queries[w] != query || d < distances[w]) {
+                    queries[w] = query;
+                    distances[w] = d;
+                    queue.insertOrDecrease(w, d);
+                }
+            }
+        }
+        // Every reached target is settled: either all targets were settled
+        // or the queue ran out.
+        final double[] result = new double[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            result[i] = queries[targets[i]] == query
+                    ? distances[targets[i]]
+                    : Double.POSITIVE_INFINITY;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the distances from a source to every vertex, reporting each
+     * vertex to the listener as soon as it is settled. The vertices which
+     * cannot be reached are reported last, with an infinite distance, so
+     * every vertex is reported exactly once. Nothing is kept beyond the
+     * search state.
+     *
+     * @param source   The dense index of the source.
+     * @param listener The listener.
+     *
+     * @throws DriverException If the listener fails.
+     */
+    public void computeAll(int source, SettleListener listener)
+            throws DriverException {
+        checkVertex(source);
+        query++;
+        settledCount = 0;
+        queue.clear();
+        queries[source] = query;
+        distances[source] = 0.0;
+        queue.insertOrDecrease(source, 0.0);
+        while (!queue.isEmpty()) {
+            final int u = queue.poll();
+            settledCount++;
+            final double du = distances[u];
+            listener.settled(u, du);
+            for (int arc = graph.outArcsBegin(u); arc < graph.outArcsEnd(u);
+                    arc++) {
+                final int w = graph.getArcTarget(arc);
+                final double d = du + graph.getArcWeight(arc);
+                if (queries[w] != query || d < distances[w]) {
+                    queries[w] = query;
+                    distances[w] = d;
+                    queue.insertOrDecrease(w, d);
+                }
+            }
+        }
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            if (queries[v] != query) {
+                listener.settled(v, Double.POSITIVE_INFINITY);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of vertices settled by the last query.
+     *
+     * @return The number of settled vertices.
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Makes sure the given dense index is a vertex of the graph.
+     *
+     * @param vertex The dense index.
+     */
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= graph.getVertexCount()) {
+            throw new IllegalArgumentException(
+                    "Vertex index " + vertex + " is not in the graph.");
+        }
+    }
+}
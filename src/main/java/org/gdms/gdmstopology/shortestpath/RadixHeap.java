@@ -0,0 +1,233 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+
+/**
+ * A radix heap: a monotone {@link VertexQueue} for non-negative integer keys
+ * of any size.
+ *
+ * <p> Bucket {@code 0} holds the vertices whose key equals the last polled
+ * key, and bucket {@code b > 0} those whose key first differs from it at bit
+ * {@code b - 1}. When bucket {@code 0} is empty, the first non-empty bucket
+ * is scanned for its smallest key, which becomes the last polled key, and its
+ * vertices are spread over lower buckets. A vertex moves down at most 64
+ * times, so polling is O(log C) amortized while insertion and decrease-key
+ * (unlinking from a doubly linked bucket) are O(1). Used instead of a
+ * {@link DialQueue} when the largest arc weight {@code C} would need too
+ * many buckets.
+ *
+ * @author Adam Gouge
+ */
+final class RadixHeap implements VertexQueue {
+
+    /**
+     * Marks the end of a list, or a vertex which is not in the queue.
+     */
+    private static final int NONE = -1;
+    /**
+     * Number of buckets: one per bit of a key, plus bucket {@code 0}.
+     */
+    private static final int BUCKET_COUNT = 65;
+    /**
+     * First vertex of each bucket.
+     */
+    private final int[] heads = new int[BUCKET_COUNT];
+    /**
+     * Next vertex in the bucket of each vertex.
+     */
+    private final int[] next;
+    /**
+     * Previous vertex in the bucket of each vertex.
+     */
+    private final int[] previous;
+    /**
+     * Bucket of each vertex, or {@link #NONE} if it is not in the queue.
+     */
+    private final int[] buckets;
+    /**
+     * Key of each vertex in the queue.
+     */
+    private final long[] keys;
+    /**
+     * Last polled key.
+     */
+    private long last = 0;
+    /**
+     * Number of vertices in the queue.
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty queue.
+     *
+     * @param vertexCount The number of vertices.
+     */
+    RadixHeap(int vertexCount) {
+        next = new int[vertexCount];
+        previous = new int[vertexCount];
+        buckets = new int[vertexCount];
+        keys = new long[vertexCount];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(buckets, NONE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public double peekKey() {
+        if (size == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (heads[0] != NONE) {
+            return last;
+        }
+        return keys[minOf(heads[firstNonEmptyBucket()])];
+    }
+
+    @Override
+    public void insertOrDecrease(int vertex, double key) {
+        if (buckets[vertex] != NONE) {
+            unlink(vertex);
+        } else {
+            size++;
+        }
+        keys[vertex] = (long) key;
+        link(vertex);
+    }
+
+    @Override
+    public int poll() {
+        if (heads[0] == NONE) {
+            // Spread the first non-empty bucket over lower buckets.
+            final int bucket = firstNonEmptyBucket();
+            int v = heads[bucket];
+            heads[bucket] = NONE;
+            last = keys[minOf(v)];
+            while (v != NONE) {
+                final int after = next[v];
+                link(v);
+                v = after;
+            }
+        }
+        final int vertex = heads[0];
+        unlink(vertex);
+        buckets[vertex] = NONE;
+        size--;
+        return vertex;
+    }
+
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket < BUCKET_COUNT && size > 0; bucket++) {
+            for (int v = heads[bucket]; v != NONE; v = next[v]) {
+                buckets[v] = NONE;
+                size--;
+            }
+            heads[bucket] = NONE;
+        }
+        last = 0;
+    }
+
+    /**
+     * Returns the first non-empty bucket; the queue must not be empty.
+     *
+     * @return The bucket.
+     */
+    private int firstNonEmptyBucket() {
+        int bucket = 0;
+        while (heads[bucket] == NONE) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Returns the vertex of smallest key in a bucket.
+     *
+     * @param first The first vertex of the bucket.
+     *
+     * @return The vertex.
+     */
+    private int minOf(int first) {
+        int min = first;
+        for (int v = next[first]; v != NONE; v = next[v]) {
+            if (keys[v] < keys[min]) {
+                min = v;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Adds a vertex at the head of the bucket of its key.
+     *
+     * @param vertex The vertex.
+     */
+    private void link(int vertex) {
+        final long key = keys[vertex];
+        final int bucket = key == last
+                ? 0
+                : 64 - Long.numberOfLeadingZeros(key ^ last);
+        final int head = heads[bucket];
+        next[vertex] = head;
+        previous[vertex] = NONE;
+        if (head != NONE) {
+            previous[head] = vertex;
+        }
+        heads[bucket] = vertex;
+        buckets[vertex] = bucket;
+    }
+
+    /**
+     * Removes a vertex from its bucket.
+     *
+     * @param vertex The vertex.
+     */
+    private void unlink(int vertex) {
+        final int before = previous[vertex];
+        final int after = next[vertex];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            heads[buckets[vertex]] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+/**
+ * A min-priority queue of the dense vertex indices of a graph, keyed by
+ * tentative distance, supporting decrease-key. Used by the Dijkstra-based
+ * searches through {@link VertexQueues#create}, which picks the fastest
+ * implementation for the weights of the graph.
+ *
+ * <p> The bucket queues ({@link DialQueue} and {@link RadixHeap}) are
+ * monotone: keys must be integers and no key smaller than the last polled key
+ * may be inserted, as is the case in Dijkstra's algorithm with non-negative
+ * integer weights.
+ *
+ * @author Adam Gouge
+ */
+public interface VertexQueue {
+
+    /**
+     * Returns {@code true} if the queue is empty.
+     *
+     * @return {@code true} if the queue is empty.
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the smallest key in the queue.
+     *
+     * @return The smallest key, or infinity if the queue is empty.
+     */
+    double peekKey();
+
+    /**
+     * Inserts a vertex or decreases its key.
+     *
+     * @param vertex The vertex.
+     * @param key    Its new key, which must not be larger than its current key
+     *               if it is in the queue.
+     */
+    void insertOrDecrease(int vertex, double key);
+
+    /**
+     * Removes and returns the vertex with the smallest key.
+     *
+     * @return The vertex with the smallest key.
+     */
+    int poll();
+
+    /**
+     * Empties the queue.
+     */
+    void clear();
+}
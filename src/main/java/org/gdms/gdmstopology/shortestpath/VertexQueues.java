@@ -0,0 +1,82 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import org.gdms.gdmstopology.model.CSRGraph;
+
+/**
+ * Chooses the {@link VertexQueue} of the Dijkstra searches on a
+ * {@link CSRGraph}:
+ * <ul>
+ * <li> a {@link DialQueue} if all arc weights are integers no larger than
+ * {@link #MAX_DIAL_WEIGHT}, as in unweighted graphs;
+ * <li> a {@link RadixHeap} for larger integer weights;
+ * <li> a {@link BinaryHeap} otherwise.
+ * </ul>
+ * The bucket queues are monotone, so they are only used by searches whose
+ * keys are distances, never by A* searches.
+ *
+ * @author Adam Gouge
+ */
+public final class VertexQueues {
+
+    /**
+     * The largest arc weight for which a {@link DialQueue} is used; above,
+     * scanning empty buckets costs more than a {@link RadixHeap}.
+     */
+    static final int MAX_DIAL_WEIGHT = 1 << 12;
+
+    /**
+     * Empty constructor.
+     */
+    private VertexQueues() {
+    }
+
+    /**
+     * Returns a new queue suited to the weights of the given graph.
+     *
+     * @param graph The graph.
+     *
+     * @return The queue.
+     */
+    public static VertexQueue create(CSRGraph graph) {
+        final int n = graph.getVertexCount();
+        final long maxWeight = graph.getMaxIntegerWeight();
+        if (maxWeight < 0) {
+            return new BinaryHeap(n);
+        } else if (maxWeight <= MAX_DIAL_WEIGHT) {
+            return new DialQueue(n, (int) maxWeight);
+        }
+        return new RadixHeap(n);
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive {@code int} keys to primitive {@code int} values.
+ *
+ * <p> Uses open addressing with linear probing on two parallel arrays, so that
+ * no {@link Integer} objects or map entries are allocated per key. This is
+ * intended for the vertex and edge id lookups done while loading and
+ * searching large graphs, where a {@code HashMap<Integer, Integer>} would cost
+ * several times the memory of the graph itself.
+ *
+ * <p> This class is not thread-safe.
+ *
+ * @author Adam Gouge
+ */
+public class IntIntHashMap {
+
+    /**
+     * The key used to mark an empty slot. The key {@code 0} itself is stored
+     * outside the table.
+     */
+    private static final int FREE_KEY = 0;
+    /**
+     * The maximum ratio of entries to slots before the table is doubled.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+    /**
+     * The value returned when a key is not in the map.
+     */
+    private final int noEntryValue;
+    /**
+     * Keys.
+     */
+    private int[] keys;
+    /**
+     * Values.
+     */
+    private int[] values;
+    /**
+     * {@code true} if the key {@code 0} is in the map.
+     */
+    private boolean hasFreeKey;
+    /**
+     * The value associated to the key {@code 0}.
+     */
+    private int freeValue;
+    /**
+     * Number of entries.
+     */
+    private int size;
+    /**
+     * Number of entries above which the table is resized.
+     */
+    private int threshold;
+    /**
+     * {@code keys.length - 1}, used to wrap slot indices.
+     */
+    private int mask;
+
+    /**
+     * Constructs a new map with room for the given number of entries before
+     * any resizing is necessary.
+     *
+     * @param expectedSize The expected number of entries.
+     * @param noEntryValue The value returned by {@link #get(int)} when a key
+     *                     is not in the map.
+     */
+    public IntIntHashMap(int expectedSize, int noEntryValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException(
+                    "The expected size must be non-negative.");
+        }
+        this.noEntryValue = noEntryValue;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Constructs a new map which returns {@code -1} for missing keys.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    public IntIntHashMap(int expectedSize) {
+        this(expectedSize, -1);
+    }
+
+    /**
+     * Returns the value associated to the given key, or the no-entry value if
+     * there is none.
+     *
+     * @param key The key.
+     *
+     * @return The value associated to the given key, or the no-entry value.
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeValue : noEntryValue;
+        }
+        int slot = slot(key);
+        int k;
+        while ((k = keys[slot]) != FREE_KEY) {
+            if (k == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Returns {@code true} if the given key is in the map.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the given key is in the map.
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        int slot = slot(key);
+        int k;
+        while ((k = keys[slot]) != FREE_KEY) {
+            if (k == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Associates the given value to the given key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @return The previous value associated to the key, or the no-entry value
+     *         if there was none.
+     */
+    public int put(int key, int value) {
+        return insert(key, value, true);
+    }
+
+    /**
+     * Associates the given value to the given key only if the key is not
+     * already in the map.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @return The value already associated to the key, or the no-entry value
+     *         if the given value was inserted.
+     */
+    public int putIfAbsent(int key, int value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return The number of entries in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value returned by {@link #get(int)} for missing keys.
+     *
+     * @return The no-entry value.
+     */
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Removes all entries, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Inserts a key, possibly overwriting its value.
+     *
+     * @param key       The key.
+     * @param value     The value.
+     * @param overwrite {@code true} if an existing value should be replaced.
+     *
+     * @return The previous value or the no-entry value.
+     */
+    private int insert(int key, int value, boolean overwrite) {
+        if (key == FREE_KEY) {
+            if (hasFreeKey) {
+                final int previous = freeValue;
+                if (overwrite) {
+                    freeValue = value;
+                }
+                return previous;
+            }
+            hasFreeKey = true;
+            freeValue = value;
+            size++;
+            return noEntryValue;
+        }
+        int slot = slot(key);
+        int k;
+        while ((k = keys[slot]) != FREE_KEY) {
+            if (k == key) {
+                final int previous = values[slot];
+                if (overwrite) {
+                    values[slot] = value;
+                }
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Moves all entries to a table of the given size.
+     *
+     * @param newLength The new table size (a power of two).
+     */
+    private void rehash(int newLength) {
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(newLength);
+        for (int i = 0; i < oldKeys.length; i++) {
+            final int k = oldKeys[i];
+            if (k != FREE_KEY) {
+                int slot = slot(k);
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty key and value tables of the given size.
+     *
+     * @param length The table size (a power of two).
+     */
+    private void allocate(int length) {
+        keys = new int[length];
+        values = new int[length];
+        mask = length - 1;
+        threshold = (int) (length * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the first slot to probe for the given key.
+     *
+     * @param key The key.
+     *
+     * @return The first slot to probe.
+     */
+    private int slot(int key) {
+        // Murmur3 finalizer: spreads consecutive ids over the table.
+        int h = key * 0x85ebca6b;
+        h ^= h >>> 13;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the smallest power of two table size able to hold the given
+     * number of entries under the load factor.
+     *
+     * @param expectedSize The expected number of entries.
+     *
+     * @return The table size.
+     */
+    private static int tableSizeFor(int expectedSize) {
+        final long needed = Math.max(2L,
+                (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1);
+        if (needed > (1 << 30)) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit((int) (needed - 1)) << 1;
+    }
+}
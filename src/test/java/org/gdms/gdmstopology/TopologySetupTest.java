@@ -35,6 +35,7 @@ package org.gdms.gdmstopology;
 import com.vividsolutions.jts.io.WKTReader;
 import java.io.File;
 import org.gdms.data.DataSourceFactory;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
 import org.junit.After;
 import org.junit.Before;
 import org.orbisgis.utils.FileUtils;
@@ -103,6 +104,9 @@ public abstract class TopologySetupTest {
         // Initialize the WKTReader.
         wktReader = new WKTReader();
 
+        // Don't reuse graphs prepared by a previous test.
+        GraphCache.getInstance().clear();
+
         // Register some data sources.
         dsf.getSourceManager()
                 .register(GRAPH2D,
@@ -0,0 +1,749 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.shortestpath.NodeCoordinates;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.orbisgis.progress.NullProgressMonitor;
+
+/**
+ * Tests {@link BrandesCentrality} against the values of java-network-analyzer
+ * and a brute-force computation of the pair dependencies.
+ *
+ * @author Adam Gouge
+ */
+public class BrandesCentralityTest {
+
+    private static final double TOLERANCE = 0.0000001;
+
+    /**
+     * The edges of GRAPH2D as (id, start node, end node).
+     */
+    private static final int[][] GRAPH2D = new int[][]{
+        {1, 2, 3}, {2, 3, 5}, {3, 3, 6}, {4, 6, 1}, {5, 6, 1}, {6, 1, 4}};
+
+    /**
+     * Builds GRAPH2D with unit weights.
+     *
+     * @param undirected Whether the edges may be followed both ways.
+     *
+     * @return The graph.
+     */
+    private static CSRGraph graph2D(boolean undirected) {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(12);
+        for (int[] edge : GRAPH2D) {
+            builder.addArc(edge[1], edge[2], edge[0], 1.0, edge[0] - 1);
+            if (undirected) {
+                builder.addArc(edge[2], edge[1], edge[0], 1.0, edge[0] - 1);
+            }
+        }
+        return builder.build();
+    }
+
+    private static BrandesCentrality compute(CSRGraph graph, int threads) {
+        final BrandesCentrality centrality = new BrandesCentrality(graph);
+        centrality.setThreadCount(threads);
+        assertTrue(centrality.compute(new NullProgressMonitor()));
+        return centrality;
+    }
+
+    private static double edgeBetweenness(BrandesCentrality centrality,
+                                          int id) {
+        final int[] ids = centrality.getEdgeIds();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return centrality.getEdgeBetweenness()[i];
+            }
+        }
+        throw new AssertionError("No edge " + id);
+    }
+
+    @Test
+    public void testUnweightedDirectedGraph2D() {
+        final CSRGraph graph = graph2D(false);
+        final BrandesCentrality centrality = compute(graph, 2);
+        // The parallel edges 4 and 5 double the number of shortest paths
+        // through node 6, which only gets half of their dependency.
+        final double[] betweenness = new double[]{1, 0, 1, 0, 0, 2.0 / 3};
+        final double[] closeness = new double[]{0, 5.0 / 12, 0, 0, 0, 0};
+        for (int id = 1; id <= 6; id++) {
+            final int v = graph.indexOf(id);
+            assertEquals(betweenness[id - 1],
+                         centrality.getBetweenness()[v], TOLERANCE);
+            assertEquals(closeness[id - 1],
+                         centrality.getCloseness()[v], TOLERANCE);
+        }
+        assertEquals(6, centrality.getEdgeIds().length);
+        assertEquals(3.0 / 4, edgeBetweenness(centrality, 1), TOLERANCE);
+        assertEquals(0, edgeBetweenness(centrality, 2), TOLERANCE);
+        assertEquals(1, edgeBetweenness(centrality, 3), TOLERANCE);
+        assertEquals(1.0 / 4, edgeBetweenness(centrality, 4), TOLERANCE);
+        assertEquals(1.0 / 4, edgeBetweenness(centrality, 5), TOLERANCE);
+        assertEquals(1.0 / 2, edgeBetweenness(centrality, 6), TOLERANCE);
+    }
+
+    @Test
+    public void testUnweightedUndirectedGraph2D() {
+        final CSRGraph graph = graph2D(true);
+        final BrandesCentrality centrality = compute(graph, 3);
+        final double[] betweenness = new double[]{0.5, 0, 1, 0, 0, 0.75};
+        final double[] closeness = new double[]{
+            0.5, 5.0 / 12, 0.625, 5.0 / 14, 5.0 / 12, 0.625};
+        for (int id = 1; id <= 6; id++) {
+            final int v = graph.indexOf(id);
+            assertEquals(betweenness[id - 1],
+                         centrality.getBetweenness()[v], TOLERANCE);
+            assertEquals(closeness[id - 1],
+                         centrality.getCloseness()[v], TOLERANCE);
+        }
+        assertEquals(6, centrality.getEdgeIds().length);
+        for (int id : new int[]{1, 2, 6}) {
+            assertEquals(1.0 / 5, edgeBetweenness(centrality, id), TOLERANCE);
+        }
+        assertEquals(1, edgeBetweenness(centrality, 3), TOLERANCE);
+        assertEquals(0, edgeBetweenness(centrality, 4), TOLERANCE);
+        assertEquals(0, edgeBetweenness(centrality, 5), TOLERANCE);
+    }
+
+    @Test
+    public void testRandomGraphsAgainstBruteForce() {
+        final Random random = new Random(7);
+        for (int trial = 0; trial < 20; trial++) {
+            final int n = 2 + random.nextInt(20);
+            final boolean undirected = trial % 2 == 0;
+            final boolean weighted = trial % 4 < 2;
+            final CSRGraph graph = randomGraph(random, n, 3 * n, undirected,
+                                               weighted);
+            final BrandesCentrality centrality =
+                    compute(graph, 1 + random.nextInt(4));
+            checkAgainstBruteForce(graph, centrality,
+                                   Double.POSITIVE_INFINITY);
+        }
+    }
+
+    @Test
+    public void testLocalIndicesAgainstBruteForce() {
+        final Random random = new Random(29);
+        for (int trial = 0; trial < 20; trial++) {
+            final int n = 2 + random.nextInt(20);
+            final boolean undirected = trial % 2 == 0;
+            final boolean weighted = trial % 4 < 2;
+            final CSRGraph graph = randomGraph(random, n, 3 * n, undirected,
+                                               weighted);
+            final double radius = 1 + random.nextInt(6);
+            final BrandesCentrality centrality = new BrandesCentrality(graph);
+            centrality.setThreadCount(1 + random.nextInt(4));
+            centrality.setRadius(radius);
+            assertTrue(centrality.compute(new NullProgressMonitor()));
+            checkAgainstBruteForce(graph, centrality, radius);
+        }
+    }
+
+    @Test
+    public void testLocalIndicesGraph2D() {
+        final CSRGraph graph = graph2D(true);
+        final BrandesCentrality centrality = new BrandesCentrality(graph);
+        centrality.setRadius(2);
+        assertTrue(centrality.compute(new NullProgressMonitor()));
+        // Only the paths of length 2 are counted: 6 through node 3 and 2 each
+        // through nodes 1 and 6, which only get half of the dependency of
+        // the parallel edges 4 and 5 in one direction.
+        final double[] betweenness = new double[]{0.25, 0, 1, 0, 0, 0.25};
+        final int[] reach = new int[]{3, 3, 4, 2, 3, 5};
+        final double[] harmonic = new double[]{2.5, 2, 3.5, 1.5, 2, 3.5};
+        final double[] closeness = new double[]{
+            3.0 / 4, 3.0 / 5, 4.0 / 5, 2.0 / 3, 3.0 / 5, 5.0 / 8};
+        for (int id = 1; id <= 6; id++) {
+            final int v = graph.indexOf(id);
+            assertEquals(betweenness[id - 1],
+                         centrality.getBetweenness()[v], TOLERANCE);
+            assertEquals(reach[id - 1], centrality.getReach()[v]);
+            assertEquals(harmonic[id - 1],
+                         centrality.getHarmonicCloseness()[v], TOLERANCE);
+            assertEquals(closeness[id - 1],
+                         centrality.getCloseness()[v], TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testMetricsAgainstBruteForce() {
+        final Random random = new Random(37);
+        final CentralityMetrics all = CentralityMetrics.parse(
+                "metrics=reach, harmonic_closeness, straightness, gravity, "
+                + "eccentricity, beta=0.3");
+        for (int trial = 0; trial < 20; trial++) {
+            final int n = 2 + random.nextInt(20);
+            final CSRGraph graph = randomGraph(random, n, 3 * n,
+                                               trial % 2 == 0, trial % 4 < 2);
+            final NodeCoordinates coordinates =
+                    randomCoordinates(random, n);
+            final double radius = trial < 10
+                    ? Double.POSITIVE_INFINITY
+                    : 1 + random.nextInt(6);
+            final BrandesCentrality centrality = new BrandesCentrality(graph);
+            centrality.setThreadCount(1 + random.nextInt(4));
+            centrality.setRadius(radius);
+            centrality.setMetrics(all);
+            centrality.setCoordinates(coordinates);
+            assertTrue(centrality.compute(new NullProgressMonitor()));
+            // The metrics do not change the other indices.
+            checkAgainstBruteForce(graph, centrality, radius);
+            checkMetrics(graph, coordinates, centrality, radius, 0.3);
+        }
+    }
+
+    @Test
+    public void testOnlyRequestedMetricsAreComputed() {
+        final CSRGraph graph = graph2D(true);
+        final BrandesCentrality centrality = new BrandesCentrality(graph);
+        centrality.setMetrics(CentralityMetrics.parse("metrics=eccentricity"));
+        assertTrue(centrality.compute(new NullProgressMonitor()));
+        assertNull(centrality.getReach());
+        assertNull(centrality.getHarmonicCloseness());
+        assertNull(centrality.getStraightness());
+        assertNull(centrality.getGravity());
+        // Node 4 is four edges away from nodes 2 and 5, node 3 three edges
+        // away from node 4.
+        assertEquals(4, centrality.getEccentricity()[graph.indexOf(4)], 0.0);
+        assertEquals(3, centrality.getEccentricity()[graph.indexOf(3)], 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStraightnessNeedsCoordinates() {
+        final BrandesCentrality centrality =
+                new BrandesCentrality(graph2D(false));
+        centrality.setMetrics(CentralityMetrics.parse("metrics=straightness"));
+        centrality.compute(new NullProgressMonitor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSamplingWithMetricsIsRejected() {
+        final BrandesCentrality centrality =
+                new BrandesCentrality(graph2D(false));
+        centrality.setSampling(2, 0);
+        centrality.setMetrics(CentralityMetrics.parse("metrics=reach"));
+        centrality.compute(new NullProgressMonitor());
+    }
+
+    @Test
+    public void testInfiniteRadiusIsGlobal() {
+        final CSRGraph graph =
+                randomGraph(new Random(31), 200, 800, false, true);
+        final BrandesCentrality global = compute(graph, 2);
+        final BrandesCentrality local = new BrandesCentrality(graph);
+        local.setRadius(Double.POSITIVE_INFINITY);
+        assertTrue(local.compute(new NullProgressMonitor()));
+        assertFalse(local.isLocal());
+        assertNull(local.getReach());
+        assertArrayEquals(global.getCloseness(), local.getCloseness(), 0.0);
+        assertArrayEquals(global.getBetweenness(), local.getBetweenness(),
+                          TOLERANCE);
+    }
+
+    @Test
+    public void testThreadCountDoesNotChangeResults() {
+        final CSRGraph graph =
+                randomGraph(new Random(11), 300, 1200, false, true);
+        final BrandesCentrality sequential = compute(graph, 1);
+        final BrandesCentrality parallel = compute(graph, 8);
+        assertArrayEquals(sequential.getCloseness(), parallel.getCloseness(),
+                          0.0);
+        assertArrayEquals(sequential.getBetweenness(),
+                          parallel.getBetweenness(), TOLERANCE);
+        assertArrayEquals(sequential.getEdgeIds(), parallel.getEdgeIds());
+        assertArrayEquals(sequential.getEdgeBetweenness(),
+                          parallel.getEdgeBetweenness(), TOLERANCE);
+    }
+
+    @Test
+    public void testSamplingAllVerticesIsExact() {
+        final CSRGraph graph =
+                randomGraph(new Random(3), 50, 200, true, true);
+        final BrandesCentrality exact = compute(graph, 2);
+        final BrandesCentrality sampled = new BrandesCentrality(graph);
+        sampled.setThreadCount(2);
+        sampled.setSampling(50, 1);
+        assertTrue(sampled.compute(new NullProgressMonitor()));
+        assertEquals(50, sampled.getSourceCount());
+        assertArrayEquals(exact.getBetweenness(), sampled.getBetweenness(),
+                          TOLERANCE);
+        assertArrayEquals(exact.getCloseness(), sampled.getCloseness(),
+                          TOLERANCE);
+        assertArrayEquals(exact.getEdgeBetweenness(),
+                          sampled.getEdgeBetweenness(), TOLERANCE);
+        assertArrayEquals(new double[50], sampled.getBetweennessError(), 0.0);
+        assertArrayEquals(new double[exact.getEdgeIds().length],
+                          sampled.getEdgeBetweennessError(), 0.0);
+        assertNull(exact.getBetweennessError());
+    }
+
+    @Test
+    public void testSamplingEstimatesAndErrors() {
+        final CSRGraph graph =
+                randomGraph(new Random(5), 400, 1200, true, true);
+        final BrandesCentrality exact = compute(graph, 4);
+        final BrandesCentrality sampled = sample(graph, 100, 9);
+        assertEquals(100, sampled.getSourceCount());
+        // The same seed draws the same pivots.
+        final BrandesCentrality again = sample(graph, 100, 9);
+        assertArrayEquals(sampled.getBetweenness(), again.getBetweenness(),
+                          TOLERANCE);
+        assertArrayEquals(sampled.getCloseness(), again.getCloseness(), 0.0);
+        assertFalse(Arrays.equals(sampled.getCloseness(),
+                                  sample(graph, 100, 10).getCloseness()));
+        // Most exact values lie within three standard errors.
+        checkWithinErrors(exact.getBetweenness(), sampled.getBetweenness(),
+                          sampled.getBetweennessError());
+        checkWithinErrors(exact.getEdgeBetweenness(),
+                          sampled.getEdgeBetweenness(),
+                          sampled.getEdgeBetweennessError());
+        // Closeness is estimated from the distances to the pivots.
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            assertEquals(exact.getCloseness()[v], sampled.getCloseness()[v],
+                         0.25 * exact.getCloseness()[v]);
+        }
+    }
+
+    private static BrandesCentrality sample(CSRGraph graph, int k, long seed) {
+        final BrandesCentrality centrality = new BrandesCentrality(graph);
+        centrality.setThreadCount(3);
+        centrality.setSampling(k, seed);
+        assertTrue(centrality.compute(new NullProgressMonitor()));
+        return centrality;
+    }
+
+    private static void checkWithinErrors(double[] exact, double[] estimates,
+                                          double[] errors) {
+        int within = 0;
+        for (int i = 0; i < exact.length; i++) {
+            assertTrue(errors[i] >= 0);
+            if (Math.abs(exact[i] - estimates[i]) <= 3 * errors[i] + 0.01) {
+                within++;
+            }
+        }
+        assertTrue(within >= 0.9 * exact.length);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws IOException {
+        final CSRGraph graph =
+                randomGraph(new Random(13), 600, 2400, false, true);
+        checkResume(graph, graph, 0);
+    }
+
+    @Test
+    public void testResumeFromSampledCheckpoint() throws IOException {
+        final CSRGraph graph =
+                randomGraph(new Random(17), 600, 2400, true, true);
+        checkResume(graph, graph, 400);
+    }
+
+    @Test
+    public void testCheckpointOfAnotherGraphIsIgnored() throws IOException {
+        checkResume(randomGraph(new Random(19), 600, 2400, true, true),
+                    randomGraph(new Random(23), 600, 2400, true, true), 0);
+    }
+
+    @Test
+    public void testResumeWithMetrics() throws IOException {
+        final CSRGraph graph =
+                randomGraph(new Random(41), 600, 2400, true, true);
+        checkResume(graph, graph, 0, 6, CentralityMetrics.parse(
+                "metrics=straightness, gravity, eccentricity, beta=0.2"),
+                    randomCoordinates(new Random(43), 600));
+    }
+
+    /**
+     * Cancels a computation on the first graph after its first block of
+     * sources, then runs the same computation on the second graph, which
+     * must give the results of an uninterrupted run.
+     */
+    private static void checkResume(CSRGraph first, CSRGraph second,
+                                    int sampleSize) throws IOException {
+        checkResume(first, second, sampleSize, Double.POSITIVE_INFINITY,
+                    CentralityMetrics.NONE, null);
+    }
+
+    private static void checkResume(CSRGraph first, CSRGraph second,
+                                    int sampleSize, double radius,
+                                    CentralityMetrics metrics,
+                                    NodeCoordinates coordinates)
+            throws IOException {
+        final File file = File.createTempFile("centrality", ".gtcc");
+        assertTrue(file.delete());
+        try {
+            final BrandesCentrality cancelled = new BrandesCentrality(first);
+            cancelled.setThreadCount(2);
+            cancelled.setCheckpoint(file, Long.MAX_VALUE);
+            configure(cancelled, sampleSize, radius, metrics, coordinates);
+            assertFalse(cancelled.compute(new NullProgressMonitor() {
+                @Override
+                public boolean isCancelled() {
+                    return true;
+                }
+            }));
+            assertNull(cancelled.getBetweenness());
+            assertTrue(file.isFile());
+
+            final BrandesCentrality resumed = new BrandesCentrality(second);
+            resumed.setThreadCount(3);
+            resumed.setCheckpoint(file, 0);
+            final BrandesCentrality uninterrupted =
+                    new BrandesCentrality(second);
+            uninterrupted.setThreadCount(1);
+            configure(resumed, sampleSize, radius, metrics, coordinates);
+            configure(uninterrupted, sampleSize, radius, metrics,
+                      coordinates);
+            assertTrue(resumed.compute(new NullProgressMonitor()));
+            assertTrue(uninterrupted.compute(new NullProgressMonitor()));
+            assertFalse(file.exists());
+            assertArrayEquals(uninterrupted.getBetweenness(),
+                              resumed.getBetweenness(), TOLERANCE);
+            assertArrayEquals(uninterrupted.getCloseness(),
+                              resumed.getCloseness(), TOLERANCE);
+            assertArrayEquals(uninterrupted.getEdgeIds(),
+                              resumed.getEdgeIds());
+            assertArrayEquals(uninterrupted.getEdgeBetweenness(),
+                              resumed.getEdgeBetweenness(), TOLERANCE);
+            if (sampleSize > 0) {
+                assertArrayEquals(uninterrupted.getBetweennessError(),
+                                  resumed.getBetweennessError(), TOLERANCE);
+            }
+            if (uninterrupted.getReach() != null) {
+                assertArrayEquals(uninterrupted.getReach(),
+                                  resumed.getReach());
+            }
+            for (int metric : new int[]{
+                        CentralityMetrics.HARMONIC_CLOSENESS,
+                        CentralityMetrics.STRAIGHTNESS,
+                        CentralityMetrics.GRAVITY,
+                        CentralityMetrics.ECCENTRICITY}) {
+                assertEquals(
+                        uninterrupted.getMetrics().contains(metric),
+                        metric(resumed, metric) != null);
+                if (metric(resumed, metric) != null) {
+                    assertArrayEquals(metric(uninterrupted, metric),
+                                      metric(resumed, metric), TOLERANCE);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void configure(BrandesCentrality centrality,
+                                  int sampleSize, double radius,
+                                  CentralityMetrics metrics,
+                                  NodeCoordinates coordinates) {
+        if (sampleSize > 0) {
+            centrality.setSampling(sampleSize, 3);
+        }
+        centrality.setRadius(radius);
+        centrality.setMetrics(metrics);
+        centrality.setCoordinates(coordinates);
+    }
+
+    private static double[] metric(BrandesCentrality centrality, int metric) {
+        switch (metric) {
+            case CentralityMetrics.HARMONIC_CLOSENESS:
+                return centrality.getHarmonicCloseness();
+            case CentralityMetrics.STRAIGHTNESS:
+                return centrality.getStraightness();
+            case CentralityMetrics.GRAVITY:
+                return centrality.getGravity();
+            default:
+                return centrality.getEccentricity();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSamplingNeedsTwoPivots() {
+        new BrandesCentrality(graph2D(false)).setSampling(1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRadiusMustBePositive() {
+        new BrandesCentrality(graph2D(false)).setRadius(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSamplingWithRadiusIsRejected() {
+        final BrandesCentrality centrality =
+                new BrandesCentrality(graph2D(false));
+        centrality.setSampling(2, 0);
+        centrality.setRadius(2);
+        centrality.compute(new NullProgressMonitor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreadCountMustBePositive() {
+        new BrandesCentrality(graph2D(false)).setThreadCount(0);
+    }
+
+    /**
+     * Returns a random graph without parallel arcs or loops.
+     */
+    private static CSRGraph randomGraph(Random random, int n, int m,
+                                        boolean undirected, boolean weighted) {
+        final boolean[][] used = new boolean[n][n];
+        final CSRGraph.Builder builder = new CSRGraph.Builder(2 * m);
+        for (int v = 0; v < n; v++) {
+            builder.addVertex(v);
+        }
+        for (int id = 1; id <= m; id++) {
+            final int s = random.nextInt(n);
+            final int t = random.nextInt(n);
+            if (s == t || used[s][t] || undirected && used[t][s]) {
+                continue;
+            }
+            used[s][t] = true;
+            final double weight = weighted ? 1 + random.nextInt(5) : 1.0;
+            builder.addArc(s, t, id, weight, id);
+            if (undirected) {
+                builder.addArc(t, s, id, weight, id);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns random coordinates, some of them unknown.
+     */
+    private static NodeCoordinates randomCoordinates(Random random, int n) {
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int v = 0; v < n; v++) {
+            final boolean known = random.nextInt(10) > 0;
+            x[v] = known ? random.nextDouble() : Double.NaN;
+            y[v] = known ? random.nextDouble() : Double.NaN;
+        }
+        return new NodeCoordinates(x, y);
+    }
+
+    /**
+     * Checks the additional metrics against their definitions, over the
+     * vertices within the radius.
+     */
+    private static void checkMetrics(CSRGraph graph,
+                                     NodeCoordinates coordinates,
+                                     BrandesCentrality centrality,
+                                     double radius, double beta) {
+        final int n = graph.getVertexCount();
+        final boolean local = radius < Double.POSITIVE_INFINITY;
+        for (int s = 0; s < n; s++) {
+            final double[] d = distances(graph, s);
+            int reach = 0;
+            double harmonic = 0;
+            double straightness = 0;
+            double gravity = 0;
+            double eccentricity = 0;
+            for (int t = 0; t < n; t++) {
+                if (t == s || Double.isInfinite(d[t]) || d[t] > radius) {
+                    continue;
+                }
+                reach++;
+                harmonic += 1 / d[t];
+                if (coordinates.isKnown(s) && coordinates.isKnown(t)) {
+                    straightness += coordinates.distance(s, t) / d[t];
+                }
+                gravity += Math.exp(-beta * d[t]);
+                eccentricity = Math.max(eccentricity, d[t]);
+            }
+            if (!local && reach < n - 1) {
+                eccentricity = Double.POSITIVE_INFINITY;
+            }
+            final int others = local ? reach : n - 1;
+            assertEquals(reach, centrality.getReach()[s]);
+            assertEquals(harmonic, centrality.getHarmonicCloseness()[s],
+                         TOLERANCE);
+            assertEquals(others > 0 ? straightness / others : 0,
+                         centrality.getStraightness()[s], TOLERANCE);
+            assertEquals(gravity, centrality.getGravity()[s], TOLERANCE);
+            assertEquals(eccentricity, centrality.getEccentricity()[s],
+                         TOLERANCE);
+        }
+    }
+
+    /**
+     * Computes the distances from the given source by Bellman-Ford.
+     */
+    private static double[] distances(CSRGraph graph, int source) {
+        final double[] d = new double[graph.getVertexCount()];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        d[source] = 0;
+        for (int i = 0; i < d.length; i++) {
+            for (int arc = 0; arc < graph.getArcCount(); arc++) {
+                final double candidate = d[graph.getArcSource(arc)]
+                        + graph.getArcWeight(arc);
+                if (candidate < d[graph.getArcTarget(arc)]) {
+                    d[graph.getArcTarget(arc)] = candidate;
+                }
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Counts the shortest paths from the source, given its distances.
+     */
+    private static double[] pathCounts(CSRGraph graph, int source,
+                                       final double[] d) {
+        final int n = graph.getVertexCount();
+        final Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, new java.util.Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(d[a], d[b]);
+            }
+        });
+        final double[] sigma = new double[n];
+        sigma[source] = 1;
+        for (int w : order) {
+            for (int arc = 0; arc < graph.getArcCount(); arc++) {
+                if (graph.getArcTarget(arc) == w && w != source
+                        && d[graph.getArcSource(arc)]
+                        + graph.getArcWeight(arc) == d[w]) {
+                    sigma[w] += sigma[graph.getArcSource(arc)];
+                }
+            }
+        }
+        return sigma;
+    }
+
+    /**
+     * Checks the indices against their definitions, counting only the
+     * shortest paths no longer than the radius.
+     */
+    private static void checkAgainstBruteForce(CSRGraph graph,
+                                               BrandesCentrality centrality,
+                                               double radius) {
+        final boolean local = radius < Double.POSITIVE_INFINITY;
+        final int n = graph.getVertexCount();
+        final double[][] d = new double[n][];
+        final double[][] sigma = new double[n][];
+        for (int s = 0; s < n; s++) {
+            d[s] = distances(graph, s);
+            sigma[s] = pathCounts(graph, s, d[s]);
+        }
+        final double[] betweenness = new double[n];
+        final double[] closeness = new double[n];
+        final int[] reach = new int[n];
+        final double[] harmonic = new double[n];
+        final double[] arcBetweenness = new double[graph.getArcCount()];
+        for (int s = 0; s < n; s++) {
+            double sum = 0;
+            boolean all = true;
+            for (int t = 0; t < n; t++) {
+                if (Double.isInfinite(d[s][t]) || d[s][t] > radius) {
+                    all = false;
+                    continue;
+                }
+                sum += d[s][t];
+                if (t == s) {
+                    continue;
+                }
+                reach[s]++;
+                harmonic[s] += 1 / d[s][t];
+                for (int v = 0; v < n; v++) {
+                    if (v != s && v != t && d[s][v] + d[v][t] == d[s][t]) {
+                        betweenness[v] += sigma[s][v] * sigma[v][t]
+                                / sigma[s][t];
+                    }
+                }
+                for (int arc = 0; arc < graph.getArcCount(); arc++) {
+                    final int u = graph.getArcSource(arc);
+                    final int w = graph.getArcTarget(arc);
+                    if (d[s][u] + graph.getArcWeight(arc) + d[w][t]
+                            == d[s][t]) {
+                        arcBetweenness[arc] += sigma[s][u] * sigma[w][t]
+                                / sigma[s][t];
+                    }
+                }
+            }
+            if (local) {
+                closeness[s] = sum > 0 ? reach[s] / sum : 0;
+            } else {
+                closeness[s] = all && sum > 0 ? (n - 1) / sum : 0;
+            }
+        }
+        assertArrayEquals(closeness, centrality.getCloseness(), TOLERANCE);
+        if (local) {
+            assertArrayEquals(reach, centrality.getReach());
+            assertArrayEquals(harmonic, centrality.getHarmonicCloseness(),
+                              TOLERANCE);
+        }
+        assertArrayEquals(normalize(betweenness), centrality.getBetweenness(),
+                          TOLERANCE);
+        final int[] ids = centrality.getEdgeIds();
+        final double[] edgeBetweenness = new double[ids.length];
+        for (int arc = 0; arc < graph.getArcCount(); arc++) {
+            final int i = Arrays.asList(box(ids))
+                    .indexOf(graph.getArcEdgeId(arc));
+            assertTrue(i >= 0);
+            edgeBetweenness[i] += arcBetweenness[arc];
+        }
+        assertArrayEquals(normalize(edgeBetweenness),
+                          centrality.getEdgeBetweenness(), TOLERANCE);
+    }
+
+    private static Integer[] box(int[] values) {
+        final Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    private static double[] normalize(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final double[] normalized = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalized[i] = max > min ? (values[i] - min) / (max - min) : 0;
+        }
+        return normalized;
+    }
+}
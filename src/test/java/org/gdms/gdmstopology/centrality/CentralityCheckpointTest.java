@@ -0,0 +1,145 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.gdms.gdmstopology.model.CSRGraph;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CentralityCheckpoint} file format.
+ *
+ * @author Adam Gouge
+ */
+public class CentralityCheckpointTest {
+
+    private static final CentralityMetrics METRICS =
+            CentralityMetrics.parse("metrics=reach, harmonic_closeness, "
+                                    + "gravity, eccentricity, beta=0.5");
+
+    private static CSRGraph graph(double weight) {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(4);
+        builder.addArc(1, 2, 1, weight, 0);
+        builder.addArc(2, 3, 2, 1.0, 1);
+        builder.addArc(3, 1, 3, 1.0, 2);
+        return builder.build();
+    }
+
+    private static CentralityCheckpoint sums(CSRGraph graph) {
+        final CentralityCheckpoint sums =
+                new CentralityCheckpoint(graph, 2, true, true, METRICS.getMask());
+        sums.processed = 1;
+        for (int i = 0; i < 3; i++) {
+            sums.betweenness[i] = i + 0.5;
+            sums.arcBetweenness[i] = i + 1.5;
+            sums.closeness[i] = i + 2.5;
+            sums.squares[i] = i + 3.5;
+            sums.arcSquares[i] = i + 4.5;
+            sums.distanceSums[i] = i + 5.5;
+            sums.reachedCounts[i] = i + 6;
+            sums.reach[i] = i + 7;
+            sums.harmonicCloseness[i] = i + 8.5;
+            sums.gravity[i] = i + 9.5;
+            sums.eccentricity[i] = i + 10.5;
+        }
+        return sums;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final CSRGraph graph = graph(1.0);
+        final File file = File.createTempFile("checkpoint", ".gtcc");
+        try {
+            final CentralityCheckpoint written = sums(graph);
+            written.write(file, graph, 2, 42, 3.0, METRICS);
+            final CentralityCheckpoint read =
+                    CentralityCheckpoint.read(file, graph, 2, 42, 3.0,
+                                              METRICS, 2, true);
+            assertEquals(1, read.processed);
+            assertEquals(2, read.sourceCount);
+            assertArrayEquals(written.betweenness, read.betweenness, 0.0);
+            assertArrayEquals(written.arcBetweenness, read.arcBetweenness,
+                              0.0);
+            assertArrayEquals(written.closeness, read.closeness, 0.0);
+            assertArrayEquals(written.squares, read.squares, 0.0);
+            assertArrayEquals(written.arcSquares, read.arcSquares, 0.0);
+            assertArrayEquals(written.distanceSums, read.distanceSums, 0.0);
+            assertTrue(Arrays.equals(written.reachedCounts,
+                                     read.reachedCounts));
+            assertTrue(Arrays.equals(written.reach, read.reach));
+            assertArrayEquals(written.harmonicCloseness,
+                              read.harmonicCloseness, 0.0);
+            assertNull(read.straightness);
+            assertArrayEquals(written.gravity, read.gravity, 0.0);
+            assertArrayEquals(written.eccentricity, read.eccentricity, 0.0);
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOtherComputationsAreRejected() throws IOException {
+        final CSRGraph graph = graph(1.0);
+        final File file = File.createTempFile("checkpoint", ".gtcc");
+        try {
+            sums(graph).write(file, graph, 2, 42, 3.0, METRICS);
+            checkRejected(file, graph(2.0), 2, 42, 3.0, METRICS);
+            checkRejected(file, graph, 3, 42, 3.0, METRICS);
+            checkRejected(file, graph, 2, 43, 3.0, METRICS);
+            checkRejected(file, graph, 2, 42, 4.0, METRICS);
+            checkRejected(file, graph, 2, 42, 3.0,
+                          new CentralityMetrics(METRICS.getMask(), 0.25));
+            checkRejected(file, graph, 2, 42, 3.0,
+                          METRICS.with(CentralityMetrics.STRAIGHTNESS));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void checkRejected(File file, CSRGraph graph,
+                                      int sampleSize, long seed,
+                                      double radius,
+                                      CentralityMetrics metrics) {
+        try {
+            CentralityCheckpoint.read(file, graph, sampleSize, seed, radius,
+                                      metrics, 2, true);
+            fail("The checkpoint should have been rejected.");
+        } catch (IOException ex) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import org.gdms.gdmstopology.model.GraphSchema;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests parsing {@link CentralityMetrics} option strings.
+ *
+ * @author Adam Gouge
+ */
+public class CentralityMetricsTest {
+
+    @Test
+    public void testMetrics() {
+        assertTrue(CentralityMetrics.isMetricsString(" Metrics=reach"));
+        final CentralityMetrics metrics = CentralityMetrics.parse(
+                "metrics=eccentricity, gravity; REACH straightness");
+        assertTrue(metrics.contains(CentralityMetrics.REACH));
+        assertFalse(metrics.contains(CentralityMetrics.HARMONIC_CLOSENESS));
+        assertEquals(CentralityMetrics.DEFAULT_BETA, metrics.getBeta(), 0.0);
+        // The names are in column order.
+        assertArrayEquals(new String[]{
+            GraphSchema.REACH, GraphSchema.STRAIGHTNESS, GraphSchema.GRAVITY,
+            GraphSchema.ECCENTRICITY}, metrics.getNames());
+    }
+
+    @Test
+    public void testBeta() {
+        final CentralityMetrics metrics =
+                CentralityMetrics.parse("metrics=gravity, beta=0.01");
+        assertEquals(0.01, metrics.getBeta(), 0.0);
+        assertEquals("metrics=gravity, beta=0.01", metrics.toString());
+    }
+
+    @Test
+    public void testWith() {
+        final CentralityMetrics metrics =
+                CentralityMetrics.parse("metrics=gravity, beta=2")
+                .with(CentralityMetrics.REACH);
+        assertTrue(metrics.contains(CentralityMetrics.REACH));
+        assertTrue(metrics.contains(CentralityMetrics.GRAVITY));
+        assertEquals(2, metrics.getBeta(), 0.0);
+        assertTrue(CentralityMetrics.NONE.isEmpty());
+    }
+
+    @Test
+    public void testNotMetricsStrings() {
+        assertFalse(CentralityMetrics.isMetricsString("weights"));
+        assertFalse(CentralityMetrics.isMetricsString("samples=5"));
+        assertFalse(CentralityMetrics.isMetricsString("undirected"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownMetric() {
+        CentralityMetrics.parse("metrics=reach, pagerank");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoMetric() {
+        CentralityMetrics.parse("metrics=beta=0.5");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadBeta() {
+        CentralityMetrics.parse("metrics=gravity, beta=-1");
+    }
+}
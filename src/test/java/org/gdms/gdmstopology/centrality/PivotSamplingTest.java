@@ -0,0 +1,88 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.centrality;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests parsing {@link PivotSampling} option strings.
+ *
+ * @author Adam Gouge
+ */
+public class PivotSamplingTest {
+
+    @Test
+    public void testSampleCount() {
+        assertTrue(PivotSampling.isSamplingString("samples=500"));
+        final PivotSampling sampling = PivotSampling.parse(" samples=500 ");
+        assertEquals(500, sampling.getSampleCount(10));
+        assertEquals(PivotSampling.DEFAULT_SEED, sampling.getSeed());
+        assertEquals(7, PivotSampling.parse("SAMPLES=500; seed=7").getSeed());
+    }
+
+    @Test
+    public void testAccuracyTarget() {
+        final PivotSampling sampling =
+                PivotSampling.parse("epsilon=0.05, delta=0.1, seed=3");
+        // ln(2 * 1000 / 0.1) / (2 * 0.05^2) = 1980.6
+        assertEquals(1981, sampling.getSampleCount(1000));
+        assertEquals(3, sampling.getSeed());
+        // The default delta is 0.1.
+        assertEquals(1981,
+                     PivotSampling.parse("epsilon=0.05").getSampleCount(1000));
+    }
+
+    @Test
+    public void testNotSamplingStrings() {
+        assertFalse(PivotSampling.isSamplingString("weights"));
+        assertFalse(PivotSampling.isSamplingString("directed - edge_orientation"));
+        assertFalse(PivotSampling.isSamplingString("samples=5, weights"));
+        assertFalse(PivotSampling.isSamplingString(" "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBothSizeAndAccuracy() {
+        PivotSampling.parse("samples=10, epsilon=0.1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadNumber() {
+        PivotSampling.parse("samples=ten");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadEpsilon() {
+        PivotSampling.parse("epsilon=2");
+    }
+}
@@ -33,6 +33,7 @@
 package org.gdms.gdmstopology.function;
 
 import com.vividsolutions.jts.geom.Geometry;
+import java.io.File;
 import org.gdms.data.DataSource;
 import org.gdms.data.types.Type;
 import org.gdms.data.types.TypeFactory;
@@ -42,6 +43,8 @@ import org.gdms.driver.DataSet;
 import org.gdms.driver.DriverException;
 import org.gdms.driver.memory.MemoryDataSetDriver;
 import org.gdms.gdmstopology.TopologySetupTest;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.CSRGraphFile;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import org.orbisgis.progress.NullProgressMonitor;
@@ -97,6 +100,50 @@ public class ST_GraphTest extends TopologySetupTest {
         data.close();
     }
 
+    /**
+     * Tests that the topology file written by ST_Graph matches the edges
+     * table.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void graph2DTopologyFile() throws Exception {
+
+        DataSource data = dsf.getDataSource(GRAPH2D);
+        data.open();
+        DataSource[] tables = new DataSource[]{data};
+
+        File file = File.createTempFile("graph2D", ".topo");
+        file.deleteOnExit();
+        new ST_Graph().evaluate(dsf,
+                                tables,
+                                new Value[]{ValueFactory.createValue(0),
+                                            ValueFactory.createValue(false),
+                                            ValueFactory.createValue("topo"),
+                                            ValueFactory.createValue(
+                    file.getAbsolutePath())},
+                                new NullProgressMonitor());
+        data.close();
+
+        CSRGraph graph = CSRGraphFile.map(file);
+        DataSource edges = dsf.getDataSource("topo.edges");
+        edges.open();
+        assertEquals(edges.getRowCount(), graph.getArcCount());
+        int geomIndex = edges.getMetadata().getFieldIndex("the_geom");
+        int startIndex = edges.getMetadata().getFieldIndex("start_node");
+        int endIndex = edges.getMetadata().getFieldIndex("end_node");
+        for (int arc = 0; arc < graph.getArcCount(); arc++) {
+            Value[] row = edges.getRow(graph.getArcRow(arc));
+            assertEquals(row[startIndex].getAsInt(),
+                         graph.getVertexId(graph.getArcSource(arc)));
+            assertEquals(row[endIndex].getAsInt(),
+                         graph.getVertexId(graph.getArcTarget(arc)));
+            assertEquals(row[geomIndex].getAsGeometry().getLength(),
+                         graph.getArcWeight(arc), 0.0);
+        }
+        edges.close();
+    }
+
     /**
      * Tests orienting when node 1 has higher elevation than node 2 (1 --> 2).
      *
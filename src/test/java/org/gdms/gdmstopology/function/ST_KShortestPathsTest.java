@@ -0,0 +1,125 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.function;
+
+import org.gdms.data.DataSource;
+import org.gdms.data.values.Value;
+import org.gdms.data.values.ValueFactory;
+import org.gdms.driver.DataSet;
+import org.gdms.gdmstopology.TopologySetupTest;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.model.GraphSchema;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.orbisgis.progress.NullProgressMonitor;
+
+/**
+ * Tests the function {@link ST_KShortestPaths}.
+ *
+ * @author Adam Gouge
+ */
+public class ST_KShortestPathsTest extends TopologySetupTest {
+
+    /**
+     * Tests the three shortest paths between two vertices of GRAPH2D, seen
+     * as undirected, against {@link ST_ShortestPath}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_KShortestPaths() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DataSet[] tables = new DataSet[]{ds};
+        DataSet shortest = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(ST_ShortestPath.BIDIRECTIONAL)
+                },
+                new NullProgressMonitor());
+        DataSet paths = new ST_KShortestPaths().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected")
+                },
+                new NullProgressMonitor());
+        final int rankIndex = paths.getMetadata()
+                .getFieldIndex(GraphSchema.PATH_RANK);
+        final int weightIndex = paths.getMetadata()
+                .getFieldIndex(GraphSchema.WEIGHT);
+        final double[] lengths = new double[3];
+        int previousRank = 1;
+        for (int i = 0; i < paths.getRowCount(); i++) {
+            final int rank = paths.getInt(i, rankIndex);
+            assertTrue(rank == previousRank || rank == previousRank + 1);
+            lengths[rank - 1] += paths.getDouble(i, weightIndex);
+            previousRank = rank;
+        }
+        // Only the parallel edges 4 and 5 between nodes 6 and 1 give an
+        // alternative.
+        assertEquals(2, previousRank);
+        assertEquals(length(shortest), lengths[0], 1e-9);
+        assertEquals(lengths[0] - 211.6687715105811 + 230.5293115338882,
+                     lengths[1], 1e-9);
+        GraphCache.getInstance().clear();
+        ds.close();
+    }
+
+    /**
+     * Returns the total weight of a path returned by {@link ST_ShortestPath}.
+     *
+     * @param path The path
+     *
+     * @return Its total weight
+     *
+     * @throws Exception
+     */
+    private double length(DataSet path) throws Exception {
+        double length = 0;
+        for (int i = 0; i < path.getRowCount(); i++) {
+            length += path.getDouble(
+                    i, path.getMetadata().getFieldIndex(GraphSchema.WEIGHT));
+        }
+        return length;
+    }
+}
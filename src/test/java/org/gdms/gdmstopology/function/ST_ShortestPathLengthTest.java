@@ -298,6 +298,16 @@ public class ST_ShortestPathLengthTest extends TopologySetupTest {
                              TOLERANCE);
             }
         }
+
+        // The distances are listed in the order of the source-destination
+        // table.
+        assertEquals(numberOfNodes * numberOfNodes, result.getRowCount());
+        for (int k = 0; k < result.getRowCount(); k++) {
+            assertEquals(k / numberOfNodes + 1,
+                         result.getInt(k, sourceIndex));
+            assertEquals(k % numberOfNodes + 1,
+                         result.getInt(k, destinationIndex));
+        }
     }
 
     @Test
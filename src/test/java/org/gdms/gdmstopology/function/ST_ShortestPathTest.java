@@ -32,11 +32,19 @@
  */
 package org.gdms.gdmstopology.function;
 
+import java.io.File;
 import org.gdms.data.DataSource;
+import org.gdms.data.schema.Metadata;
 import org.gdms.data.values.Value;
 import org.gdms.data.values.ValueFactory;
 import org.gdms.driver.DataSet;
 import org.gdms.gdmstopology.TopologySetupTest;
+import org.gdms.gdmstopology.graphcreator.GraphCache;
+import org.gdms.gdmstopology.graphcreator.WeightedGraphCreator;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.parse.GraphFunctionParser;
+import org.javanetworkanalyzer.data.VWCent;
+import org.javanetworkanalyzer.model.Edge;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import org.orbisgis.progress.NullProgressMonitor;
@@ -75,4 +83,352 @@ public class ST_ShortestPathTest extends TopologySetupTest {
         assertTrue(result.getRowCount() == 3);
         ds.close();
     }
+
+    /**
+     * Tests that the bidirectional search finds a path of the same length as
+     * the unidirectional search.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_ShortestPathBidirectional() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DataSet[] tables = new DataSet[]{ds};
+        DataSet dijkstra = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected")
+                },
+                new NullProgressMonitor());
+        DataSet bidirectional = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(ST_ShortestPath.BIDIRECTIONAL)
+                },
+                new NullProgressMonitor());
+        assertEquals(dijkstra.getRowCount(), bidirectional.getRowCount());
+        assertEquals(length(dijkstra), length(bidirectional), 1e-9);
+        // Path ids go from the destination back to the source.
+        final Metadata md = bidirectional.getMetadata();
+        assertEquals(4, bidirectional.getInt(
+                0, md.getFieldIndex(GraphSchema.END_NODE)));
+        assertEquals(3, bidirectional.getInt(
+                bidirectional.getRowCount() - 1,
+                md.getFieldIndex(GraphSchema.START_NODE)));
+        ds.close();
+    }
+
+    /**
+     * Tests that the A* search using the nodes table finds a path of the same
+     * length as the unidirectional search.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_ShortestPathAStar() throws Exception {
+        DataSource edges = dsf.getDataSource(GRAPH2D_EDGES);
+        DataSource nodes = dsf.getDataSource(GRAPH2D_NODES);
+        edges.open();
+        nodes.open();
+        Value[] arguments = new Value[]{
+            ValueFactory.createValue(3),
+            ValueFactory.createValue(4),
+            ValueFactory.createValue("length"),
+            ValueFactory.createValue("undirected")
+        };
+        DataSet dijkstra = new ST_ShortestPath().evaluate(
+                dsf, new DataSet[]{edges}, arguments,
+                new NullProgressMonitor());
+        DataSet aStar = new ST_ShortestPath().evaluate(
+                dsf, new DataSet[]{edges, nodes},
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(ST_ShortestPath.ASTAR)
+                },
+                new NullProgressMonitor());
+        assertEquals(dijkstra.getRowCount(), aStar.getRowCount());
+        assertEquals(length(dijkstra), length(aStar), 1e-9);
+        nodes.close();
+        edges.close();
+    }
+
+    /**
+     * Tests that once a contraction hierarchy is built, it is used on request
+     * and finds a path of the same length as the unidirectional search.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_ShortestPathContractionHierarchy() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DataSet[] tables = new DataSet[]{ds};
+        DataSet dijkstra = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(ST_ShortestPath.DIJKSTRA)
+                },
+                new NullProgressMonitor());
+        DataSet ranks = new ST_BuildContractionHierarchy().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected")
+                },
+                new NullProgressMonitor());
+        assertEquals(6, ranks.getRowCount());
+        try {
+            DataSet ch = new ST_ShortestPath().evaluate(
+                    dsf,
+                    tables,
+                    new Value[]{
+                        ValueFactory.createValue(3),
+                        ValueFactory.createValue(4),
+                        ValueFactory.createValue("length"),
+                        ValueFactory.createValue("undirected"),
+                        ValueFactory.createValue(ST_ShortestPath.CH)
+                    },
+                    new NullProgressMonitor());
+            assertEquals(length(dijkstra), length(ch), 1e-9);
+            final Metadata md = ch.getMetadata();
+            assertEquals(4, ch.getInt(
+                    0, md.getFieldIndex(GraphSchema.END_NODE)));
+            assertEquals(3, ch.getInt(
+                    ch.getRowCount() - 1,
+                    md.getFieldIndex(GraphSchema.START_NODE)));
+        } finally {
+            GraphCache.getInstance().clear();
+        }
+        ds.close();
+    }
+
+    /**
+     * Tests that a contraction hierarchy written to a file is read back by a
+     * query of a later session, once the cache has been cleared.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_ShortestPathContractionHierarchyFile()
+            throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DataSet[] tables = new DataSet[]{ds};
+        final File file = File.createTempFile("hierarchy", ".gtch");
+        file.deleteOnExit();
+        file.delete();
+        DataSet dijkstra = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected")
+                },
+                new NullProgressMonitor());
+        new ST_BuildContractionHierarchy().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(file.getPath())
+                },
+                new NullProgressMonitor());
+        assertTrue(file.isFile());
+        GraphCache.getInstance().clear();
+        try {
+            DataSet ch = new ST_ShortestPath().evaluate(
+                    dsf,
+                    tables,
+                    new Value[]{
+                        ValueFactory.createValue(3),
+                        ValueFactory.createValue(4),
+                        ValueFactory.createValue("length"),
+                        ValueFactory.createValue("undirected"),
+                        ValueFactory.createValue(
+                        GraphFunctionParser.HIERARCHY_PREFIX + file.getPath())
+                    },
+                    new NullProgressMonitor());
+            assertEquals(length(dijkstra), length(ch), 1e-9);
+            // The hierarchy read from the file is now registered.
+            assertNotNull(GraphCache.getInstance().getContractionHierarchy(
+                    new WeightedGraphCreator<VWCent, Edge>(
+                    ds, GraphSchema.UNDIRECT, VWCent.class, Edge.class,
+                    "length")));
+        } finally {
+            GraphCache.getInstance().clear();
+        }
+        ds.close();
+    }
+
+    /**
+     * Tests that an orientation, a hierarchy file and a topology file can all
+     * be given in one call. The topology file only holds the graph directed
+     * by the edge geometries, so it is ignored for this undirected query,
+     * which is answered on the hierarchy read from the file.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_ShortestPathHierarchyAndTopologyFiles()
+            throws Exception {
+        DataSource graph = dsf.getDataSource(GRAPH2D);
+        graph.open();
+        final File topology = File.createTempFile("graph2D", ".topo");
+        topology.deleteOnExit();
+        new ST_Graph().evaluate(dsf,
+                                new DataSource[]{graph},
+                                new Value[]{ValueFactory.createValue(0),
+                                            ValueFactory.createValue(false),
+                                            ValueFactory.createValue("topo"),
+                                            ValueFactory.createValue(
+                    topology.getAbsolutePath())},
+                                new NullProgressMonitor());
+        graph.close();
+        assertTrue(topology.isFile());
+
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DataSet[] tables = new DataSet[]{ds};
+        final File hierarchy = File.createTempFile("hierarchy", ".gtch");
+        hierarchy.deleteOnExit();
+        hierarchy.delete();
+        DataSet dijkstra = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected")
+                },
+                new NullProgressMonitor());
+        new ST_BuildContractionHierarchy().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(hierarchy.getPath())
+                },
+                new NullProgressMonitor());
+        assertTrue(hierarchy.isFile());
+        GraphCache.getInstance().clear();
+        try {
+            DataSet ch = new ST_ShortestPath().evaluate(
+                    dsf,
+                    tables,
+                    new Value[]{
+                        ValueFactory.createValue(3),
+                        ValueFactory.createValue(4),
+                        ValueFactory.createValue("length"),
+                        ValueFactory.createValue("undirected"),
+                        ValueFactory.createValue(
+                        GraphFunctionParser.HIERARCHY_PREFIX
+                        + hierarchy.getPath()),
+                        ValueFactory.createValue(
+                        GraphFunctionParser.TOPOLOGY_PREFIX
+                        + topology.getPath())
+                    },
+                    new NullProgressMonitor());
+            assertNotNull(ch);
+            assertEquals(length(dijkstra), length(ch), 1e-9);
+            assertNotNull(GraphCache.getInstance().getContractionHierarchy(
+                    new WeightedGraphCreator<VWCent, Edge>(
+                    ds, GraphSchema.UNDIRECT, VWCent.class, Edge.class,
+                    "length")));
+        } finally {
+            GraphCache.getInstance().clear();
+        }
+        ds.close();
+    }
+
+    /**
+     * Tests that once landmarks are computed, they are used on request and
+     * find a path of the same length as the unidirectional search.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testST_ShortestPathLandmarks() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DataSet[] tables = new DataSet[]{ds};
+        DataSet dijkstra = new ST_ShortestPath().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue(3),
+                    ValueFactory.createValue(4),
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected")
+                },
+                new NullProgressMonitor());
+        DataSet landmarks = new ST_BuildLandmarks().evaluate(
+                dsf,
+                tables,
+                new Value[]{
+                    ValueFactory.createValue("length"),
+                    ValueFactory.createValue("undirected"),
+                    ValueFactory.createValue(2)
+                },
+                new NullProgressMonitor());
+        assertEquals(2, landmarks.getRowCount());
+        try {
+            DataSet alt = new ST_ShortestPath().evaluate(
+                    dsf,
+                    tables,
+                    new Value[]{
+                        ValueFactory.createValue(3),
+                        ValueFactory.createValue(4),
+                        ValueFactory.createValue("length"),
+                        ValueFactory.createValue("undirected"),
+                        ValueFactory.createValue(ST_ShortestPath.ALT)
+                    },
+                    new NullProgressMonitor());
+            assertEquals(length(dijkstra), length(alt), 1e-9);
+        } finally {
+            GraphCache.getInstance().clear();
+        }
+        ds.close();
+    }
+
+    /**
+     * Returns the total weight of a path returned by {@link ST_ShortestPath}.
+     *
+     * @param path The path
+     *
+     * @return Its total weight
+     *
+     * @throws Exception
+     */
+    private double length(DataSet path) throws Exception {
+        double length = 0;
+        for (int i = 0; i < path.getRowCount(); i++) {
+            length += path.getDouble(
+                    i, path.getMetadata().getFieldIndex(GraphSchema.WEIGHT));
+        }
+        return length;
+    }
 }
@@ -33,6 +33,7 @@
 package org.gdms.gdmstopology.graphcreator;
 
 import com.vividsolutions.jts.io.ParseException;
+import java.io.File;
 import org.gdms.data.DataSource;
 import org.gdms.data.DataSourceCreationException;
 import org.gdms.data.NoSuchTableException;
@@ -46,7 +47,13 @@ import org.gdms.driver.DriverException;
 import org.gdms.driver.memory.MemoryDataSetDriver;
 import org.gdms.gdmstopology.TopologySetupTest;
 import org.gdms.gdmstopology.function.ST_Graph;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.gdms.gdmstopology.model.CSRGraphFile;
+import org.gdms.gdmstopology.model.GDMSGraph;
+import org.gdms.gdmstopology.model.GraphEdge;
 import org.gdms.gdmstopology.model.GraphSchema;
+import org.gdms.gdmstopology.shortestpath.ContractionHierarchy;
+import org.gdms.gdmstopology.shortestpath.Landmarks;
 import org.gdms.sql.function.FunctionException;
 import org.javanetworkanalyzer.data.VCent;
 import org.javanetworkanalyzer.data.VUCent;
@@ -331,6 +338,518 @@ public class GraphCreatorTest extends TopologySetupTest {
         print(graph);
     }
 
+    @Test
+    public void weightedDirectedCSR() throws Exception {
+
+        DataSet newEdges = introduceOrientations(
+                introduceWeights(prepareEdges(), EDGE_WEIGHTS),
+                EDGE_ORIENTATIONS);
+        WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                GraphSchema.EDGE_ORIENTATION,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        CSRGraph graph = creator.prepareCSRGraph();
+
+        assertSame(graph.getVertexIndex(), creator.getVertexIndex());
+        assertEquals(4, graph.getVertexCount());
+        assertEquals(4, graph.getArcCount());
+        // Dense indices follow the order of first appearance.
+        for (int id = 1; id <= 4; id++) {
+            assertEquals(id - 1, graph.indexOf(id));
+            assertEquals(id, graph.getVertexId(id - 1));
+        }
+        assertArc(graph, 1, 2, 1, EDGE_WEIGHTS[0]);
+        assertArc(graph, 3, 2, 2, EDGE_WEIGHTS[1]);
+        assertArc(graph, 3, 4, 3, EDGE_WEIGHTS[2]);
+        assertArc(graph, 4, 3, -3, EDGE_WEIGHTS[2]);
+    }
+
+    @Test
+    public void unweightedUndirectedCSR() throws Exception {
+
+        CSRGraph graph =
+                new GraphCreator<VUCent, Edge>(prepareEdges(),
+                                               GraphSchema.UNDIRECT,
+                                               VUCent.class,
+                                               Edge.class).prepareCSRGraph();
+
+        assertEquals(4, graph.getVertexCount());
+        assertEquals(6, graph.getArcCount());
+        assertArc(graph, 1, 2, 1, 1.0);
+        assertArc(graph, 2, 1, 1, 1.0);
+        assertArc(graph, 2, 3, 2, 1.0);
+        assertArc(graph, 3, 2, 2, 1.0);
+        assertArc(graph, 3, 4, 3, 1.0);
+        assertArc(graph, 4, 3, 3, 1.0);
+    }
+
+    /**
+     * Checks that the given CSR graph has exactly one arc from the given
+     * source to the given target, with the given edge id and weight.
+     */
+    private void assertArc(CSRGraph graph, int source, int target,
+                           int edgeId, double weight) {
+        final int v = graph.indexOf(source);
+        int found = 0;
+        for (int arc = graph.outArcsBegin(v); arc < graph.outArcsEnd(v); arc++) {
+            if (graph.getVertexId(graph.getArcTarget(arc)) == target) {
+                assertEquals(edgeId, graph.getArcEdgeId(arc));
+                assertEquals(weight, graph.getArcWeight(arc), TOLERANCE);
+                found++;
+            }
+        }
+        assertEquals(1, found);
+    }
+
+    @Test
+    public void topologyFile() throws Exception {
+
+        DataSet newEdges = introduceWeights(prepareEdges(), EDGE_WEIGHTS);
+        CSRGraph expected = new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT).prepareCSRGraph();
+        // As written by ST_Graph, with other weights than the weights column.
+        File file = File.createTempFile("edges", ".topo");
+        file.deleteOnExit();
+        CSRGraphFile.write(
+                expected.withWeights(new double[expected.getArcCount()]),
+                file);
+
+        WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        creator.setTopologyFile(file);
+        CSRGraph mapped = creator.prepareCSRGraph();
+        assertTrue(mapped.isMapped());
+        assertNull(creator.getVertexIndex());
+        assertEquals(3, creator.getEdgeRowIndex().size());
+        assertEquals(expected.getArcCount(), mapped.getArcCount());
+        // The weights are read from the weights column.
+        for (int arc = 0; arc < expected.getArcCount(); arc++) {
+            assertArc(mapped,
+                      expected.getVertexId(expected.getArcSource(arc)),
+                      expected.getVertexId(expected.getArcTarget(arc)),
+                      expected.getArcEdgeId(arc),
+                      expected.getArcWeight(arc));
+        }
+
+        // The file only stands for the graph directed by the geometries.
+        WeightedGraphCreator<VWCent, Edge> undirected =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.UNDIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        undirected.setTopologyFile(file);
+        CSRGraph built = undirected.prepareCSRGraph();
+        assertFalse(built.isMapped());
+        assertEquals(6, built.getArcCount());
+
+        // A file written for other edges is ignored.
+        CSRGraphFile.write(built, file);
+        creator = new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        creator.setTopologyFile(file);
+        assertFalse(creator.prepareCSRGraph().isMapped());
+    }
+
+    @Test
+    public void parallelLoading() throws Exception {
+
+        // Large enough to be decoded in parallel.
+        DataSet edges = GraphLoadingBenchmark.createGridEdges(250);
+        assertTrue(edges.getRowCount()
+                   >= GraphCreator.PARALLEL_LOADING_THRESHOLD);
+        CSRGraph sequential = csrGraph(edges, 1);
+        CSRGraph parallel = csrGraph(edges, 4);
+
+        assertEquals(sequential.getVertexCount(), parallel.getVertexCount());
+        assertEquals(sequential.getArcCount(), parallel.getArcCount());
+        for (int v = 0; v < sequential.getVertexCount(); v++) {
+            assertEquals(sequential.getVertexId(v), parallel.getVertexId(v));
+            assertEquals(sequential.outArcsEnd(v), parallel.outArcsEnd(v));
+        }
+        for (int arc = 0; arc < sequential.getArcCount(); arc++) {
+            assertEquals(sequential.getArcTarget(arc),
+                         parallel.getArcTarget(arc));
+            assertEquals(sequential.getArcEdgeId(arc),
+                         parallel.getArcEdgeId(arc));
+            assertEquals(sequential.getArcWeight(arc),
+                         parallel.getArcWeight(arc), TOLERANCE);
+            assertEquals(sequential.getArcRow(arc), parallel.getArcRow(arc));
+        }
+
+        WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                GraphSchema.DIRECT,
+                GraphSchema.EDGE_ORIENTATION,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        creator.setThreadCount(4);
+        KeyedGraph<VWCent, Edge> graph = creator.prepareGraph();
+        assertEquals(sequential.getVertexCount(), graph.vertexSet().size());
+        assertEquals(sequential.getArcCount(), graph.edgeSet().size());
+    }
+
+    /**
+     * Prepares the directed weighted CSR graph of the given edges with the
+     * given number of threads.
+     */
+    private CSRGraph csrGraph(DataSet edges, int threads) {
+        WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                GraphSchema.DIRECT,
+                GraphSchema.EDGE_ORIENTATION,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        creator.setThreadCount(threads);
+        return creator.prepareCSRGraph();
+    }
+
+    @Test
+    public void graphCache() throws Exception {
+
+        DataSet newEdges = introduceWeights(prepareEdges(),
+                                            EDGE_WEIGHTS);
+        GraphCache cache = GraphCache.getInstance();
+        WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.UNDIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+
+        KeyedGraph<VWCent, Edge> first = cache.acquire(creator);
+        assertEquals(1, cache.size());
+        assertTrue(cache.getMemoryUsage() > 0);
+        // The cached graph is leased, so a second caller gets its own graph.
+        KeyedGraph<VWCent, Edge> second = cache.acquire(creator);
+        assertNotSame(first, second);
+        cache.release(second);
+        cache.release(first);
+        // Once released, the cached graph is reused.
+        KeyedGraph<VWCent, Edge> third = cache.acquire(
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.UNDIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT));
+        assertSame(first, third);
+        cache.release(third);
+
+        // A different orientation is a different graph.
+        KeyedGraph<VWCent, Edge> directed = cache.acquire(
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT));
+        assertNotSame(first, directed);
+        cache.release(directed);
+        assertEquals(2, cache.size());
+
+        // Shrinking the budget evicts graphs.
+        final long budget = cache.getMemoryBudget();
+        cache.setMemoryBudget(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemoryUsage());
+        cache.setMemoryBudget(budget);
+    }
+
+    @Test
+    public void cacheKeys() throws Exception {
+
+        // Data sources of the same file are keyed by name and file stamp.
+        DataSource first = dsf.getDataSource(GRAPH2D_EDGES);
+        first.open();
+        DataSource second = dsf.getDataSource(GRAPH2D_EDGES);
+        second.open();
+        assertEquals(cacheKey(first), cacheKey(second));
+        first.close();
+        second.close();
+
+        // Other data sets are keyed by identity, whatever their contents.
+        DataSet edges = initializeDriver();
+        assertEquals(cacheKey(edges), cacheKey(edges));
+        assertFalse(cacheKey(edges).equals(cacheKey(initializeDriver())));
+    }
+
+    @Test
+    public void edits() throws Exception {
+
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        GDMSGraph edited = new GDMSGraph(dsf, ds, new NullProgressMonitor());
+        edited.setWeightFieldIndex("length");
+        // The graph functions work on their own data source of the table.
+        DataSource table = dsf.getDataSource(GRAPH2D_EDGES);
+        table.open();
+        GraphCache cache = GraphCache.getInstance();
+        cache.clear();
+        CSRGraph before = cache.getCSRGraph(lengthCreator(table));
+        assertTrue(hasArc(before, 3, 5));
+        try {
+            // Close the road 3 -> 5 and add a detour through a new vertex.
+            assertTrue(edited.removeEdge(edited.getEdge(3, 5)));
+            GraphEdge detour = edited.addEdge(3, 100, 2.5);
+            edited.setEdgeWeight(detour, 7.0);
+
+            WeightedGraphCreator<VWCent, Edge> creator = lengthCreator(table);
+            CSRGraph after = cache.getCSRGraph(creator);
+            assertNotSame(before, after);
+            assertEquals(before.getArcCount(), after.getArcCount());
+            assertFalse(hasArc(after, 3, 5));
+            assertTrue(hasArc(after, 3, 100));
+            final int v = after.indexOf(3);
+            for (int arc = after.outArcsBegin(v); arc < after.outArcsEnd(v);
+                 arc++) {
+                if (after.getVertexId(after.getArcTarget(arc)) == 100) {
+                    assertEquals(7.0, after.getArcWeight(arc), TOLERANCE);
+                    // The added edge has no row in the table.
+                    assertTrue(cache.getEdgeRowIndex(creator).getRow(
+                            after.getArcEdgeId(arc)) >= table.getRowCount());
+                }
+            }
+        } finally {
+            edited.clearEdits();
+        }
+        // Without edits, the graph of the table is the cached one again.
+        assertSame(before, cache.getCSRGraph(lengthCreator(table)));
+        table.close();
+        ds.close();
+    }
+
+    /**
+     * Returns a creator of the graph of the given table weighted by length
+     * and directed by the edge geometries.
+     */
+    private static WeightedGraphCreator<VWCent, Edge> lengthCreator(
+            DataSet table) {
+        return new WeightedGraphCreator<VWCent, Edge>(table,
+                                                     GraphSchema.DIRECT,
+                                                     VWCent.class,
+                                                     Edge.class,
+                                                     "length");
+    }
+
+    /**
+     * Returns {@code true} if the given CSR graph has an arc from the given
+     * source to the given target.
+     */
+    private static boolean hasArc(CSRGraph graph, int source, int target) {
+        final int v = graph.indexOf(source);
+        for (int arc = graph.outArcsBegin(v); arc < graph.outArcsEnd(v); arc++) {
+            if (graph.getVertexId(graph.getArcTarget(arc)) == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void preprocessedGraphs() throws Exception {
+
+        DataSet newEdges = introduceWeights(prepareEdges(),
+                                            EDGE_WEIGHTS);
+        GraphCache cache = GraphCache.getInstance();
+        cache.clear();
+        WeightedGraphCreator<VWCent, Edge> creator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.UNDIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        CSRGraph graph = cache.getCSRGraph(creator);
+        final long graphUsage = cache.getMemoryUsage();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        cache.setContractionHierarchy(creator, hierarchy);
+        Landmarks landmarks = Landmarks.build(graph, 2);
+        cache.setLandmarks(creator, landmarks);
+        // Both count towards the budget, the shared graph only once.
+        assertEquals(graphUsage + hierarchy.getMemoryUsage()
+                     + landmarks.getMemoryUsage(), cache.getMemoryUsage());
+        assertSame(hierarchy, cache.getContractionHierarchy(creator));
+        assertSame(landmarks, cache.getLandmarks(creator));
+
+        // Landmarks are evicted before hierarchies; the graph stays with the
+        // hierarchy.
+        final long budget = cache.getMemoryBudget();
+        cache.setMemoryBudget(graphUsage + hierarchy.getMemoryUsage());
+        assertNull(cache.getLandmarks(creator));
+        assertSame(hierarchy, cache.getContractionHierarchy(creator));
+        assertSame(graph, cache.getCSRGraph(creator));
+        // The hierarchy goes with its graph.
+        cache.setMemoryBudget(0);
+        assertNull(cache.getContractionHierarchy(creator));
+        assertEquals(0, cache.getMemoryUsage());
+        cache.setMemoryBudget(budget);
+    }
+
+    @Test
+    public void weightProfiles() throws Exception {
+
+        // Add a second weights column to the weighted edges.
+        DataSet weightedEdges = introduceWeights(prepareEdges(),
+                                                 EDGE_WEIGHTS);
+        DefaultMetadata md =
+                new DefaultMetadata(weightedEdges.getMetadata());
+        md.addField("time", TypeFactory.createType(Type.DOUBLE));
+        MemoryDataSetDriver newEdges = new MemoryDataSetDriver(md);
+        for (int i = 0; i < weightedEdges.getRowCount(); i++) {
+            final Value[] row = new Value[md.getFieldCount()];
+            System.arraycopy(weightedEdges.getRow(i), 0, row, 0,
+                             md.getFieldCount() - 1);
+            row[md.getFieldCount() - 1] =
+                    ValueFactory.createValue(10 * EDGE_WEIGHTS[i]);
+            newEdges.addValues(row);
+        }
+
+        GraphCache cache = GraphCache.getInstance();
+        cache.clear();
+        WeightedGraphCreator<VWCent, Edge> weightCreator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+        WeightedGraphCreator<VWCent, Edge> timeCreator =
+                new WeightedGraphCreator<VWCent, Edge>(
+                newEdges,
+                GraphSchema.DIRECT,
+                VWCent.class,
+                Edge.class,
+                "time");
+        CSRGraph byWeight = cache.getCSRGraph(weightCreator);
+        assertEquals(0, cache.getProfileCount());
+        // The cached topology is reused with the other weights column.
+        CSRGraph byTime = cache.getCSRGraph(timeCreator);
+        assertNotSame(byWeight, byTime);
+        assertEquals(1, cache.getProfileCount());
+        assertEquals(byWeight.getArcCount(), byTime.getArcCount());
+        for (int arc = 0; arc < byTime.getArcCount(); arc++) {
+            assertEquals(byWeight.getArcTarget(arc), byTime.getArcTarget(arc));
+            assertEquals(
+                    10 * EDGE_WEIGHTS[Math.abs(byTime.getArcEdgeId(arc)) - 1],
+                    byTime.getArcWeight(arc), TOLERANCE);
+        }
+        assertSame(byTime, cache.getCSRGraph(timeCreator));
+        // The weights of the first graph are untouched.
+        for (int arc = 0; arc < byWeight.getArcCount(); arc++) {
+            assertEquals(
+                    EDGE_WEIGHTS[Math.abs(byWeight.getArcEdgeId(arc)) - 1],
+                    byWeight.getArcWeight(arc), TOLERANCE);
+        }
+
+        // Keyed graphs hold their weights, so each column has its own.
+        KeyedGraph<VWCent, Edge> keyedByWeight = cache.acquire(weightCreator);
+        cache.release(keyedByWeight);
+        KeyedGraph<VWCent, Edge> keyedByTime = cache.acquire(timeCreator);
+        cache.release(keyedByTime);
+        assertNotSame(keyedByWeight, keyedByTime);
+        assertEquals(2, cache.size());
+        for (Edge edge : keyedByTime.edgeSet()) {
+            assertEquals(10 * EDGE_WEIGHTS[Math.abs(edge.getID()) - 1],
+                         keyedByTime.getEdgeWeight(edge), TOLERANCE);
+        }
+        KeyedGraph<VWCent, Edge> again = cache.acquire(weightCreator);
+        assertSame(keyedByWeight, again);
+        for (Edge edge : again.edgeSet()) {
+            assertEquals(EDGE_WEIGHTS[Math.abs(edge.getID()) - 1],
+                         again.getEdgeWeight(edge), TOLERANCE);
+        }
+        cache.release(again);
+
+        // Custom profiles, with sparse edge ids, reweight the shared topology.
+        WeightProfile unit = WeightProfile.create(
+                "unit", new int[]{1, 2, 3, 1000000},
+                new double[]{1.0, 1.0, 1.0, 7.0});
+        assertEquals(7.0, unit.getWeight(-1000000), TOLERANCE);
+        CSRGraph custom = byWeight.withWeights(unit.getArcWeights(byWeight));
+        assertNotSame(byWeight, custom);
+        for (int arc = 0; arc < custom.getArcCount(); arc++) {
+            assertEquals(1.0, custom.getArcWeight(arc), TOLERANCE);
+        }
+        assertSame(byWeight, cache.getCSRGraph(weightCreator));
+        // A profile missing an edge is rejected.
+        WeightProfile partial = WeightProfile.create(
+                "partial", new int[]{1, 2}, new double[]{1.0, 1.0});
+        try {
+            partial.getArcWeights(byWeight);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        cache.clear();
+    }
+
+    /**
+     * Missing edge ids have no weight in either layout of a profile.
+     */
+    @Test
+    public void weightProfileMissingIds() {
+        // Dense ids, indexed directly.
+        WeightProfile dense = WeightProfile.create(
+                "dense", new int[]{1, 2, 4}, new double[]{1.0, 0.0, 3.0});
+        assertEquals(0.0, dense.getWeight(2), TOLERANCE);
+        assertEquals(3.0, dense.getWeight(-4), TOLERANCE);
+        // Sparse ids, remapped to slots.
+        WeightProfile sparse = WeightProfile.create(
+                "sparse", new int[]{1, 2, 1000000},
+                new double[]{1.0, 0.0, 3.0});
+        assertEquals(0.0, sparse.getWeight(2), TOLERANCE);
+        for (WeightProfile profile : new WeightProfile[]{dense, sparse}) {
+            for (int id : new int[]{0, 3, 5, 999999, -3}) {
+                try {
+                    profile.getWeight(id);
+                    fail("Edge " + id + " has no weight in "
+                         + profile.getName() + ".");
+                } catch (IllegalArgumentException ex) {
+                }
+            }
+        }
+        try {
+            WeightProfile.create("nan", new int[]{1},
+                                 new double[]{Double.NaN});
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Returns the cache key of the undirected graph of the given edges.
+     */
+    private static GraphCache.Key cacheKey(DataSet edges)
+            throws DriverException {
+        return new GraphCreator<VUCent, Edge>(edges,
+                                              GraphSchema.UNDIRECT,
+                                              VUCent.class,
+                                              Edge.class).getCacheKey();
+    }
+
     /**
      * Sets up a driver with geometry and gid columns ready to receive input
      * data.
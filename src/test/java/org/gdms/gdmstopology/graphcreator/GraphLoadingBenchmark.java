@@ -0,0 +1,172 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.graphcreator;
+
+import org.gdms.data.types.Type;
+import org.gdms.data.types.TypeFactory;
+import org.gdms.data.values.Value;
+import org.gdms.data.values.ValueFactory;
+import org.gdms.driver.DriverException;
+import org.gdms.driver.memory.MemoryDataSetDriver;
+import org.gdms.gdmstopology.model.GraphSchema;
+import org.javanetworkanalyzer.data.VWCent;
+import org.javanetworkanalyzer.model.Edge;
+
+/**
+ * Measures how graph preparation scales with the number of threads used to
+ * decode the edges table.
+ *
+ * <p> Usage: {@code GraphLoadingBenchmark [side [runs]]}. A square grid
+ * network of {@code side * side} nodes (about {@code 2 * side * side} edges,
+ * default side 1000) is loaded in memory, then prepared as a
+ * {@link org.gdms.gdmstopology.model.CSRGraph} and as a JGraphT graph with 1,
+ * 2, 4 and 8 threads. The best time of {@code runs} runs (default 5) is
+ * printed for each configuration, along with the speedup over one thread.
+ *
+ * @author Adam Gouge
+ */
+public final class GraphLoadingBenchmark {
+
+    private static final int[] THREADS = new int[]{1, 2, 4, 8};
+
+    private GraphLoadingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final MemoryDataSetDriver edges = createGridEdges(side);
+        System.out.println("Grid " + side + "x" + side + ": "
+                           + edges.getRowCount() + " edges, "
+                           + Runtime.getRuntime().availableProcessors()
+                           + " processors.");
+
+        System.out.println("threads\tcsr (ms)\tspeedup\tgraph (ms)\tspeedup");
+        double csrBase = 0;
+        double graphBase = 0;
+        for (int threads : THREADS) {
+            double csr = Double.MAX_VALUE;
+            double graph = Double.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                WeightedGraphCreator<VWCent, Edge> creator = creator(edges);
+                creator.setThreadCount(threads);
+                long start = System.nanoTime();
+                creator.prepareCSRGraph();
+                csr = Math.min(csr, (System.nanoTime() - start) / 1e6);
+
+                creator = creator(edges);
+                creator.setThreadCount(threads);
+                start = System.nanoTime();
+                creator.prepareGraph();
+                graph = Math.min(graph, (System.nanoTime() - start) / 1e6);
+            }
+            if (threads == 1) {
+                csrBase = csr;
+                graphBase = graph;
+            }
+            System.out.printf("%d\t%.1f\t%.2f\t%.1f\t%.2f%n",
+                              threads, csr, csrBase / csr,
+                              graph, graphBase / graph);
+        }
+    }
+
+    /**
+     * Returns a directed weighted graph creator on the given edges.
+     */
+    private static WeightedGraphCreator<VWCent, Edge> creator(
+            MemoryDataSetDriver edges) {
+        return new WeightedGraphCreator<VWCent, Edge>(
+                edges,
+                GraphSchema.DIRECT,
+                GraphSchema.EDGE_ORIENTATION,
+                VWCent.class,
+                Edge.class,
+                GraphSchema.WEIGHT);
+    }
+
+    /**
+     * Creates the edges table of a square grid network with the given number
+     * of nodes per side. Nodes are numbered row by row from 1; horizontal
+     * edges are directed, vertical edges alternate between reversed and
+     * undirected, and weights vary with the edge id.
+     *
+     * @param side The number of nodes per side.
+     *
+     * @return The edges table.
+     *
+     * @throws DriverException
+     */
+    static MemoryDataSetDriver createGridEdges(int side)
+            throws DriverException {
+        final MemoryDataSetDriver edges = new MemoryDataSetDriver(
+                new String[]{GraphSchema.ID,
+                             GraphSchema.START_NODE,
+                             GraphSchema.END_NODE,
+                             GraphSchema.WEIGHT,
+                             GraphSchema.EDGE_ORIENTATION},
+                new Type[]{TypeFactory.createType(Type.INT),
+                           TypeFactory.createType(Type.INT),
+                           TypeFactory.createType(Type.INT),
+                           TypeFactory.createType(Type.DOUBLE),
+                           TypeFactory.createType(Type.INT)});
+        int id = 1;
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                final int node = row * side + col + 1;
+                if (col + 1 < side) {
+                    edges.addValues(edge(id++, node, node + 1,
+                                         GraphCreator.DIRECTED_EDGE));
+                }
+                if (row + 1 < side) {
+                    edges.addValues(edge(id, node, node + side,
+                                         id % 2 == 0
+                                         ? GraphCreator.REVERSED_EDGE
+                                         : GraphCreator.UNDIRECTED_EDGE));
+                    id++;
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Returns a row of the grid edges table.
+     */
+    private static Value[] edge(int id, int start, int end, int orientation) {
+        return new Value[]{ValueFactory.createValue(id),
+                           ValueFactory.createValue(start),
+                           ValueFactory.createValue(end),
+                           ValueFactory.createValue(1.0 + (id % 7) / 4.0),
+                           ValueFactory.createValue(orientation)};
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the adjacency arrays of {@link CSRGraph}.
+ *
+ * @author Adam Gouge
+ */
+public class CSRGraphTest {
+
+    /**
+     * Builds the directed graph
+     * <pre>
+     * 10 --1--> 20 --2--> 30
+     *  \                  ^
+     *   --------4---------|
+     * 30 --1--> 10
+     * </pre>
+     * with rows 0 to 3 in that order and edge ids 1, 2, 3 and -3.
+     */
+    private CSRGraph prepareGraph() {
+        CSRGraph.Builder builder = new CSRGraph.Builder(0);
+        builder.addArc(10, 20, 1, 1.0, 0);
+        builder.addArc(20, 30, 2, 2.0, 1);
+        builder.addArc(10, 30, 3, 4.0, 2);
+        builder.addArc(30, 10, -3, 1.0, 3);
+        return builder.build();
+    }
+
+    @Test
+    public void testVertices() {
+        CSRGraph graph = prepareGraph();
+        assertEquals(3, graph.getVertexCount());
+        assertEquals(4, graph.getArcCount());
+        for (int id : new int[]{10, 20, 30}) {
+            assertTrue(graph.containsVertex(id));
+            assertEquals(id, graph.getVertexId(graph.indexOf(id)));
+        }
+        assertFalse(graph.containsVertex(0));
+        assertEquals(-1, graph.indexOf(40));
+    }
+
+    @Test
+    public void testMaxIntegerWeight() {
+        assertEquals(4, prepareGraph().getMaxIntegerWeight());
+        CSRGraph.Builder builder = new CSRGraph.Builder(0);
+        builder.addArc(10, 20, 1, 1.0, 0);
+        builder.addArc(20, 30, 2, 0.5, 1);
+        assertEquals(-1, builder.build().getMaxIntegerWeight());
+        builder = new CSRGraph.Builder(0);
+        builder.addArc(10, 20, 1, -1.0, 0);
+        assertEquals(-1, builder.build().getMaxIntegerWeight());
+    }
+
+    @Test
+    public void testOutgoingArcs() {
+        CSRGraph graph = prepareGraph();
+        int v = graph.indexOf(10);
+        assertEquals(2, graph.getOutDegree(v));
+        // Insertion order is kept for the arcs leaving the same vertex.
+        int first = graph.outArcsBegin(v);
+        assertEquals(first + 2, graph.outArcsEnd(v));
+        assertEquals(20, graph.getVertexId(graph.getArcTarget(first)));
+        assertEquals(1.0, graph.getArcWeight(first), 0.0);
+        assertEquals(0, graph.getArcRow(first));
+        assertEquals(1, graph.getArcEdgeId(first));
+        assertEquals(30, graph.getVertexId(graph.getArcTarget(first + 1)));
+        assertEquals(4.0, graph.getArcWeight(first + 1), 0.0);
+        assertEquals(2, graph.getArcRow(first + 1));
+        assertEquals(3, graph.getArcEdgeId(first + 1));
+        for (int arc = first; arc < first + 2; arc++) {
+            assertEquals(v, graph.getArcSource(arc));
+        }
+    }
+
+    @Test
+    public void testIncomingArcs() {
+        CSRGraph graph = prepareGraph();
+        int v = graph.indexOf(30);
+        assertEquals(2, graph.getInDegree(v));
+        double total = 0;
+        for (int i = graph.inArcsBegin(v); i < graph.inArcsEnd(v); i++) {
+            int arc = graph.getInArc(i);
+            assertEquals(v, graph.getArcTarget(arc));
+            total += graph.getArcWeight(arc);
+        }
+        assertEquals(6.0, total, 0.0);
+        assertEquals(1, graph.getInDegree(graph.indexOf(20)));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        CSRGraph heap = prepareGraph();
+        File file = File.createTempFile("csrgraph", ".topo");
+        file.deleteOnExit();
+        CSRGraphFile.write(heap, file);
+        CSRGraph mapped = CSRGraphFile.map(file);
+        assertTrue(mapped.isMapped());
+        assertFalse(heap.isMapped());
+        assertEquals(heap.getVertexCount(), mapped.getVertexCount());
+        assertEquals(heap.getArcCount(), mapped.getArcCount());
+        for (int v = 0; v < heap.getVertexCount(); v++) {
+            assertEquals(heap.getVertexId(v), mapped.getVertexId(v));
+            assertEquals(v, mapped.indexOf(heap.getVertexId(v)));
+            assertEquals(heap.outArcsBegin(v), mapped.outArcsBegin(v));
+            assertEquals(heap.outArcsEnd(v), mapped.outArcsEnd(v));
+            assertEquals(heap.inArcsBegin(v), mapped.inArcsBegin(v));
+            assertEquals(heap.inArcsEnd(v), mapped.inArcsEnd(v));
+        }
+        for (int arc = 0; arc < heap.getArcCount(); arc++) {
+            assertEquals(heap.getInArc(arc), mapped.getInArc(arc));
+            assertEquals(heap.getArcSource(arc), mapped.getArcSource(arc));
+            assertEquals(heap.getArcTarget(arc), mapped.getArcTarget(arc));
+            assertEquals(heap.getArcWeight(arc), mapped.getArcWeight(arc), 0.0);
+            assertEquals(heap.getArcEdgeId(arc), mapped.getArcEdgeId(arc));
+            assertEquals(heap.getArcRow(arc), mapped.getArcRow(arc));
+        }
+        assertEquals(-1, mapped.indexOf(40));
+        assertFalse(mapped.containsVertex(0));
+        assertEquals(mapped.indexOf(20),
+                     mapped.getVertexIndex().indexOf(20));
+    }
+
+    @Test
+    public void testWithWeights() throws IOException {
+        CSRGraph heap = prepareGraph();
+        File file = File.createTempFile("csrgraph", ".topo");
+        file.deleteOnExit();
+        CSRGraphFile.write(heap, file);
+        CSRGraph mapped = CSRGraphFile.map(file);
+        final double[] weights = new double[heap.getArcCount()];
+        for (int arc = 0; arc < weights.length; arc++) {
+            weights[arc] = 10.0 * arc;
+        }
+        for (CSRGraph graph : new CSRGraph[]{heap, mapped}) {
+            CSRGraph reweighted = graph.withWeights(weights);
+            assertEquals(graph.isMapped(), reweighted.isMapped());
+            assertEquals(graph.getVertexCount(), reweighted.getVertexCount());
+            assertEquals(graph.indexOf(20), reweighted.indexOf(20));
+            for (int arc = 0; arc < weights.length; arc++) {
+                assertEquals(graph.getArcTarget(arc),
+                             reweighted.getArcTarget(arc));
+                assertEquals(weights[arc], reweighted.getArcWeight(arc), 0.0);
+            }
+        }
+        // The original weights are untouched.
+        assertEquals(heap.getArcWeight(1), mapped.getArcWeight(1), 0.0);
+        try {
+            heap.withWeights(new double[weights.length + 1]);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link EdgeRowIndex} on dense and sparse edge ids.
+ *
+ * @author Adam Gouge
+ */
+public class EdgeRowIndexTest {
+
+    @Test
+    public void testDenseIds() {
+        // Ids 1..n, as produced by ST_Graph, in shuffled rows.
+        final EdgeRowIndex index = new EdgeRowIndex(new int[]{3, 1, 4, 2, 5});
+        assertEquals(5, index.size());
+        assertEquals(1, index.getRow(1));
+        assertEquals(3, index.getRow(2));
+        assertEquals(0, index.getRow(3));
+        assertEquals(2, index.getRow(4));
+        assertEquals(4, index.getRow(5));
+        assertEquals(EdgeRowIndex.NO_ROW, index.getRow(0));
+        assertEquals(EdgeRowIndex.NO_ROW, index.getRow(6));
+        assertEquals(EdgeRowIndex.NO_ROW, index.getRow(Integer.MIN_VALUE));
+        assertEquals(EdgeRowIndex.NO_ROW, index.getRow(Integer.MAX_VALUE));
+        // A dense array of one int per id.
+        assertEquals(4L * 5, index.getMemoryUsage());
+    }
+
+    @Test
+    public void testSparseIds() {
+        final EdgeRowIndex index = new EdgeRowIndex(
+                new int[]{Integer.MAX_VALUE, 0, -7, 1000000});
+        assertEquals(0, index.getRow(Integer.MAX_VALUE));
+        assertEquals(1, index.getRow(0));
+        assertEquals(2, index.getRow(-7));
+        assertEquals(3, index.getRow(1000000));
+        assertEquals(EdgeRowIndex.NO_ROW, index.getRow(7));
+    }
+
+    @Test
+    public void testEmpty() {
+        final EdgeRowIndex index = new EdgeRowIndex(new int[0]);
+        assertEquals(0, index.size());
+        assertEquals(EdgeRowIndex.NO_ROW, index.getRow(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateDenseIds() {
+        new EdgeRowIndex(new int[]{1, 2, 2, 3}).getRow(2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateSparseIds() {
+        new EdgeRowIndex(new int[]{1, 5000000, 5000000}).getRow(5000000);
+    }
+}
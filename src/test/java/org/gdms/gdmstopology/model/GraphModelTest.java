@@ -32,6 +32,8 @@
  */
 package org.gdms.gdmstopology.model;
 
+import java.util.HashSet;
+import java.util.Set;
 import org.junit.Test;
 import org.gdms.data.DataSource;
 import org.gdms.gdmstopology.TopologySetupTest;
@@ -103,4 +105,252 @@ public class GraphModelTest extends TopologySetupTest {
         assertTrue(wMultigraphDataSource.outgoingEdgesOf(5).isEmpty());
         ds.close();
     }
+
+    /**
+     * Checks that a graph answers the same adjacency queries once its CSR
+     * snapshot is loaded.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DWMultigraphDataSource indexed = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        indexed.setWeightFieldIndex("length");
+        DWMultigraphDataSource snapshot = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        snapshot.setWeightFieldIndex("length");
+        CSRGraph csr = snapshot.loadSnapshot();
+        assertEquals(ds.getRowCount(), csr.getArcCount());
+
+        assertEquals(indexed.vertexSet(), snapshot.vertexSet());
+        for (Integer vertex : indexed.vertexSet()) {
+            assertTrue(snapshot.containsVertex(vertex));
+            assertEquals(indexed.inDegreeOf(vertex), snapshot.inDegreeOf(vertex));
+            assertEquals(indexed.outDegreeOf(vertex), snapshot.outDegreeOf(vertex));
+            assertEquals(rows(indexed.incomingEdgesOf(vertex)),
+                    rows(snapshot.incomingEdgesOf(vertex)));
+            assertEquals(rows(indexed.outgoingEdgesOf(vertex)),
+                    rows(snapshot.outgoingEdgesOf(vertex)));
+        }
+        GraphEdge ge = snapshot.getEdge(3, 5);
+        assertTrue(ge != null);
+        assertTrue((ge.getWeight() - ds.getGeometry(1).getLength()) == 0);
+        assertTrue(snapshot.containsEdge(3, 5));
+        assertFalse(snapshot.containsEdge(5, 3));
+        assertFalse(snapshot.containsVertex(100));
+        assertTrue(snapshot.outDegreeOf(100) == 0);
+        ds.close();
+    }
+
+    /**
+     * Checks the vertex set recovered by scanning the data set against the
+     * one read from the snapshot.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testVertexSet() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DWMultigraphDataSource indexed = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        Set<Integer> vertices = indexed.vertexSet();
+        Set<Integer> expected = new HashSet<Integer>();
+        for (long i = 0; i < ds.getRowCount(); i++) {
+            expected.add(ds.getInt(i, ds.getMetadata().getFieldIndex("start_node")));
+            expected.add(ds.getInt(i, ds.getMetadata().getFieldIndex("end_node")));
+        }
+        assertEquals(expected, vertices);
+        assertEquals(expected.size(), vertices.size());
+        assertTrue(vertices instanceof VertexSet);
+        VertexSet vertexSet = (VertexSet) vertices;
+        for (Integer vertex : expected) {
+            assertTrue(vertexSet.getMin() <= vertex);
+            assertTrue(vertexSet.getMax() >= vertex);
+            assertTrue(indexed.containsVertex(vertex));
+        }
+        assertFalse(vertices.contains(100));
+        assertFalse(vertices.contains("1"));
+        assertFalse(indexed.containsVertex(100));
+
+        DWMultigraphDataSource snapshot = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        snapshot.loadSnapshot();
+        assertEquals(vertices, snapshot.vertexSet());
+        ds.close();
+    }
+
+    /**
+     * Checks that the edge visitors enumerate the same edges as the
+     * {@link GraphEdge} sets, with and without a snapshot, and for the
+     * edge-reversed and undirected views.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEdgeVisitors() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        DWMultigraphDataSource indexed = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        indexed.setWeightFieldIndex("length");
+        DWMultigraphDataSource snapshot = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        snapshot.setWeightFieldIndex("length");
+        snapshot.loadSnapshot();
+        EdgeReversedGraphDataSource reversed = new EdgeReversedGraphDataSource(indexed);
+        WMultigraphDataSource undirected = new WMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+        undirected.setWeightFieldIndex("length");
+
+        for (Integer vertex : indexed.vertexSet()) {
+            Set<Long> out = rows(indexed.outgoingEdgesOf(vertex));
+            Set<Long> in = rows(indexed.incomingEdgesOf(vertex));
+            assertEquals(out, visitRows(indexed, vertex, true));
+            assertEquals(in, visitRows(indexed, vertex, false));
+            assertEquals(out, visitRows(snapshot, vertex, true));
+            assertEquals(in, visitRows(snapshot, vertex, false));
+            assertEquals(in, visitRows(reversed, vertex, true));
+            assertEquals(out, visitRows(reversed, vertex, false));
+            Set<Long> all = new HashSet<Long>(out);
+            all.addAll(in);
+            assertEquals(all, visitRows(undirected, vertex, true));
+            assertEquals(all, visitRows(undirected, vertex, false));
+        }
+
+        // Stopping after the first edge.
+        final int[] count = new int[1];
+        assertFalse(snapshot.visitOutgoingEdges(6, new EdgeVisitor() {
+            @Override
+            public boolean visit(int source, int target, double weight,
+                                 long rowId) {
+                count[0]++;
+                return false;
+            }
+        }));
+        assertEquals(1, count[0]);
+        ds.close();
+    }
+
+    /**
+     * Returns the row ids of the edges visited from the given vertex, checking
+     * that the vertex is always the source (outgoing) or target (incoming).
+     *
+     * @param graph    The graph.
+     * @param vertex   The vertex.
+     * @param outgoing {@code true} to visit outgoing edges.
+     * @return The row ids.
+     */
+    private static Set<Long> visitRows(GDMSValueGraph<Integer, GraphEdge> graph,
+                                       final int vertex,
+                                       final boolean outgoing)
+            throws Exception {
+        final Set<Long> rows = new HashSet<Long>();
+        EdgeVisitor visitor = new EdgeVisitor() {
+            @Override
+            public boolean visit(int source, int target, double weight,
+                                 long rowId) {
+                assertEquals(vertex, outgoing ? source : target);
+                rows.add(rowId);
+                return true;
+            }
+        };
+        if (outgoing) {
+            graph.visitOutgoingEdges(vertex, visitor);
+        } else {
+            graph.visitIncomingEdges(vertex, visitor);
+        }
+        return rows;
+    }
+
+    /**
+     * Checks that edits are layered over the data set and honored by the
+     * adjacency queries, with and without a snapshot.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEdits() throws Exception {
+        DataSource ds = dsf.getDataSource(GRAPH2D_EDGES);
+        ds.open();
+        long rowCount = ds.getRowCount();
+        for (boolean useSnapshot : new boolean[]{false, true}) {
+            DWMultigraphDataSource dw = new DWMultigraphDataSource(dsf, ds, new NullProgressMonitor());
+            dw.setWeightFieldIndex("length");
+            if (useSnapshot) {
+                dw.loadSnapshot();
+            }
+            GDMSGraph graph = dw.getGDMSGraph();
+            int vertexCount = graph.vertexSet().size();
+            assertFalse(graph.isEdited());
+
+            // Close the road 3 -> 5.
+            GraphEdge closed = graph.getEdge(3, 5);
+            assertTrue(graph.removeEdge(closed));
+            assertFalse(graph.removeEdge(closed));
+            assertTrue(graph.isEdited());
+            assertFalse(graph.containsEdge(3, 5));
+            assertNull(graph.getEdge(3, 5));
+            assertEquals(0, graph.inDegreeOf(5));
+            assertFalse(rows(graph.outgoingEdgesOf(3)).contains(closed.getRowId()));
+            assertEquals(ds.getRowCount(), rowCount);
+
+            // Add a detour through a new vertex.
+            GraphEdge detour = graph.addEdge(3, 100, 2.5);
+            graph.addEdge(100, 5, 1.5);
+            assertTrue(detour.getRowId() >= rowCount);
+            assertTrue(graph.containsVertex(100));
+            assertTrue(graph.containsEdge(3, 100));
+            assertEquals(vertexCount + 1, graph.vertexSet().size());
+            assertTrue(graph.vertexSet().contains(100));
+            assertEquals(1, graph.inDegreeOf(5));
+            final Set<Long> visited = new HashSet<Long>();
+            graph.visitOutgoingEdges(3, new EdgeVisitor() {
+                @Override
+                public boolean visit(int source, int target, double weight,
+                                     long rowId) {
+                    visited.add(rowId);
+                    return true;
+                }
+            });
+            assertEquals(rows(graph.outgoingEdgesOf(3)), visited);
+            assertTrue(visited.contains(detour.getRowId()));
+
+            // Override a weight.
+            graph.setEdgeWeight(detour, 7.0);
+            assertEquals(7.0, graph.getEdge(3, 100).getWeight(), 0.0);
+            assertEquals(7.0, graph.getEdgeWeight(detour), 0.0);
+
+            // Reopen the road and remove the detour vertex.
+            assertTrue(graph.addEdge(3, 5, closed));
+            assertTrue(graph.containsEdge(3, 5));
+            assertTrue(graph.removeVertex(100));
+            assertFalse(graph.containsVertex(100));
+            assertFalse(graph.containsEdge(3, 100));
+            assertEquals(vertexCount, graph.vertexSet().size());
+
+            // Remove an original vertex.
+            assertTrue(graph.removeVertex(6));
+            assertFalse(graph.containsVertex(6));
+            assertFalse(graph.vertexSet().contains(6));
+            assertEquals(vertexCount - 1, graph.vertexSet().size());
+            assertEquals(0, graph.outDegreeOf(6));
+
+            graph.clearEdits();
+            assertFalse(graph.isEdited());
+            assertTrue(graph.containsVertex(6));
+            assertEquals(2, graph.outDegreeOf(6));
+        }
+        ds.close();
+    }
+
+    /**
+     * Returns the row ids of the given edges.
+     *
+     * @param edges The edges.
+     * @return Their row ids.
+     */
+    private static Set<Long> rows(Set<GraphEdge> edges) {
+        Set<Long> rows = new HashSet<Long>();
+        for (GraphEdge edge : edges) {
+            rows.add(edge.getRowId());
+        }
+        return rows;
+    }
 }
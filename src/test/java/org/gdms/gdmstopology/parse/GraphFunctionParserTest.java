@@ -32,10 +32,13 @@
  */
 package org.gdms.gdmstopology.parse;
 
+import java.io.File;
 import org.gdms.data.types.Type;
 import org.gdms.data.types.TypeFactory;
 import org.gdms.data.values.ValueFactory;
 import org.gdms.driver.memory.MemoryDataSetDriver;
+import org.gdms.gdmstopology.centrality.CentralityMetrics;
+import org.gdms.gdmstopology.function.ST_ShortestPath;
 import org.gdms.gdmstopology.function.ST_ShortestPathLength;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -77,6 +80,42 @@ public class GraphFunctionParserTest {
         assertEquals(null, p.getWeightsColumn());
     }
 
+    @Test
+    public void testSamplingString() {
+        GraphFunctionParser p = new GraphFunctionParser();
+        String testString = "samples=200, seed=5";
+        MemoryDataSetDriver edges =
+                new MemoryDataSetDriver(
+                new String[]{"length"},
+                new Type[]{TypeFactory.createType(Type.DOUBLE)});
+
+        assertFalse(p.isWeightsString(testString));
+
+        p.parseStringArgument(edges, ValueFactory.createValue(testString));
+        assertEquals(200, p.getSampling().getSampleCount(1000));
+        assertEquals(5, p.getSampling().getSeed());
+        assertEquals(null, p.getWeightsColumn());
+    }
+
+    @Test
+    public void testMetricsString() {
+        GraphFunctionParser p = new GraphFunctionParser();
+        String testString = "metrics=straightness, gravity, beta=0.01";
+        MemoryDataSetDriver edges =
+                new MemoryDataSetDriver(
+                new String[]{"length"},
+                new Type[]{TypeFactory.createType(Type.DOUBLE)});
+
+        assertFalse(p.isWeightsString(testString));
+
+        p.parseStringArgument(edges, ValueFactory.createValue(testString));
+        assertTrue(p.getMetrics().contains(CentralityMetrics.STRAIGHTNESS));
+        assertTrue(p.getMetrics().contains(CentralityMetrics.GRAVITY));
+        assertEquals(0.01, p.getMetrics().getBeta(), 0.0);
+        assertEquals(null, p.getSampling());
+        assertEquals(null, p.getWeightsColumn());
+    }
+
     @Test
     public void testReversedString() {
         GraphFunctionParser p = new GraphFunctionParser();
@@ -130,4 +169,35 @@ public class GraphFunctionParserTest {
                      + "NoSPACESorIllegalCharacters",
                      p.getWeightsColumn());
     }
+
+    @Test
+    public void testAlgorithmString() {
+        GraphFunctionParser p = new GraphFunctionParser();
+        String testString = " BiDirectional ";
+
+        assertTrue(p.isAlgorithmString(testString));
+        assertFalse(p.isDirectedString(testString));
+        assertFalse(p.isWeightsString(testString));
+
+        p.parseStringArgument(null, ValueFactory.createValue(testString));
+        assertEquals(ST_ShortestPath.BIDIRECTIONAL, p.getAlgorithm());
+        assertNull(p.getGlobalOrientation());
+        assertNull(p.getWeightsColumn());
+    }
+
+    @Test
+    public void testHierarchyString() {
+        GraphFunctionParser p = new GraphFunctionParser();
+        String testString = " Hierarchy= /tmp/roads.gtch ";
+
+        assertTrue(p.isHierarchyString(testString));
+        assertFalse(p.isHierarchyString(GraphFunctionParser.HIERARCHY_PREFIX));
+        assertFalse(p.isAlgorithmString(testString));
+        assertFalse(p.isWeightsString(testString));
+
+        p.parseStringArgument(null, ValueFactory.createValue(testString));
+        assertEquals(new File("/tmp/roads.gtch"), p.getHierarchyFile());
+        assertNull(p.getAlgorithm());
+        assertNull(p.getWeightsColumn());
+    }
 }
@@ -0,0 +1,149 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link AStar} against a plain Dijkstra search.
+ *
+ * @author Adam Gouge
+ */
+public class AStarTest {
+
+    private static final double TOLERANCE = 1e-9;
+    private static final int SIDE = 15;
+
+    /**
+     * Builds a grid with unit spacing whose weights are the lengths of the
+     * edges multiplied by a random factor between 1 and 2.
+     */
+    private CSRGraph prepareGrid(Random random) {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(4 * SIDE * SIDE);
+        int edgeId = 1;
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                final int id = i * SIDE + j + 1;
+                builder.addVertex(id);
+                if (j + 1 < SIDE) {
+                    final double w = 1 + random.nextDouble();
+                    builder.addArc(id, id + 1, edgeId, w, edgeId - 1);
+                    builder.addArc(id + 1, id, edgeId, w, edgeId - 1);
+                    edgeId++;
+                }
+                if (i + 1 < SIDE) {
+                    final double w = 1 + random.nextDouble();
+                    builder.addArc(id, id + SIDE, edgeId, w, edgeId - 1);
+                    builder.addArc(id + SIDE, id, edgeId, w, edgeId - 1);
+                    edgeId++;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the grid coordinates of the vertices.
+     */
+    private NodeCoordinates coordinates(CSRGraph graph) {
+        final double[] x = new double[graph.getVertexCount()];
+        final double[] y = new double[graph.getVertexCount()];
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            final int id = graph.getVertexId(v) - 1;
+            x[v] = id % SIDE;
+            y[v] = id / SIDE;
+        }
+        return new NodeCoordinates(x, y);
+    }
+
+    @Test
+    public void testGrid() {
+        final Random random = new Random(7);
+        final CSRGraph graph = prepareGrid(random);
+        final AStar aStar = new AStar(graph, coordinates(graph));
+        assertTrue(aStar.getScale() >= 1.0);
+        final int n = graph.getVertexCount();
+        for (int source = 0; source < n; source += 11) {
+            final double[] expected =
+                    BidirectionalDijkstraTest.distances(graph, source);
+            for (int target = 0; target < n; target += 3) {
+                final ArcPath path = aStar.compute(source, target);
+                assertEquals(expected[target], path.getLength(), TOLERANCE);
+            }
+        }
+        // A straight corridor is explored rather than the whole grid.
+        final int corner = graph.indexOf(1);
+        final int other = graph.indexOf(SIDE);
+        aStar.compute(corner, other);
+        assertTrue(aStar.getSettledCount() < n / 2);
+    }
+
+    @Test
+    public void testUnknownCoordinates() {
+        final Random random = new Random(11);
+        final CSRGraph graph = prepareGrid(random);
+        final NodeCoordinates known = coordinates(graph);
+        final double[] x = new double[graph.getVertexCount()];
+        final double[] y = new double[graph.getVertexCount()];
+        for (int v = 0; v < x.length; v++) {
+            x[v] = v % 2 == 0 ? Double.NaN : known.distance(v, 0);
+            y[v] = 0;
+        }
+        final NodeCoordinates partial = new NodeCoordinates(x, y);
+        assertEquals(0.0, AStar.admissibleScale(graph, partial), 0.0);
+        final AStar aStar = new AStar(graph, partial);
+        final double[] expected = BidirectionalDijkstraTest.distances(graph, 0);
+        for (int target = 0; target < graph.getVertexCount(); target++) {
+            assertEquals(expected[target],
+                         aStar.compute(0, target).getLength(), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testUnreachable() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(1);
+        builder.addArc(1, 2, 1, 1.0, 0);
+        final CSRGraph graph = builder.build();
+        final AStar aStar = new AStar(
+                graph, new NodeCoordinates(new double[]{0, 1},
+                                           new double[]{0, 0}));
+        assertEquals(1.0, aStar.compute(0, 1).getLength(), TOLERANCE);
+        assertNull(aStar.compute(1, 0));
+    }
+}
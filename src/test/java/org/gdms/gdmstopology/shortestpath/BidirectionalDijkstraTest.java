@@ -0,0 +1,152 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link BidirectionalDijkstra} against a plain Dijkstra search.
+ *
+ * @author Adam Gouge
+ */
+public class BidirectionalDijkstraTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testRandomGraphs() {
+        final Random random = new Random(42);
+        for (int trial = 0; trial < 20; trial++) {
+            final CSRGraph graph = randomGraph(random, 60, 180);
+            final BidirectionalDijkstra search =
+                    new BidirectionalDijkstra(graph);
+            final int n = graph.getVertexCount();
+            for (int source = 0; source < n; source += 7) {
+                final double[] expected = distances(graph, source);
+                for (int target = 0; target < n; target++) {
+                    final ArcPath path = search.compute(source, target);
+                    if (Double.isInfinite(expected[target])) {
+                        assertNull(path);
+                    } else {
+                        assertEquals(expected[target], path.getLength(),
+                                     TOLERANCE);
+                        checkPath(graph, path, source, target);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTrivialPath() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(1);
+        builder.addArc(1, 2, 1, 1.0, 0);
+        final CSRGraph graph = builder.build();
+        final ArcPath path = new BidirectionalDijkstra(graph).compute(0, 0);
+        assertEquals(0, path.size());
+        assertEquals(0.0, path.getLength(), TOLERANCE);
+        assertNull(new BidirectionalDijkstra(graph).compute(1, 0));
+    }
+
+    /**
+     * Makes sure the arcs of the path are contiguous, go from the source to
+     * the target and add up to its length.
+     */
+    static void checkPath(CSRGraph graph, ArcPath path,
+                          int source, int target) {
+        int vertex = source;
+        double length = 0.0;
+        for (int i = 0; i < path.size(); i++) {
+            final int arc = path.getArc(i);
+            assertEquals(vertex, graph.getArcSource(arc));
+            vertex = graph.getArcTarget(arc);
+            length += graph.getArcWeight(arc);
+        }
+        assertEquals(target, vertex);
+        assertEquals(path.getLength(), length, TOLERANCE);
+    }
+
+    /**
+     * Builds a random directed graph with integer weights, so that ties
+     * between shortest paths are frequent.
+     */
+    static CSRGraph randomGraph(Random random, int vertexCount,
+                                int arcCount) {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(arcCount);
+        for (int v = 1; v <= vertexCount; v++) {
+            builder.addVertex(v);
+        }
+        for (int arc = 0; arc < arcCount; arc++) {
+            builder.addArc(1 + random.nextInt(vertexCount),
+                           1 + random.nextInt(vertexCount),
+                           arc + 1, random.nextInt(10), arc);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Computes the distances from a source with an O(n^2) Dijkstra search.
+     */
+    static double[] distances(CSRGraph graph, int source) {
+        final int n = graph.getVertexCount();
+        final double[] distances = new double[n];
+        final boolean[] settled = new boolean[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[source] = 0.0;
+        for (int i = 0; i < n; i++) {
+            int u = -1;
+            for (int v = 0; v < n; v++) {
+                if (!settled[v] && (u == -1 || distances[v] < distances[u])) {
+                    u = v;
+                }
+            }
+            if (Double.isInfinite(distances[u])) {
+                break;
+            }
+            settled[u] = true;
+            for (int arc = graph.outArcsBegin(u); arc < graph.outArcsEnd(u);
+                    arc++) {
+                final int w = graph.getArcTarget(arc);
+                distances[w] = Math.min(distances[w],
+                                        distances[u] + graph.getArcWeight(arc));
+            }
+        }
+        return distances;
+    }
+}
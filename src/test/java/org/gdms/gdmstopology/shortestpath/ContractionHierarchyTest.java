@@ -0,0 +1,148 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.checkPath;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.distances;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.randomGraph;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link ContractionHierarchy} and {@link ContractionHierarchySearch}
+ * against a plain Dijkstra search.
+ *
+ * @author Adam Gouge
+ */
+public class ContractionHierarchyTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testRandomGraphs() {
+        final Random random = new Random(7);
+        for (int trial = 0; trial < 20; trial++) {
+            final CSRGraph graph = randomGraph(random, 60, 180);
+            checkAllPairs(graph, ContractionHierarchy.build(graph));
+        }
+    }
+
+    @Test
+    public void testRanks() {
+        final CSRGraph graph = randomGraph(new Random(3), 40, 120);
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        final boolean[] seen = new boolean[graph.getVertexCount()];
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            final int rank = hierarchy.getRank(v);
+            assertTrue(rank >= 0 && rank < seen.length && !seen[rank]);
+            seen[rank] = true;
+        }
+        assertEquals(hierarchy.getArcCount() - hierarchy.getShortcutCount(),
+                     countOriginalArcs(hierarchy));
+    }
+
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        final Random random = new Random(11);
+        final CSRGraph graph = randomGraph(random, 50, 150);
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        final File file = File.createTempFile("hierarchy", ".gtch");
+        try {
+            ContractionHierarchyFile.write(hierarchy, file);
+            final ContractionHierarchy read =
+                    ContractionHierarchyFile.read(file, graph);
+            assertEquals(hierarchy.getArcCount(), read.getArcCount());
+            assertEquals(hierarchy.getShortcutCount(),
+                         read.getShortcutCount());
+            for (int v = 0; v < graph.getVertexCount(); v++) {
+                assertEquals(hierarchy.getRank(v), read.getRank(v));
+            }
+            checkAllPairs(graph, read);
+
+            // A hierarchy does not apply to another graph.
+            try {
+                ContractionHierarchyFile.read(
+                        file, randomGraph(random, 50, 150));
+                fail("Expected an IOException.");
+            } catch (IOException ex) {
+                // Expected.
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compares the hierarchy search to a Dijkstra search from every vertex.
+     */
+    private void checkAllPairs(CSRGraph graph,
+                               ContractionHierarchy hierarchy) {
+        final ContractionHierarchySearch search =
+                new ContractionHierarchySearch(hierarchy);
+        final int n = graph.getVertexCount();
+        for (int source = 0; source < n; source++) {
+            final double[] expected = distances(graph, source);
+            for (int target = 0; target < n; target++) {
+                final ArcPath path = search.compute(source, target);
+                if (Double.isInfinite(expected[target])) {
+                    assertNull(path);
+                } else {
+                    assertEquals(expected[target], path.getLength(),
+                                 TOLERANCE);
+                    checkPath(graph, path, source, target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the arcs of the hierarchy standing for arcs of the graph.
+     */
+    private static int countOriginalArcs(ContractionHierarchy hierarchy) {
+        int count = 0;
+        for (int arc = 0; arc < hierarchy.getArcCount(); arc++) {
+            if (hierarchy.getArcOriginal(arc) != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link DistanceMatrix} and {@link DistanceMatrixFile}.
+ *
+ * @author Adam Gouge
+ */
+public class DistanceMatrixTest {
+
+    private static final int SOURCES = 7;
+    private static final int TARGETS = 5;
+
+    @Test
+    public void testInMemory() throws IOException {
+        final DistanceMatrix matrix = DistanceMatrix.create(
+                SOURCES, TARGETS, DistanceMatrix.DEFAULT_MEMORY_LIMIT);
+        assertFalse(matrix.isSpilled());
+        checkRows(matrix);
+    }
+
+    @Test
+    public void testSpilled() throws IOException {
+        final DistanceMatrix matrix = DistanceMatrix.create(
+                SOURCES, TARGETS, 0);
+        assertTrue(matrix.isSpilled());
+        checkRows(matrix);
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        final DistanceMatrix matrix = DistanceMatrix.create(SOURCES, TARGETS, 0);
+        final double[][] rows = fill(matrix);
+        final int[] sourceIds = new int[SOURCES];
+        final int[] targetIds = new int[TARGETS];
+        for (int i = 0; i < SOURCES; i++) {
+            sourceIds[i] = 100 + i;
+        }
+        for (int j = 0; j < TARGETS; j++) {
+            targetIds[j] = 200 + j;
+        }
+        final File file = File.createTempFile("matrix", ".gtdm");
+        try {
+            DistanceMatrixFile.write(matrix, sourceIds, targetIds, file);
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            final byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            raf.close();
+            final ByteBuffer buffer =
+                    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(DistanceMatrixFile.MAGIC, buffer.getInt());
+            assertEquals(DistanceMatrixFile.VERSION, buffer.getInt());
+            assertEquals(SOURCES, buffer.getInt());
+            assertEquals(TARGETS, buffer.getInt());
+            for (int i = 0; i < SOURCES; i++) {
+                for (int j = 0; j < TARGETS; j++) {
+                    assertEquals(rows[i][j], buffer.getDouble(), 0.0);
+                }
+            }
+            for (int i = 0; i < SOURCES; i++) {
+                assertEquals(sourceIds[i], buffer.getInt());
+            }
+            for (int j = 0; j < TARGETS; j++) {
+                assertEquals(targetIds[j], buffer.getInt());
+            }
+            assertFalse(buffer.hasRemaining());
+        } finally {
+            matrix.close();
+            file.delete();
+        }
+    }
+
+    /**
+     * Fills the matrix out of order and reads it back.
+     */
+    private void checkRows(DistanceMatrix matrix) throws IOException {
+        try {
+            final double[][] rows = fill(matrix);
+            final double[] row = new double[TARGETS];
+            for (int i = 0; i < SOURCES; i++) {
+                matrix.getRow(i, row);
+                for (int j = 0; j < TARGETS; j++) {
+                    assertEquals(rows[i][j], row[j], 0.0);
+                }
+            }
+        } finally {
+            matrix.close();
+        }
+    }
+
+    /**
+     * Fills the matrix with random rows, from the last to the first.
+     */
+    private double[][] fill(DistanceMatrix matrix) throws IOException {
+        final Random random = new Random(29);
+        final double[][] rows = new double[SOURCES][TARGETS];
+        for (int i = SOURCES - 1; i >= 0; i--) {
+            for (int j = 0; j < TARGETS; j++) {
+                rows[i][j] = random.nextInt(4) == 0
+                        ? Double.POSITIVE_INFINITY
+                        : random.nextDouble();
+            }
+            matrix.setRow(i, rows[i]);
+        }
+        return rows;
+    }
+}
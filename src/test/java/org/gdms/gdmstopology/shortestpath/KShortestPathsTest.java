@@ -0,0 +1,153 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.checkPath;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.randomGraph;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link KShortestPaths} against an enumeration of all loopless paths.
+ *
+ * @author Adam Gouge
+ */
+public class KShortestPathsTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testRandomGraphs() {
+        final Random random = new Random(17);
+        for (int trial = 0; trial < 30; trial++) {
+            final CSRGraph graph = randomGraph(random, 8, 24);
+            final KShortestPaths search = new KShortestPaths(graph);
+            for (int source = 0; source < graph.getVertexCount(); source++) {
+                for (int target = 0; target < graph.getVertexCount(); target++) {
+                    checkPaths(graph, search, source, target, 12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelEdges() {
+        // 1 -> 2 by two edges of weights 1 and 2, then 2 -> 3.
+        final CSRGraph.Builder builder = new CSRGraph.Builder(3);
+        builder.addArc(1, 2, 1, 1.0, 0);
+        builder.addArc(1, 2, 2, 2.0, 1);
+        builder.addArc(2, 3, 3, 1.0, 2);
+        final CSRGraph graph = builder.build();
+        final List<ArcPath> paths = new KShortestPaths(graph).compute(
+                graph.indexOf(1), graph.indexOf(3), 5);
+        assertEquals(2, paths.size());
+        assertEquals(2.0, paths.get(0).getLength(), TOLERANCE);
+        assertEquals(3.0, paths.get(1).getLength(), TOLERANCE);
+        assertEquals(1, graph.getArcEdgeId(paths.get(0).getArc(0)));
+        assertEquals(2, graph.getArcEdgeId(paths.get(1).getArc(0)));
+    }
+
+    @Test
+    public void testUnreachableTarget() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(1);
+        builder.addArc(1, 2, 1, 1.0, 0);
+        final CSRGraph graph = builder.build();
+        final KShortestPaths search = new KShortestPaths(graph);
+        assertTrue(search.compute(graph.indexOf(2), graph.indexOf(1), 3)
+                .isEmpty());
+        // The source is its own shortest path.
+        final List<ArcPath> paths =
+                search.compute(graph.indexOf(1), graph.indexOf(1), 3);
+        assertEquals(1, paths.size());
+        assertEquals(0, paths.get(0).size());
+    }
+
+    /**
+     * Checks that the paths found are distinct loopless paths whose lengths
+     * are the k smallest lengths of all loopless paths.
+     */
+    private static void checkPaths(CSRGraph graph, KShortestPaths search,
+                                   int source, int target, int k) {
+        final List<Double> expected = new ArrayList<Double>();
+        enumerate(graph, source, target, new boolean[graph.getVertexCount()],
+                  0.0, expected);
+        Collections.sort(expected);
+        final List<ArcPath> paths = search.compute(source, target, k);
+        assertEquals(Math.min(k, expected.size()), paths.size());
+        final Set<List<Integer>> distinct = new HashSet<List<Integer>>();
+        for (int i = 0; i < paths.size(); i++) {
+            final ArcPath path = paths.get(i);
+            checkPath(graph, path, source, target);
+            assertEquals(expected.get(i), path.getLength(), TOLERANCE);
+            final Set<Integer> vertices = new HashSet<Integer>();
+            vertices.add(source);
+            final List<Integer> arcs = new ArrayList<Integer>();
+            for (int arc : path.getArcs()) {
+                assertTrue(vertices.add(graph.getArcTarget(arc)));
+                arcs.add(arc);
+            }
+            assertTrue(distinct.add(arcs));
+        }
+    }
+
+    /**
+     * Collects the lengths of all loopless paths by depth-first search.
+     */
+    private static void enumerate(CSRGraph graph, int vertex, int target,
+                                  boolean[] visited, double length,
+                                  List<Double> lengths) {
+        if (vertex == target) {
+            lengths.add(length);
+            return;
+        }
+        visited[vertex] = true;
+        for (int arc = graph.outArcsBegin(vertex);
+                arc < graph.outArcsEnd(vertex); arc++) {
+            final int w = graph.getArcTarget(arc);
+            if (!visited[w]) {
+                enumerate(graph, w, target, visited,
+                          length + graph.getArcWeight(arc), lengths);
+            }
+        }
+        visited[vertex] = false;
+    }
+}
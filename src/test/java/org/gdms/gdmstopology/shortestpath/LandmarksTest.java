@@ -0,0 +1,184 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.checkPath;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.distances;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.randomGraph;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link Landmarks} and {@link LandmarkAStar} against a plain Dijkstra
+ * search.
+ *
+ * @author Adam Gouge
+ */
+public class LandmarksTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testRandomGraphs() {
+        final Random random = new Random(5);
+        for (int trial = 0; trial < 20; trial++) {
+            final CSRGraph graph = randomGraph(random, 60, 180);
+            checkAllPairs(graph, Landmarks.build(graph, 4));
+        }
+    }
+
+    @Test
+    public void testSelections() {
+        final Random random = new Random(7);
+        for (int trial = 0; trial < 10; trial++) {
+            final CSRGraph graph = randomGraph(random, 60, 150);
+            for (int selection : new int[]{Landmarks.FARTHEST,
+                                            Landmarks.AVOID}) {
+                final Landmarks landmarks =
+                        Landmarks.build(graph, 6, selection);
+                assertEquals(6, landmarks.getLandmarkCount());
+                final Set<Integer> distinct = new HashSet<Integer>();
+                for (int i = 0; i < landmarks.getLandmarkCount(); i++) {
+                    assertTrue(distinct.add(landmarks.getLandmark(i)));
+                }
+                checkAllPairs(graph, landmarks);
+            }
+        }
+    }
+
+    @Test
+    public void testTableSize() {
+        assertEquals(16 * 1000000, Landmarks.tableSize(16, 1000000));
+        try {
+            Landmarks.tableSize(16, 200000000);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testLowerBounds() {
+        final Random random = new Random(9);
+        final CSRGraph graph = randomGraph(random, 50, 200);
+        final Landmarks landmarks = Landmarks.build(graph, 6);
+        assertEquals(6, landmarks.getLandmarkCount());
+        for (int source = 0; source < graph.getVertexCount(); source++) {
+            final double[] expected = distances(graph, source);
+            for (int target = 0; target < graph.getVertexCount(); target++) {
+                final double bound = landmarks.lowerBound(source, target);
+                assertTrue(bound >= 0);
+                assertTrue(bound <= expected[target]);
+            }
+        }
+    }
+
+    @Test
+    public void testFewVertices() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder(1);
+        builder.addArc(1, 2, 1, 1.5, 0);
+        final CSRGraph graph = builder.build();
+        final Landmarks landmarks = Landmarks.build(graph, 8);
+        assertEquals(2, landmarks.getLandmarkCount());
+        final LandmarkAStar search = new LandmarkAStar(landmarks);
+        assertEquals(1.5, search.compute(0, 1).getLength(), TOLERANCE);
+        assertNull(search.compute(1, 0));
+        // The landmarks prove the source cannot reach the target.
+        assertEquals(0, search.getSettledCount());
+    }
+
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        final Random random = new Random(13);
+        final CSRGraph graph = randomGraph(random, 50, 150);
+        final Landmarks landmarks = Landmarks.build(graph, 5);
+        final File file = File.createTempFile("landmarks", ".gtlm");
+        try {
+            LandmarksFile.write(landmarks, file);
+            final Landmarks read = LandmarksFile.read(file, graph);
+            assertEquals(landmarks.getLandmarkCount(),
+                         read.getLandmarkCount());
+            for (int i = 0; i < read.getLandmarkCount(); i++) {
+                assertEquals(landmarks.getLandmark(i), read.getLandmark(i));
+                for (int v = 0; v < graph.getVertexCount(); v++) {
+                    assertEquals(landmarks.getDistanceFrom(i, v),
+                                 read.getDistanceFrom(i, v), 0.0);
+                    assertEquals(landmarks.getDistanceTo(i, v),
+                                 read.getDistanceTo(i, v), 0.0);
+                }
+            }
+            checkAllPairs(graph, read);
+
+            // The tables do not apply to another graph.
+            try {
+                LandmarksFile.read(file, randomGraph(random, 50, 150));
+                fail("Expected an IOException.");
+            } catch (IOException ex) {
+                // Expected.
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compares the ALT search to a Dijkstra search from every vertex.
+     */
+    private void checkAllPairs(CSRGraph graph, Landmarks landmarks) {
+        final LandmarkAStar search = new LandmarkAStar(landmarks);
+        final int n = graph.getVertexCount();
+        for (int source = 0; source < n; source++) {
+            final double[] expected = distances(graph, source);
+            for (int target = 0; target < n; target++) {
+                final ArcPath path = search.compute(source, target);
+                if (Double.isInfinite(expected[target])) {
+                    assertNull(path);
+                } else {
+                    assertEquals(expected[target], path.getLength(),
+                                 TOLERANCE);
+                    checkPath(graph, path, source, target);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.distances;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.randomGraph;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link OneToManyDijkstra} and {@link ManyToManyDijkstra} against a
+ * plain Dijkstra search.
+ *
+ * @author Adam Gouge
+ */
+public class ManyToManyDijkstraTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testOneToMany() {
+        final Random random = new Random(17);
+        final CSRGraph graph = randomGraph(random, 60, 150);
+        final OneToManyDijkstra search = new OneToManyDijkstra(graph);
+        for (int source = 0; source < graph.getVertexCount(); source++) {
+            final int[] targets = randomTargets(random, graph, 5);
+            final double[] expected = distances(graph, source);
+            final double[] actual = search.compute(source, targets);
+            for (int j = 0; j < targets.length; j++) {
+                assertEquals(expected[targets[j]], actual[j], TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void testComputeAll() throws Exception {
+        final Random random = new Random(23);
+        final CSRGraph graph = randomGraph(random, 60, 100);
+        final OneToManyDijkstra search = new OneToManyDijkstra(graph);
+        for (int source = 0; source < graph.getVertexCount(); source += 5) {
+            final double[] expected = distances(graph, source);
+            final int[] reported = new int[graph.getVertexCount()];
+            final double[] last = new double[]{0.0};
+            search.computeAll(source, new SettleListener() {
+                @Override
+                public void settled(int vertex, double distance) {
+                    reported[vertex]++;
+                    assertEquals(expected[vertex], distance, TOLERANCE);
+                    // Vertices are reported in order of distance.
+                    assertTrue(distance >= last[0]);
+                    last[0] = distance;
+                }
+            });
+            for (int v = 0; v < reported.length; v++) {
+                assertEquals(1, reported[v]);
+            }
+        }
+    }
+
+    @Test
+    public void testOrderedParallelResults() throws Exception {
+        final Random random = new Random(19);
+        final CSRGraph graph = randomGraph(random, 80, 240);
+        final int sourceCount = 200;
+        final int[] sources = new int[sourceCount];
+        final int[][] targets = new int[sourceCount][];
+        for (int i = 0; i < sourceCount; i++) {
+            sources[i] = random.nextInt(graph.getVertexCount());
+            targets[i] = randomTargets(random, graph, 1 + random.nextInt(8));
+        }
+        for (int threads = 1; threads <= 4; threads += 3) {
+            final int[] next = new int[1];
+            new ManyToManyDijkstra(graph, threads).compute(
+                    sources, targets,
+                    new ManyToManyDijkstra.DistanceHandler() {
+                @Override
+                public void handle(int position, double[] actual) {
+                    assertEquals(next[0]++, position);
+                    final double[] expected =
+                            distances(graph, sources[position]);
+                    for (int j = 0; j < actual.length; j++) {
+                        assertEquals(expected[targets[position][j]],
+                                     actual[j], TOLERANCE);
+                    }
+                }
+            });
+            assertEquals(sourceCount, next[0]);
+        }
+    }
+
+    /**
+     * Picks random targets, possibly repeated.
+     */
+    private static int[] randomTargets(Random random, CSRGraph graph,
+                                       int count) {
+        final int[] targets = new int[count];
+        for (int j = 0; j < count; j++) {
+            targets[j] = random.nextInt(graph.getVertexCount());
+        }
+        return targets;
+    }
+}
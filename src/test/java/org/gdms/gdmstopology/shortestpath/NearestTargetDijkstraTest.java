@@ -0,0 +1,80 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.distances;
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.randomGraph;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link NearestTargetDijkstra} against plain Dijkstra searches from
+ * every vertex.
+ *
+ * @author Adam Gouge
+ */
+public class NearestTargetDijkstraTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testNearestTargets() {
+        final Random random = new Random(29);
+        final CSRGraph graph = randomGraph(random, 60, 120);
+        final NearestTargetDijkstra search = new NearestTargetDijkstra(graph);
+        for (int query = 0; query < 5; query++) {
+            final int[] targets = new int[1 + random.nextInt(4)];
+            for (int j = 0; j < targets.length; j++) {
+                targets[j] = random.nextInt(graph.getVertexCount());
+            }
+            search.compute(targets);
+            for (int v = 0; v < graph.getVertexCount(); v++) {
+                final double[] expected = distances(graph, v);
+                double nearest = Double.POSITIVE_INFINITY;
+                for (int target : targets) {
+                    nearest = Math.min(nearest, expected[target]);
+                }
+                assertEquals(nearest, search.getDistance(v), TOLERANCE);
+                final int target = search.getNearestTarget(v);
+                if (nearest == Double.POSITIVE_INFINITY) {
+                    assertEquals(NearestTargetDijkstra.NO_TARGET, target);
+                } else {
+                    assertEquals(nearest, expected[target], TOLERANCE);
+                }
+            }
+        }
+    }
+}
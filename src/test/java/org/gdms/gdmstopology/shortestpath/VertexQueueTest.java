@@ -0,0 +1,183 @@
+/**
+ * GDMS-Topology is a library dedicated to graph analysis. It is based on the
+ * JGraphT library available at <http://www.jgrapht.org/>. It enables computing
+ * and processing large graphs using spatial and alphanumeric indexes.
+ *
+ * This version is developed at French IRSTV Institute as part of the EvalPDU
+ * project, funded by the French Agence Nationale de la Recherche (ANR) under
+ * contract ANR-08-VILL-0005-01 and GEBD project funded by the French Ministry
+ * of Ecology and Sustainable Development.
+ *
+ * GDMS-Topology is distributed under GPL 3 license. It is produced by the
+ * "Atelier SIG" team of the IRSTV Institute <http://www.irstv.fr/> CNRS FR
+ * 2488.
+ *
+ * Copyright (C) 2009-2013 IRSTV (FR CNRS 2488)
+ *
+ * GDMS-Topology is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * GDMS-Topology is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * GDMS-Topology. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://wwwc.orbisgis.org/> or contact
+ * directly: info_at_orbisgis.org
+ */
+package org.gdms.gdmstopology.shortestpath;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.gdms.gdmstopology.model.CSRGraph;
+import org.junit.Test;
+
+import static org.gdms.gdmstopology.shortestpath.BidirectionalDijkstraTest.distances;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the bucket queues against a {@link BinaryHeap}.
+ *
+ * @author Adam Gouge
+ */
+public class VertexQueueTest {
+
+    @Test
+    public void testDialQueue() {
+        final Random random = new Random(3);
+        for (int maxWeight : new int[]{0, 1, 7, 100}) {
+            checkMonotone(random, new DialQueue(200, maxWeight), maxWeight);
+        }
+    }
+
+    @Test
+    public void testRadixHeap() {
+        final Random random = new Random(4);
+        for (int maxWeight : new int[]{0, 1, 7, 100, 1 << 20}) {
+            checkMonotone(random, new RadixHeap(200), maxWeight);
+        }
+    }
+
+    @Test
+    public void testQueueChoice() {
+        final Random random = new Random(8);
+        assertTrue(VertexQueues.create(randomGraph(random, 1, 1.0))
+                instanceof DialQueue);
+        assertTrue(VertexQueues.create(randomGraph(
+                random, VertexQueues.MAX_DIAL_WEIGHT + 1, 1.0))
+                instanceof RadixHeap);
+        assertTrue(VertexQueues.create(randomGraph(random, 10, 0.5))
+                instanceof BinaryHeap);
+    }
+
+    @Test
+    public void testSearches() {
+        final Random random = new Random(11);
+        for (int maxWeight : new int[]{1, 9, 1000000}) {
+            for (double scale : new double[]{1.0, 0.25}) {
+                final CSRGraph graph = randomGraph(random, maxWeight, scale);
+                final OneToManyDijkstra oneToMany =
+                        new OneToManyDijkstra(graph);
+                final BidirectionalDijkstra bidirectional =
+                        new BidirectionalDijkstra(graph);
+                final int n = graph.getVertexCount();
+                final int[] all = new int[n];
+                for (int v = 0; v < n; v++) {
+                    all[v] = v;
+                }
+                for (int source = 0; source < n; source += 7) {
+                    final double[] expected = distances(graph, source);
+                    assertTrue(Arrays.equals(expected,
+                                             oneToMany.compute(source, all)));
+                    for (int target = 0; target < n; target += 5) {
+                        final ArcPath path =
+                                bidirectional.compute(source, target);
+                        assertEquals(expected[target], path == null
+                                ? Double.POSITIVE_INFINITY
+                                : path.getLength(), 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs random monotone operations, as made by Dijkstra's algorithm, on
+     * the given queue and on a binary heap, and compares the polled keys.
+     */
+    private static void checkMonotone(Random random, VertexQueue queue,
+                                      int maxWeight) {
+        final int n = 200;
+        final BinaryHeap heap = new BinaryHeap(n);
+        final double[] keys = new double[n];
+        for (int round = 0; round < 3; round++) {
+            Arrays.fill(keys, Double.POSITIVE_INFINITY);
+            final boolean[] polled = new boolean[n];
+            double last = 0;
+            queue.insertOrDecrease(0, 0);
+            heap.insertOrDecrease(0, 0);
+            keys[0] = 0;
+            while (!heap.isEmpty()) {
+                assertEquals(heap.peekKey(), queue.peekKey(), 0.0);
+                final int expected = heap.poll();
+                final int actual = queue.poll();
+                assertEquals(keys[expected], keys[actual], 0.0);
+                assertTrue(keys[actual] >= last);
+                last = keys[actual];
+                // Settle the vertex the queue gave.
+                if (actual != expected) {
+                    heap.insertOrDecrease(expected, keys[expected]);
+                    heap.insertOrDecrease(actual, -1);
+                    heap.poll();
+                }
+                polled[actual] = true;
+                for (int i = 0; i < 4; i++) {
+                    final int w = random.nextInt(n);
+                    final double key = last + random.nextInt(maxWeight + 1);
+                    if (!polled[w] && key < keys[w]) {
+                        keys[w] = key;
+                        queue.insertOrDecrease(w, key);
+                        heap.insertOrDecrease(w, key);
+                    }
+                }
+                // Leave some vertices behind to test clearing.
+                if (round == 1 && random.nextInt(50) == 0) {
+                    break;
+                }
+            }
+            queue.clear();
+            heap.clear();
+            assertTrue(queue.isEmpty());
+            assertEquals(Double.POSITIVE_INFINITY, queue.peekKey(), 0.0);
+        }
+    }
+
+    /**
+     * Builds a random graph of 60 vertices with weights
+     * {@code scale * (0..maxWeight)}, including {@code maxWeight}.
+     */
+    private static CSRGraph randomGraph(Random random, int maxWeight,
+                                        double scale) {
+        final int vertexCount = 60;
+        final int arcCount = 200;
+        final CSRGraph.Builder builder = new CSRGraph.Builder(arcCount);
+        for (int v = 1; v <= vertexCount; v++) {
+            builder.addVertex(v);
+        }
+        for (int arc = 0; arc < arcCount; arc++) {
+            final int weight = arc == 0
+                    ? maxWeight
+                    : random.nextInt(maxWeight + 1);
+            builder.addArc(1 + random.nextInt(vertexCount),
+                           1 + random.nextInt(vertexCount),
+                           arc + 1, scale * weight, arc);
+        }
+        return builder.build();
+    }
+}